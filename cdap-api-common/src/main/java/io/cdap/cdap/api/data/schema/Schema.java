@@ -534,6 +534,8 @@ public final class Schema implements Serializable {
 
   // This is a on demand cache for case insensitive field lookup. No need to serialize.
   private transient Map<String, Field> ignoreCaseFieldMap;
+  // This is a on demand cache for field index lookup. No need to serialize.
+  private transient Map<String, Integer> fieldIndexMap;
 
   private Schema(Type type,
                  @Nullable LogicalType logicalType,                                   // Not null for logical type
@@ -670,6 +672,30 @@ public final class Schema implements Serializable {
     return getField(name, false);
   }
 
+  /**
+   * Returns the position of the record {@link Field} of the given name in the list returned by {@link #getFields()}.
+   *
+   * @param name Name of the field
+   * @return the index of the field or {@code -1} if there is no such field in this record
+   *         or this is not a {@link Type#RECORD RECORD} schema.
+   */
+  public int getFieldIndex(String name) {
+    if (fields == null) {
+      return -1;
+    }
+    // Build the field index map on demand.
+    Map<String, Integer> indexMap = fieldIndexMap;
+    if (indexMap == null) {
+      indexMap = new HashMap<>();
+      for (int i = 0; i < fields.size(); i++) {
+        indexMap.put(fields.get(i).getName(), i);
+      }
+      fieldIndexMap = indexMap;
+    }
+    Integer index = indexMap.get(name);
+    return index == null ? -1 : index;
+  }
+
   /**
    * Returns the record {@link Field} of the given name.
    *
@@ -37,4 +37,14 @@ public interface MetricsCollector {
    * @param value value of the metric.
    */
   void gauge(String metricName, long value);
+
+  /**
+   * Record a value to the distribution of a metric at the current time. Percentiles of the metric can be computed
+   * from the distribution of values recorded. By default, the value is ignored.
+   * @param metricName Name of the metric.
+   * @param value value to record.
+   */
+  default void distribution(String metricName, long value) {
+    // no-op
+  }
 }
@@ -19,8 +19,12 @@ package io.cdap.cdap.app.metrics;
 import io.cdap.cdap.api.metrics.Metrics;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.MetricsCounter;
 import io.cdap.cdap.common.conf.Constants;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 /**
  * Implementation of {@link Metrics} for user-defined metrics.
  * Metrics will be emitted through {@link MetricsCollectionService}.
@@ -28,14 +32,21 @@ import io.cdap.cdap.common.conf.Constants;
 public class ProgramUserMetrics implements Metrics {
 
   private final MetricsContext metricsContext;
+  // Counters are usually emitted per record, hence keep bound counters to avoid resolving them on every call
+  private final ConcurrentMap<String, MetricsCounter> counters;
 
   public ProgramUserMetrics(MetricsContext metricsContext) {
     this.metricsContext = metricsContext.childContext(Constants.Metrics.Tag.SCOPE, "user");
+    this.counters = new ConcurrentHashMap<>();
   }
 
   @Override
   public void count(String metricName, int delta) {
-    metricsContext.increment(metricName, delta);
+    MetricsCounter counter = counters.get(metricName);
+    if (counter == null) {
+      counter = counters.computeIfAbsent(metricName, metricsContext::getCounter);
+    }
+    counter.increment(delta);
   }
 
   @Override
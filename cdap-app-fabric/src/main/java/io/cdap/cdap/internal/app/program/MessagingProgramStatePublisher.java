@@ -28,6 +28,8 @@ import io.cdap.cdap.internal.app.ApplicationSpecificationAdapter;
 import io.cdap.cdap.internal.app.runtime.codec.ArgumentsCodec;
 import io.cdap.cdap.internal.app.runtime.codec.ProgramOptionsCodec;
 import io.cdap.cdap.messaging.MessagingService;
+import io.cdap.cdap.messaging.StoreRequest;
+import io.cdap.cdap.messaging.client.BatchingMessagePublisher;
 import io.cdap.cdap.messaging.client.StoreRequestBuilder;
 import io.cdap.cdap.proto.Notification;
 import io.cdap.cdap.proto.id.TopicId;
@@ -36,10 +38,12 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Publishes program state and heartbeat messages through the messaging service
+ * Publishes program state and heartbeat messages through the messaging service. Messages published concurrently
+ * by different threads are merged into fewer publish calls to the messaging service.
  */
 public class MessagingProgramStatePublisher implements ProgramStatePublisher {
   private static final Logger LOG = LoggerFactory.getLogger(MessagingProgramStatePublisher.class);
@@ -47,13 +51,17 @@ public class MessagingProgramStatePublisher implements ProgramStatePublisher {
     ApplicationSpecificationAdapter.addTypeAdapters(new GsonBuilder())
       .registerTypeAdapter(Arguments.class, new ArgumentsCodec())
       .registerTypeAdapter(ProgramOptions.class, new ProgramOptionsCodec()).create();
-  private final MessagingService messagingService;
+  private static final int MAX_BATCH_SIZE = 1000;
+  private static final long MAX_BATCH_BYTES = 1024 * 1024;
+
+  private final BatchingMessagePublisher batchingPublisher;
   private final TopicId topicId;
   private final RetryStrategy retryStrategy;
 
   public MessagingProgramStatePublisher(MessagingService messagingService,
                                         TopicId topicId, RetryStrategy retryStrategy) {
-    this.messagingService = messagingService;
+    // All messages go to the same topic, hence only need one publishing thread
+    this.batchingPublisher = new BatchingMessagePublisher(messagingService, 1, MAX_BATCH_SIZE, MAX_BATCH_BYTES);
     this.topicId = topicId;
     this.retryStrategy = retryStrategy;
   }
@@ -69,13 +77,18 @@ public class MessagingProgramStatePublisher implements ProgramStatePublisher {
     // This should be refactored into a common class for publishing to TMS with a retry strategy
     while (!done) {
       try {
-        messagingService.publish(StoreRequestBuilder.of(topicId)
-                                   .addPayload(GSON.toJson(programStatusNotification))
-                                   .build());
+        publishAndWait(StoreRequestBuilder.of(topicId)
+                         .addPayload(GSON.toJson(programStatusNotification))
+                         .build());
         LOG.trace("Published program status notification: {}", programStatusNotification);
         done = true;
       } catch (IOException e) {
         Throwables.propagate(e);
+      } catch (InterruptedException e) {
+        // Something explicitly stopping this thread. Simply just break and reset the interrupt flag.
+        LOG.warn("Publishing message to TMS interrupted.");
+        Thread.currentThread().interrupt();
+        done = true;
       } catch (TopicNotFoundException | ServiceUnavailableException e) {
         // These exceptions are retry-able due to TMS not completely started
         if (startTime < 0) {
@@ -99,4 +112,25 @@ public class MessagingProgramStatePublisher implements ProgramStatePublisher {
       }
     }
   }
+
+  /**
+   * Closes the underlying {@link BatchingMessagePublisher}, after publishing the messages that are already queued.
+   */
+  @Override
+  public void close() throws IOException {
+    batchingPublisher.close();
+  }
+
+  /**
+   * Publishes the given request and waits for the publish to complete.
+   */
+  private void publishAndWait(StoreRequest request) throws TopicNotFoundException, IOException, InterruptedException {
+    try {
+      batchingPublisher.publish(request).get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      Throwables.propagateIfPossible(cause, TopicNotFoundException.class, IOException.class);
+      throw Throwables.propagate(cause);
+    }
+  }
 }
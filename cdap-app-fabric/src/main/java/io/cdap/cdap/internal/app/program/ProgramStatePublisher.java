@@ -17,12 +17,14 @@ package io.cdap.cdap.internal.app.program;
 
 import io.cdap.cdap.proto.Notification;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Map;
 
 /**
  * Publishing program state messages and heartbeats
  */
-public interface ProgramStatePublisher {
+public interface ProgramStatePublisher extends Closeable {
 
   /**
    * Publish message which is identified by notificationType and the properties.
@@ -31,4 +33,13 @@ public interface ProgramStatePublisher {
    * @param properties properties of the message to publish
    */
   void publish(Notification.Type notificationType, Map<String, String> properties);
+
+  /**
+   * Releases the resources used for publishing. No message can be published after this method is called.
+   * The default implementation does nothing.
+   */
+  @Override
+  default void close() throws IOException {
+    // no-op
+  }
 }
@@ -37,6 +37,7 @@ import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Executors;
@@ -47,6 +48,7 @@ import javax.annotation.Nullable;
 /**
  * Wrapper around {@link ProgramStateWriter} with additional hook to start a
  * heartbeat thread on running or resuming program state and stop the thread on completed/error/suspend state.
+ * The {@link ProgramStatePublisher} for the heartbeats is closed on completed/killed/error state.
  */
 public class ProgramStateWriterWithHeartBeat {
   private static final Logger LOG = LoggerFactory.getLogger(ProgramStateWriterWithHeartBeat.class);
@@ -95,16 +97,19 @@ public class ProgramStateWriterWithHeartBeat {
   public void completed() {
     stopHeartbeatThread();
     programStateWriter.completed(programRunId);
+    closePublisher();
   }
 
   public void killed() {
     stopHeartbeatThread();
     programStateWriter.killed(programRunId);
+    closePublisher();
   }
 
   public void error(Throwable failureCause) {
     stopHeartbeatThread();
     programStateWriter.error(programRunId, failureCause);
+    closePublisher();
   }
 
   public void suspend() {
@@ -144,6 +149,17 @@ public class ProgramStateWriterWithHeartBeat {
     }
   }
 
+  /**
+   * Closes the heartbeat publisher once the program reached a terminal state, since no more heartbeat is sent.
+   */
+  private void closePublisher() {
+    try {
+      messagingProgramStatePublisher.close();
+    } catch (IOException e) {
+      LOG.warn("Failed to close the heartbeat publisher for program {}", programRunId, e);
+    }
+  }
+
   /**
    * This method is only used for testing
    * @return true if the heart beat thread is active, false otherwise
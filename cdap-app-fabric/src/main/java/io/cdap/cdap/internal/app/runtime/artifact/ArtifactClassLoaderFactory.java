@@ -23,11 +23,8 @@ import io.cdap.cdap.app.runtime.ProgramClassLoaderProvider;
 import io.cdap.cdap.app.runtime.ProgramRunner;
 import io.cdap.cdap.app.runtime.ProgramRunnerFactory;
 import io.cdap.cdap.common.conf.CConfiguration;
-import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.lang.DirectoryClassLoader;
 import io.cdap.cdap.common.lang.FilterClassLoader;
-import io.cdap.cdap.common.lang.jar.BundleJarUtil;
-import io.cdap.cdap.common.utils.DirUtils;
 import io.cdap.cdap.internal.app.runtime.ProgramClassLoader;
 import io.cdap.cdap.proto.ProgramType;
 import io.cdap.cdap.security.impersonation.EntityImpersonator;
@@ -42,21 +39,20 @@ import java.util.Iterator;
 import java.util.concurrent.Callable;
 
 /**
- * Given an artifact, creates a {@link CloseableClassLoader} from it. Takes care of unpacking the artifact and
- * cleaning up the directory when the classloader is closed.
+ * Given an artifact, creates a {@link CloseableClassLoader} from it. Takes care of unpacking the artifact through the
+ * {@link ExpandedArtifactCache} and releasing the unpacked directory when the classloader is closed.
  */
 final class ArtifactClassLoaderFactory {
   private static final Logger LOG = LoggerFactory.getLogger(ArtifactClassLoaderFactory.class);
 
   private final CConfiguration cConf;
   private final ProgramRunnerFactory programRunnerFactory;
-  private final File tmpDir;
+  private final ExpandedArtifactCache artifactCache;
 
   ArtifactClassLoaderFactory(CConfiguration cConf, ProgramRunnerFactory programRunnerFactory) {
     this.cConf = cConf;
     this.programRunnerFactory = programRunnerFactory;
-    this.tmpDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
-                           cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
+    this.artifactCache = ExpandedArtifactCache.get(cConf);
   }
 
   /**
@@ -106,7 +102,7 @@ final class ArtifactClassLoaderFactory {
   }
 
   /**
-   * Unpack the given {@code artifactLocation} to a temporary directory and call
+   * Unpack the given {@code artifactLocation} through the {@link ExpandedArtifactCache} and call
    * {@link #createClassLoader(File)} to create the {@link ClassLoader}.
    *
    * @param artifactLocation the location of the artifact to create the classloader from
@@ -118,24 +114,29 @@ final class ArtifactClassLoaderFactory {
   private CloseableClassLoader createClassLoader(final Location artifactLocation,
                                                  EntityImpersonator entityImpersonator) throws IOException {
     try {
-      final File unpackDir = entityImpersonator.impersonate(new Callable<File>() {
-        @Override
-        public File call() throws IOException {
-          return BundleJarUtil.unJar(artifactLocation, DirUtils.createTempDir(tmpDir));
-        }
-      });
+      final ExpandedArtifactCache.ExpandedArtifact expandedArtifact =
+        entityImpersonator.impersonate(new Callable<ExpandedArtifactCache.ExpandedArtifact>() {
+          @Override
+          public ExpandedArtifactCache.ExpandedArtifact call() throws IOException {
+            return artifactCache.expand(artifactLocation);
+          }
+        });
 
-      final CloseableClassLoader classLoader = createClassLoader(unpackDir);
+      final CloseableClassLoader classLoader;
+      try {
+        classLoader = createClassLoader(expandedArtifact.getDirectory());
+      } catch (Exception e) {
+        Closeables.closeQuietly(expandedArtifact);
+        throw e;
+      }
       return new CloseableClassLoader(classLoader, new Closeable() {
         @Override
         public void close() throws IOException {
           try {
             Closeables.closeQuietly(classLoader);
-            if (unpackDir.exists()) {
-              DirUtils.deleteDirectoryContents(unpackDir);
-            }
+            expandedArtifact.close();
           } catch (IOException e) {
-            LOG.warn("Failed to delete directory {}", unpackDir, e);
+            LOG.warn("Failed to release directory {}", expandedArtifact.getDirectory(), e);
           }
         }
       });
@@ -166,24 +167,30 @@ final class ArtifactClassLoaderFactory {
     }
 
     try {
-      final File unpackDir = entityImpersonator.impersonate(new Callable<File>() {
-        @Override
-        public File call() throws IOException {
-          return BundleJarUtil.unJar(artifactLocation, DirUtils.createTempDir(tmpDir));
-        }
-      });
+      final ExpandedArtifactCache.ExpandedArtifact expandedArtifact =
+        entityImpersonator.impersonate(new Callable<ExpandedArtifactCache.ExpandedArtifact>() {
+          @Override
+          public ExpandedArtifactCache.ExpandedArtifact call() throws IOException {
+            return artifactCache.expand(artifactLocation);
+          }
+        });
 
-      final CloseableClassLoader parentClassLoader = createClassLoader(artifactLocations, entityImpersonator);
+      final File unpackDir = expandedArtifact.getDirectory();
+      final CloseableClassLoader parentClassLoader;
+      try {
+        parentClassLoader = createClassLoader(artifactLocations, entityImpersonator);
+      } catch (Exception e) {
+        Closeables.closeQuietly(expandedArtifact);
+        throw e;
+      }
       return new CloseableClassLoader(new DirectoryClassLoader(unpackDir, parentClassLoader, "lib"), new Closeable() {
         @Override
         public void close() throws IOException {
           try {
             Closeables.closeQuietly(parentClassLoader);
-            if (unpackDir.exists()) {
-              DirUtils.deleteDirectoryContents(unpackDir);
-            }
+            expandedArtifact.close();
           } catch (IOException e) {
-            LOG.warn("Failed to delete directory {}", unpackDir, e);
+            LOG.warn("Failed to release directory {}", unpackDir, e);
           }
         }
       });
@@ -17,7 +17,11 @@
 package io.cdap.cdap.internal.app.runtime.artifact;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -84,6 +88,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.Spliterators;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -169,6 +174,11 @@ import javax.annotation.Nullable;
  *
  * In order to prevent deadlock if the storage backend is SQL, if a transaction needs to use multiple tables, the order
  * to use the table will be: artifact_data -> app_data -> plugin_data -> universal_plugin_data
+ *
+ * Plugin lookups are served from an in-memory plugin catalog, which holds the decoded plugin_data rows of each
+ * parent artifact and the decoded universal_plugin_data rows of each namespace. The whole catalog is invalidated
+ * whenever artifacts are written or deleted through this class. Since other processes can modify the artifact
+ * tables as well, catalog entries also expire after a configurable time.
  */
 public class ArtifactStore {
   private static final String ARTIFACTS_PATH = "artifacts";
@@ -183,6 +193,8 @@ public class ArtifactStore {
   private final Impersonator impersonator;
   private final Set<String> requirementBlacklist;
   private final TransactionRunner transactionRunner;
+  private final Cache<PluginCatalogKey, List<PluginEntry>> pluginCatalog;
+  private volatile long pluginCatalogGeneration;
 
   @Inject
   ArtifactStore(CConfiguration cConf,
@@ -197,6 +209,11 @@ public class ArtifactStore {
       new HashSet<>(cConf.getTrimmedStringCollection(Constants.REQUIREMENTS_DATASET_TYPE_EXCLUDE))
         .stream().map(String::toLowerCase).collect(Collectors.toSet());
     this.transactionRunner = transactionRunner;
+    this.pluginCatalog = CacheBuilder.newBuilder()
+      .maximumWeight(cConf.getLong(Constants.AppFabric.PLUGIN_CATALOG_CACHE_MAX_PLUGINS))
+      .weigher((Weigher<PluginCatalogKey, List<PluginEntry>>) (key, entries) -> entries.size() + 1)
+      .expireAfterWrite(cConf.getLong(Constants.AppFabric.PLUGIN_CATALOG_CACHE_EXPIRATION_SECS), TimeUnit.SECONDS)
+      .build();
   }
 
   /**
@@ -483,34 +500,31 @@ public class ArtifactStore {
                                                                           @Nullable String type)
     throws ArtifactNotFoundException, IOException {
 
+    long catalogGeneration = pluginCatalogGeneration;
     return TransactionRunners.run(transactionRunner, context -> {
       StructuredTable artifactDataTable = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
       SortedMap<ArtifactDescriptor, Set<PluginClass>> plugins =
         getPluginsInArtifact(artifactDataTable, parentArtifactId,
                              input -> (type == null || type.equals(input.getType())) && isAllowed(input));
-
-      // Scan plugins
-      StructuredTable pluginTable = getTable(context, StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE);
-      try (CloseableIterator<StructuredRow> iterator =
-             pluginTable.scan(createPluginScanRange(parentArtifactId, type), Integer.MAX_VALUE)) {
-        while (iterator.hasNext()) {
-          StructuredRow row = iterator.next();
-          addPluginToMap(namespace, parentArtifactId, plugins, row);
+      Predicate<PluginEntry> typeFilter = entry -> type == null || type.equals(entry.pluginData.pluginClass.getType());
+
+      // Add plugins that extend the parent artifact
+      List<PluginEntry> entries = getPluginCatalog(context, catalogGeneration,
+                                                   StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE,
+                                                   parentArtifactId.getNamespace().getId(), parentArtifactId.getName());
+      for (PluginEntry entry : entries) {
+        if (typeFilter.test(entry)) {
+          addPluginToMap(namespace, parentArtifactId, plugins, entry);
         }
       }
 
-      // Scan universal plugins
-      StructuredTable uniPluginTable = getTable(context, StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE);
-      List<Range> ranges = Arrays.asList(
-        createUniversalPluginScanRange(namespace.getNamespace(), type),
-        createUniversalPluginScanRange(NamespaceId.SYSTEM.getNamespace(), type)
-      );
-
-      for (Range range : ranges) {
-        try (CloseableIterator<StructuredRow> iterator = uniPluginTable.scan(range, Integer.MAX_VALUE)) {
-          while (iterator.hasNext()) {
-            StructuredRow row = iterator.next();
-            addPluginToMap(namespace, parentArtifactId, plugins, row);
+      // Add universal plugins
+      for (String ns : Arrays.asList(namespace.getNamespace(), NamespaceId.SYSTEM.getNamespace())) {
+        entries = getPluginCatalog(context, catalogGeneration,
+                                   StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE, ns, null);
+        for (PluginEntry entry : entries) {
+          if (typeFilter.test(entry)) {
+            addPluginToMap(namespace, parentArtifactId, plugins, entry);
           }
         }
       }
@@ -567,6 +581,7 @@ public class ArtifactStore {
     @Nullable final Predicate<io.cdap.cdap.proto.id.ArtifactId> pluginRange, int limit, ArtifactSortOrder order)
     throws IOException, ArtifactNotFoundException, PluginNotExistsException {
 
+    long catalogGeneration = pluginCatalogGeneration;
     SortedMap<ArtifactDescriptor, PluginClass> result = TransactionRunners.run(transactionRunner, context -> {
       StructuredTable artifactDataTable = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
       List<ArtifactDetail> parentArtifactDetails = getArtifacts(artifactDataTable, parentArtifactRange,
@@ -594,23 +609,22 @@ public class ArtifactStore {
         }
       }
 
+      Predicate<PluginEntry> nameFilter = entry -> type.equals(entry.pluginData.pluginClass.getType())
+        && name.equals(entry.pluginData.pluginClass.getName());
+
       // Add all plugins that extends from the given set of parents
-      StructuredTable pluginTable = getTable(context, StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE);
-      PluginKeyPrefix pluginKey = new PluginKeyPrefix(parentArtifactRange.getNamespace(),
-                                                      parentArtifactRange.getName(), type, name);
-      try (CloseableIterator<StructuredRow> iterator =
-             pluginTable.scan(Range.singleton(pluginKey.keys), Integer.MAX_VALUE)) {
-        addPluginsInRangeToMap(namespace, parentArtifacts, iterator, plugins, pluginRange, limit);
-      }
+      List<PluginEntry> entries = getPluginCatalog(context, catalogGeneration,
+                                                   StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE,
+                                                   parentArtifactRange.getNamespace(), parentArtifactRange.getName());
+      addPluginsInRangeToMap(namespace, parentArtifacts, entries.stream().filter(nameFilter).iterator(),
+                             plugins, pluginRange, limit);
 
       // Add all universal plugins
-      StructuredTable uniPluginTable = getTable(context, StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE);
       for (String ns : Arrays.asList(namespace.getNamespace(), NamespaceId.SYSTEM.getNamespace())) {
-        UniversalPluginKeyPrefix universalPluginKey = new UniversalPluginKeyPrefix(ns, type, name);
-        try (CloseableIterator<StructuredRow> iterator =
-               uniPluginTable.scan(Range.singleton(universalPluginKey.keys), Integer.MAX_VALUE)) {
-          addPluginsInRangeToMap(namespace, parentArtifacts, iterator, plugins, pluginRange, limit);
-        }
+        entries = getPluginCatalog(context, catalogGeneration,
+                                   StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE, ns, null);
+        addPluginsInRangeToMap(namespace, parentArtifacts, entries.stream().filter(nameFilter).iterator(),
+                               plugins, pluginRange, limit);
       }
 
       return Collections.unmodifiableSortedMap(plugins);
@@ -719,12 +733,15 @@ public class ArtifactStore {
         // write artifact metadata
         writeMeta(context, artifactId, data);
       });
+      invalidatePluginCatalog();
 
       return new ArtifactDetail(new ArtifactDescriptor(artifactId.toArtifactId(), destination), artifactMeta);
     } catch (TransactionException e) {
       destination.delete();
       // TODO: CDAP-14672 define TransactionConflictException for the SPI
       // should throw WriteConflictException(artifactId) on transaction conflict
+      // the transaction could have been committed even if it failed
+      invalidatePluginCatalog();
       throw TransactionRunners.propagate(e, ArtifactAlreadyExistsException.class, IOException.class);
     }
   }
@@ -756,18 +773,22 @@ public class ArtifactStore {
   public void delete(final Id.Artifact artifactId) throws ArtifactNotFoundException, IOException {
 
     // delete everything in a transaction
-    TransactionRunners.run(transactionRunner, context -> {
-      // first look up details to get plugins and apps in the artifact
-      StructuredTable artifactDataTable = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
-      ArtifactCell artifactCell = new ArtifactCell(artifactId);
-      Optional<StructuredRow> optional = artifactDataTable.read(artifactCell.keys);
-      if (!optional.isPresent()) {
-        throw new ArtifactNotFoundException(artifactId.toEntityId());
-      }
-      deleteMeta(context, artifactId,
-                 GSON.fromJson(optional.get().getString(StoreDefinition.ArtifactStore.ARTIFACT_DATA_FIELD),
-                               ArtifactData.class));
-    }, IOException.class, ArtifactNotFoundException.class);
+    try {
+      TransactionRunners.run(transactionRunner, context -> {
+        // first look up details to get plugins and apps in the artifact
+        StructuredTable artifactDataTable = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
+        ArtifactCell artifactCell = new ArtifactCell(artifactId);
+        Optional<StructuredRow> optional = artifactDataTable.read(artifactCell.keys);
+        if (!optional.isPresent()) {
+          throw new ArtifactNotFoundException(artifactId.toEntityId());
+        }
+        deleteMeta(context, artifactId,
+                   GSON.fromJson(optional.get().getString(StoreDefinition.ArtifactStore.ARTIFACT_DATA_FIELD),
+                                 ArtifactData.class));
+      }, IOException.class, ArtifactNotFoundException.class);
+    } finally {
+      invalidatePluginCatalog();
+    }
   }
 
   /**
@@ -781,45 +802,49 @@ public class ArtifactStore {
     final Id.Namespace namespaceId = Id.Namespace.fromEntityId(namespace);
     namespacePathLocator.get(namespace).append(ARTIFACTS_PATH).delete(true);
 
-    TransactionRunners.run(transactionRunner, context -> {
-      // delete all rows about artifacts in the namespace
-      StructuredTable artifactDataTable = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
-      Range artifactScanRange = createArtifactScanRange(namespace);
-      deleteRangeFromTable(artifactDataTable, artifactScanRange);
-
-      // delete all rows about artifacts in the namespace and the plugins they have access to
-      StructuredTable pluginDataTable = getTable(context, StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE);
-      Collection<Field<?>> pluginKey =
-        Collections.singleton(Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAMESPACE_FIELD,
-                                                 namespace.getNamespace()));
-      deleteRangeFromTable(pluginDataTable, Range.singleton(pluginKey));
-
-      // delete all rows about universal plugins
-      StructuredTable univPluginsDataTable  = getTable(context, StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE);
-      deleteRangeFromTable(univPluginsDataTable,
-                           createUniversalPluginScanRange(namespace.getNamespace(), null));
-
-      // delete app classes in this namespace
-      StructuredTable appClassTable = getTable(context, StoreDefinition.ArtifactStore.APP_DATA_TABLE);
-      deleteRangeFromTable(appClassTable, createAppClassRange(namespace));
-
-      // delete plugins in this namespace from system artifacts
-      // for example, if there was an artifact in this namespace that extends a system artifact
-      Collection<Field<?>> systemPluginKey =
-        Collections.singleton(Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAMESPACE_FIELD,
-                                                 Id.Namespace.SYSTEM.getId()));
-      try (CloseableIterator<StructuredRow> iterator =
-             pluginDataTable.scan(Range.singleton(systemPluginKey), Integer.MAX_VALUE)) {
-        while (iterator.hasNext()) {
-          StructuredRow row = iterator.next();
+    try {
+      TransactionRunners.run(transactionRunner, context -> {
+        // delete all rows about artifacts in the namespace
+        StructuredTable artifactDataTable = getTable(context, StoreDefinition.ArtifactStore.ARTIFACT_DATA_TABLE);
+        Range artifactScanRange = createArtifactScanRange(namespace);
+        deleteRangeFromTable(artifactDataTable, artifactScanRange);
+
+        // delete all rows about artifacts in the namespace and the plugins they have access to
+        StructuredTable pluginDataTable = getTable(context, StoreDefinition.ArtifactStore.PLUGIN_DATA_TABLE);
+        Collection<Field<?>> pluginKey =
+          Collections.singleton(Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAMESPACE_FIELD,
+                                                   namespace.getNamespace()));
+        deleteRangeFromTable(pluginDataTable, Range.singleton(pluginKey));
+
+        // delete all rows about universal plugins
+        StructuredTable univPluginsDataTable  = getTable(context, StoreDefinition.ArtifactStore.UNIV_PLUGIN_DATA_TABLE);
+        deleteRangeFromTable(univPluginsDataTable,
+                             createUniversalPluginScanRange(namespace.getNamespace(), null));
+
+        // delete app classes in this namespace
+        StructuredTable appClassTable = getTable(context, StoreDefinition.ArtifactStore.APP_DATA_TABLE);
+        deleteRangeFromTable(appClassTable, createAppClassRange(namespace));
+
+        // delete plugins in this namespace from system artifacts
+        // for example, if there was an artifact in this namespace that extends a system artifact
+        Collection<Field<?>> systemPluginKey =
+          Collections.singleton(Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAMESPACE_FIELD,
+                                                   Id.Namespace.SYSTEM.getId()));
+        try (CloseableIterator<StructuredRow> iterator =
+               pluginDataTable.scan(Range.singleton(systemPluginKey), Integer.MAX_VALUE)) {
+          while (iterator.hasNext()) {
+            StructuredRow row = iterator.next();
 
-          // if the plugin artifact is in the namespace we're deleting, delete this column.
-          if (namespaceId.getId().equals(row.getString(StoreDefinition.ArtifactStore.ARTIFACT_NAMESPACE_FIELD))) {
-            pluginDataTable.delete(concatFields(PluginKeyPrefix.fromRow(row), ArtifactCell.fromRow(row)));
+            // if the plugin artifact is in the namespace we're deleting, delete this column.
+            if (namespaceId.getId().equals(row.getString(StoreDefinition.ArtifactStore.ARTIFACT_NAMESPACE_FIELD))) {
+              pluginDataTable.delete(concatFields(PluginKeyPrefix.fromRow(row), ArtifactCell.fromRow(row)));
+            }
           }
         }
-      }
-    }, IOException.class);
+      }, IOException.class);
+    } finally {
+      invalidatePluginCatalog();
+    }
   }
 
   private void deleteRangeFromTable(StructuredTable table, Range range) throws IOException {
@@ -1004,45 +1029,41 @@ public class ArtifactStore {
     return result;
   }
 
-  // this method examines the plugin in the given row and checks if they extend the given parent artifact
-  // and are from an artifact in the given namespace.
+  // this method examines the given plugin and checks if it extends the given parent artifact
+  // and is from an artifact in the given namespace.
   // if so, information about the plugin artifact and the plugin details are added to the given map.
   private void addPluginToMap(NamespaceId namespace, Id.Artifact parentArtifactId,
                               SortedMap<ArtifactDescriptor, Set<PluginClass>> map,
-                              StructuredRow row) {
-    ImmutablePair<ArtifactDescriptor, PluginClass> pluginEntry = getPluginEntry(namespace, parentArtifactId, row);
+                              PluginEntry entry) {
+    ImmutablePair<ArtifactDescriptor, PluginClass> pluginEntry = getPluginEntry(namespace, parentArtifactId, entry);
     if (pluginEntry != null && isAllowed(pluginEntry.getSecond())) {
       map.computeIfAbsent(pluginEntry.getFirst(), k -> new HashSet<>()).add(pluginEntry.getSecond());
     }
   }
 
   /**
-   * Decode the PluginClass from the table column if it is from an artifact in the given namespace and
+   * Returns the PluginClass of the given plugin if it is from an artifact in the given namespace and
    * extends the given parent artifact. If the plugin's artifact is not in the given namespace, or it does not
    * extend the given parent artifact, return null.
    */
   @Nullable
   private ImmutablePair<ArtifactDescriptor, PluginClass> getPluginEntry(
-    NamespaceId namespace, Id.Artifact parentArtifactId, StructuredRow row) {
-    ImmutablePair<ArtifactDescriptor, PluginData> pluginPair = getPlugin(row, artifactId -> {
-      NamespaceId namespaceId = artifactId.getNamespaceId();
-      return NamespaceId.SYSTEM.equals(namespaceId) || namespace.equals(namespaceId);
-    });
-
-    if (pluginPair == null) {
+    NamespaceId namespace, Id.Artifact parentArtifactId, PluginEntry entry) {
+    NamespaceId namespaceId = entry.artifactId.getNamespaceId();
+    if (!NamespaceId.SYSTEM.equals(namespaceId) && !namespace.equals(namespaceId)) {
       return null;
     }
 
-    PluginData pluginData = pluginPair.getSecond();
+    PluginData pluginData = entry.pluginData;
     // filter out plugins that don't extend this version of the parent artifact
     if (pluginData.isUsableBy(parentArtifactId.toEntityId())) {
-      return ImmutablePair.of(pluginPair.getFirst(), pluginData.pluginClass);
+      return ImmutablePair.of(entry.descriptor, pluginData.pluginClass);
     }
     return null;
   }
 
   private void addPluginsInRangeToMap(final NamespaceId namespace, List<Id.Artifact> parentArtifacts,
-                                      Iterator<StructuredRow> iterator,
+                                      Iterator<PluginEntry> iterator,
                                       SortedMap<ArtifactDescriptor, PluginClass> plugins,
                                       @Nullable Predicate<io.cdap.cdap.proto.id.ArtifactId> range,
                                       int limit) {
@@ -1053,17 +1074,16 @@ public class ArtifactStore {
       : input -> NamespaceId.SYSTEM.equals(input.getParent()) || input.getParent().equals(namespace);
 
     while (iterator.hasNext()) {
-      StructuredRow row = iterator.next();
-      ImmutablePair<ArtifactDescriptor, PluginData> pluginPair = getPlugin(row, range);
-      if (pluginPair == null) {
+      PluginEntry entry = iterator.next();
+      if (!range.test(entry.artifactId)) {
         continue;
       }
 
-      PluginData pluginData = pluginPair.getSecond();
+      PluginData pluginData = entry.pluginData;
       // filter out plugins that don't extend this version of the parent artifact
       for (Id.Artifact parentArtifactId : parentArtifacts) {
         if (pluginData.isUsableBy(parentArtifactId.toEntityId()) && isAllowed(pluginData.pluginClass)) {
-          plugins.put(pluginPair.getFirst(), pluginData.pluginClass);
+          plugins.put(entry.descriptor, pluginData.pluginClass);
           break;
         }
       }
@@ -1073,9 +1093,58 @@ public class ArtifactStore {
     }
   }
 
-  @Nullable
-  private ImmutablePair<ArtifactDescriptor, PluginData> getPlugin(StructuredRow row,
-                                                                  Predicate<io.cdap.cdap.proto.id.ArtifactId> range) {
+  /**
+   * Returns the decoded plugins in the plugin catalog of the given parent artifact or namespace. The catalog is
+   * loaded from the given table if it is not cached.
+   *
+   * @param context the {@link StructuredTableContext} of the current transaction
+   * @param catalogGeneration the catalog generation read before the current transaction started. The loaded
+   *                          catalog is only cached if it wasn't invalidated since then
+   * @param tableId the plugin or universal plugin table id
+   * @param namespace the parent artifact namespace for the plugin table, or the plugin namespace for the
+   *                  universal plugin table
+   * @param parentName the parent artifact name for the plugin table, or {@code null} for the universal plugin table
+   * @return an immutable list of plugins, in the table order
+   */
+  private List<PluginEntry> getPluginCatalog(StructuredTableContext context, long catalogGeneration,
+                                             StructuredTableId tableId, String namespace,
+                                             @Nullable String parentName) throws IOException {
+    PluginCatalogKey key = new PluginCatalogKey(tableId, namespace, parentName);
+    List<PluginEntry> entries = pluginCatalog.getIfPresent(key);
+    if (entries != null) {
+      return entries;
+    }
+
+    Range range = parentName == null
+      ? createUniversalPluginScanRange(namespace, null)
+      : createPluginScanRange(namespace, parentName);
+
+    ImmutableList.Builder<PluginEntry> builder = ImmutableList.builder();
+    try (CloseableIterator<StructuredRow> iterator = getTable(context, tableId).scan(range, Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        builder.add(decodePlugin(iterator.next()));
+      }
+    }
+    entries = builder.build();
+    synchronized (pluginCatalog) {
+      if (catalogGeneration == pluginCatalogGeneration) {
+        pluginCatalog.put(key, entries);
+      }
+    }
+    return entries;
+  }
+
+  /**
+   * Invalidates the whole plugin catalog. This must be called after plugins are modified.
+   */
+  private void invalidatePluginCatalog() {
+    synchronized (pluginCatalog) {
+      pluginCatalogGeneration++;
+      pluginCatalog.invalidateAll();
+    }
+  }
+
+  private PluginEntry decodePlugin(StructuredRow row) {
     // column is the artifact namespace, name, and version. value is the serialized PluginData
     Id.Namespace artifactNamespace =
       Id.Namespace.from(row.getString(StoreDefinition.ArtifactStore.ARTIFACT_NAMESPACE_FIELD));
@@ -1083,15 +1152,12 @@ public class ArtifactStore {
       Id.Artifact.from(artifactNamespace, row.getString(StoreDefinition.ArtifactStore.ARTIFACT_NAME_FIELD),
                        row.getString(StoreDefinition.ArtifactStore.ARTIFACT_VER_FIELD));
 
-    if (!range.test(artifactId.toEntityId())) {
-      return null;
-    }
     PluginData pluginData = GSON.fromJson(row.getString(StoreDefinition.ArtifactStore.PLUGIN_DATA_FIELD),
                                           PluginData.class);
-    return ImmutablePair.of(new ArtifactDescriptor(
+    ArtifactDescriptor descriptor = new ArtifactDescriptor(
       artifactId.toArtifactId(),
-      Locations.getLocationFromAbsolutePath(locationFactory, pluginData.getArtifactLocationPath())), pluginData);
-
+      Locations.getLocationFromAbsolutePath(locationFactory, pluginData.getArtifactLocationPath()));
+    return new PluginEntry(artifactId.toEntityId(), descriptor, pluginData);
   }
 
   private Range createArtifactScanRange(NamespaceId namespace) {
@@ -1100,15 +1166,10 @@ public class ArtifactStore {
     return Range.singleton(Collections.singleton(stringField));
   }
 
-  private Range createPluginScanRange(Id.Artifact parentArtifactId, @Nullable String type) {
-    List<Field<?>> keys = new ArrayList<>();
-    keys.add(Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAMESPACE_FIELD,
-                                parentArtifactId.getNamespace().getId()));
-    keys.add(Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAME_FIELD, parentArtifactId.getName()));
-    if (type != null) {
-      keys.add(Fields.stringField(StoreDefinition.ArtifactStore.PLUGIN_TYPE_FIELD, type));
-    }
-    return Range.singleton(keys);
+  private Range createPluginScanRange(String parentNamespace, String parentName) {
+    return Range.singleton(Arrays.asList(
+      Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAMESPACE_FIELD, parentNamespace),
+      Fields.stringField(StoreDefinition.ArtifactStore.PARENT_NAME_FIELD, parentName)));
   }
 
   private Range createUniversalPluginScanRange(String namespace, @Nullable String type) {
@@ -1291,6 +1352,53 @@ public class ArtifactStore {
     }
   }
 
+  // Key of a plugin catalog, which is either the plugins of a parent artifact or the universal plugins of a namespace.
+  private static final class PluginCatalogKey {
+    private final StructuredTableId tableId;
+    private final String namespace;
+    @Nullable
+    private final String parentName;
+
+    private PluginCatalogKey(StructuredTableId tableId, String namespace, @Nullable String parentName) {
+      this.tableId = tableId;
+      this.namespace = namespace;
+      this.parentName = parentName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      PluginCatalogKey that = (PluginCatalogKey) o;
+      return tableId.equals(that.tableId)
+        && namespace.equals(that.namespace)
+        && Objects.equal(parentName, that.parentName);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(tableId, namespace, parentName);
+    }
+  }
+
+  // A decoded plugin row in the plugin catalog.
+  private static final class PluginEntry {
+    private final io.cdap.cdap.proto.id.ArtifactId artifactId;
+    private final ArtifactDescriptor descriptor;
+    private final PluginData pluginData;
+
+    private PluginEntry(io.cdap.cdap.proto.id.ArtifactId artifactId, ArtifactDescriptor descriptor,
+                        PluginData pluginData) {
+      this.artifactId = artifactId;
+      this.descriptor = descriptor;
+      this.pluginData = pluginData;
+    }
+  }
+
   // Data that will be stored for an application class.
   private static class AppData {
     private final ApplicationClass appClass;
@@ -0,0 +1,494 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.runtime.artifact;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.lang.jar.BundleJarUtil;
+import io.cdap.cdap.common.utils.DirUtils;
+import org.apache.twill.filesystem.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * A cache of expanded artifact jars, shared by all the processes that use the same local directory, such that
+ * the same artifact is only expanded once, instead of once per ClassLoader created from it.
+ *
+ * Expanded artifacts are addressed by the artifact file name and the checksum of the jar content, hence
+ * different jars with the same name (e.g. SNAPSHOT artifacts) never share the same directory. The checksum is
+ * only computed when a jar location is seen with a size or modification time that is not known to this process.
+ *
+ * Each expanded directory has a lock file next to it. A process expands a jar while holding an exclusive lock
+ * on the lock file, and holds a shared lock for as long as it references the expanded directory. The operating
+ * system releases the locks of a process when it exits, hence the references of processes that terminated
+ * abnormally are released too. When the total size of the cache exceeds the configured maximum, directories
+ * that no process holds a lock for are deleted in least recently used order.
+ */
+public final class ExpandedArtifactCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExpandedArtifactCache.class);
+  private static final Map<File, ExpandedArtifactCache> INSTANCES = new HashMap<>();
+  private static final String CACHE_DIR_NAME = "expanded.artifacts";
+  private static final String LOCK_FILE_SUFFIX = ".lock";
+  private static final String SIZE_FILE_SUFFIX = ".size";
+  private static final String TMP_DIR_SUFFIX = ".tmp";
+  private static final String DELETED_DIR_SUFFIX = ".deleted";
+  private static final int MAX_CHECKSUMS = 1000;
+
+  private final File baseDir;
+  private final File cacheDir;
+  private final long maxSizeBytes;
+  // Entries referenced by this process, guarded by this
+  private final Map<String, Entry> entries;
+  // Checksums of the jar locations seen, in access order, guarded by this
+  private final LinkedHashMap<JarKey, String> checksums;
+
+  /**
+   * Returns the {@link ExpandedArtifactCache} shared in this JVM for the temporary directory configured
+   * in the given {@link CConfiguration}. Since file locks are held on behalf of the whole JVM, there must only be
+   * one instance for the same directory in the same JVM.
+   */
+  public static ExpandedArtifactCache get(CConfiguration cConf) {
+    File tmpDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
+                           cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
+    long maxSizeBytes = cConf.getLong(Constants.AppFabric.EXPANDED_ARTIFACT_CACHE_MAX_SIZE_MB) * 1024 * 1024;
+    synchronized (INSTANCES) {
+      return INSTANCES.computeIfAbsent(tmpDir, dir -> new ExpandedArtifactCache(dir, maxSizeBytes));
+    }
+  }
+
+  @VisibleForTesting
+  ExpandedArtifactCache(File baseDir, long maxSizeBytes) {
+    this.baseDir = baseDir;
+    this.cacheDir = new File(baseDir, CACHE_DIR_NAME);
+    this.maxSizeBytes = maxSizeBytes;
+    this.entries = new HashMap<>();
+    this.checksums = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Expands the given artifact jar, or reuses a previous expansion of the same jar content.
+   * The returned {@link ExpandedArtifact} must be closed when the expanded directory is no longer used.
+   *
+   * @param jarLocation the location of the artifact jar
+   * @return an {@link ExpandedArtifact} that references the directory that the jar is expanded into
+   * @throws IOException if failed to read or expand the jar
+   */
+  public ExpandedArtifact expand(Location jarLocation) throws IOException {
+    if (maxSizeBytes <= 0) {
+      // Cache is disabled. Expand to a new temporary directory that gets deleted when the artifact is closed.
+      File dir = BundleJarUtil.unJar(jarLocation, DirUtils.createTempDir(baseDir));
+      return new ExpandedArtifact(dir, () -> DirUtils.deleteDirectoryContents(dir));
+    }
+
+    String key = jarLocation.getName() + "-" + getChecksum(jarLocation);
+    Entry entry = acquire(key);
+    boolean expanded;
+    try {
+      expanded = entry.open(jarLocation);
+    } catch (IOException | RuntimeException e) {
+      release(entry);
+      throw e;
+    }
+    if (expanded) {
+      evict();
+    }
+    return new ExpandedArtifact(entry.dir, () -> release(entry));
+  }
+
+  /**
+   * Returns the total size in bytes of all the expanded artifacts in this cache.
+   */
+  @VisibleForTesting
+  long getTotalSizeBytes() {
+    return listCachedArtifacts().stream().mapToLong(a -> a.sizeBytes).sum();
+  }
+
+  /**
+   * Returns the {@link Entry} of the given key, with its reference count incremented.
+   */
+  private synchronized Entry acquire(String key) {
+    Entry entry = entries.computeIfAbsent(key, Entry::new);
+    entry.refCount++;
+    return entry;
+  }
+
+  private void release(Entry entry) {
+    if (unreference(entry)) {
+      evict();
+    }
+  }
+
+  /**
+   * Decrements the reference count of the given {@link Entry}, and releases its lock if it is no longer referenced.
+   *
+   * @return {@code true} if the entry is no longer referenced
+   */
+  private synchronized boolean unreference(Entry entry) {
+    entry.refCount--;
+    if (entry.refCount > 0) {
+      return false;
+    }
+    // Release the lock while holding the cache lock, such that a new entry of the same key in this process
+    // cannot lock the same file before the lock is released.
+    entries.remove(entry.key);
+    entry.close();
+    return true;
+  }
+
+  /**
+   * Deletes the expanded artifacts that no process references in least recently used order until the cache size
+   * is within the maximum size.
+   */
+  private void evict() {
+    List<CachedArtifact> artifacts = listCachedArtifacts();
+    long totalSizeBytes = artifacts.stream().mapToLong(a -> a.sizeBytes).sum();
+    if (totalSizeBytes <= maxSizeBytes) {
+      return;
+    }
+
+    artifacts.sort(Comparator.comparingLong(a -> a.lastAccessTime));
+    for (CachedArtifact artifact : artifacts) {
+      if (totalSizeBytes <= maxSizeBytes) {
+        break;
+      }
+      Entry entry;
+      synchronized (this) {
+        if (entries.containsKey(artifact.key)) {
+          // Referenced by this process
+          continue;
+        }
+        // Register the entry being evicted, such that it cannot be expanded concurrently by this process
+        entry = acquire(artifact.key);
+      }
+      try {
+        if (entry.delete()) {
+          totalSizeBytes -= artifact.sizeBytes;
+        }
+      } catch (IOException e) {
+        LOG.warn("Failed to delete expanded artifact directory {}", entry.dir, e);
+      } finally {
+        unreference(entry);
+      }
+    }
+  }
+
+  /**
+   * Returns the expanded artifacts in the cache directory, which are the ones with a size file.
+   */
+  private List<CachedArtifact> listCachedArtifacts() {
+    List<CachedArtifact> artifacts = new ArrayList<>();
+    File[] sizeFiles = cacheDir.listFiles((dir, name) -> name.endsWith(SIZE_FILE_SUFFIX));
+    if (sizeFiles == null) {
+      return artifacts;
+    }
+    for (File sizeFile : sizeFiles) {
+      String name = sizeFile.getName();
+      String key = name.substring(0, name.length() - SIZE_FILE_SUFFIX.length());
+      try {
+        long sizeBytes = Long.parseLong(new String(Files.readAllBytes(sizeFile.toPath()), Charsets.UTF_8).trim());
+        artifacts.add(new CachedArtifact(key, sizeBytes, new File(cacheDir, key + LOCK_FILE_SUFFIX).lastModified()));
+      } catch (IOException | NumberFormatException e) {
+        // The artifact is being evicted
+        LOG.trace("Failed to read size file {}", sizeFile, e);
+      }
+    }
+    return artifacts;
+  }
+
+  /**
+   * Returns the checksum of the jar content. The checksum is computed only if the location, size and
+   * modification time of the jar are not seen before.
+   */
+  private String getChecksum(Location location) throws IOException {
+    JarKey jarKey = new JarKey(location.toURI(), location.length(), location.lastModified());
+    synchronized (this) {
+      String checksum = checksums.get(jarKey);
+      if (checksum != null) {
+        return checksum;
+      }
+    }
+    String checksum = checksum(location);
+    synchronized (this) {
+      checksums.put(jarKey, checksum);
+      if (checksums.size() > MAX_CHECKSUMS) {
+        checksums.remove(checksums.keySet().iterator().next());
+      }
+    }
+    return checksum;
+  }
+
+  private static String checksum(Location location) throws IOException {
+    Hasher hasher = Hashing.md5().newHasher();
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream is = location.getInputStream()) {
+      int len = is.read(buffer);
+      while (len >= 0) {
+        hasher.putBytes(buffer, 0, len);
+        len = is.read(buffer);
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  private static long directorySize(File dir) throws IOException {
+    try (Stream<Path> paths = Files.walk(dir.toPath())) {
+      return paths.map(Path::toFile).filter(File::isFile).mapToLong(File::length).sum();
+    }
+  }
+
+  private static void deleteIfExists(File dir) throws IOException {
+    if (dir.exists()) {
+      DirUtils.deleteDirectoryContents(dir);
+    }
+  }
+
+  /**
+   * A cache entry for an artifact jar content that is referenced by this process.
+   * All the file locks of the same key in this process are acquired through the same entry.
+   */
+  private final class Entry {
+    private final String key;
+    private final File dir;
+    // Number of references to this entry, guarded by the cache lock
+    private int refCount;
+    // The lock file channel and the shared lock held while the entry is referenced, guarded by this
+    private FileChannel channel;
+    private FileLock lock;
+
+    Entry(String key) {
+      this.key = key;
+      this.dir = new File(cacheDir, key);
+    }
+
+    /**
+     * Acquires a shared lock on the expanded directory, expanding the jar into it if it is not expanded yet.
+     *
+     * @return {@code true} if the jar is expanded by this call
+     */
+    synchronized boolean open(Location jarLocation) throws IOException {
+      if (lock != null) {
+        return false;
+      }
+      FileChannel channel = openLockFile();
+      try {
+        boolean expanded = false;
+        while (true) {
+          if (!dir.isDirectory()) {
+            try (FileLock ignored = channel.lock()) {
+              if (!dir.isDirectory()) {
+                expand(jarLocation);
+                expanded = true;
+              }
+            }
+          }
+          FileLock lock = channel.lock(0L, Long.MAX_VALUE, true);
+          // The directory can be evicted by another process after the exclusive lock is released
+          if (dir.isDirectory()) {
+            this.channel = channel;
+            this.lock = lock;
+            // Record the access time for the least recently used eviction
+            new File(cacheDir, key + LOCK_FILE_SUFFIX).setLastModified(System.currentTimeMillis());
+            return expanded;
+          }
+          lock.release();
+        }
+      } catch (IOException | RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+    }
+
+    /**
+     * Deletes the expanded directory if no process holds a lock on it.
+     *
+     * @return {@code true} if the directory is deleted
+     */
+    synchronized boolean delete() throws IOException {
+      try (FileChannel channel = openLockFile()) {
+        FileLock lock;
+        try {
+          lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+          return false;
+        }
+        if (lock == null) {
+          return false;
+        }
+        try {
+          if (!dir.isDirectory()) {
+            return false;
+          }
+          // Move the directory away first, such that it disappears atomically for other processes
+          File deletedDir = new File(cacheDir, key + DELETED_DIR_SUFFIX);
+          deleteIfExists(deletedDir);
+          Files.move(dir.toPath(), deletedDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+          Files.deleteIfExists(new File(cacheDir, key + SIZE_FILE_SUFFIX).toPath());
+          DirUtils.deleteDirectoryContents(deletedDir);
+          return true;
+        } finally {
+          lock.release();
+        }
+      }
+    }
+
+    /**
+     * Releases the shared lock. It is called by the cache when there is no more reference to this entry.
+     */
+    synchronized void close() {
+      if (channel == null) {
+        return;
+      }
+      try {
+        // Closing the channel releases the lock
+        channel.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to release the lock on expanded artifact directory {}", dir, e);
+      }
+      channel = null;
+      lock = null;
+    }
+
+    /**
+     * Expands the jar into a temporary directory and moves it to the entry directory. It must be called
+     * with the exclusive lock held.
+     */
+    private void expand(Location jarLocation) throws IOException {
+      File tmpDir = new File(cacheDir, key + TMP_DIR_SUFFIX);
+      // Cleanup the partially expanded directory of a process that failed
+      deleteIfExists(tmpDir);
+      try {
+        BundleJarUtil.unJar(jarLocation, tmpDir);
+        long sizeBytes = directorySize(tmpDir);
+        Files.write(new File(cacheDir, key + SIZE_FILE_SUFFIX).toPath(),
+                    Long.toString(sizeBytes).getBytes(Charsets.UTF_8));
+        Files.move(tmpDir.toPath(), dir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        deleteIfExists(tmpDir);
+        throw e;
+      }
+    }
+
+    private FileChannel openLockFile() throws IOException {
+      DirUtils.mkdirs(cacheDir);
+      return FileChannel.open(new File(cacheDir, key + LOCK_FILE_SUFFIX).toPath(),
+                              StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+  }
+
+  /**
+   * An expanded artifact in the cache directory.
+   */
+  private static final class CachedArtifact {
+    private final String key;
+    private final long sizeBytes;
+    private final long lastAccessTime;
+
+    CachedArtifact(String key, long sizeBytes, long lastAccessTime) {
+      this.key = key;
+      this.sizeBytes = sizeBytes;
+      this.lastAccessTime = lastAccessTime;
+    }
+  }
+
+  /**
+   * Identifies a jar file content by its location, size and modification time.
+   */
+  private static final class JarKey {
+    private final URI uri;
+    private final long size;
+    private final long lastModified;
+
+    JarKey(URI uri, long size, long lastModified) {
+      this.uri = uri;
+      this.size = size;
+      this.lastModified = lastModified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      JarKey that = (JarKey) o;
+      return size == that.size && lastModified == that.lastModified && uri.equals(that.uri);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(uri, size, lastModified);
+    }
+  }
+
+  /**
+   * A reference to an expanded artifact directory. The directory must not be modified.
+   */
+  public static final class ExpandedArtifact implements Closeable {
+    private final File directory;
+    private final Closeable releaser;
+    private final AtomicBoolean closed;
+
+    private ExpandedArtifact(File directory, Closeable releaser) {
+      this.directory = directory;
+      this.releaser = releaser;
+      this.closed = new AtomicBoolean();
+    }
+
+    /**
+     * Returns the directory that the artifact jar is expanded into.
+     */
+    public File getDirectory() {
+      return directory;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed.compareAndSet(false, true)) {
+        releaser.close();
+      }
+    }
+  }
+}
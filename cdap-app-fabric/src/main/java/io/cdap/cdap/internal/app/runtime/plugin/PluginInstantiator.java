@@ -42,13 +42,12 @@ import io.cdap.cdap.api.plugin.PluginConfig;
 import io.cdap.cdap.api.plugin.PluginProperties;
 import io.cdap.cdap.api.plugin.PluginPropertyField;
 import io.cdap.cdap.common.conf.CConfiguration;
-import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.io.Locations;
 import io.cdap.cdap.common.lang.CombineClassLoader;
 import io.cdap.cdap.common.lang.InstantiatorFactory;
-import io.cdap.cdap.common.lang.jar.BundleJarUtil;
-import io.cdap.cdap.common.utils.DirUtils;
 import io.cdap.cdap.internal.app.runtime.artifact.Artifacts;
+import io.cdap.cdap.internal.app.runtime.artifact.ExpandedArtifactCache;
+import io.cdap.cdap.internal.app.runtime.artifact.ExpandedArtifactCache.ExpandedArtifact;
 import io.cdap.cdap.internal.lang.FieldVisitor;
 import io.cdap.cdap.internal.lang.Fields;
 import io.cdap.cdap.internal.lang.Reflections;
@@ -74,6 +73,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import javax.annotation.Nullable;
 
@@ -81,7 +81,10 @@ import javax.annotation.Nullable;
  * This class helps creating new instances of plugins. It also contains a ClassLoader cache to
  * save ClassLoader creation.
  *
- * This class implements {@link Closeable} as well for cleanup of temporary directories created for the ClassLoaders.
+ * Artifact jars are expanded through the {@link ExpandedArtifactCache}, such that the expanded directories are
+ * shared with other instances in the same process.
+ *
+ * This class implements {@link Closeable} as well for releasing the expanded artifacts used by the ClassLoaders.
  */
 public class PluginInstantiator implements Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(PluginInstantiator.class);
@@ -99,8 +102,9 @@ public class PluginInstantiator implements Closeable {
     .build();
 
   private final LoadingCache<ClassLoaderKey, PluginClassLoader> classLoaders;
+  private final Map<ClassLoaderKey, ExpandedArtifact> expandedArtifacts;
   private final InstantiatorFactory instantiatorFactory;
-  private final File tmpDir;
+  private final ExpandedArtifactCache artifactCache;
   private final File pluginDir;
   private final ClassLoader parentClassLoader;
   private final boolean ownedParentClassLoader;
@@ -112,11 +116,9 @@ public class PluginInstantiator implements Closeable {
   public PluginInstantiator(CConfiguration cConf, ClassLoader parentClassLoader, File pluginDir,
                             boolean filterClassloader) {
     this.instantiatorFactory = new InstantiatorFactory(false);
-    File tmpDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
-                           cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
-
+    this.artifactCache = ExpandedArtifactCache.get(cConf);
     this.pluginDir = pluginDir;
-    this.tmpDir = DirUtils.createTempDir(tmpDir);
+    this.expandedArtifacts = new ConcurrentHashMap<>();
     this.classLoaders = CacheBuilder.newBuilder()
       .removalListener(new ClassLoaderRemovalListener())
       .build(new ClassLoaderCacheLoader());
@@ -399,17 +401,11 @@ public class PluginInstantiator implements Closeable {
 
   @Override
   public void close() throws IOException {
-    // Cleanup the ClassLoader cache and the temporary directory for the expanded plugin jar.
+    // Cleanup the ClassLoader cache, which also releases the expanded plugin jars.
     classLoaders.invalidateAll();
     if (ownedParentClassLoader) {
       Closeables.closeQuietly((Closeable) parentClassLoader);
     }
-    try {
-      DirUtils.deleteDirectoryContents(tmpDir);
-    } catch (IOException e) {
-      // It's the cleanup step. Nothing much can be done if cleanup failed.
-      LOG.warn("Failed to delete directory {}", tmpDir);
-    }
   }
 
   /**
@@ -455,10 +451,19 @@ public class PluginInstantiator implements Closeable {
 
     @Override
     public PluginClassLoader load(ClassLoaderKey key) throws Exception {
-      File unpackedDir = DirUtils.createTempDir(tmpDir);
       File artifact = new File(pluginDir, Artifacts.getFileName(key.artifact));
-      BundleJarUtil.unJar(Locations.toLocation(artifact), unpackedDir);
+      ExpandedArtifact expandedArtifact = artifactCache.expand(Locations.toLocation(artifact));
+      try {
+        PluginClassLoader classLoader = createClassLoader(key, expandedArtifact.getDirectory());
+        expandedArtifacts.put(key, expandedArtifact);
+        return classLoader;
+      } catch (Exception e) {
+        Closeables.closeQuietly(expandedArtifact);
+        throw e;
+      }
+    }
 
+    private PluginClassLoader createClassLoader(ClassLoaderKey key, File unpackedDir) throws IOException {
       Iterator<ArtifactId> parentIter = key.parents.iterator();
       if (!parentIter.hasNext()) {
         return new PluginClassLoader(key.artifact, unpackedDir, parentClassLoader);
@@ -491,13 +496,17 @@ public class PluginInstantiator implements Closeable {
   }
 
   /**
-   * A RemovalListener for closing plugin ClassLoader.
+   * A RemovalListener for closing plugin ClassLoader and releasing the expanded artifact used by it.
    */
-  private static final class ClassLoaderRemovalListener implements RemovalListener<ClassLoaderKey, PluginClassLoader> {
+  private final class ClassLoaderRemovalListener implements RemovalListener<ClassLoaderKey, PluginClassLoader> {
 
     @Override
     public void onRemoval(RemovalNotification<ClassLoaderKey, PluginClassLoader> notification) {
       Closeables.closeQuietly(notification.getValue());
+      ExpandedArtifact expandedArtifact = expandedArtifacts.remove(notification.getKey());
+      if (expandedArtifact != null) {
+        Closeables.closeQuietly(expandedArtifact);
+      }
     }
   }
 
@@ -60,7 +60,9 @@ public abstract class AbstractNotificationSubscriberService extends AbstractMess
             Constants.Metrics.Tag.CONSUMER, name
           )));
     this.name = name;
-    this.messagingContext = new MultiThreadMessagingContext(messagingService);
+    // Wait for new notifications in the fetch, so that they are processed as soon as they are published
+    this.messagingContext = new MultiThreadMessagingContext(
+      messagingService, cConf.getLong(Constants.AppFabric.NOTIFICATION_POLL_TIMEOUT_MILLIS));
     this.transactionRunner = transactionRunner;
   }
 
@@ -16,12 +16,19 @@
 
 package io.cdap.cdap.internal.app.services;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
 import com.google.inject.Inject;
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.api.messaging.Message;
+import io.cdap.cdap.api.messaging.MessagingContext;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.api.schedule.SchedulableProgramType;
 import io.cdap.cdap.api.workflow.ScheduleProgramInfo;
@@ -47,6 +54,8 @@ import io.cdap.cdap.internal.provision.ProvisionRequest;
 import io.cdap.cdap.internal.provision.ProvisionerNotifier;
 import io.cdap.cdap.internal.provision.ProvisioningService;
 import io.cdap.cdap.messaging.MessagingService;
+import io.cdap.cdap.messaging.context.MultiThreadMessagingContext;
+import io.cdap.cdap.messaging.data.MessageId;
 import io.cdap.cdap.proto.BasicThrowable;
 import io.cdap.cdap.proto.Notification;
 import io.cdap.cdap.proto.ProgramRunClusterStatus;
@@ -63,32 +72,49 @@ import io.cdap.cdap.security.spi.authentication.SecurityRequestContext;
 import io.cdap.cdap.spi.data.StructuredTableContext;
 import io.cdap.cdap.spi.data.TableNotFoundException;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
+import io.cdap.cdap.spi.data.transaction.TransactionRunners;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.reflect.Type;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import javax.annotation.Nullable;
 
 /**
  * Service that receives program status notifications and persists to the store.
- * No transactions should be started in any of the overrided methods since they are already wrapped in a transaction.
+ *
+ * Notifications are processed in parallel by a configurable number of partition subscribers. Each of them consumes
+ * the program status topic independently with its own checkpoint in the subscriber state of {@link AppMetadataStore},
+ * and only processes the notifications of the applications that are hashed to its partition. Since all the runs of an
+ * application, including the programs running inside a workflow, are processed by the same partition, the ordering of
+ * notifications of each run, as well as between a workflow and its inner programs, is preserved.
+ *
+ * When the number of partitions changes, the checkpoints of the previous partitions are migrated to the new partitions
+ * when this service starts.
  */
-public class ProgramNotificationSubscriberService extends AbstractNotificationSubscriberService {
+public class ProgramNotificationSubscriberService extends AbstractIdleService {
 
   private static final Logger LOG = LoggerFactory.getLogger(ProgramNotificationSubscriberService.class);
+  private static final String SERVICE_NAME = "program.status";
+  private static final String PARTITION_SUBSCRIBER_PREFIX = "partition.";
 
   private static final Gson GSON = ApplicationSpecificationAdapter.addTypeAdapters(new GsonBuilder()).create();
   private static final Type STRING_STRING_MAP = new TypeToken<Map<String, String>>() { }.getType();
@@ -109,8 +135,11 @@ public class ProgramNotificationSubscriberService extends AbstractNotificationSu
   private final ProgramLifecycleService programLifecycleService;
   private final ProvisioningService provisioningService;
   private final ProgramStateWriter programStateWriter;
-  private final Queue<Runnable> tasks;
   private final MetricsCollectionService metricsCollectionService;
+  private final MessagingContext messagingContext;
+  private final TransactionRunner transactionRunner;
+  private final String topic;
+  private final List<PartitionSubscriber> partitionSubscribers;
   private Set<ProgramCompletionNotifier> programCompletionNotifiers;
 
   @Inject
@@ -120,18 +149,28 @@ public class ProgramNotificationSubscriberService extends AbstractNotificationSu
                                        ProgramLifecycleService programLifecycleService,
                                        ProvisioningService provisioningService,
                                        ProgramStateWriter programStateWriter, TransactionRunner transactionRunner) {
-    super("program.status", cConf, cConf.get(Constants.AppFabric.PROGRAM_STATUS_EVENT_TOPIC),
-          cConf.getInt(Constants.AppFabric.STATUS_EVENT_FETCH_SIZE),
-          cConf.getLong(Constants.AppFabric.STATUS_EVENT_POLL_DELAY_MILLIS),
-          messagingService, metricsCollectionService, transactionRunner);
     this.recordedProgramStatusPublishTopic = cConf.get(Constants.AppFabric.PROGRAM_STATUS_RECORD_EVENT_TOPIC);
     this.provisionerNotifier = provisionerNotifier;
     this.programLifecycleService = programLifecycleService;
     this.provisioningService = provisioningService;
     this.programStateWriter = programStateWriter;
-    this.tasks = new LinkedList<>();
     this.metricsCollectionService = metricsCollectionService;
+    this.messagingContext = new MultiThreadMessagingContext(messagingService);
+    this.transactionRunner = transactionRunner;
+    this.topic = cConf.get(Constants.AppFabric.PROGRAM_STATUS_EVENT_TOPIC);
     this.programCompletionNotifiers = Collections.emptySet();
+
+    int numPartitions = cConf.getInt(Constants.AppFabric.STATUS_EVENT_NUM_PARTITIONS);
+    if (numPartitions <= 0) {
+      throw new IllegalArgumentException("Number of program status event partitions must be positive: "
+                                           + numPartitions);
+    }
+    List<PartitionSubscriber> subscribers = new ArrayList<>();
+    for (int i = 0; i < numPartitions; i++) {
+      subscribers.add(new PartitionSubscriber(messagingService, cConf, metricsCollectionService,
+                                              transactionRunner, i, numPartitions));
+    }
+    this.partitionSubscribers = Collections.unmodifiableList(subscribers);
   }
 
   @Inject(optional = true)
@@ -139,42 +178,121 @@ public class ProgramNotificationSubscriberService extends AbstractNotificationSu
     this.programCompletionNotifiers = notifiers;
   }
 
-  @Nullable
   @Override
-  protected String loadMessageId(StructuredTableContext context) throws IOException, TableNotFoundException {
-    return getAppMetadataStore(context).retrieveSubscriberState(getTopicId().getTopic(), "");
+  protected void startUp() throws Exception {
+    TransactionRunners.run(transactionRunner, context -> {
+      migrateSubscriberStates(AppMetadataStore.create(context), topic, partitionSubscribers.size());
+    }, IOException.class);
+    for (PartitionSubscriber subscriber : partitionSubscribers) {
+      subscriber.startAndWait();
+    }
   }
 
   @Override
-  protected void storeMessageId(StructuredTableContext context, String messageId)
-    throws IOException, TableNotFoundException {
-    getAppMetadataStore(context).persistSubscriberState(getTopicId().getTopic(), "", messageId);
+  protected void shutDown() throws Exception {
+    for (PartitionSubscriber subscriber : partitionSubscribers) {
+      subscriber.stopAndWait();
+    }
   }
 
-  @Override
-  protected void processMessages(StructuredTableContext structuredTableContext,
-                                 Iterator<ImmutablePair<String, Notification>> messages) throws Exception {
-    ProgramHeartbeatTable heartbeatDataset = new ProgramHeartbeatTable(structuredTableContext);
-    List<Runnable> tasks = new LinkedList<>();
-    while (messages.hasNext()) {
-      ImmutablePair<String, Notification> messagePair = messages.next();
-      List<Runnable> runnables = processNotification(heartbeatDataset,
-                                                     messagePair.getFirst().getBytes(StandardCharsets.UTF_8),
-                                                     messagePair.getSecond(), structuredTableContext);
-      tasks.addAll(runnables);
-    }
-
-    // Only add post processing tasks if all messages are processed. If there is exception in the processNotifiation,
-    // messages will be replayed.
-    this.tasks.addAll(tasks);
+  /**
+   * Migrates the subscriber states of the previous partitions of the given topic to the given number of partitions.
+   * This only happens when the number of partitions changed. Each new partition starts from the smallest message id
+   * of the previous partitions, so that no notification is missed. Notifications that were already processed are
+   * ignored by the {@link AppMetadataStore} based on the source id. The states of the previous partitions are removed,
+   * so that they are not picked up again if the number of partitions is changed back later.
+   */
+  @VisibleForTesting
+  static void migrateSubscriberStates(AppMetadataStore store, String topic, int numPartitions) throws IOException {
+    Set<String> subscribers = IntStream.range(0, numPartitions)
+      .mapToObj(partition -> getSubscriberName(partition, numPartitions))
+      .collect(Collectors.toSet());
+    Map<String, String> previousStates = store.retrieveSubscriberStates(topic).entrySet().stream()
+      .filter(entry -> !subscribers.contains(entry.getKey()))
+      .filter(entry -> entry.getKey().isEmpty() || entry.getKey().startsWith(PARTITION_SUBSCRIBER_PREFIX))
+      .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    if (previousStates.isEmpty()) {
+      return;
+    }
+
+    String messageId = previousStates.values().stream()
+      .min(Comparator.comparing(Bytes::fromHexString, Bytes::compareTo))
+      .orElseThrow(IllegalStateException::new);
+    LOG.info("Number of partitions of topic {} changed. Starting {} partitions from message id {}",
+             topic, numPartitions, messageId);
+    for (String subscriber : subscribers) {
+      if (store.retrieveSubscriberState(topic, subscriber) == null) {
+        store.persistSubscriberState(topic, subscriber, messageId);
+      }
+    }
+    for (String subscriber : previousStates.keySet()) {
+      store.deleteSubscriberState(topic, subscriber);
+    }
   }
 
-  @Override
-  protected void postProcess() {
-    Runnable task = tasks.poll();
-    while (task != null) {
-      task.run();
-      task = tasks.poll();
+  /**
+   * Returns the name of the subscriber of the given partition for storing the subscriber state.
+   */
+  @VisibleForTesting
+  static String getSubscriberName(int partition, int numPartitions) {
+    // Keep the subscriber name used before partitioning when there is only one partition
+    return numPartitions == 1 ? "" : PARTITION_SUBSCRIBER_PREFIX + partition + "/" + numPartitions;
+  }
+
+  /**
+   * Returns the partition of the given program run. Program runs are partitioned by their application,
+   * such that a workflow and its inner programs are in the same partition.
+   *
+   * @param programRunId the json of the {@link ProgramRunId} or {@code null} if it is missing from the notification
+   * @param numPartitions the number of partitions
+   */
+  @VisibleForTesting
+  static int getPartition(@Nullable String programRunId, int numPartitions) {
+    if (numPartitions == 1 || programRunId == null) {
+      // Invalid notification is handled by the first partition
+      return 0;
+    }
+    ApplicationId appId;
+    try {
+      appId = GSON.fromJson(programRunId, ProgramRunId.class).getParent().getParent();
+    } catch (RuntimeException e) {
+      // Invalid program run id, let the first partition handle it
+      return 0;
+    }
+    // Use a hash that is stable across processes, such that each application stays in the same partition
+    int hash = Objects.hash(appId.getNamespace(), appId.getApplication(), appId.getVersion());
+    return Math.floorMod(hash, numPartitions);
+  }
+
+  /**
+   * Decodes only the program run id property from the given {@link Notification} json payload, without decoding
+   * the other properties.
+   *
+   * @return the program run id or {@code null} if the notification doesn't have it
+   * @throws IOException if the payload is not a valid json object
+   */
+  @Nullable
+  @VisibleForTesting
+  static String decodeProgramRunId(byte[] payload) throws IOException {
+    try (JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(payload),
+                                                                  StandardCharsets.UTF_8))) {
+      reader.setLenient(true);
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (!"properties".equals(reader.nextName()) || reader.peek() != JsonToken.BEGIN_OBJECT) {
+          reader.skipValue();
+          continue;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+          if (ProgramOptionConstants.PROGRAM_RUN_ID.equals(reader.nextName()) && reader.peek() == JsonToken.STRING) {
+            return reader.nextString();
+          }
+          reader.skipValue();
+        }
+        return null;
+      }
+      return null;
     }
   }
 
@@ -589,7 +707,7 @@ public class ProgramNotificationSubscriberService extends AbstractNotificationSu
     notificationProperties.put(CDAP_VERSION, ProjectInfo.getVersion().toString());
     Notification programStatusNotification =
       new Notification(Notification.Type.PROGRAM_STATUS, notificationProperties);
-    getMessagingContext().getMessagePublisher().publish(NamespaceId.SYSTEM.getNamespace(),
+    messagingContext.getMessagePublisher().publish(NamespaceId.SYSTEM.getNamespace(),
                                                         recordedProgramStatusPublishTopic,
                                                         GSON.toJson(programStatusNotification));
   }
@@ -647,4 +765,107 @@ public class ProgramNotificationSubscriberService extends AbstractNotificationSu
   private AppMetadataStore getAppMetadataStore(StructuredTableContext context) {
     return AppMetadataStore.create(context);
   }
+
+  /**
+   * Subscriber that processes the notifications of one partition of the program status topic.
+   * No transactions should be started in any of the overrided methods since they are already wrapped in a transaction.
+   */
+  private final class PartitionSubscriber extends AbstractNotificationSubscriberService {
+
+    private final int partition;
+    private final int numPartitions;
+    private final String subscriber;
+    private final Queue<Runnable> tasks;
+
+    PartitionSubscriber(MessagingService messagingService, CConfiguration cConf,
+                        MetricsCollectionService metricsCollectionService, TransactionRunner transactionRunner,
+                        int partition, int numPartitions) {
+      super(getPartitionName(partition, numPartitions), cConf,
+            cConf.get(Constants.AppFabric.PROGRAM_STATUS_EVENT_TOPIC),
+            cConf.getInt(Constants.AppFabric.STATUS_EVENT_FETCH_SIZE),
+            cConf.getLong(Constants.AppFabric.STATUS_EVENT_POLL_DELAY_MILLIS),
+            messagingService, metricsCollectionService, transactionRunner);
+      this.partition = partition;
+      this.numPartitions = numPartitions;
+      this.subscriber = getSubscriberName(partition, numPartitions);
+      this.tasks = new LinkedList<>();
+    }
+
+    /**
+     * Decodes the given message if it belongs to this partition. For notifications of other partitions, which are
+     * the majority of the notifications when there are multiple partitions, only the program run id is decoded and
+     * {@code null} is returned.
+     */
+    @Nullable
+    @Override
+    protected Notification decodeMessage(Message message) throws Exception {
+      if (numPartitions == 1) {
+        return super.decodeMessage(message);
+      }
+      String programRunId;
+      try {
+        programRunId = decodeProgramRunId(message.getPayload());
+      } catch (Exception e) {
+        // Invalid payload, let the first partition decode and report it
+        programRunId = null;
+      }
+      return getPartition(programRunId, numPartitions) == partition ? super.decodeMessage(message) : null;
+    }
+
+    @Nullable
+    @Override
+    protected String loadMessageId(StructuredTableContext context) throws IOException, TableNotFoundException {
+      return getAppMetadataStore(context).retrieveSubscriberState(getTopicId().getTopic(), subscriber);
+    }
+
+    @Override
+    protected void storeMessageId(StructuredTableContext context, String messageId)
+      throws IOException, TableNotFoundException {
+      getAppMetadataStore(context).persistSubscriberState(getTopicId().getTopic(), subscriber, messageId);
+    }
+
+    @Override
+    protected void processMessages(StructuredTableContext structuredTableContext,
+                                   Iterator<ImmutablePair<String, Notification>> messages) throws Exception {
+      ProgramHeartbeatTable heartbeatDataset = new ProgramHeartbeatTable(structuredTableContext);
+      List<Runnable> tasks = new LinkedList<>();
+      long oldestPublishTime = -1L;
+      while (messages.hasNext()) {
+        ImmutablePair<String, Notification> messagePair = messages.next();
+        // Notifications of other partitions are not decoded
+        if (messagePair.getSecond() == null) {
+          continue;
+        }
+        if (oldestPublishTime < 0) {
+          oldestPublishTime = new MessageId(Bytes.fromHexString(messagePair.getFirst())).getPublishTimestamp();
+        }
+        List<Runnable> runnables = processNotification(heartbeatDataset,
+                                                       messagePair.getFirst().getBytes(StandardCharsets.UTF_8),
+                                                       messagePair.getSecond(), structuredTableContext);
+        tasks.addAll(runnables);
+      }
+
+      // Only add post processing tasks if all messages are processed. If there is exception in the
+      // processNotification, messages will be replayed.
+      this.tasks.addAll(tasks);
+
+      if (oldestPublishTime >= 0) {
+        // The time the oldest notification in this batch has been waiting in the topic before being processed
+        getMetricsContext().gauge("program.status.queue.lag.ms", System.currentTimeMillis() - oldestPublishTime);
+      }
+    }
+
+    @Override
+    protected void postProcess() {
+      Runnable task = tasks.poll();
+      while (task != null) {
+        task.run();
+        task = tasks.poll();
+      }
+    }
+  }
+
+  private static String getPartitionName(int partition, int numPartitions) {
+    return numPartitions == 1 ? SERVICE_NAME : SERVICE_NAME + "." + partition;
+  }
 }
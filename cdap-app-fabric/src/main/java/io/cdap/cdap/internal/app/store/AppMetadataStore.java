@@ -80,7 +80,6 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
@@ -122,6 +121,11 @@ public class AppMetadataStore {
   private static final String TYPE_COUNT = "runRecordCount";
   private static final String TYPE_RUN_RECORD_UPGRADE_COUNT = "runRecordUpgradeCount";
   private static final String SMALLEST_POSSIBLE_STRING = "";
+  // Size of the time buckets in the run time index
+  private static final long RUN_TIME_INDEX_BUCKET_SECS = TimeUnit.HOURS.toSeconds(1);
+  // Bucket of the run time index row that records the stop time since when completed runs are indexed,
+  // together with the longest duration of the indexed runs
+  private static final long RUN_TIME_INDEX_WATERMARK_BUCKET = -1L;
 
   private static final Map<ProgramRunStatus, String> STATUS_TYPE_MAP = ImmutableMap.<ProgramRunStatus, String>builder()
     .put(ProgramRunStatus.PENDING, TYPE_RUN_RECORD_ACTIVE)
@@ -141,6 +145,10 @@ public class AppMetadataStore {
   private StructuredTable workflowsTable;
   private StructuredTable programCountsTable;
   private StructuredTable subscriberStateTable;
+  private StructuredTable runTimeIndexTable;
+  // The run time index watermark row, read at most once per instance
+  private RunTimeIndexWatermark runTimeIndexWatermark;
+  private boolean runTimeIndexWatermarkLoaded;
 
   /**
    * Static method for creating an instance of {@link AppMetadataStore}.
@@ -219,6 +227,17 @@ public class AppMetadataStore {
     return subscriberStateTable;
   }
 
+  private StructuredTable getRunTimeIndexTable() {
+    try {
+      if (runTimeIndexTable == null) {
+        runTimeIndexTable = context.getTable(StoreDefinition.AppMetadataStore.RUN_TIME_INDEX);
+      }
+    } catch (TableNotFoundException e) {
+      throw new RuntimeException(e);
+    }
+    return runTimeIndexTable;
+  }
+
   @Nullable
   public ApplicationMeta getApplication(ApplicationId appId) throws IOException {
     return getApplication(appId.getNamespace(), appId.getApplication(), appId.getVersion());
@@ -436,9 +455,8 @@ public class AppMetadataStore {
       // Update the parent Workflow run record by adding node id and program run id in the properties
       Map<String, String> properties = new HashMap<>(record.getProperties());
       properties.put(workflowNodeId, programRunId.getRun());
-      writeToStructuredTableWithPrimaryKeys(
-        runRecordFields, RunRecordDetail.builder(record).setProperties(properties).setSourceId(sourceId).build(),
-        getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+      writeRunRecord(runRecordFields,
+                     RunRecordDetail.builder(record).setProperties(properties).setSourceId(sourceId).build());
     }
   }
 
@@ -553,8 +571,7 @@ public class AppMetadataStore {
       .setCluster(cluster)
       .setSourceId(sourceId)
       .build();
-    writeToStructuredTableWithPrimaryKeys(
-      key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    writeRunRecord(key, meta);
     LOG.trace("Recorded {} for program {}", ProgramRunClusterStatus.PROVISIONED, programRunId);
     return meta;
   }
@@ -593,8 +610,7 @@ public class AppMetadataStore {
       .setCluster(cluster)
       .setSourceId(sourceId)
       .build();
-    writeToStructuredTableWithPrimaryKeys(
-      key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    writeRunRecord(key, meta);
     LOG.trace("Recorded {} for program {}", ProgramRunClusterStatus.DEPROVISIONING, programRunId);
     return meta;
   }
@@ -634,8 +650,7 @@ public class AppMetadataStore {
       .setCluster(cluster)
       .setSourceId(sourceId)
       .build();
-    writeToStructuredTableWithPrimaryKeys(
-      key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    writeRunRecord(key, meta);
     LOG.trace("Recorded {} for program {}", ProgramRunClusterStatus.DEPROVISIONED, programRunId);
     return meta;
   }
@@ -674,8 +689,7 @@ public class AppMetadataStore {
       .setCluster(cluster)
       .setSourceId(sourceId)
       .build();
-    writeToStructuredTableWithPrimaryKeys(
-      key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    writeRunRecord(key, meta);
     LOG.trace("Recorded {} for program {}", ProgramRunClusterStatus.ORPHANED, programRunId);
     return meta;
   }
@@ -724,10 +738,12 @@ public class AppMetadataStore {
    * Writes a new {@link RunRecordDetail} and increments the run count of a program.
    */
   private void writeNewRunRecord(RunRecordDetail meta, String typeRunRecordCompleted) throws IOException {
+    if (TYPE_RUN_RECORD_COMPLETED.equals(typeRunRecordCompleted)) {
+      addToRunTimeIndex(meta);
+    }
     List<Field<?>> fields = getProgramRunInvertedTimeKey(typeRunRecordCompleted,
                                                          meta.getProgramRunId(), meta.getStartTs());
-    writeToStructuredTableWithPrimaryKeys(fields, meta, getRunRecordsTable(),
-                                          StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    writeRunRecord(fields, meta);
     List<Field<?>> countKey = getProgramCountPrimaryKeys(TYPE_COUNT, meta.getProgramRunId().getParent());
     getProgramCountsTable().increment(countKey, StoreDefinition.AppMetadataStore.COUNTS, 1L);
   }
@@ -775,8 +791,7 @@ public class AppMetadataStore {
       .setTwillRunId(twillRunId)
       .setSourceId(sourceId)
       .build();
-    writeToStructuredTableWithPrimaryKeys(
-      key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    writeRunRecord(key, meta);
     LOG.trace("Recorded {} for program {}", ProgramRunStatus.STARTING, programRunId);
     return meta;
   }
@@ -823,8 +838,7 @@ public class AppMetadataStore {
       .setTwillRunId(twillRunId)
       .setSourceId(sourceId)
       .build();
-    writeToStructuredTableWithPrimaryKeys(
-      key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    writeRunRecord(key, meta);
     LOG.trace("Recorded {} for program {}", ProgramRunStatus.RUNNING, programRunId);
     return meta;
   }
@@ -899,8 +913,7 @@ public class AppMetadataStore {
       }
     }
     RunRecordDetail meta = builder.build();
-    writeToStructuredTableWithPrimaryKeys(
-      key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    writeRunRecord(key, meta);
     LOG.trace("Recorded {} for program {}", toStatus, programRunId);
     return meta;
   }
@@ -946,8 +959,8 @@ public class AppMetadataStore {
       .setStatus(runStatus)
       .setSourceId(sourceId)
       .build();
-    writeToStructuredTableWithPrimaryKeys(
-      key, meta, getRunRecordsTable(), StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+    addToRunTimeIndex(meta);
+    writeRunRecord(key, meta);
     LOG.trace("Recorded {} for program {}", runStatus, programRunId);
     return meta;
   }
@@ -1042,14 +1055,20 @@ public class AppMetadataStore {
    * @param limit count at most that many runs, stop if there are more.
    */
   public int countActiveRuns(@Nullable Integer limit) throws IOException {
-    AtomicInteger count = new AtomicInteger(0);
-    try (CloseableIterator<RunRecordDetail> iterator = queryProgramRuns(
-      Range.singleton(getRunRecordNamespacePrefix(TYPE_RUN_RECORD_ACTIVE, null)),
-      key -> !NamespaceId.SYSTEM.getNamespace().equals(key.getString(StoreDefinition.AppMetadataStore.NAMESPACE_FIELD)),
-      null, limit != null ? limit : Integer.MAX_VALUE)) {
-      iterator.forEachRemaining(m -> count.getAndIncrement());
+    int maxCount = limit != null ? limit : Integer.MAX_VALUE;
+    int count = 0;
+    // Only the row keys are needed for counting, hence no need to decode the run records
+    try (CloseableIterator<StructuredRow> iterator = getRunRecordsTable().scan(
+      Range.singleton(getRunRecordNamespacePrefix(TYPE_RUN_RECORD_ACTIVE, null)), Integer.MAX_VALUE)) {
+      while (count < maxCount && iterator.hasNext()) {
+        StructuredRow row = iterator.next();
+        String namespace = row.getString(StoreDefinition.AppMetadataStore.NAMESPACE_FIELD);
+        if (!NamespaceId.SYSTEM.getNamespace().equals(namespace)) {
+          count++;
+        }
+      }
     }
-    return count.get();
+    return count;
   }
 
   /**
@@ -1260,6 +1279,7 @@ public class AppMetadataStore {
       return null;
     }
     delete(detail);
+    removeFromRunTimeIndex(detail);
     return detail;
   }
 
@@ -1321,38 +1341,22 @@ public class AppMetadataStore {
     return Range.create(begin, Range.Bound.INCLUSIVE, end, Range.Bound.EXCLUSIVE);
   }
 
-  /**
-   * Returns the query limit based on the given {@link ProgramRunStatus}.
-   * If the given status is {@link ProgramRunStatus#ALL}, then the limit is unaltered. Otherwise it will be
-   * multiplied to make sure it will include enough records for post query status filtering.
-   */
-  private int getLimitByStatus(int limit, ProgramRunStatus status) {
-    if (status == ProgramRunStatus.ALL) {
-      return limit;
-    }
-
-    String type = STATUS_TYPE_MAP.get(status);
-    int multiplier = (int) STATUS_TYPE_MAP.values().stream().filter(type::equals).count();
-
-    if (limit > Integer.MAX_VALUE / multiplier) {
-      return Integer.MAX_VALUE;
-    }
-    return limit * multiplier;
-  }
-
   /**
    * Iterate over a range of run records, filter by predicates and pass each run record to the consumer.
    * @param range to scan runRecordsTable with
-   * @param keyPredicate to filter the row keys by. If null, then does not filter.
+   * @param keyPredicate to filter the rows by before decoding the run records. If null, then does not filter.
+   * @param status to filter the rows by the status decoded from the run records, before decoding the whole
+   *               run records. If null, then does not filter.
    * @param predicate to filter the runRecordMetas by. If null, then does not filter.
    * @param limit the maximum number of entries to return
    */
   private CloseableIterator<RunRecordDetail> queryProgramRuns(Range range,
                                                               @Nullable Predicate<StructuredRow> keyPredicate,
+                                                              @Nullable ProgramRunStatus status,
                                                               @Nullable Predicate<RunRecordDetail> predicate,
                                                               int limit) throws IOException {
     CloseableIterator<StructuredRow> iterator = getRunRecordsTable()
-      .scan(range, predicate == null && keyPredicate == null ? limit : Integer.MAX_VALUE);
+      .scan(range, predicate == null && keyPredicate == null && status == null ? limit : Integer.MAX_VALUE);
 
     return new AbstractCloseableIterator<RunRecordDetail>() {
 
@@ -1369,7 +1373,12 @@ public class AppMetadataStore {
           if (keyPredicate != null && !keyPredicate.test(row)) {
             continue;
           }
-          RunRecordDetail recordMeta = deserializeRunRecordMeta(row);
+          String data = row.getString(StoreDefinition.AppMetadataStore.RUN_RECORD_DATA);
+          if (status != null && status != RunRecordDetailCodec.decodeStatus(data)) {
+            continue;
+          }
+          // The status is passed in only if it has been decoded, so that it isn't decoded again
+          RunRecordDetail recordMeta = deserializeRunRecordMeta(row, data, status);
           if (predicate == null || predicate.test(recordMeta)) {
             currentLimit--;
             return recordMeta;
@@ -1417,14 +1426,14 @@ public class AppMetadataStore {
                                                      @Nullable Predicate<RunRecordDetail> valueFilter)
     throws IOException {
 
+    // Filter by the status decoded from the run record, without decoding the whole record
+    ProgramRunStatus statusFilter = status == ProgramRunStatus.ALL ? null : status;
     Map<ProgramRunId, RunRecordDetail> map = new LinkedHashMap<>();
-    try (CloseableIterator<RunRecordDetail> iterator = queryProgramRuns(range, keyFilter, valueFilter,
-                                                                        getLimitByStatus(limit, status))) {
-      while (iterator.hasNext() && map.size() < limit) {
+    try (CloseableIterator<RunRecordDetail> iterator = queryProgramRuns(range, keyFilter, statusFilter,
+                                                                        valueFilter, limit)) {
+      while (iterator.hasNext()) {
         RunRecordDetail meta = iterator.next();
-        if (status == ProgramRunStatus.ALL || status == meta.getStatus()) {
-          map.put(meta.getProgramRunId(), meta);
-        }
+        map.put(meta.getProgramRunId(), meta);
       }
     }
     return map;
@@ -1450,8 +1459,7 @@ public class AppMetadataStore {
     ApplicationId applicationId = new ApplicationId(namespaceId, appId, versionId);
     getRunRecordsTable()
       .deleteAll(Range.singleton(getRunRecordApplicationPrefix(TYPE_RUN_RECORD_ACTIVE, applicationId)));
-    getRunRecordsTable()
-      .deleteAll(Range.singleton(getRunRecordApplicationPrefix(TYPE_RUN_RECORD_COMPLETED, applicationId)));
+    deleteCompletedRuns(Range.singleton(getRunRecordApplicationPrefix(TYPE_RUN_RECORD_COMPLETED, applicationId)));
     getProgramCountsTable().deleteAll(Range.singleton(getCountApplicationPrefix(TYPE_COUNT, applicationId)));
     getProgramCountsTable().deleteAll(
       Range.singleton(getCountApplicationPrefix(TYPE_RUN_RECORD_UPGRADE_COUNT, applicationId)));
@@ -1460,8 +1468,7 @@ public class AppMetadataStore {
   public void deleteProgramHistory(NamespaceId namespaceId) throws IOException {
     getRunRecordsTable().deleteAll(
       Range.singleton(getRunRecordNamespacePrefix(TYPE_RUN_RECORD_ACTIVE, namespaceId)));
-    getRunRecordsTable().deleteAll(Range.singleton(
-      getRunRecordNamespacePrefix(TYPE_RUN_RECORD_COMPLETED, namespaceId)));
+    deleteCompletedRuns(Range.singleton(getRunRecordNamespacePrefix(TYPE_RUN_RECORD_COMPLETED, namespaceId)));
     getProgramCountsTable().deleteAll(Range.singleton(getCountNamespacePrefix(TYPE_COUNT, namespaceId)));
     getProgramCountsTable().deleteAll(Range.singleton(
       getCountNamespacePrefix(TYPE_RUN_RECORD_UPGRADE_COUNT, namespaceId)));
@@ -1504,11 +1511,44 @@ public class AppMetadataStore {
    */
   public Set<RunId> getRunningInRangeCompleted(long startTimeInSecs, long endTimeInSecs)
     throws IOException {
-    // This method scans a large amount of data and may timeout. However, the previous implementation would
-    // simply return incomplete data. We have doubled the amount of time each transaction can take by using two
-    // transactions - and can further get all namespaces from the smaller app spec table and do one transaction per
-    // namespace if necessary.
-    return getRunningInRangeForStatus(TYPE_RUN_RECORD_COMPLETED, startTimeInSecs, endTimeInSecs);
+    RunTimeIndexWatermark watermark = getRunTimeIndexWatermark();
+    if (watermark == null || startTimeInSecs < watermark.stopTime) {
+      // Runs stopped before the run time index is in use are not indexed, hence need to scan the run records.
+      // This scans a large amount of data and may timeout. However, the previous implementation would
+      // simply return incomplete data. We have doubled the amount of time each transaction can take by using two
+      // transactions - and can further get all namespaces from the smaller app spec table and do one transaction per
+      // namespace if necessary.
+      return getRunningInRangeForStatus(TYPE_RUN_RECORD_COMPLETED, startTimeInSecs, endTimeInSecs);
+    }
+
+    // Runs are indexed under the bucket of their stop time. A run that overlaps with the given time range stopped
+    // at or after the range start time, and before the range end time plus the longest run duration. Hence only
+    // the runs stopped in between need to be read and filtered by their start time.
+    Collection<Field<?>> begin = Collections.singleton(
+      Fields.longField(StoreDefinition.AppMetadataStore.RUN_TIME_BUCKET, getRunTimeBucket(startTimeInSecs)));
+    Range range;
+    if (endTimeInSecs > Long.MAX_VALUE - watermark.maxDuration) {
+      range = Range.from(begin, Range.Bound.INCLUSIVE);
+    } else {
+      long endBucket = getRunTimeBucket(endTimeInSecs + watermark.maxDuration);
+      range = Range.create(begin, Range.Bound.INCLUSIVE,
+                           Collections.singleton(Fields.longField(StoreDefinition.AppMetadataStore.RUN_TIME_BUCKET,
+                                                                  endBucket)),
+                           Range.Bound.INCLUSIVE);
+    }
+
+    Set<RunId> runIds = new HashSet<>();
+    try (CloseableIterator<StructuredRow> iterator = getRunTimeIndexTable().scan(range, Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        StructuredRow row = iterator.next();
+        Long startTs = row.getLong(StoreDefinition.AppMetadataStore.RUN_START_TIME);
+        Long stopTs = row.getLong(StoreDefinition.AppMetadataStore.RUN_STOP_TIME);
+        if (startTs != null && stopTs != null && startTs < endTimeInSecs && stopTs >= startTimeInSecs) {
+          runIds.add(RunIds.fromString(row.getString(StoreDefinition.AppMetadataStore.RUN_FIELD)));
+        }
+      }
+    }
+    return runIds;
   }
 
   /**
@@ -1516,11 +1556,19 @@ public class AppMetadataStore {
    */
   public Set<RunId> getRunningInRangeActive(long startTimeInSecs, long endTimeInSecs)
     throws IOException {
-    // This method scans a large amount of data and may timeout. However, the previous implementation would
-    // simply return incomplete data. We have doubled the amount of time each transaction can take by using two
-    // transactions - and can further get all namespaces from the smaller app spec table and do one transaction per
-    // namespace if necessary.
-    return getRunningInRangeForStatus(TYPE_RUN_RECORD_ACTIVE, startTimeInSecs, endTimeInSecs);
+    // Active runs have no stop time, hence only the start time in the row key is needed to filter.
+    Set<RunId> runIds = new HashSet<>();
+    Range range = Range.singleton(getRunRecordStatusPrefix(TYPE_RUN_RECORD_ACTIVE));
+    try (CloseableIterator<StructuredRow> iterator = getRunRecordsTable().scan(range, Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        StructuredRow row = iterator.next();
+        Long invertedStartTs = row.getLong(StoreDefinition.AppMetadataStore.RUN_START_TIME);
+        if (invertedStartTs != null && getInvertedTsKeyPart(invertedStartTs) < endTimeInSecs) {
+          runIds.add(RunIds.fromString(row.getString(StoreDefinition.AppMetadataStore.RUN_FIELD)));
+        }
+      }
+    }
+    return runIds;
   }
 
   /**
@@ -1580,6 +1628,26 @@ public class AppMetadataStore {
       .orElse(null);
   }
 
+  /**
+   * Gets the ids of the last fetched messages of all the subscribers of the given TMS topic.
+   *
+   * @param topic the topic to lookup the last message ids
+   * @return a map from subscriber name to the id of the last fetched message for that subscriber on this topic
+   */
+  public Map<String, String> retrieveSubscriberStates(String topic) throws IOException {
+    Map<String, String> states = new HashMap<>();
+    Range range = Range.singleton(
+      Collections.singletonList(Fields.stringField(StoreDefinition.AppMetadataStore.SUBSCRIBER_TOPIC, topic)));
+    try (CloseableIterator<StructuredRow> iterator = getSubscriberStateTable().scan(range, Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        StructuredRow row = iterator.next();
+        states.put(row.getString(StoreDefinition.AppMetadataStore.SUBSCRIBER),
+                   row.getString(StoreDefinition.AppMetadataStore.SUBSCRIBER_MESSAGE));
+      }
+    }
+    return states;
+  }
+
   /**
    * Updates the given topic's last fetched message id with the given message id for the given subscriber.
    *
@@ -1593,6 +1661,124 @@ public class AppMetadataStore {
     getSubscriberStateTable().upsert(keys);
   }
 
+  /**
+   * Deletes the last fetched message id of the given subscriber of the given topic.
+   *
+   * @param topic the topic of the message id
+   * @param subscriber the subscriber name
+   */
+  public void deleteSubscriberState(String topic, String subscriber) throws IOException {
+    getSubscriberStateTable().delete(getSubscriberKeys(topic, subscriber));
+  }
+
+  /**
+   * Adds a completed run to the run time index, under the time bucket of the stop time of the run.
+   * It must be called before the completed run record is written.
+   */
+  private void addToRunTimeIndex(RunRecordDetail record) throws IOException {
+    StructuredTable indexTable = getRunTimeIndexTable();
+    long stopTs = getIndexedStopTime(record);
+    long duration = stopTs - record.getStartTs();
+
+    // The watermark row is only written when the index is first used, or when the longest run duration grows,
+    // so that concurrent transactions stopping runs rarely write to the same row.
+    RunTimeIndexWatermark watermark = getRunTimeIndexWatermark();
+    if (watermark == null || duration > watermark.maxDuration) {
+      long watermarkStopTime;
+      if (watermark == null) {
+        // Completed runs written before the index is in use are not indexed. If there is any of them, only runs
+        // stopped from now on can be found from the index.
+        boolean hasCompletedRuns;
+        try (CloseableIterator<StructuredRow> iterator = getRunRecordsTable().scan(
+          Range.singleton(getRunRecordStatusPrefix(TYPE_RUN_RECORD_COMPLETED)), 1)) {
+          hasCompletedRuns = iterator.hasNext();
+        }
+        watermarkStopTime = hasCompletedRuns ? TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) : 0L;
+      } else {
+        watermarkStopTime = watermark.stopTime;
+      }
+      watermark = new RunTimeIndexWatermark(watermarkStopTime, duration);
+      List<Field<?>> fields = getRunTimeIndexWatermarkKey();
+      fields.add(Fields.longField(StoreDefinition.AppMetadataStore.RUN_STOP_TIME, watermark.stopTime));
+      fields.add(Fields.longField(StoreDefinition.AppMetadataStore.RUN_MAX_DURATION, watermark.maxDuration));
+      indexTable.upsert(fields);
+      runTimeIndexWatermark = watermark;
+    }
+
+    List<Field<?>> fields = getRunTimeIndexKey(getRunTimeBucket(stopTs), record.getProgramRunId());
+    fields.add(Fields.longField(StoreDefinition.AppMetadataStore.RUN_START_TIME, record.getStartTs()));
+    fields.add(Fields.longField(StoreDefinition.AppMetadataStore.RUN_STOP_TIME, stopTs));
+    indexTable.upsert(fields);
+  }
+
+  /**
+   * Removes a completed run from the run time index.
+   */
+  private void removeFromRunTimeIndex(RunRecordDetail record) throws IOException {
+    getRunTimeIndexTable().delete(getRunTimeIndexKey(getRunTimeBucket(getIndexedStopTime(record)),
+                                                     record.getProgramRunId()));
+  }
+
+  /**
+   * Deletes the completed run records in the given range, together with their run time index entries.
+   */
+  private void deleteCompletedRuns(Range range) throws IOException {
+    try (CloseableIterator<StructuredRow> iterator = getRunRecordsTable().scan(range, Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        removeFromRunTimeIndex(deserializeRunRecordMeta(iterator.next()));
+      }
+    }
+    getRunRecordsTable().deleteAll(range);
+  }
+
+  /**
+   * Returns the {@link RunTimeIndexWatermark} of the run time index, or {@code null} if the index is not in use yet.
+   * The watermark row is only read once by this instance.
+   */
+  @Nullable
+  private RunTimeIndexWatermark getRunTimeIndexWatermark() throws IOException {
+    if (runTimeIndexWatermarkLoaded) {
+      return runTimeIndexWatermark;
+    }
+    Optional<StructuredRow> row = getRunTimeIndexTable().read(getRunTimeIndexWatermarkKey());
+    Long stopTime = row.map(r -> r.getLong(StoreDefinition.AppMetadataStore.RUN_STOP_TIME)).orElse(null);
+    if (stopTime != null) {
+      Long maxDuration = row.get().getLong(StoreDefinition.AppMetadataStore.RUN_MAX_DURATION);
+      runTimeIndexWatermark = new RunTimeIndexWatermark(stopTime, maxDuration == null ? 0L : maxDuration);
+    }
+    runTimeIndexWatermarkLoaded = true;
+    return runTimeIndexWatermark;
+  }
+
+  private long getIndexedStopTime(RunRecordDetail record) {
+    Long stopTs = record.getStopTs();
+    return stopTs == null ? record.getStartTs() : Math.max(stopTs, record.getStartTs());
+  }
+
+  private long getRunTimeBucket(long timeInSecs) {
+    return Math.max(0L, timeInSecs / RUN_TIME_INDEX_BUCKET_SECS);
+  }
+
+  private List<Field<?>> getRunTimeIndexKey(long bucket, ProgramRunId programRunId) {
+    List<Field<?>> fields = new ArrayList<>();
+    fields.add(Fields.longField(StoreDefinition.AppMetadataStore.RUN_TIME_BUCKET, bucket));
+    addProgramPrimaryKeys(programRunId.getParent(), fields);
+    fields.add(Fields.stringField(StoreDefinition.AppMetadataStore.RUN_FIELD, programRunId.getRun()));
+    return fields;
+  }
+
+  private List<Field<?>> getRunTimeIndexWatermarkKey() {
+    List<Field<?>> fields = new ArrayList<>();
+    fields.add(Fields.longField(StoreDefinition.AppMetadataStore.RUN_TIME_BUCKET, RUN_TIME_INDEX_WATERMARK_BUCKET));
+    fields.add(Fields.stringField(StoreDefinition.AppMetadataStore.NAMESPACE_FIELD, SMALLEST_POSSIBLE_STRING));
+    fields.add(Fields.stringField(StoreDefinition.AppMetadataStore.APPLICATION_FIELD, SMALLEST_POSSIBLE_STRING));
+    fields.add(Fields.stringField(StoreDefinition.AppMetadataStore.VERSION_FIELD, SMALLEST_POSSIBLE_STRING));
+    fields.add(Fields.stringField(StoreDefinition.AppMetadataStore.PROGRAM_TYPE_FIELD, SMALLEST_POSSIBLE_STRING));
+    fields.add(Fields.stringField(StoreDefinition.AppMetadataStore.PROGRAM_FIELD, SMALLEST_POSSIBLE_STRING));
+    fields.add(Fields.stringField(StoreDefinition.AppMetadataStore.RUN_FIELD, SMALLEST_POSSIBLE_STRING));
+    return fields;
+  }
+
   @VisibleForTesting
   Set<RunId> getRunningInRangeForStatus(String statusKey, long startTimeInSecs,
                                         long endTimeInSecs) throws IOException {
@@ -1617,6 +1803,7 @@ public class AppMetadataStore {
     deleteTable(getWorkflowsTable(), StoreDefinition.AppMetadataStore.NAMESPACE_FIELD);
     deleteTable(getProgramCountsTable(), StoreDefinition.AppMetadataStore.COUNT_TYPE);
     deleteTable(getSubscriberStateTable(), StoreDefinition.AppMetadataStore.SUBSCRIBER_TOPIC);
+    getRunTimeIndexTable().deleteAll(Range.all());
   }
 
   private void deleteTable(StructuredTable table, String firstKey) throws IOException {
@@ -1697,6 +1884,12 @@ public class AppMetadataStore {
     table.upsert(keys);
   }
 
+  private void writeRunRecord(List<Field<?>> keys, RunRecordDetail record) throws IOException {
+    keys.add(Fields.stringField(StoreDefinition.AppMetadataStore.RUN_RECORD_DATA,
+                                RunRecordDetailCodec.encode(record)));
+    getRunRecordsTable().upsert(keys);
+  }
+
   private List<Field<?>> getRunRecordStatusPrefix(String status) {
     List<Field<?>> fields = new ArrayList<>();
     fields.add(Fields.stringField(StoreDefinition.AppMetadataStore.RUN_STATUS, status));
@@ -1735,12 +1928,14 @@ public class AppMetadataStore {
   }
 
   private static RunRecordDetail deserializeRunRecordMeta(StructuredRow row) {
-    RunRecordDetail existing =
-      GSON.fromJson(row.getString(StoreDefinition.AppMetadataStore.RUN_RECORD_DATA), RunRecordDetail.class);
-    return RunRecordDetail.builder(existing)
-      .setProgramRunId(
-        getProgramIdFromRunRecordsPrimaryKeys(new ArrayList<>(row.getPrimaryKeys())).run(existing.getPid()))
-      .build();
+    return deserializeRunRecordMeta(row, row.getString(StoreDefinition.AppMetadataStore.RUN_RECORD_DATA), null);
+  }
+
+  private static RunRecordDetail deserializeRunRecordMeta(StructuredRow row, String data,
+                                                          @Nullable ProgramRunStatus status) {
+    ProgramRunId programRunId = getProgramIdFromRunRecordsPrimaryKeys(new ArrayList<>(row.getPrimaryKeys()))
+      .run(row.getString(StoreDefinition.AppMetadataStore.RUN_FIELD));
+    return RunRecordDetailCodec.decode(programRunId, data, status);
   }
 
   private static ProgramId getProgramIdFromRunRecordsPrimaryKeys(List<Field<?>> primaryKeys) {
@@ -1874,4 +2069,18 @@ public class AppMetadataStore {
       return Objects.hash(appId, rawAppMeta);
     }
   }
+
+  /**
+   * The stop time since when all completed runs are in the run time index, together with the longest duration
+   * of the indexed runs.
+   */
+  private static final class RunTimeIndexWatermark {
+    private final long stopTime;
+    private final long maxDuration;
+
+    RunTimeIndexWatermark(long stopTime, long maxDuration) {
+      this.stopTime = stopTime;
+      this.maxDuration = maxDuration;
+    }
+  }
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metadata;
+
+import io.cdap.cdap.api.metadata.MetadataEntity;
+import io.cdap.cdap.spi.metadata.Metadata;
+import io.cdap.cdap.spi.metadata.MetadataMutation;
+import io.cdap.cdap.spi.metadata.MetadataStorage;
+import io.cdap.cdap.spi.metadata.MutationOptions;
+import io.cdap.cdap.spi.metadata.ScopedName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Buffers {@link MetadataMutation}s and applies them to the {@link MetadataStorage} with
+ * {@link MetadataStorage#batch(List, MutationOptions)}, such that many mutations are applied with few bulk requests.
+ * Mutations of the same entity are coalesced where possible:
+ * <ul>
+ *   <li>a {@link MetadataMutation.Drop} discards all the pending mutations of the entity;</li>
+ *   <li>consecutive {@link MetadataMutation.Update}s of the entity are merged into one.</li>
+ * </ul>
+ * Since storage providers can apply a batch in bulk only if it has at most one mutation per entity, the remaining
+ * mutations of the same entity are applied in consecutive batches, preserving their order.
+ *
+ * This class is not thread safe.
+ */
+final class MetadataMutationBuffer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(MetadataMutationBuffer.class);
+
+  private final MetadataStorage metadataStorage;
+  private final int maxBufferSize;
+  private final Map<MetadataEntity, List<MetadataMutation>> pending;
+  private int size;
+
+  /**
+   * Creates a new instance.
+   *
+   * @param metadataStorage the {@link MetadataStorage} to apply mutations to
+   * @param maxBufferSize the maximum number of buffered mutations. Mutations are flushed when it is reached.
+   */
+  MetadataMutationBuffer(MetadataStorage metadataStorage, int maxBufferSize) {
+    if (maxBufferSize <= 0) {
+      throw new IllegalArgumentException("Maximum buffer size must be positive: " + maxBufferSize);
+    }
+    this.metadataStorage = metadataStorage;
+    this.maxBufferSize = maxBufferSize;
+    this.pending = new LinkedHashMap<>();
+  }
+
+  /**
+   * Adds a mutation to this buffer. All the buffered mutations are flushed if the maximum buffer size is reached.
+   *
+   * @throws IOException if failed to flush the buffered mutations
+   */
+  void add(MetadataMutation mutation) throws IOException {
+    List<MetadataMutation> mutations = pending.computeIfAbsent(mutation.getEntity(), k -> new ArrayList<>());
+    MetadataMutation last = mutations.isEmpty() ? null : mutations.get(mutations.size() - 1);
+
+    if (mutation.getType() == MetadataMutation.Type.DROP) {
+      // Drop removes all the metadata of the entity, hence the pending mutations are irrelevant
+      size -= mutations.size();
+      mutations.clear();
+      mutations.add(mutation);
+    } else if (mutation.getType() == MetadataMutation.Type.UPDATE
+      && last != null && last.getType() == MetadataMutation.Type.UPDATE) {
+      mutations.set(mutations.size() - 1, merge((MetadataMutation.Update) last, (MetadataMutation.Update) mutation));
+      // size is unchanged
+      return;
+    } else {
+      mutations.add(mutation);
+    }
+    size++;
+
+    if (size >= maxBufferSize) {
+      flush();
+    }
+  }
+
+  /**
+   * Returns the number of mutations in this buffer.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * Applies all the buffered mutations to the {@link MetadataStorage}. The buffer is empty after this call,
+   * even if it fails.
+   *
+   * @throws IOException if failed to apply the mutations
+   */
+  void flush() throws IOException {
+    if (pending.isEmpty()) {
+      return;
+    }
+    try {
+      // Each batch contains at most one mutation per entity
+      for (int round = 0; ; round++) {
+        List<MetadataMutation> batch = new ArrayList<>();
+        for (List<MetadataMutation> mutations : pending.values()) {
+          if (mutations.size() > round) {
+            batch.add(mutations.get(round));
+          }
+        }
+        if (batch.isEmpty()) {
+          break;
+        }
+        LOG.trace("Applying batch of {} metadata mutations", batch.size());
+        metadataStorage.batch(batch, MutationOptions.DEFAULT);
+      }
+    } finally {
+      pending.clear();
+      size = 0;
+    }
+  }
+
+  private MetadataMutation.Update merge(MetadataMutation.Update first, MetadataMutation.Update second) {
+    Metadata firstUpdates = first.getUpdates();
+    Metadata secondUpdates = second.getUpdates();
+    Set<ScopedName> tags = new HashSet<>(firstUpdates.getTags());
+    tags.addAll(secondUpdates.getTags());
+    Map<ScopedName, String> properties = new HashMap<>(firstUpdates.getProperties());
+    properties.putAll(secondUpdates.getProperties());
+    return new MetadataMutation.Update(first.getEntity(), new Metadata(tags, properties));
+  }
+}
@@ -64,7 +64,6 @@ import io.cdap.cdap.spi.metadata.MetadataDirective;
 import io.cdap.cdap.spi.metadata.MetadataKind;
 import io.cdap.cdap.spi.metadata.MetadataMutation;
 import io.cdap.cdap.spi.metadata.MetadataStorage;
-import io.cdap.cdap.spi.metadata.MutationOptions;
 import io.cdap.cdap.spi.metadata.ScopedNameOfKind;
 import org.apache.tephra.TxConstants;
 import org.slf4j.Logger;
@@ -108,6 +107,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
   private final MultiThreadMessagingContext messagingContext;
   private final TransactionRunner transactionRunner;
   private final int maxRetriesOnConflict;
+  private final int mutationBatchSize;
 
   private String conflictMessageId = null;
   private int conflictCount = 0;
@@ -136,6 +136,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
     this.metadataStorage = metadataStorage;
     this.transactionRunner = transactionRunner;
     this.maxRetriesOnConflict = cConf.getInt(Constants.Metadata.MESSAGING_RETRIES_ON_CONFLICT);
+    this.mutationBatchSize = cConf.getInt(Constants.Metadata.MESSAGING_BATCH_SIZE);
   }
 
   @Override
@@ -183,6 +184,9 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
                                  Iterator<ImmutablePair<String, MetadataMessage>> messages)
     throws IOException, ConflictException {
     Map<MetadataMessage.Type, MetadataMessageProcessor> processors = new HashMap<>();
+    // Metadata operations are applied to the metadata storage in bulk. All of them are applied before returning,
+    // so that they are committed together with the message id.
+    MetadataMutationBuffer mutationBuffer = new MetadataMutationBuffer(metadataStorage, mutationBatchSize);
 
     // Loop over all fetched messages and process them with corresponding MetadataMessageProcessor
     while (messages.hasNext()) {
@@ -190,6 +194,11 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
       String messageId = next.getFirst();
       MetadataMessage message = next.getSecond();
 
+      // Other processors may read or write metadata, hence apply all the buffered metadata operations first
+      if (message.getType() != MetadataMessage.Type.METADATA_OPERATION) {
+        mutationBuffer.flush();
+      }
+
       MetadataMessageProcessor processor = processors.computeIfAbsent(message.getType(), type -> {
         switch (type) {
           case LINEAGE:
@@ -202,7 +211,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
           case WORKFLOW_STATE:
             return new WorkflowProcessor();
           case METADATA_OPERATION:
-            return new MetadataOperationProcessor(cConf);
+            return new MetadataOperationProcessor(cConf, mutationBuffer);
           case PROFILE_ASSIGNMENT:
           case PROFILE_UNASSIGNMENT:
           case ENTITY_CREATION:
@@ -238,6 +247,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
         throw e;
       }
     }
+    mutationBuffer.flush();
   }
 
   /**
@@ -344,12 +354,15 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
 
   /**
    * The {@link MetadataMessageProcessor} for metadata operations.
-   * It receives operations and applies them to the metadata store.
+   * It receives operations and adds them to a {@link MetadataMutationBuffer} to be applied to the metadata store.
    */
   private class MetadataOperationProcessor extends MetadataValidator implements MetadataMessageProcessor {
 
-    MetadataOperationProcessor(CConfiguration cConf) {
+    private final MetadataMutationBuffer mutationBuffer;
+
+    MetadataOperationProcessor(CConfiguration cConf, MetadataMutationBuffer mutationBuffer) {
       super(cConf);
+      this.mutationBuffer = mutationBuffer;
     }
 
     @Override
@@ -364,11 +377,11 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
           MetadataOperation.Create create = (MetadataOperation.Create) operation;
           MetadataMutation mutation = new MetadataMutation.Create(
             entity, new Metadata(MetadataScope.SYSTEM, create.getTags(), create.getProperties()), CREATE_DIRECTIVES);
-          metadataStorage.apply(mutation, MutationOptions.DEFAULT);
+          mutationBuffer.add(mutation);
           break;
         }
         case DROP: {
-          metadataStorage.apply(new MetadataMutation.Drop(operation.getEntity()), MutationOptions.DEFAULT);
+          mutationBuffer.add(new MetadataMutation.Drop(operation.getEntity()));
           break;
         }
         case PUT: {
@@ -380,8 +393,7 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
               validateProperties(entity, props);
               validateTags(entity, tags);
             }
-            metadataStorage.apply(
-              new MetadataMutation.Update(entity, new Metadata(put.getScope(), tags, props)), MutationOptions.DEFAULT);
+            mutationBuffer.add(new MetadataMutation.Update(entity, new Metadata(put.getScope(), tags, props)));
           } catch (InvalidMetadataException e) {
             LOG.warn("Ignoring invalid metadata operation {} from TMS: {}", operation,
                      GSON.toJson(message.getRawPayload()), e);
@@ -399,23 +411,22 @@ public class MetadataSubscriberService extends AbstractMessagingSubscriberServic
             delete.getTags().forEach(
               name -> toDelete.add(new ScopedNameOfKind(MetadataKind.TAG, delete.getScope(), name)));
           }
-          metadataStorage.apply(new MetadataMutation.Remove(entity, toDelete), MutationOptions.DEFAULT);
+          mutationBuffer.add(new MetadataMutation.Remove(entity, toDelete));
           break;
         }
         case DELETE_ALL: {
           MetadataScope scope = ((MetadataOperation.DeleteAll) operation).getScope();
-          metadataStorage.apply(new MetadataMutation.Remove(entity, scope), MutationOptions.DEFAULT);
+          mutationBuffer.add(new MetadataMutation.Remove(entity, scope));
           break;
         }
         case DELETE_ALL_PROPERTIES: {
           MetadataScope scope = ((MetadataOperation.DeleteAllProperties) operation).getScope();
-          metadataStorage.apply(new MetadataMutation.Remove(entity, scope, MetadataKind.PROPERTY),
-                                MutationOptions.DEFAULT);
+          mutationBuffer.add(new MetadataMutation.Remove(entity, scope, MetadataKind.PROPERTY));
           break;
         }
         case DELETE_ALL_TAGS: {
           MetadataScope scope = ((MetadataOperation.DeleteAllTags) operation).getScope();
-          metadataStorage.apply(new MetadataMutation.Remove(entity, scope, MetadataKind.TAG), MutationOptions.DEFAULT);
+          mutationBuffer.add(new MetadataMutation.Remove(entity, scope, MetadataKind.TAG));
           break;
         }
         default:
@@ -22,6 +22,7 @@ import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
 import io.cdap.cdap.app.store.Store;
 import io.cdap.cdap.common.ConflictException;
@@ -48,14 +49,24 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Polls the JobQueue, checks the jobs for constraint satisfaction, and launches them.
+ * Checks the jobs in the JobQueue for constraint satisfaction, and launches them.
+ *
+ * Each partition of the JobQueue is checked by a separate thread. After a full pass over a partition, the thread
+ * waits until the earliest time at which any job in the partition may change, which is derived from the next check
+ * time of unsatisfied constraints and the timeout of jobs. The wait ends early when {@link #wakeUp()} is called,
+ * for example when new jobs become pending constraint checks or when a program run finishes.
  */
+@Singleton
 class ConstraintCheckerService extends AbstractIdleService {
   private static final Logger LOG = LoggerFactory.getLogger(ConstraintCheckerService.class);
 
@@ -67,6 +78,7 @@ class ConstraintCheckerService extends AbstractIdleService {
   private final TransactionRunner transactionRunner;
   private ScheduleTaskRunner taskRunner;
   private ListeningExecutorService taskExecutorService;
+  private volatile List<ConstraintCheckerThread> checkerThreads = Collections.emptyList();
   private volatile boolean stopping = false;
 
   @Inject
@@ -91,8 +103,14 @@ class ConstraintCheckerService extends AbstractIdleService {
     taskRunner = new ScheduleTaskRunner(store, lifecycleService, propertiesResolver, namespaceQueryAdmin, cConf);
 
     int numPartitions = cConf.getInt(Constants.Scheduler.JOB_QUEUE_NUM_PARTITIONS);
+    long maxIdleMillis = cConf.getLong(Constants.Scheduler.CONSTRAINT_CHECK_MAX_IDLE_MILLIS);
+    List<ConstraintCheckerThread> threads = new ArrayList<>();
     for (int partition = 0; partition < numPartitions; partition++) {
-      taskExecutorService.submit(new ConstraintCheckerThread(partition));
+      threads.add(new ConstraintCheckerThread(partition, maxIdleMillis));
+    }
+    checkerThreads = threads;
+    for (ConstraintCheckerThread thread : threads) {
+      taskExecutorService.submit(thread);
     }
     LOG.info("Started ConstraintCheckerService. state: " + state());
   }
@@ -101,6 +119,8 @@ class ConstraintCheckerService extends AbstractIdleService {
   protected void shutDown() throws Exception {
     stopping = true;
     LOG.info("Stopping ConstraintCheckerService.");
+    // Wake up idle checker threads so that they can see the stopping flag
+    wakeUp();
     try {
       // Shutdown the executor and wait for all pending task to be completed for max of 5 seconds
       taskExecutorService.shutdown();
@@ -115,18 +135,40 @@ class ConstraintCheckerService extends AbstractIdleService {
     LOG.info("Stopped ConstraintCheckerService.");
   }
 
+  /**
+   * Wakes up the checking of all JobQueue partitions. This should be called after changes that can affect the
+   * jobs in the JobQueue or the constraints of those jobs are committed.
+   */
+  void wakeUp() {
+    for (ConstraintCheckerThread thread : checkerThreads) {
+      thread.wakeUp();
+    }
+  }
+
   private class ConstraintCheckerThread implements Runnable {
     private final RetryStrategy scheduleStrategy;
     private final int partition;
+    private final long maxIdleMillis;
     private final Deque<Job> readyJobs = new ArrayDeque<>();
+    private final Semaphore wakeUpSignal = new Semaphore(0);
     private Job lastConsumed;
     private int failureCount;
+    // The earliest time that a job scanned in the current pass needs to be checked again
+    private long passNextCheckTime = Long.MAX_VALUE;
 
-    ConstraintCheckerThread(int partition) {
+    ConstraintCheckerThread(int partition, long maxIdleMillis) {
       // TODO: [CDAP-11370] Need to be configured in cdap-default.xml. Retry with delay ranging from 0.1s to 30s
       scheduleStrategy =
         io.cdap.cdap.common.service.RetryStrategies.exponentialDelay(100, 30000, TimeUnit.MILLISECONDS);
       this.partition = partition;
+      this.maxIdleMillis = maxIdleMillis;
+    }
+
+    void wakeUp() {
+      // Multiple wake ups before the thread checks the job queue again are coalesced into one
+      if (wakeUpSignal.availablePermits() == 0) {
+        wakeUpSignal.release();
+      }
     }
 
     @Override
@@ -137,8 +179,10 @@ class ConstraintCheckerService extends AbstractIdleService {
         try {
           long sleepTime = checkJobQueue();
           // Don't sleep if sleepTime returned is 0
-          if (sleepTime > 0) {
-            TimeUnit.MILLISECONDS.sleep(sleepTime);
+          if (sleepTime > 0 && wakeUpSignal.tryAcquire(sleepTime, TimeUnit.MILLISECONDS)) {
+            // Woken up before the sleep time elapsed. All the wake ups that happened so far are handled by
+            // the next check.
+            wakeUpSignal.drainPermits();
           }
         } catch (InterruptedException e) {
           // sleep is interrupted, just exit without doing anything
@@ -152,9 +196,9 @@ class ConstraintCheckerService extends AbstractIdleService {
      * @return sleep time in milliseconds before next fetch
      */
     private long checkJobQueue() {
-      boolean emptyFetch = false;
+      boolean passCompleted = false;
       try {
-        emptyFetch = TransactionRunners.run(transactionRunner, context -> {
+        passCompleted = TransactionRunners.run(transactionRunner, context -> {
           return checkJobConstraints(JobQueueTable.getJobQueue(context, cConf));
         });
 
@@ -172,28 +216,47 @@ class ConstraintCheckerService extends AbstractIdleService {
         return scheduleStrategy.nextRetry(failureCount, 0);
       }
 
-      // Sleep for 2 seconds if there's no jobs in the queue
-      return emptyFetch && readyJobs.isEmpty() ? 2000L : 0L;
+      // Continue immediately if the pass over the partition is not completed yet
+      if (!passCompleted || !readyJobs.isEmpty()) {
+        return 0L;
+      }
+      // Otherwise sleep until a job may need to be checked again, unless being woken up earlier
+      long sleepTime = Math.min(passNextCheckTime - System.currentTimeMillis(), maxIdleMillis);
+      passNextCheckTime = Long.MAX_VALUE;
+      return Math.max(sleepTime, 1L);
     }
 
+    /**
+     * Checks a batch of jobs in the partition, continuing from the last job consumed.
+     *
+     * @return whether the pass over all jobs in the partition is completed
+     */
     private boolean checkJobConstraints(JobQueue jobQueue) throws IOException {
-      boolean emptyScan = true;
-
+      if (lastConsumed == null) {
+        // Starting a new pass
+        passNextCheckTime = Long.MAX_VALUE;
+      }
       try (CloseableIterator<Job> jobQueueIter = jobQueue.getJobs(partition, lastConsumed)) {
         Stopwatch stopWatch = new Stopwatch().start();
         // limit the batches of the scan to 1000ms
         while (!stopping && stopWatch.elapsedMillis() < 1000) {
           if (!jobQueueIter.hasNext()) {
             lastConsumed = null;
-            return emptyScan;
+            return true;
           }
           Job job = jobQueueIter.next();
           lastConsumed = job;
-          emptyScan = false;
           checkAndUpdateJob(jobQueue, job);
         }
       }
-      return emptyScan;
+      return false;
+    }
+
+    /**
+     * Records that the job being checked needs to be checked again at the given time.
+     */
+    private void checkAgainAt(long time) {
+      passNextCheckTime = Math.min(passNextCheckTime, time);
     }
 
     private void checkAndUpdateJob(JobQueue jobQueue, Job job) throws IOException {
@@ -209,15 +272,19 @@ class ConstraintCheckerService extends AbstractIdleService {
           (job.getState() == Job.State.PENDING_TRIGGER &&
             now - job.getDeleteTimeMillis() > 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS))) {
           jobQueue.deleteJob(job);
+        } else if (job.getState() == Job.State.PENDING_TRIGGER) {
+          checkAgainAt(job.getDeleteTimeMillis() + 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS + 1);
         }
         return;
       }
-      if (now - job.getCreationTime() >= job.getSchedule().getTimeoutMillis() +
-        2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS) {
+      long timeoutTime = job.getCreationTime() + job.getSchedule().getTimeoutMillis() +
+        2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS;
+      if (now >= timeoutTime) {
         LOG.info("Deleted job {}, due to timeout value of {}.", job.getJobKey(), job.getSchedule().getTimeoutMillis());
         jobQueue.deleteJob(job);
         return;
       }
+      checkAgainAt(timeoutTime);
       if (job.getState() != Job.State.PENDING_CONSTRAINT) {
         return;
       }
@@ -303,6 +370,8 @@ class ConstraintCheckerService extends AbstractIdleService {
         }
         if (result.getSatisfiedState() == ConstraintResult.SatisfiedState.NOT_SATISFIED) {
           satisfiedState = ConstraintResult.SatisfiedState.NOT_SATISFIED;
+          // NOT_SATISFIED result always carries the next check time
+          checkAgainAt(result.getNextCheckTime());
         }
       }
       return satisfiedState;
@@ -94,6 +94,8 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
   private final Store appMetaStore;
   private final Impersonator impersonator;
   private final TransactionRunner transactionRunner;
+  private final ScheduleNotificationSubscriberService scheduleNotificationSubscriberService;
+  private final ConstraintCheckerService constraintCheckerService;
 
   @Inject
   CoreSchedulerService(TimeSchedulerService timeSchedulerService,
@@ -109,6 +111,8 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
     this.appMetaStore = store;
     this.impersonator = impersonator;
     this.transactionRunner = transactionRunner;
+    this.scheduleNotificationSubscriberService = scheduleNotificationSubscriberService;
+    this.constraintCheckerService = constraintCheckerService;
     // Use a retry on failure service to make it resilience to transient service unavailability during startup
     this.internalService = new RetryOnStartFailureService(() -> new AbstractIdleService() {
 
@@ -313,6 +317,8 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
       throw new RuntimeException("Exception occurs when enabling schedule " + scheduleId, e);
     } catch (Exception e) {
       throw Throwables.propagate(e);
+    } finally {
+      schedulesModified();
     }
   }
 
@@ -551,6 +557,8 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
       throw new RuntimeException("Exception occurs when enabling schedules", e);
     } catch (Exception e) {
       throw Throwables.propagate(e);
+    } finally {
+      schedulesModified();
     }
   }
 
@@ -626,34 +634,57 @@ public class CoreSchedulerService extends AbstractIdleService implements Schedul
     }, tClass);
   }
 
+  /**
+   * Called after a transaction that modifies schedules is completed. It invalidates the cached trigger to schedules
+   * mapping and wakes up the constraint checker for jobs that are marked for deletion.
+   */
+  private void schedulesModified() {
+    scheduleNotificationSubscriberService.invalidateScheduleCache();
+    constraintCheckerService.wakeUp();
+  }
+
+  // The following variants are only used for modifying schedules, hence they always call schedulesModified()
+  // after the transaction is completed.
   @SuppressWarnings("UnusedReturnValue")
   private <V, T extends Exception> V execute(StoreAndQueueTxRunnable<V, ? extends Exception> runnable,
                                              Class<? extends T> tClass) throws T {
-    return TransactionRunners.run(transactionRunner, context -> {
-      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
-      JobQueueTable queue = JobQueueTable.getJobQueue(context, cConf);
-      return runnable.run(store, queue);
-    }, tClass);
+    try {
+      return TransactionRunners.run(transactionRunner, context -> {
+        ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+        JobQueueTable queue = JobQueueTable.getJobQueue(context, cConf);
+        return runnable.run(store, queue);
+      }, tClass);
+    } finally {
+      schedulesModified();
+    }
   }
 
   @SuppressWarnings({"UnusedReturnValue", "SameParameterValue"})
   private <V, T extends Exception> V execute(StoreAndProfileTxRunnable<V, ? extends Exception> runnable,
                                              Class<? extends T> tClass) throws T {
-    return TransactionRunners.run(transactionRunner, context -> {
-      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
-      ProfileStore profileStore = ProfileStore.get(context);
-      return runnable.run(store, profileStore);
-    }, tClass);
+    try {
+      return TransactionRunners.run(transactionRunner, context -> {
+        ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+        ProfileStore profileStore = ProfileStore.get(context);
+        return runnable.run(store, profileStore);
+      }, tClass);
+    } finally {
+      schedulesModified();
+    }
   }
 
   @SuppressWarnings("UnusedReturnValue")
   private <V, T extends Exception> V execute(StoreQueueAndProfileTxRunnable<V, ? extends Exception> runnable,
                                              Class<? extends T> tClass) throws T {
-    return TransactionRunners.run(transactionRunner, context -> {
-      ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
-      ProfileStore profileStore = ProfileStore.get(context);
-      JobQueueTable queue = JobQueueTable.getJobQueue(context, cConf);
-      return runnable.run(store, queue, profileStore);
-    }, tClass);
+    try {
+      return TransactionRunners.run(transactionRunner, context -> {
+        ProgramScheduleStoreDataset store = Schedulers.getScheduleStore(context);
+        ProfileStore profileStore = ProfileStore.get(context);
+        JobQueueTable queue = JobQueueTable.getJobQueue(context, cConf);
+        return runnable.run(store, queue, profileStore);
+      }, tClass);
+    } finally {
+      schedulesModified();
+    }
   }
 }
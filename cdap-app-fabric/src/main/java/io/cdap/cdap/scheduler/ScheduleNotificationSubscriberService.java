@@ -49,12 +49,14 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
 
@@ -68,16 +70,21 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
   private final CConfiguration cConf;
   private final MessagingService messagingService;
   private final MetricsCollectionService metricsCollectionService;
+  private final ConstraintCheckerService constraintCheckerService;
   private final List<Service> subscriberServices;
+  private final ScheduleTriggerCache triggerCache;
   private ScheduledExecutorService subscriberExecutor;
 
   @Inject
   ScheduleNotificationSubscriberService(CConfiguration cConf, MessagingService messagingService,
                                         MetricsCollectionService metricsCollectionService,
+                                        ConstraintCheckerService constraintCheckerService,
                                         TransactionRunner transactionRunner) {
     this.cConf = cConf;
     this.messagingService = messagingService;
     this.metricsCollectionService = metricsCollectionService;
+    this.constraintCheckerService = constraintCheckerService;
+    this.triggerCache = new ScheduleTriggerCache(cConf.getInt(Constants.Scheduler.TRIGGER_CACHE_SIZE));
     this.subscriberServices = Arrays.asList(new SchedulerEventSubscriberService(transactionRunner),
                                             new DataEventSubscriberService(transactionRunner),
                                             new ProgramStatusEventSubscriberService(transactionRunner));
@@ -87,9 +94,10 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
   protected void startUp() throws Exception {
     LOG.info("Starting {}", getClass().getSimpleName());
 
-    // Use a shared executor for all different subscribers and only keep one core thread
+    // Use a shared executor for all different subscribers, with one thread per subscriber since a fetch can
+    // wait for new notifications up to the poll timeout
     subscriberExecutor = Executors.newScheduledThreadPool(
-      1, Threads.createDaemonThreadFactory("scheduler-notification-subscriber-%d"));
+      subscriberServices.size(), Threads.createDaemonThreadFactory("scheduler-notification-subscriber-%d"));
 
     // Start all subscriber services. All of them has no-op in start, so they shouldn't fail.
     Futures.successfulAsList(subscriberServices.stream().map(Service::start).collect(Collectors.toList())).get();
@@ -114,12 +122,24 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
     LOG.info("Stopped {}", getClass().getSimpleName());
   }
 
+  /**
+   * Invalidates the cached schedules of all trigger keys. This must be called after schedules are
+   * added, updated or deleted, so that notifications are matched against the latest schedules.
+   */
+  void invalidateScheduleCache() {
+    triggerCache.invalidate();
+  }
+
   /**
    * Abstract base class for implementing job queue logic for various kind of notifications.
    * No transactions should be started in any of the overrided methods since they are already wrapped in a transaction.
    */
   private abstract class AbstractSchedulerSubscriberService extends AbstractNotificationSubscriberService {
 
+    // generation of the trigger cache read before the transaction for processing messages started
+    protected long triggerCacheGeneration;
+    private volatile boolean wakeUpConstraintChecker;
+
     AbstractSchedulerSubscriberService(String name, String topic, int fetchSize,
                                        TransactionRunner transactionRunner) {
       super(name, cConf, topic, fetchSize, cConf.getLong(Constants.Scheduler.EVENT_POLL_DELAY_MILLIS),
@@ -137,6 +157,15 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
       getJobQueue(context).persistSubscriberState(getTopicId().getTopic(), messageId);
     }
 
+    @Nullable
+    @Override
+    protected String processMessages(Iterator<ImmutablePair<String, Notification>> messages) throws Exception {
+      // Read the generation before the transaction starts, so that schedules loaded from a transaction snapshot
+      // taken before a concurrent schedule modification are not cached
+      triggerCacheGeneration = triggerCache.getGeneration();
+      return super.processMessages(messages);
+    }
+
     @Override
     protected void processMessages(StructuredTableContext structuredTableContext,
                                    Iterator<ImmutablePair<String, Notification>> messages) throws IOException {
@@ -144,7 +173,23 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
       JobQueueTable jobQueue = getJobQueue(structuredTableContext);
 
       while (messages.hasNext()) {
-        processNotification(scheduleStore, jobQueue, messages.next().getSecond());
+        Notification notification = messages.next().getSecond();
+        long startNanos = System.nanoTime();
+        if (processNotification(scheduleStore, jobQueue, notification)) {
+          wakeUpConstraintChecker = true;
+        }
+        getMetricsContext().gauge("scheduler.notification.process.latency.us",
+                                  TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+      }
+    }
+
+    @Override
+    protected void postProcess() {
+      // Only wake up the constraint checker after the transaction that processed the messages is committed,
+      // so that it sees the changes in the job queue.
+      if (wakeUpConstraintChecker) {
+        wakeUpConstraintChecker = false;
+        constraintCheckerService.wakeUp();
       }
     }
 
@@ -155,9 +200,12 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
 
     /**
      * Processes a single {@link Notification}.
+     *
+     * @return {@code true} if the notification can affect jobs pending constraint checks
      */
-    protected abstract void processNotification(ProgramScheduleStoreDataset scheduleStore,
-                                                JobQueueTable jobQueue, Notification notification) throws IOException;
+    protected abstract boolean processNotification(ProgramScheduleStoreDataset scheduleStore,
+                                                   JobQueueTable jobQueue,
+                                                   Notification notification) throws IOException;
 
     private JobQueueTable getJobQueue(StructuredTableContext context) {
       return JobQueueTable.getJobQueue(context, cConf);
@@ -180,14 +228,14 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
     }
 
     @Override
-    protected void processNotification(ProgramScheduleStoreDataset scheduleStore,
-                                       JobQueueTable jobQueue, Notification notification) throws IOException {
+    protected boolean processNotification(ProgramScheduleStoreDataset scheduleStore,
+                                          JobQueueTable jobQueue, Notification notification) throws IOException {
 
       Map<String, String> properties = notification.getProperties();
       String scheduleIdString = properties.get(ProgramOptionConstants.SCHEDULE_ID);
       if (scheduleIdString == null) {
         LOG.warn("Ignore notification that misses schedule id, {}", notification);
-        return;
+        return false;
       }
 
       ScheduleId scheduleId;
@@ -204,9 +252,10 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
         record = scheduleStore.getScheduleRecord(scheduleId);
       } catch (NotFoundException e) {
         LOG.warn("Ignore notification that doesn't have a schedule {} associated with, {}", scheduleId, notification);
-        return;
+        return false;
       }
       jobQueue.addNotification(record, notification);
+      return true;
     }
   }
 
@@ -222,17 +271,20 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
     }
 
     @Override
-    protected void processNotification(ProgramScheduleStoreDataset scheduleStore,
-                                       JobQueueTable jobQueue, Notification notification) throws IOException {
+    protected boolean processNotification(ProgramScheduleStoreDataset scheduleStore,
+                                          JobQueueTable jobQueue, Notification notification) throws IOException {
       String datasetIdString = notification.getProperties().get(Notification.DATASET_ID);
       if (datasetIdString == null) {
-        return;
+        return false;
       }
       DatasetId datasetId = DatasetId.fromString(datasetIdString);
-      for (ProgramScheduleRecord schedule :
-        scheduleStore.findSchedules(Schedulers.triggerKeyForPartition(datasetId))) {
+      Collection<ProgramScheduleRecord> schedules =
+        triggerCache.findSchedules(scheduleStore, Schedulers.triggerKeyForPartition(datasetId),
+                                   triggerCacheGeneration, getMetricsContext());
+      for (ProgramScheduleRecord schedule : schedules) {
         jobQueue.addNotification(schedule, notification);
       }
+      return !schedules.isEmpty();
     }
   }
 
@@ -248,8 +300,8 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
     }
 
     @Override
-    protected void processNotification(ProgramScheduleStoreDataset scheduleStore,
-                                       JobQueueTable jobQueue, Notification notification) throws IOException {
+    protected boolean processNotification(ProgramScheduleStoreDataset scheduleStore,
+                                          JobQueueTable jobQueue, Notification notification) throws IOException {
       String programRunIdString = notification.getProperties().get(ProgramOptionConstants.PROGRAM_RUN_ID);
       String programRunStatusString = notification.getProperties().get(ProgramOptionConstants.PROGRAM_STATUS);
 
@@ -258,21 +310,26 @@ public class ScheduleNotificationSubscriberService extends AbstractIdleService {
         programStatus = ProgramRunStatus.toProgramStatus(ProgramRunStatus.valueOf(programRunStatusString));
       } catch (IllegalArgumentException e) {
         // Return silently, this happens for statuses that are not meant to be scheduled
-        return;
+        return false;
       }
 
       // Ignore notifications which specify an invalid programRunId or programStatus
       if (programRunIdString == null || programStatus == null) {
-        return;
+        return false;
       }
 
       ProgramRunId programRunId = GSON.fromJson(programRunIdString, ProgramRunId.class);
       ProgramId programId = programRunId.getParent();
       String triggerKeyForProgramStatus = Schedulers.triggerKeyForProgramStatus(programId, programStatus);
 
-      for (ProgramScheduleRecord schedule : scheduleStore.findSchedules(triggerKeyForProgramStatus)) {
+      Collection<ProgramScheduleRecord> schedules =
+        triggerCache.findSchedules(scheduleStore, triggerKeyForProgramStatus, triggerCacheGeneration,
+                                   getMetricsContext());
+      for (ProgramScheduleRecord schedule : schedules) {
         jobQueue.addNotification(schedule, notification);
       }
+      // A finished program run can satisfy the constraints of pending jobs, such as the concurrency constraint
+      return !schedules.isEmpty() || ProgramStatus.TERMINAL_STATES.contains(programStatus);
     }
   }
 }
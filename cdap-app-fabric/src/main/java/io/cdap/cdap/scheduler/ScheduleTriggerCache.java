@@ -0,0 +1,92 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.scheduler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleRecord;
+import io.cdap.cdap.internal.app.runtime.schedule.store.ProgramScheduleStoreDataset;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * An in-memory cache from trigger key to the schedules triggered by that key, which avoids scanning the
+ * schedule store for every data or program status notification. The whole cache is invalidated whenever
+ * schedules are modified. Since a load reads the schedules from the snapshot of its transaction, which could be
+ * taken before a concurrent modification is committed, the result of a load is only cached if no invalidation
+ * happened since before the transaction started.
+ *
+ * This class is thread safe.
+ */
+final class ScheduleTriggerCache {
+
+  private final Cache<String, Collection<ProgramScheduleRecord>> cache;
+  private volatile long generation;
+
+  ScheduleTriggerCache(int maxSize) {
+    this.cache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
+  }
+
+  /**
+   * Returns the current generation of the cache, which is incremented by every invalidation. This must be called
+   * before starting the transaction that loads schedules through {@link #findSchedules}.
+   */
+  long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Returns the schedules that are triggered by the given trigger key, loading them from the
+   * given {@link ProgramScheduleStoreDataset} if they are not cached.
+   *
+   * @param scheduleStore the store to load the schedules from on cache miss
+   * @param triggerKey the trigger key to look up
+   * @param loadGeneration the cache generation read before the transaction of the given store started. The loaded
+   *                       schedules are only cached if the cache wasn't invalidated since then
+   * @param metricsContext the {@link MetricsContext} for emitting cache hit and miss counts
+   * @return an immutable collection of the schedules triggered by the key; never null
+   * @throws IOException if failed to load the schedules from the store
+   */
+  Collection<ProgramScheduleRecord> findSchedules(ProgramScheduleStoreDataset scheduleStore,
+                                                  String triggerKey, long loadGeneration,
+                                                  MetricsContext metricsContext) throws IOException {
+    Collection<ProgramScheduleRecord> schedules = cache.getIfPresent(triggerKey);
+    if (schedules != null) {
+      metricsContext.increment("scheduler.trigger.cache.hits", 1);
+      return schedules;
+    }
+    metricsContext.increment("scheduler.trigger.cache.misses", 1);
+    schedules = ImmutableList.copyOf(scheduleStore.findSchedules(triggerKey));
+    synchronized (this) {
+      if (loadGeneration == generation) {
+        cache.put(triggerKey, schedules);
+      }
+    }
+    return schedules;
+  }
+
+  /**
+   * Invalidates all cached schedules. This must be called after a modification of schedules is committed.
+   */
+  synchronized void invalidate() {
+    generation++;
+    cache.invalidateAll();
+  }
+}
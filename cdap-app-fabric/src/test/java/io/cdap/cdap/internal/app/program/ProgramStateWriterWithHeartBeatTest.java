@@ -45,6 +45,7 @@ import java.util.concurrent.TimeoutException;
 public class ProgramStateWriterWithHeartBeatTest {
   private static class MockProgramStatePublisher implements ProgramStatePublisher {
     long heartBeatCount = 0;
+    boolean closed;
 
     @Override
     public void publish(Notification.Type notificationType, Map<String, String> properties) {
@@ -54,6 +55,11 @@ public class ProgramStateWriterWithHeartBeatTest {
       }
     }
 
+    @Override
+    public void close() {
+      closed = true;
+    }
+
     long getHeartBeatCount() {
       return heartBeatCount;
     }
@@ -104,9 +110,13 @@ public class ProgramStateWriterWithHeartBeatTest {
     Tasks.waitFor(true , () -> ((MockProgramStatePublisher) programStatePublisher).getHeartBeatCount() > expected,
                   10, TimeUnit.SECONDS, "Didn't receive expected heartbeat after 10 seconds after resuming program");
 
-    // kill the program and make sure the heart beat thread also gets stopped
+    // make sure the suspended and resumed program didn't close the publisher
+    Assert.assertFalse(((MockProgramStatePublisher) programStatePublisher).closed);
+
+    // kill the program and make sure the heart beat thread also gets stopped and the publisher gets closed
     programStateWriterWithHeartBeat.killed();
     Tasks.waitFor(false , () -> programStateWriterWithHeartBeat.isHeartBeatThreadAlive(),
                   5, TimeUnit.SECONDS, "Heartbeat thread did not stop after 5 seconds");
+    Assert.assertTrue(((MockProgramStatePublisher) programStatePublisher).closed);
   }
 }
@@ -1469,6 +1469,60 @@ public abstract class ArtifactStoreTest {
     }
   }
 
+  @Test
+  public void testPluginCatalogInvalidation() throws Exception {
+    Id.Artifact parentArtifactId = Id.Artifact.from(Id.Namespace.DEFAULT, "parent", "1.0.0");
+    writeArtifact(parentArtifactId, new ArtifactMeta(ArtifactClasses.builder().build()), "content");
+    ArtifactRange parentArtifactRange = new ArtifactRange(NamespaceId.DEFAULT.getNamespace(), "parent",
+                                                          new ArtifactVersion("1.0.0"), new ArtifactVersion("2.0.0"));
+
+    // Lookups before any plugin is added load an empty catalog
+    Assert.assertTrue(artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentArtifactId).isEmpty());
+    try {
+      artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentArtifactRange, "atype", "plugin1", null,
+                                     10, ArtifactSortOrder.UNORDERED);
+      Assert.fail("Plugin should not exist");
+    } catch (PluginNotExistsException e) {
+      // expected
+    }
+
+    // A newly added plugin is visible in the next lookups
+    PluginClass plugin1 = new PluginClass("atype", "plugin1", "", "c.c.c.plugin1", "cfg", Collections.emptyMap());
+    Id.Artifact pluginArtifact1 = Id.Artifact.from(Id.Namespace.DEFAULT, "plugins1", "1.0.0");
+    writeArtifact(pluginArtifact1, new ArtifactMeta(ArtifactClasses.builder().addPlugin(plugin1).build(),
+                                                    ImmutableSet.of(parentArtifactRange)), "plugin1");
+    Assert.assertEquals(ImmutableSet.of(plugin1),
+                        artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentArtifactId).values().stream()
+                          .flatMap(Set::stream).collect(Collectors.toSet()));
+    Assert.assertEquals(Collections.singletonList(plugin1),
+                        new ArrayList<>(artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentArtifactRange,
+                                                                       "atype", "plugin1", null, 10,
+                                                                       ArtifactSortOrder.UNORDERED).values()));
+
+    // A newly added universal plugin is visible in the next lookup
+    PluginClass plugin2 = new PluginClass("atype", "plugin2", "", "c.c.c.plugin2", "cfg", Collections.emptyMap());
+    Id.Artifact pluginArtifact2 = Id.Artifact.from(Id.Namespace.DEFAULT, "plugins2", "1.0.0");
+    writeArtifact(pluginArtifact2, new ArtifactMeta(ArtifactClasses.builder().addPlugin(plugin2).build()), "plugin2");
+    Assert.assertEquals(ImmutableSet.of(plugin1, plugin2),
+                        artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentArtifactId).values().stream()
+                          .flatMap(Set::stream).collect(Collectors.toSet()));
+
+    // A deleted plugin is gone in the next lookups
+    artifactStore.delete(pluginArtifact1);
+    Assert.assertEquals(ImmutableSet.of(plugin2),
+                        artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentArtifactId).values().stream()
+                          .flatMap(Set::stream).collect(Collectors.toSet()));
+    try {
+      artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentArtifactRange, "atype", "plugin1", null,
+                                     10, ArtifactSortOrder.UNORDERED);
+      Assert.fail("Plugin should have been deleted");
+    } catch (PluginNotExistsException e) {
+      // expected
+    }
+
+    artifactStore.delete(pluginArtifact2);
+    Assert.assertTrue(artifactStore.getPluginClasses(NamespaceId.DEFAULT, parentArtifactId).isEmpty());
+  }
 
   private void assertEqual(Id.Artifact expectedId, ArtifactMeta expectedMeta,
                            String expectedContents, ArtifactDetail actual) throws IOException {
@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.runtime.artifact;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import io.cdap.cdap.common.io.Locations;
+import io.cdap.cdap.common.lang.jar.BundleJarUtil;
+import org.apache.twill.filesystem.Location;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Unit tests for {@link ExpandedArtifactCache}.
+ */
+public class ExpandedArtifactCacheTest {
+
+  @ClassRule
+  public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testReuse() throws IOException {
+    ExpandedArtifactCache cache = new ExpandedArtifactCache(TMP_FOLDER.newFolder(), 1024 * 1024);
+    Location jar = createJar("plugin-1.0.0.jar", "content");
+
+    try (ExpandedArtifactCache.ExpandedArtifact first = cache.expand(jar);
+         ExpandedArtifactCache.ExpandedArtifact second = cache.expand(jar)) {
+      Assert.assertEquals(first.getDirectory(), second.getDirectory());
+      Assert.assertEquals("content",
+                          Files.toString(new File(first.getDirectory(), "file.txt"), Charsets.UTF_8));
+    }
+
+    // A jar with the same name but different content must be expanded into a different directory
+    File firstDir;
+    try (ExpandedArtifactCache.ExpandedArtifact expanded = cache.expand(jar)) {
+      firstDir = expanded.getDirectory();
+    }
+    jar = createJar("plugin-1.0.0.jar", "changed");
+    try (ExpandedArtifactCache.ExpandedArtifact expanded = cache.expand(jar)) {
+      Assert.assertNotEquals(firstDir, expanded.getDirectory());
+      Assert.assertEquals("changed",
+                          Files.toString(new File(expanded.getDirectory(), "file.txt"), Charsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testShareDirectory() throws IOException {
+    // Caches of different processes using the same directory share the expanded artifacts
+    File baseDir = TMP_FOLDER.newFolder();
+    Location jar = createJar("plugin-1.0.0.jar", "content");
+
+    File dir;
+    ExpandedArtifactCache firstCache = new ExpandedArtifactCache(baseDir, 1024 * 1024);
+    try (ExpandedArtifactCache.ExpandedArtifact expanded = firstCache.expand(jar)) {
+      dir = expanded.getDirectory();
+    }
+    // Mark the expanded directory to verify that it is not expanded again
+    File marker = new File(dir, "marker");
+    Assert.assertTrue(marker.createNewFile());
+
+    ExpandedArtifactCache cache = new ExpandedArtifactCache(baseDir, 1024 * 1024);
+    try (ExpandedArtifactCache.ExpandedArtifact expanded = cache.expand(jar)) {
+      Assert.assertEquals(dir, expanded.getDirectory());
+      Assert.assertTrue(marker.isFile());
+    }
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    // Cache that can only hold one expanded artifact
+    ExpandedArtifactCache cache = new ExpandedArtifactCache(TMP_FOLDER.newFolder(), 10);
+    Location jar1 = createJar("plugin1-1.0.0.jar", "content1");
+    Location jar2 = createJar("plugin2-1.0.0.jar", "content2");
+
+    ExpandedArtifactCache.ExpandedArtifact expanded1 = cache.expand(jar1);
+    ExpandedArtifactCache.ExpandedArtifact expanded2 = cache.expand(jar2);
+
+    // Both are in use, hence none can be evicted
+    Assert.assertTrue(expanded1.getDirectory().isDirectory());
+    Assert.assertTrue(expanded2.getDirectory().isDirectory());
+    Assert.assertEquals(16L, cache.getTotalSizeBytes());
+
+    // Release the first one, it should get evicted
+    expanded1.close();
+    Assert.assertFalse(expanded1.getDirectory().exists());
+    Assert.assertEquals(8L, cache.getTotalSizeBytes());
+
+    // Closing again has no effect
+    expanded1.close();
+    Assert.assertTrue(expanded2.getDirectory().isDirectory());
+
+    expanded2.close();
+    Assert.assertTrue(expanded2.getDirectory().isDirectory());
+    Assert.assertEquals(8L, cache.getTotalSizeBytes());
+  }
+
+  @Test
+  public void testDisabled() throws IOException {
+    ExpandedArtifactCache cache = new ExpandedArtifactCache(TMP_FOLDER.newFolder(), 0);
+    Location jar = createJar("plugin-1.0.0.jar", "content");
+
+    File dir;
+    try (ExpandedArtifactCache.ExpandedArtifact first = cache.expand(jar);
+         ExpandedArtifactCache.ExpandedArtifact second = cache.expand(jar)) {
+      Assert.assertNotEquals(first.getDirectory(), second.getDirectory());
+      dir = first.getDirectory();
+      Assert.assertTrue(new File(dir, "file.txt").isFile());
+    }
+    Assert.assertFalse(new File(dir, "file.txt").exists());
+  }
+
+  private Location createJar(String name, String content) throws IOException {
+    File dir = TMP_FOLDER.newFolder();
+    Files.write(content, new File(dir, "file.txt"), Charsets.UTF_8);
+    File jarFile = new File(TMP_FOLDER.newFolder(), name);
+    BundleJarUtil.createJar(dir, jarFile);
+    return Locations.toLocation(jarFile);
+  }
+}
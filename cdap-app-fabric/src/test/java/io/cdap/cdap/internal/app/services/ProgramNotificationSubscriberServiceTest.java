@@ -18,9 +18,11 @@ package io.cdap.cdap.internal.app.services;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.gson.Gson;
 import com.google.inject.Injector;
 import io.cdap.cdap.api.app.ApplicationSpecification;
 import io.cdap.cdap.api.artifact.ArtifactId;
+import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.dataset.lib.cube.AggregationFunction;
 import io.cdap.cdap.api.dataset.lib.cube.TimeValue;
 import io.cdap.cdap.api.metrics.MetricDataQuery;
@@ -45,9 +47,12 @@ import io.cdap.cdap.internal.app.runtime.workflow.WorkflowStateWriter;
 import io.cdap.cdap.internal.app.store.AppMetadataStore;
 import io.cdap.cdap.internal.app.store.RunRecordDetail;
 import io.cdap.cdap.internal.profile.ProfileService;
+import io.cdap.cdap.messaging.data.MessageId;
+import io.cdap.cdap.proto.Notification;
 import io.cdap.cdap.proto.ProgramRunStatus;
 import io.cdap.cdap.proto.ProgramType;
 import io.cdap.cdap.proto.WorkflowNodeStateDetail;
+import io.cdap.cdap.proto.id.ApplicationId;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.ProfileId;
 import io.cdap.cdap.proto.id.ProgramId;
@@ -68,8 +73,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -368,6 +375,88 @@ public class ProgramNotificationSubscriberServiceTest {
     heartbeatDatasetStatusCheck(stopTime, ProgramRunStatus.COMPLETED);
   }
 
+  @Test
+  public void testPartitioning() throws Exception {
+    Gson gson = new Gson();
+    ApplicationId appId = NamespaceId.DEFAULT.app("app");
+    String workflowRun = gson.toJson(appId.workflow("workflow").run(RunIds.generate()));
+    String mrRun = gson.toJson(appId.mr("mr").run(RunIds.generate()));
+
+    // All runs of the same application are in the same partition
+    int partition = ProgramNotificationSubscriberService.getPartition(workflowRun, 4);
+    Assert.assertTrue(partition >= 0 && partition < 4);
+    Assert.assertEquals(partition, ProgramNotificationSubscriberService.getPartition(mrRun, 4));
+    Assert.assertEquals(partition, ProgramNotificationSubscriberService.getPartition(
+      gson.toJson(appId.workflow("workflow").run(RunIds.generate())), 4));
+
+    // Applications are spread across all the partitions
+    Set<Integer> partitions = new HashSet<>();
+    for (int i = 0; i < 100; i++) {
+      partitions.add(ProgramNotificationSubscriberService.getPartition(
+        gson.toJson(NamespaceId.DEFAULT.app("app" + i).spark("spark").run(RunIds.generate())), 4));
+    }
+    Assert.assertEquals(ImmutableSet.of(0, 1, 2, 3), partitions);
+
+    // Invalid notifications and all notifications of a single partition go to the first partition
+    Assert.assertEquals(0, ProgramNotificationSubscriberService.getPartition(null, 4));
+    Assert.assertEquals(0, ProgramNotificationSubscriberService.getPartition("invalid", 4));
+    Assert.assertEquals(0, ProgramNotificationSubscriberService.getPartition(workflowRun, 1));
+
+    // Only the program run id is decoded from the notification, ignoring properties of the same name in other places
+    Notification notification = new Notification(Notification.Type.PROGRAM_STATUS, ImmutableMap.of(
+      ProgramOptionConstants.PROGRAM_STATUS, ProgramRunStatus.RUNNING.name(),
+      ProgramOptionConstants.SYSTEM_OVERRIDES, gson.toJson(ImmutableMap.of("properties", ImmutableMap.of(
+        ProgramOptionConstants.PROGRAM_RUN_ID, mrRun))),
+      ProgramOptionConstants.PROGRAM_RUN_ID, workflowRun));
+    byte[] payload = Bytes.toBytes(gson.toJson(notification));
+    Assert.assertEquals(workflowRun, ProgramNotificationSubscriberService.decodeProgramRunId(payload));
+    Assert.assertNull(ProgramNotificationSubscriberService.decodeProgramRunId(Bytes.toBytes(gson.toJson(
+      new Notification(Notification.Type.PROGRAM_STATUS, ImmutableMap.of(
+        ProgramOptionConstants.PROGRAM_STATUS, ProgramRunStatus.RUNNING.name()))))));
+  }
+
+  @Test
+  public void testMigrateSubscriberStates() {
+    String topic = "testMigrateSubscriberStates";
+    String messageId1 = createMessageId(1000L);
+    String messageId2 = createMessageId(2000L);
+    String messageId3 = createMessageId(3000L);
+
+    Map<String, String> states = TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore store = AppMetadataStore.create(context);
+      // The state before partitioning is used by all the partitions
+      store.persistSubscriberState(topic, "", messageId2);
+      store.persistSubscriberState(topic, "other", messageId1);
+      ProgramNotificationSubscriberService.migrateSubscriberStates(store, topic, 2);
+      return store.retrieveSubscriberStates(topic);
+    });
+    Assert.assertEquals(ImmutableMap.of(ProgramNotificationSubscriberService.getSubscriberName(0, 2), messageId2,
+                                        ProgramNotificationSubscriberService.getSubscriberName(1, 2), messageId2,
+                                        "other", messageId1), states);
+
+    states = TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore store = AppMetadataStore.create(context);
+      // No change if the number of partitions is the same
+      store.persistSubscriberState(topic, ProgramNotificationSubscriberService.getSubscriberName(1, 2), messageId3);
+      ProgramNotificationSubscriberService.migrateSubscriberStates(store, topic, 2);
+      Assert.assertEquals(messageId3, store.retrieveSubscriberState(
+        topic, ProgramNotificationSubscriberService.getSubscriberName(1, 2)));
+
+      // Going back to one partition starts from the smallest message id of the partitions,
+      // instead of the stale state before partitioning
+      ProgramNotificationSubscriberService.migrateSubscriberStates(store, topic, 1);
+      return store.retrieveSubscriberStates(topic);
+    });
+    Assert.assertEquals(ImmutableMap.of(ProgramNotificationSubscriberService.getSubscriberName(0, 1), messageId2,
+                                        "other", messageId1), states);
+  }
+
+  private String createMessageId(long publishTimestamp) {
+    byte[] rawId = new byte[MessageId.RAW_ID_SIZE];
+    MessageId.putRawId(publishTimestamp, (short) 0, 0L, (short) 0, rawId, 0);
+    return Bytes.toHexString(rawId);
+  }
+
   private void checkProgramStatus(ArtifactId artifactId, ProgramRunId runId, ProgramRunStatus expectedStatus)
     throws InterruptedException, ExecutionException, TimeoutException {
     Tasks.waitFor(expectedStatus, () -> TransactionRunners.run(transactionRunner, context -> {
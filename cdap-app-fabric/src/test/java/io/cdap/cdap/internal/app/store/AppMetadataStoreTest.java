@@ -34,8 +34,10 @@ import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.ProfileId;
 import io.cdap.cdap.proto.id.ProgramId;
 import io.cdap.cdap.proto.id.ProgramRunId;
+import io.cdap.cdap.spi.data.table.field.Range;
 import io.cdap.cdap.spi.data.transaction.TransactionRunner;
 import io.cdap.cdap.spi.data.transaction.TransactionRunners;
+import io.cdap.cdap.store.StoreDefinition;
 import org.apache.twill.api.RunId;
 import org.junit.Assert;
 import org.junit.Before;
@@ -335,6 +337,86 @@ public abstract class AppMetadataStoreTest {
     });
   }
 
+  @Test
+  public void testRunningInRangeIndex() {
+    long hour = TimeUnit.HOURS.toSeconds(1);
+    ProgramRunId longRun = NamespaceId.DEFAULT.app("app1").workflow("program")
+      .run(RunIds.generate(TimeUnit.HOURS.toMillis(1)));
+    ProgramRunId shortRun = NamespaceId.DEFAULT.app("app2").workflow("program")
+      .run(RunIds.generate(TimeUnit.HOURS.toMillis(2)));
+
+    TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore store = AppMetadataStore.create(context);
+      recordProvisionAndStart(longRun, store);
+      recordProvisionAndStart(shortRun, store);
+      store.recordProgramStop(longRun, 5 * hour, ProgramRunStatus.COMPLETED, null,
+                              AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+      store.recordProgramStop(shortRun, 2 * hour + 10, ProgramRunStatus.FAILED, null,
+                              AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+    });
+
+    TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore store = AppMetadataStore.create(context);
+      // The long run is found from ranges before the time bucket of its stop time
+      Assert.assertEquals(Collections.singleton(RunIds.fromString(longRun.getRun())),
+                          store.getRunningInRangeCompleted(3 * hour, 4 * hour));
+      // The scan is bounded by the longest run duration, which still covers the long run from its start
+      Assert.assertEquals(Collections.singleton(RunIds.fromString(longRun.getRun())),
+                          store.getRunningInRangeCompleted(hour + 1, hour + 2));
+      Assert.assertEquals(new HashSet<>(Arrays.asList(RunIds.fromString(longRun.getRun()),
+                                                      RunIds.fromString(shortRun.getRun()))),
+                          store.getRunningInRangeCompleted(0, 2 * hour + 5));
+      Assert.assertEquals(Collections.emptySet(), store.getRunningInRangeCompleted(0, hour));
+      Assert.assertEquals(Collections.emptySet(), store.getRunningInRangeCompleted(5 * hour + 1, 10 * hour));
+
+      // Deleted runs are removed from the index
+      store.deleteProgramHistory(NamespaceId.DEFAULT.getNamespace(), "app1", ApplicationId.DEFAULT_VERSION);
+      Assert.assertEquals(Collections.singleton(RunIds.fromString(shortRun.getRun())),
+                          store.getRunningInRangeCompleted(0, 10 * hour));
+    });
+  }
+
+  @Test
+  public void testRunningInRangeBeforeIndexWatermark() {
+    long hour = TimeUnit.HOURS.toSeconds(1);
+    ProgramRunId oldRun = NamespaceId.DEFAULT.app("app1").workflow("program")
+      .run(RunIds.generate(TimeUnit.HOURS.toMillis(1)));
+
+    TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore store = AppMetadataStore.create(context);
+      recordProvisionAndStart(oldRun, store);
+      store.recordProgramStop(oldRun, 2 * hour, ProgramRunStatus.COMPLETED, null,
+                              AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+      // Clear the index to simulate a run that completed before the run time index is in use
+      context.getTable(StoreDefinition.AppMetadataStore.RUN_TIME_INDEX).deleteAll(Range.all());
+    });
+
+    // A run completed after that is indexed, with the index only covering runs stopped from now on
+    long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    ProgramRunId newRun = NamespaceId.DEFAULT.app("app2").workflow("program")
+      .run(RunIds.generate(TimeUnit.SECONDS.toMillis(now + hour)));
+    TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore store = AppMetadataStore.create(context);
+      recordProvisionAndStart(newRun, store);
+      store.recordProgramStop(newRun, now + 2 * hour, ProgramRunStatus.COMPLETED, null,
+                              AppFabricTestHelper.createSourceId(sourceId.incrementAndGet()));
+    });
+
+    TransactionRunners.run(transactionRunner, context -> {
+      AppMetadataStore store = AppMetadataStore.create(context);
+      // Ranges starting before the watermark fall back to scanning the run records, which has the old run
+      Assert.assertEquals(Collections.singleton(RunIds.fromString(oldRun.getRun())),
+                          store.getRunningInRangeCompleted(0, 3 * hour));
+      Assert.assertEquals(new HashSet<>(Arrays.asList(RunIds.fromString(oldRun.getRun()),
+                                                      RunIds.fromString(newRun.getRun()))),
+                          store.getRunningInRangeCompleted(0, now + 3 * hour));
+      // Ranges starting after the watermark are served by the index
+      Assert.assertEquals(Collections.singleton(RunIds.fromString(newRun.getRun())),
+                          store.getRunningInRangeCompleted(now + hour + 10, now + 3 * hour));
+      Assert.assertEquals(Collections.emptySet(), store.getRunningInRangeCompleted(now + 2 * hour + 1, now + 3 * hour));
+    });
+  }
+
   @Test
   public void testGetRuns() throws Exception {
     // Add some run records
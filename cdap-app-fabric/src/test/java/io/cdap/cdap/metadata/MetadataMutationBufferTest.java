@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metadata;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.cdap.cdap.api.metadata.MetadataEntity;
+import io.cdap.cdap.api.metadata.MetadataScope;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.spi.metadata.Metadata;
+import io.cdap.cdap.spi.metadata.MetadataChange;
+import io.cdap.cdap.spi.metadata.MetadataMutation;
+import io.cdap.cdap.spi.metadata.MetadataStorage;
+import io.cdap.cdap.spi.metadata.MutationOptions;
+import io.cdap.cdap.spi.metadata.Read;
+import io.cdap.cdap.spi.metadata.SearchRequest;
+import io.cdap.cdap.spi.metadata.SearchResponse;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link MetadataMutationBuffer}.
+ */
+public class MetadataMutationBufferTest {
+
+  private final MetadataEntity app = NamespaceId.DEFAULT.app("app").toMetadataEntity();
+  private final MetadataEntity dataset = NamespaceId.DEFAULT.dataset("ds").toMetadataEntity();
+
+  @Test
+  public void testCoalescing() throws Exception {
+    RecordingMetadataStorage storage = new RecordingMetadataStorage();
+    MetadataMutationBuffer buffer = new MetadataMutationBuffer(storage, 100);
+
+    MetadataMutation create = new MetadataMutation.Create(
+      app, new Metadata(MetadataScope.SYSTEM, ImmutableSet.of("t1"), ImmutableMap.of("k1", "v1")),
+      Collections.emptyMap());
+    buffer.add(create);
+    buffer.add(new MetadataMutation.Update(app, new Metadata(MetadataScope.USER, ImmutableMap.of("k2", "v2"))));
+    buffer.add(new MetadataMutation.Update(app, new Metadata(MetadataScope.USER, ImmutableSet.of("t2"),
+                                                             ImmutableMap.of("k2", "v3"))));
+    buffer.add(new MetadataMutation.Update(dataset, new Metadata(MetadataScope.USER, ImmutableSet.of("t3"))));
+    buffer.add(new MetadataMutation.Drop(dataset));
+    Assert.assertEquals(3, buffer.size());
+    Assert.assertTrue(storage.batches.isEmpty());
+
+    buffer.flush();
+    Assert.assertEquals(0, buffer.size());
+    // at most one mutation per entity in each batch, in order
+    Assert.assertEquals(ImmutableList.of(
+      ImmutableList.of(create, new MetadataMutation.Drop(dataset)),
+      ImmutableList.of(new MetadataMutation.Update(app, new Metadata(MetadataScope.USER, ImmutableSet.of("t2"),
+                                                                     ImmutableMap.of("k2", "v3"))))
+    ), storage.batches);
+
+    // flush of an empty buffer is a no-op
+    buffer.flush();
+    Assert.assertEquals(2, storage.batches.size());
+  }
+
+  @Test
+  public void testFlushOnSize() throws Exception {
+    RecordingMetadataStorage storage = new RecordingMetadataStorage();
+    MetadataMutationBuffer buffer = new MetadataMutationBuffer(storage, 3);
+
+    for (int i = 0; i < 7; i++) {
+      buffer.add(new MetadataMutation.Drop(NamespaceId.DEFAULT.dataset("ds" + i).toMetadataEntity()));
+    }
+    Assert.assertEquals(2, storage.batches.size());
+    Assert.assertEquals(3, storage.batches.get(0).size());
+    Assert.assertEquals(3, storage.batches.get(1).size());
+    Assert.assertEquals(1, buffer.size());
+  }
+
+  /**
+   * A {@link MetadataStorage} that records the batches applied to it.
+   */
+  private static final class RecordingMetadataStorage implements MetadataStorage {
+
+    private final List<List<MetadataMutation>> batches = new ArrayList<>();
+
+    @Override
+    public void createIndex() {
+      // no-op
+    }
+
+    @Override
+    public void dropIndex() {
+      // no-op
+    }
+
+    @Override
+    public MetadataChange apply(MetadataMutation mutation, MutationOptions options) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<MetadataChange> batch(List<? extends MetadataMutation> mutations, MutationOptions options) {
+      batches.add(new ArrayList<>(mutations));
+      return Collections.emptyList();
+    }
+
+    @Override
+    public Metadata read(Read read) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SearchResponse search(SearchRequest request) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() {
+      // no-op
+    }
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.scheduler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Scopes;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.guice.ConfigModule;
+import io.cdap.cdap.common.guice.LocalLocationModule;
+import io.cdap.cdap.common.metrics.NoOpMetricsCollectionService;
+import io.cdap.cdap.common.namespace.InMemoryNamespaceAdmin;
+import io.cdap.cdap.common.namespace.NamespaceQueryAdmin;
+import io.cdap.cdap.common.utils.Tasks;
+import io.cdap.cdap.data.runtime.StorageModule;
+import io.cdap.cdap.data.runtime.SystemDatasetRuntimeModule;
+import io.cdap.cdap.data2.dataset2.DatasetDefinitionRegistryFactory;
+import io.cdap.cdap.data2.dataset2.DatasetFramework;
+import io.cdap.cdap.data2.dataset2.DefaultDatasetDefinitionRegistryFactory;
+import io.cdap.cdap.data2.dataset2.InMemoryDatasetFramework;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramSchedule;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleMeta;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleRecord;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramScheduleStatus;
+import io.cdap.cdap.internal.app.runtime.schedule.queue.Job;
+import io.cdap.cdap.internal.app.runtime.schedule.queue.JobQueueTable;
+import io.cdap.cdap.internal.app.runtime.schedule.store.Schedulers;
+import io.cdap.cdap.internal.app.runtime.schedule.trigger.PartitionTrigger;
+import io.cdap.cdap.proto.Notification;
+import io.cdap.cdap.proto.id.DatasetId;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.WorkflowId;
+import io.cdap.cdap.spi.data.StructuredTableAdmin;
+import io.cdap.cdap.spi.data.table.StructuredTableRegistry;
+import io.cdap.cdap.spi.data.transaction.TransactionRunner;
+import io.cdap.cdap.spi.data.transaction.TransactionRunners;
+import io.cdap.cdap.store.StoreDefinition;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.tephra.TransactionManager;
+import org.apache.tephra.TransactionSystemClient;
+import org.apache.tephra.inmemory.InMemoryTxSystemClient;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for the wake up and idle behavior of {@link ConstraintCheckerService}.
+ */
+public class ConstraintCheckerServiceTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final WorkflowId WORKFLOW_ID = new NamespaceId("checkerTest").app("app").workflow("wf");
+  private static final DatasetId DATASET_ID = WORKFLOW_ID.getNamespaceId().dataset("pfs");
+  private static final ProgramSchedule SCHED1 = createSchedule("sched1");
+  private static final ProgramSchedule SCHED2 = createSchedule("sched2");
+
+  private static TransactionManager txManager;
+  private static CConfiguration cConf;
+  private static TransactionRunner transactionRunner;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, TEMP_FOLDER.newFolder().getAbsolutePath());
+    cConf.set(Constants.Dataset.DATA_STORAGE_IMPLEMENTATION, Constants.Dataset.DATA_STORAGE_NOSQL);
+    // Use a single partition so that a single checker thread handles all the jobs
+    cConf.setInt(Constants.Scheduler.JOB_QUEUE_NUM_PARTITIONS, 1);
+
+    txManager = new TransactionManager(new Configuration());
+    txManager.startAndWait();
+
+    Injector injector = Guice.createInjector(
+      new ConfigModule(cConf),
+      new LocalLocationModule(),
+      new SystemDatasetRuntimeModule().getInMemoryModules(),
+      new StorageModule(),
+      new AbstractModule() {
+        @Override
+        protected void configure() {
+          bind(DatasetDefinitionRegistryFactory.class)
+            .to(DefaultDatasetDefinitionRegistryFactory.class).in(Scopes.SINGLETON);
+          bind(DatasetFramework.class).to(InMemoryDatasetFramework.class);
+          bind(NamespaceQueryAdmin.class).to(InMemoryNamespaceAdmin.class).in(Scopes.SINGLETON);
+          bind(TransactionSystemClient.class).toInstance(new InMemoryTxSystemClient(txManager));
+          bind(MetricsCollectionService.class).to(NoOpMetricsCollectionService.class).in(Scopes.SINGLETON);
+        }
+      }
+    );
+
+    injector.getInstance(StructuredTableRegistry.class).initialize();
+    StructuredTableAdmin tableAdmin = injector.getInstance(StructuredTableAdmin.class);
+    transactionRunner = injector.getInstance(TransactionRunner.class);
+    StoreDefinition.JobQueueStore.createTables(tableAdmin, false);
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    txManager.stopAndWait();
+  }
+
+  @After
+  public void tearDown() {
+    TransactionRunners.run(transactionRunner, context -> {
+      JobQueueTable jobQueue = JobQueueTable.getJobQueue(context, cConf);
+      try (CloseableIterator<Job> iterator = jobQueue.fullScan()) {
+        while (iterator.hasNext()) {
+          jobQueue.deleteJob(iterator.next());
+        }
+      }
+    });
+  }
+
+  @Test
+  public void testWakeUp() throws Exception {
+    // With a long idle time, the checker only checks the job queue again after being woken up
+    ConstraintCheckerService checkerService = createService(TimeUnit.HOURS.toMillis(1));
+
+    // The first pass after starting deletes the job, after which the checker has nothing to wait for
+    addDeletableJob(SCHED1);
+    checkerService.startAndWait();
+    try {
+      Tasks.waitFor(false, () -> hasJob(SCHED1), 10, TimeUnit.SECONDS, 50, TimeUnit.MILLISECONDS);
+
+      // A job added without waking up the checker is not checked
+      addDeletableJob(SCHED2);
+      TimeUnit.SECONDS.sleep(1);
+      Assert.assertTrue(hasJob(SCHED2));
+
+      // Waking up the checker makes it check the job right away
+      checkerService.wakeUp();
+      Tasks.waitFor(false, () -> hasJob(SCHED2), 10, TimeUnit.SECONDS, 50, TimeUnit.MILLISECONDS);
+    } finally {
+      checkerService.stopAndWait();
+    }
+  }
+
+  @Test
+  public void testMaxIdle() throws Exception {
+    ConstraintCheckerService checkerService = createService(500L);
+    checkerService.startAndWait();
+    try {
+      // Let the checker complete the pass over the empty job queue and become idle
+      TimeUnit.SECONDS.sleep(1);
+
+      // Even without being woken up, the checker checks the job queue again after the max idle time
+      addDeletableJob(SCHED1);
+      Tasks.waitFor(false, () -> hasJob(SCHED1), 5, TimeUnit.SECONDS, 50, TimeUnit.MILLISECONDS);
+    } finally {
+      checkerService.stopAndWait();
+    }
+  }
+
+  private ConstraintCheckerService createService(long maxIdleMillis) {
+    CConfiguration checkerConf = CConfiguration.copy(cConf);
+    checkerConf.setLong(Constants.Scheduler.CONSTRAINT_CHECK_MAX_IDLE_MILLIS, maxIdleMillis);
+    // The jobs in these tests are deleted without ever being launched, hence no need for the launching dependencies
+    return new ConstraintCheckerService(null, null, null, null, checkerConf, transactionRunner);
+  }
+
+  /**
+   * Adds a job pending trigger for the given schedule and marks it for deletion long enough ago, such that the
+   * constraint checker deletes it when it checks the job.
+   */
+  private void addDeletableJob(ProgramSchedule schedule) {
+    TransactionRunners.run(transactionRunner, context -> {
+      JobQueueTable jobQueue = JobQueueTable.getJobQueue(context, cConf);
+      jobQueue.addNotification(new ProgramScheduleRecord(schedule,
+                                                         new ProgramScheduleMeta(ProgramScheduleStatus.SCHEDULED, 0L)),
+                               Notification.forPartitions(DATASET_ID, ImmutableList.of()));
+      jobQueue.markJobsForDeletion(schedule.getScheduleId(),
+                                   System.currentTimeMillis() - 2 * Schedulers.SUBSCRIBER_TX_TIMEOUT_MILLIS - 1000L);
+    });
+  }
+
+  private boolean hasJob(ProgramSchedule schedule) {
+    return TransactionRunners.run(transactionRunner, context -> {
+      try (CloseableIterator<Job> iterator =
+             JobQueueTable.getJobQueue(context, cConf).getJobsForSchedule(schedule.getScheduleId())) {
+        return iterator.hasNext();
+      }
+    });
+  }
+
+  private static ProgramSchedule createSchedule(String name) {
+    // The trigger needs two partitions, hence a job with one notification stays pending trigger
+    return new ProgramSchedule(name, "", WORKFLOW_ID, ImmutableMap.of(), new PartitionTrigger(DATASET_ID, 2),
+                               ImmutableList.of());
+  }
+}
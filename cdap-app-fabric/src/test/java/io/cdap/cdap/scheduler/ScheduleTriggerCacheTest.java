@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.scheduler;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Scopes;
+import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.NoopMetricsContext;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.guice.ConfigModule;
+import io.cdap.cdap.common.guice.LocalLocationModule;
+import io.cdap.cdap.common.metrics.NoOpMetricsCollectionService;
+import io.cdap.cdap.common.namespace.InMemoryNamespaceAdmin;
+import io.cdap.cdap.common.namespace.NamespaceQueryAdmin;
+import io.cdap.cdap.data.runtime.StorageModule;
+import io.cdap.cdap.data.runtime.SystemDatasetRuntimeModule;
+import io.cdap.cdap.data2.dataset2.DatasetDefinitionRegistryFactory;
+import io.cdap.cdap.data2.dataset2.DatasetFramework;
+import io.cdap.cdap.data2.dataset2.DefaultDatasetDefinitionRegistryFactory;
+import io.cdap.cdap.data2.dataset2.InMemoryDatasetFramework;
+import io.cdap.cdap.internal.app.runtime.schedule.ProgramSchedule;
+import io.cdap.cdap.internal.app.runtime.schedule.store.Schedulers;
+import io.cdap.cdap.internal.app.runtime.schedule.trigger.PartitionTrigger;
+import io.cdap.cdap.proto.id.DatasetId;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.WorkflowId;
+import io.cdap.cdap.spi.data.StructuredTableAdmin;
+import io.cdap.cdap.spi.data.table.StructuredTableRegistry;
+import io.cdap.cdap.spi.data.transaction.TransactionRunner;
+import io.cdap.cdap.spi.data.transaction.TransactionRunners;
+import io.cdap.cdap.store.StoreDefinition;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.tephra.TransactionManager;
+import org.apache.tephra.TransactionSystemClient;
+import org.apache.tephra.inmemory.InMemoryTxSystemClient;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Tests for {@link ScheduleTriggerCache}.
+ */
+public class ScheduleTriggerCacheTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  private static final WorkflowId WORKFLOW_ID = new NamespaceId("cacheTest").app("app").workflow("wf");
+  private static final DatasetId DATASET_ID = WORKFLOW_ID.getNamespaceId().dataset("pfs");
+  private static final String TRIGGER_KEY = Schedulers.triggerKeyForPartition(DATASET_ID);
+  private static final MetricsContext METRICS_CONTEXT = new NoopMetricsContext();
+
+  private static TransactionManager txManager;
+  private static TransactionRunner transactionRunner;
+
+  @BeforeClass
+  public static void beforeClass() throws Exception {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, TEMP_FOLDER.newFolder().getAbsolutePath());
+    cConf.set(Constants.Dataset.DATA_STORAGE_IMPLEMENTATION, Constants.Dataset.DATA_STORAGE_NOSQL);
+
+    txManager = new TransactionManager(new Configuration());
+    txManager.startAndWait();
+
+    Injector injector = Guice.createInjector(
+      new ConfigModule(cConf),
+      new LocalLocationModule(),
+      new SystemDatasetRuntimeModule().getInMemoryModules(),
+      new StorageModule(),
+      new AbstractModule() {
+        @Override
+        protected void configure() {
+          bind(DatasetDefinitionRegistryFactory.class)
+            .to(DefaultDatasetDefinitionRegistryFactory.class).in(Scopes.SINGLETON);
+          bind(DatasetFramework.class).to(InMemoryDatasetFramework.class);
+          bind(NamespaceQueryAdmin.class).to(InMemoryNamespaceAdmin.class).in(Scopes.SINGLETON);
+          bind(TransactionSystemClient.class).toInstance(new InMemoryTxSystemClient(txManager));
+          bind(MetricsCollectionService.class).to(NoOpMetricsCollectionService.class).in(Scopes.SINGLETON);
+        }
+      }
+    );
+
+    injector.getInstance(StructuredTableRegistry.class).initialize();
+    StructuredTableAdmin tableAdmin = injector.getInstance(StructuredTableAdmin.class);
+    transactionRunner = injector.getInstance(TransactionRunner.class);
+    StoreDefinition.ProgramScheduleStore.createTables(tableAdmin, false);
+  }
+
+  @AfterClass
+  public static void afterClass() {
+    txManager.stopAndWait();
+  }
+
+  @Test
+  public void testConcurrentInvalidation() throws Exception {
+    ScheduleTriggerCache cache = new ScheduleTriggerCache(100);
+    ProgramSchedule sched1 = createSchedule("sched1");
+    ProgramSchedule sched2 = createSchedule("sched2");
+    TransactionRunners.run(transactionRunner, context -> {
+      Schedulers.getScheduleStore(context).addSchedule(sched1);
+    });
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      // Load the schedules from a transaction that started before a schedule is added and the cache invalidated
+      long generation = cache.getGeneration();
+      int loaded = TransactionRunners.run(transactionRunner, context -> {
+        executor.submit(() -> {
+          TransactionRunners.run(transactionRunner, addContext -> {
+            Schedulers.getScheduleStore(addContext).addSchedule(sched2);
+          });
+          cache.invalidate();
+        }).get();
+        return cache.findSchedules(Schedulers.getScheduleStore(context), TRIGGER_KEY,
+                                   generation, METRICS_CONTEXT).size();
+      });
+      // The load reads from the snapshot of its transaction, which doesn't have the added schedule
+      Assert.assertEquals(1, loaded);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // The stale load must not be cached, hence a later lookup sees both schedules
+    Assert.assertEquals(2, findSchedules(cache));
+
+    // The result of a load without concurrent invalidation is cached until the cache is invalidated
+    TransactionRunners.run(transactionRunner, context -> {
+      Schedulers.getScheduleStore(context).deleteSchedule(sched2.getScheduleId());
+    });
+    Assert.assertEquals(2, findSchedules(cache));
+    cache.invalidate();
+    Assert.assertEquals(1, findSchedules(cache));
+  }
+
+  private int findSchedules(ScheduleTriggerCache cache) {
+    long generation = cache.getGeneration();
+    return TransactionRunners.run(transactionRunner, context -> {
+      return cache.findSchedules(Schedulers.getScheduleStore(context), TRIGGER_KEY,
+                                 generation, METRICS_CONTEXT).size();
+    });
+  }
+
+  private static ProgramSchedule createSchedule(String name) {
+    return new ProgramSchedule(name, "", WORKFLOW_ID, ImmutableMap.of(), new PartitionTrigger(DATASET_ID, 1),
+                               ImmutableList.of());
+  }
+}
@@ -195,6 +195,8 @@ public final class Constants {
     public static final String APP_SCHEDULER_QUEUE = "apps.scheduler.queue";
     public static final String STATUS_EVENT_FETCH_SIZE = "app.program.status.event.fetch.size";
     public static final String STATUS_EVENT_POLL_DELAY_MILLIS = "app.program.status.event.poll.delay.millis";
+    public static final String STATUS_EVENT_NUM_PARTITIONS = "app.program.status.event.num.partitions";
+    public static final String NOTIFICATION_POLL_TIMEOUT_MILLIS = "app.notification.poll.timeout.millis";
     public static final String MAPREDUCE_JOB_CLIENT_CONNECT_MAX_RETRIES = "mapreduce.jobclient.connect.max.retries";
     public static final String MAPREDUCE_INCLUDE_CUSTOM_CLASSES = "mapreduce.include.custom.format.classes";
     public static final String MAPREDUCE_STATUS_REPORT_INTERVAL_SECONDS = "mapreduce.status.report.interval.seconds";
@@ -204,6 +206,10 @@ public final class Constants {
     public static final String LOCAL_DATASET_DELETER_INITIAL_DELAY_SECONDS
       = "app.program.local.dataset.deleter.initial.delay";
     public static final String SYSTEM_ARTIFACTS_DIR = "app.artifact.dir";
+    public static final String EXPANDED_ARTIFACT_CACHE_MAX_SIZE_MB = "app.artifact.expanded.cache.max.size.mb";
+    public static final String PLUGIN_CATALOG_CACHE_MAX_PLUGINS = "app.artifact.plugin.catalog.cache.max.plugins";
+    public static final String PLUGIN_CATALOG_CACHE_EXPIRATION_SECS =
+      "app.artifact.plugin.catalog.cache.expiration.secs";
     public static final String PROGRAM_EXTRA_CLASSPATH = "app.program.extra.classpath";
     public static final String SPARK_YARN_CLIENT_REWRITE = "app.program.spark.yarn.client.rewrite.enabled";
     public static final String SPARK_COMPAT = "app.program.spark.compat";
@@ -372,8 +378,10 @@ public final class Constants {
     public static final String TIME_EVENT_FETCH_SIZE = "scheduler.time.event.fetch.size";
     public static final String DATA_EVENT_FETCH_SIZE = "scheduler.data.event.fetch.size";
     public static final String PROGRAM_STATUS_EVENT_FETCH_SIZE = "scheduler.program.status.event.fetch.size";
+    public static final String TRIGGER_CACHE_SIZE = "scheduler.trigger.cache.size";
 
     public static final String JOB_QUEUE_NUM_PARTITIONS = "scheduler.job.queue.num.partitions";
+    public static final String CONSTRAINT_CHECK_MAX_IDLE_MILLIS = "scheduler.constraint.check.max.idle.millis";
   }
 
   /**
@@ -459,6 +467,11 @@ public final class Constants {
 
     public static final String DATASET_UNCHECKED_UPGRADE = "dataset.unchecked.upgrade";
 
+    // Maximum number of dataset instance metadata cached by the remote dataset framework; 0 disables the cache
+    public static final String META_CACHE_SIZE = "dataset.meta.cache.size";
+    // Number of seconds a cached dataset instance metadata is used before fetching it again
+    public static final String META_CACHE_EXPIRATION_SECS = "dataset.meta.cache.expiration.secs";
+
     public static final String DATA_EVENT_TOPIC = "data.event.topic";
 
     public static final String DATA_STORAGE_IMPLEMENTATION = "data.storage.implementation";
@@ -474,6 +487,7 @@ public final class Constants {
     public static final String DATA_STORAGE_SQL_PASSWORD = "data.storage.sql.jdbc.password";
     public static final String DATA_STORAGE_SQL_PROPERTY_PREFIX = "data.storage.sql.jdbc.property.";
     public static final String DATA_STORAGE_SQL_CONNECTION_SIZE = "data.storage.sql.jdbc.connection.pool.size";
+    public static final String DATA_STORAGE_SQL_STATEMENT_POOL_SIZE = "data.storage.sql.jdbc.statement.pool.size";
 
     // used for Guice named bindings
     public static final String TABLE_TYPE = "table.type";
@@ -822,6 +836,8 @@ public final class Constants {
   public static final class LogQuery {
     public static final String ADDRESS = "log.query.server.bind.address";
     public static final String PORT = "log.query.server.bind.port";
+    public static final String READ_PREFETCH_FILES = "log.query.read.prefetch.files";
+    public static final String READ_THREADS = "log.query.read.threads";
   }
 
   /**
@@ -1323,6 +1339,7 @@ public final class Constants {
     public static final String MESSAGING_FETCH_SIZE = "metadata.messaging.fetch.size";
     public static final String MESSAGING_POLL_DELAY_MILLIS = "metadata.messaging.poll.delay.millis";
     public static final String MESSAGING_RETRIES_ON_CONFLICT = "metadata.messaging.retries.on.conflict";
+    public static final String MESSAGING_BATCH_SIZE = "metadata.messaging.batch.size";
 
     public static final String STORAGE_PROVIDER_IMPLEMENTATION = "metadata.storage.implementation";
     public static final String STORAGE_PROVIDER_NOSQL = "nosql";
@@ -1367,8 +1384,14 @@ public final class Constants {
     public static final String HTTP_SERVER_EXECUTOR_THREADS = "messaging.http.server.executor.threads";
     public static final String HTTP_SERVER_MAX_REQUEST_SIZE_MB = "messaging.http.server.max.request.size.mb";
     public static final String HTTP_SERVER_CONSUME_CHUNK_SIZE = "messaging.http.server.consume.chunk.size";
+    public static final String HTTP_SERVER_MAX_POLL_TIMEOUT_MS = "messaging.http.server.max.poll.timeout.ms";
+    public static final String POLL_NOTIFIER_CALLBACK_THREADS = "messaging.poll.notifier.callback.threads";
     public static final String HTTP_COMPRESS_PAYLOAD = "messaging.http.compress.payload";
 
+    public static final String WRITER_MAX_BATCH_SIZE = "messaging.writer.max.batch.size";
+    public static final String WRITER_MAX_BATCH_BYTES = "messaging.writer.max.batch.bytes";
+    public static final String WRITER_LINGER_MS = "messaging.writer.linger.ms";
+
     // Distributed mode related configurations
     public static final String HA_FENCING_DELAY_SECONDS = "messaging.ha.fencing.delay.seconds";
     public static final String CONTAINER_VIRTUAL_CORES = "messaging.container.num.cores";
@@ -0,0 +1,323 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.store;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import io.cdap.cdap.api.artifact.ArtifactId;
+import io.cdap.cdap.api.artifact.ArtifactScope;
+import io.cdap.cdap.api.artifact.ArtifactVersion;
+import io.cdap.cdap.common.io.BinaryDecoder;
+import io.cdap.cdap.common.io.BinaryEncoder;
+import io.cdap.cdap.common.io.Decoder;
+import io.cdap.cdap.common.io.Encoder;
+import io.cdap.cdap.proto.ProgramRunCluster;
+import io.cdap.cdap.proto.ProgramRunClusterStatus;
+import io.cdap.cdap.proto.ProgramRunStatus;
+import io.cdap.cdap.proto.id.ProfileId;
+import io.cdap.cdap.proto.id.ProgramRunId;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * Encodes and decodes {@link RunRecordDetail} to and from the compact form stored in the run records table.
+ *
+ * A record is encoded in a versioned binary format, which is stored as a Base64 string prefixed with
+ * {@link #BINARY_PREFIX}, so that it fits in the existing string column and can be told apart from records
+ * written as JSON by older versions. The run id is not encoded since it is part of the row key.
+ * Fields that are small and needed for filtering and state transitions are encoded first, followed by the
+ * properties and system arguments, so that reading a field such as the status doesn't need to decode the
+ * potentially large maps.
+ */
+public final class RunRecordDetailCodec {
+
+  private static final Gson GSON = new Gson();
+  private static final String BINARY_PREFIX = "#";
+  // Name of the status field in records written as JSON
+  private static final String JSON_STATUS_FIELD = "status";
+  private static final int VERSION = 1;
+
+  private RunRecordDetailCodec() {
+    // no-op
+  }
+
+  /**
+   * Encodes the given {@link RunRecordDetail}.
+   *
+   * @param record the record to encode
+   * @return the encoded record
+   */
+  public static String encode(RunRecordDetail record) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    Encoder encoder = new BinaryEncoder(bos);
+    try {
+      encoder.writeInt(VERSION);
+      encoder.writeString(record.getStatus().name());
+      encoder.writeLong(record.getStartTs());
+      writeNullableLong(encoder, record.getRunTs());
+      writeNullableLong(encoder, record.getStopTs());
+      writeNullableLong(encoder, record.getSuspendTs());
+      writeNullableLong(encoder, record.getResumeTs());
+
+      ProgramRunCluster cluster = record.getCluster();
+      encoder.writeString(cluster.getStatus().name());
+      writeNullableLong(encoder, cluster.getEnd());
+      encoder.writeBool(cluster.getNumNodes() != null);
+      if (cluster.getNumNodes() != null) {
+        encoder.writeInt(cluster.getNumNodes());
+      }
+
+      ProfileId profileId = record.getProfileId();
+      encoder.writeString(profileId.getNamespace());
+      encoder.writeString(profileId.getProfile());
+
+      byte[] sourceId = record.getSourceId();
+      encoder.writeBool(sourceId != null);
+      if (sourceId != null) {
+        encoder.writeBytes(sourceId);
+      }
+      writeNullableString(encoder, record.getTwillRunId());
+
+      ArtifactId artifactId = record.getArtifactId();
+      encoder.writeBool(artifactId != null);
+      if (artifactId != null) {
+        encoder.writeString(artifactId.getName());
+        encoder.writeString(artifactId.getVersion().getVersion());
+        encoder.writeString(artifactId.getScope().name());
+      }
+      writeNullableString(encoder, record.getPrincipal());
+
+      writeMap(encoder, record.getProperties());
+      writeMap(encoder, record.getSystemArgs());
+    } catch (IOException e) {
+      // Shouldn't happen since it is writing to memory
+      throw new IllegalStateException("Failed to encode run record " + record.getProgramRunId(), e);
+    }
+    return BINARY_PREFIX + Base64.getEncoder().encodeToString(bos.toByteArray());
+  }
+
+  /**
+   * Decodes a {@link RunRecordDetail}.
+   *
+   * @param programRunId the {@link ProgramRunId} of the run record
+   * @param data the encoded record, either by {@link #encode(RunRecordDetail)} or as JSON
+   * @return the decoded record
+   * @throws IllegalArgumentException if the data cannot be decoded
+   */
+  public static RunRecordDetail decode(ProgramRunId programRunId, String data) {
+    return decode(programRunId, data, null);
+  }
+
+  /**
+   * Decodes a {@link RunRecordDetail}, of which the status is already decoded through {@link #decodeStatus(String)}.
+   *
+   * @param programRunId the {@link ProgramRunId} of the run record
+   * @param data the encoded record, either by {@link #encode(RunRecordDetail)} or as JSON
+   * @param status the status decoded from the data, or {@code null} to decode it from the data
+   * @return the decoded record
+   * @throws IllegalArgumentException if the data cannot be decoded
+   */
+  public static RunRecordDetail decode(ProgramRunId programRunId, String data, @Nullable ProgramRunStatus status) {
+    if (!data.startsWith(BINARY_PREFIX)) {
+      RunRecordDetail existing = GSON.fromJson(data, RunRecordDetail.class);
+      return RunRecordDetail.builder(existing).setProgramRunId(programRunId).build();
+    }
+
+    Decoder decoder = createDecoder(data);
+    try {
+      ProgramRunStatus runStatus;
+      if (status == null) {
+        runStatus = ProgramRunStatus.valueOf(decoder.readString());
+      } else {
+        decoder.skipString();
+        runStatus = status;
+      }
+      RunRecordDetail.Builder builder = RunRecordDetail.builder()
+        .setProgramRunId(programRunId)
+        .setStatus(runStatus)
+        .setStartTime(decoder.readLong())
+        .setRunTime(readNullableLong(decoder))
+        .setStopTime(readNullableLong(decoder))
+        .setSuspendTime(readNullableLong(decoder))
+        .setResumeTime(readNullableLong(decoder));
+
+      ProgramRunClusterStatus clusterStatus = ProgramRunClusterStatus.valueOf(decoder.readString());
+      Long clusterEnd = readNullableLong(decoder);
+      Integer numNodes = decoder.readBool() ? decoder.readInt() : null;
+      builder.setCluster(new ProgramRunCluster(clusterStatus, clusterEnd, numNodes))
+        .setProfileId(new ProfileId(decoder.readString(), decoder.readString()));
+
+      if (decoder.readBool()) {
+        ByteBuffer buffer = decoder.readBytes();
+        byte[] sourceId = new byte[buffer.remaining()];
+        buffer.get(sourceId);
+        builder.setSourceId(sourceId);
+      }
+      builder.setTwillRunId(readNullableString(decoder));
+      if (decoder.readBool()) {
+        builder.setArtifactId(new ArtifactId(decoder.readString(), new ArtifactVersion(decoder.readString()),
+                                             ArtifactScope.valueOf(decoder.readString())));
+      }
+      builder.setPrincipal(readNullableString(decoder));
+
+      return builder
+        .setProperties(readMap(decoder))
+        .setSystemArgs(readMap(decoder))
+        .build();
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed to decode run record for " + programRunId, e);
+    }
+  }
+
+  /**
+   * Decodes only the {@link ProgramRunStatus} of an encoded run record. Only the head of the data is decoded
+   * for records encoded by {@link #encode(RunRecordDetail)}, and records written as JSON are read as a stream
+   * up to the status field, without creating the record.
+   *
+   * @param data the encoded record, either by {@link #encode(RunRecordDetail)} or as JSON
+   * @return the status of the run record, or {@code null} if a JSON record has no status
+   * @throws IllegalArgumentException if the data cannot be decoded
+   */
+  @Nullable
+  public static ProgramRunStatus decodeStatus(String data) {
+    if (!data.startsWith(BINARY_PREFIX)) {
+      return decodeJsonStatus(data);
+    }
+    try {
+      return ProgramRunStatus.valueOf(createDecoder(data).readString());
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed to decode run record status", e);
+    }
+  }
+
+  @Nullable
+  private static ProgramRunStatus decodeJsonStatus(String data) {
+    try (JsonReader reader = new JsonReader(new StringReader(data))) {
+      reader.beginObject();
+      while (reader.hasNext()) {
+        if (JSON_STATUS_FIELD.equals(reader.nextName())) {
+          return GSON.fromJson(reader, ProgramRunStatus.class);
+        }
+        reader.skipValue();
+      }
+      return null;
+    } catch (IOException | RuntimeException e) {
+      throw new IllegalArgumentException("Failed to decode run record status", e);
+    }
+  }
+
+  /**
+   * Creates a {@link Decoder} for the binary encoded data, positioned right after the version.
+   * The Base64 data is decoded as it is read, so that only the part being read is decoded.
+   */
+  private static Decoder createDecoder(String data) {
+    InputStream is = Base64.getDecoder().wrap(new StringInputStream(data, BINARY_PREFIX.length()));
+    Decoder decoder = new BinaryDecoder(is);
+    try {
+      int version = decoder.readInt();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported run record encoding version " + version);
+      }
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Failed to decode run record encoding version", e);
+    }
+    return decoder;
+  }
+
+  private static void writeNullableLong(Encoder encoder, @Nullable Long value) throws IOException {
+    encoder.writeBool(value != null);
+    if (value != null) {
+      encoder.writeLong(value);
+    }
+  }
+
+  @Nullable
+  private static Long readNullableLong(Decoder decoder) throws IOException {
+    return decoder.readBool() ? decoder.readLong() : null;
+  }
+
+  private static void writeNullableString(Encoder encoder, @Nullable String value) throws IOException {
+    encoder.writeBool(value != null);
+    if (value != null) {
+      encoder.writeString(value);
+    }
+  }
+
+  @Nullable
+  private static String readNullableString(Decoder decoder) throws IOException {
+    return decoder.readBool() ? decoder.readString() : null;
+  }
+
+  private static void writeMap(Encoder encoder, Map<String, String> map) throws IOException {
+    encoder.writeInt(map.size());
+    for (Map.Entry<String, String> entry : map.entrySet()) {
+      encoder.writeString(entry.getKey());
+      encoder.writeString(entry.getValue());
+    }
+  }
+
+  private static Map<String, String> readMap(Decoder decoder) throws IOException {
+    int size = decoder.readInt();
+    Map<String, String> map = new HashMap<>(size * 2);
+    for (int i = 0; i < size; i++) {
+      map.put(decoder.readString(), decoder.readString());
+    }
+    return map;
+  }
+
+  /**
+   * An {@link InputStream} that reads the characters of an ASCII string as bytes, without copying the string.
+   */
+  private static final class StringInputStream extends InputStream {
+
+    private final String str;
+    private int pos;
+
+    StringInputStream(String str, int pos) {
+      this.str = str;
+      this.pos = pos;
+    }
+
+    @Override
+    public int read() {
+      return pos < str.length() ? str.charAt(pos++) & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (len == 0) {
+        return 0;
+      }
+      if (pos >= str.length()) {
+        return -1;
+      }
+      int count = Math.min(len, str.length() - pos);
+      for (int i = 0; i < count; i++) {
+        b[off + i] = (byte) str.charAt(pos++);
+      }
+      return count;
+    }
+  }
+}
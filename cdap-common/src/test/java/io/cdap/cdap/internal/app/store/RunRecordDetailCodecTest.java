@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.internal.app.store;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import io.cdap.cdap.api.artifact.ArtifactId;
+import io.cdap.cdap.api.artifact.ArtifactScope;
+import io.cdap.cdap.api.artifact.ArtifactVersion;
+import io.cdap.cdap.api.common.Bytes;
+import io.cdap.cdap.common.app.RunIds;
+import io.cdap.cdap.proto.ProgramRunCluster;
+import io.cdap.cdap.proto.ProgramRunClusterStatus;
+import io.cdap.cdap.proto.ProgramRunStatus;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.ProfileId;
+import io.cdap.cdap.proto.id.ProgramRunId;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link RunRecordDetailCodec}.
+ */
+public class RunRecordDetailCodecTest {
+
+  private final ProgramRunId programRunId = NamespaceId.DEFAULT.app("app").workflow("workflow")
+    .run(RunIds.generate());
+
+  @Test
+  public void testEncodeDecode() {
+    RunRecordDetail record = RunRecordDetail.builder()
+      .setProgramRunId(programRunId)
+      .setStartTime(1000L)
+      .setRunTime(1010L)
+      .setStopTime(1100L)
+      .setSuspendTime(1020L)
+      .setResumeTime(1030L)
+      .setStatus(ProgramRunStatus.COMPLETED)
+      .setProperties(ImmutableMap.of("runtimeArgs", "{\"key\":\"value\"}"))
+      .setSystemArgs(ImmutableMap.of("profile", "USER:test"))
+      .setTwillRunId("twillRunId")
+      .setCluster(new ProgramRunCluster(ProgramRunClusterStatus.DEPROVISIONED, 1200L, 3))
+      .setProfileId(new ProfileId("default", "test"))
+      .setSourceId(Bytes.toBytes(12345L))
+      .setArtifactId(new ArtifactId("artifact", new ArtifactVersion("1.0.0-SNAPSHOT"), ArtifactScope.USER))
+      .setPrincipal("user@REALM")
+      .build();
+
+    String encoded = RunRecordDetailCodec.encode(record);
+    Assert.assertEquals(record, RunRecordDetailCodec.decode(programRunId, encoded));
+    Assert.assertEquals(ProgramRunStatus.COMPLETED, RunRecordDetailCodec.decodeStatus(encoded));
+    Assert.assertEquals(record, RunRecordDetailCodec.decode(programRunId, encoded, ProgramRunStatus.COMPLETED));
+    Assert.assertTrue(encoded.length() < new Gson().toJson(record).length());
+  }
+
+  @Test
+  public void testOptionalFields() {
+    RunRecordDetail record = RunRecordDetail.builder()
+      .setProgramRunId(programRunId)
+      .setStartTime(1000L)
+      .setStatus(ProgramRunStatus.PENDING)
+      .setCluster(new ProgramRunCluster(ProgramRunClusterStatus.PROVISIONING, null, null))
+      .setProfileId(ProfileId.NATIVE)
+      .setSourceId(new byte[0])
+      .build();
+
+    String encoded = RunRecordDetailCodec.encode(record);
+    RunRecordDetail decoded = RunRecordDetailCodec.decode(programRunId, encoded);
+    Assert.assertEquals(record, decoded);
+    Assert.assertNull(decoded.getRunTs());
+    Assert.assertNull(decoded.getTwillRunId());
+    Assert.assertNull(decoded.getArtifactId());
+    Assert.assertTrue(decoded.getSystemArgs().isEmpty());
+  }
+
+  @Test
+  public void testDecodeJson() {
+    // Run records written by older versions are in JSON
+    RunRecordDetail record = RunRecordDetail.builder()
+      .setProgramRunId(programRunId)
+      .setStartTime(1000L)
+      .setRunTime(1010L)
+      .setStatus(ProgramRunStatus.RUNNING)
+      .setProperties(ImmutableMap.of("key", "value"))
+      .setSystemArgs(ImmutableMap.of("sys", "arg"))
+      .setCluster(new ProgramRunCluster(ProgramRunClusterStatus.PROVISIONED, null, 2))
+      .setProfileId(ProfileId.NATIVE)
+      .setSourceId(Bytes.toBytes(1L))
+      .build();
+
+    String json = new Gson().toJson(record);
+    Assert.assertEquals(record, RunRecordDetailCodec.decode(programRunId, json));
+    Assert.assertEquals(ProgramRunStatus.RUNNING, RunRecordDetailCodec.decodeStatus(json));
+    Assert.assertEquals(record, RunRecordDetailCodec.decode(programRunId, json, ProgramRunStatus.RUNNING));
+
+    // The status is read from the JSON without depending on the field order
+    Assert.assertEquals(ProgramRunStatus.KILLED,
+                        RunRecordDetailCodec.decodeStatus("{\"systemargs\":{\"a\":\"b\"},\"status\":\"KILLED\"}"));
+    Assert.assertNull(RunRecordDetailCodec.decodeStatus("{\"runid\":\"id\"}"));
+  }
+}
@@ -16,8 +16,10 @@
 
 package io.cdap.cdap.data2.datafabric.dataset;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -68,13 +70,20 @@ import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
 import javax.annotation.Nullable;
 
 /**
- * {@link io.cdap.cdap.data2.dataset2.DatasetFramework} implementation that talks to DatasetFramework Service
+ * {@link io.cdap.cdap.data2.dataset2.DatasetFramework} implementation that talks to DatasetFramework Service.
+ *
+ * The {@link DatasetMeta} used for instantiating datasets and dataset admins is cached for a short period of time,
+ * so that instantiating the same dataset repeatedly doesn't require a call to the dataset service every time.
+ * Changes to dataset instances and modules made through this class invalidate the cache immediately, and
+ * metadata fetched concurrently with such a change is not cached. Changes made through other instances of this
+ * class, including in other processes, are only visible after the cached metadata expires.
  */
 @SuppressWarnings("unchecked")
 public class RemoteDatasetFramework implements DatasetFramework {
@@ -83,6 +92,10 @@ public class RemoteDatasetFramework implements DatasetFramework {
   private final CConfiguration cConf;
   private final LoadingCache<NamespaceId, DatasetServiceClient> clientCache;
   private final DatasetDefinitionRegistryFactory registryFactory;
+  @Nullable
+  private final Cache<DatasetId, DatasetMeta> metaCache;
+  // incremented by every invalidation of the meta cache, guarded by the meta cache for writes
+  private volatile long metaCacheGeneration;
 
   @Inject
   public RemoteDatasetFramework(final CConfiguration cConf, final DiscoveryServiceClient discoveryClient,
@@ -96,6 +109,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
       }
     });
     this.registryFactory = registryFactory;
+    this.metaCache = createMetaCache(cConf);
   }
 
   @Override
@@ -119,39 +133,61 @@ public class RemoteDatasetFramework implements DatasetFramework {
                                  moduleId, moduleClass.getName());
       LOG.error(msg, e);
       throw new DatasetManagementException(msg, e);
+    } finally {
+      invalidateMeta(moduleId.getParent());
     }
   }
 
   @Override
   public void addModule(DatasetModuleId moduleId, DatasetModule module,
                         Location jarLocation) throws DatasetManagementException {
-    clientCache.getUnchecked(moduleId.getParent())
-      .addModule(moduleId.getEntityName(), DatasetModules.getDatasetModuleClass(module).getName(), jarLocation);
+    try {
+      clientCache.getUnchecked(moduleId.getParent())
+        .addModule(moduleId.getEntityName(), DatasetModules.getDatasetModuleClass(module).getName(), jarLocation);
+    } finally {
+      invalidateMeta(moduleId.getParent());
+    }
   }
 
   @Override
   public void deleteModule(DatasetModuleId moduleId) throws DatasetManagementException {
-    clientCache.getUnchecked(moduleId.getParent()).deleteModule(moduleId.getEntityName());
+    try {
+      clientCache.getUnchecked(moduleId.getParent()).deleteModule(moduleId.getEntityName());
+    } finally {
+      invalidateMeta(moduleId.getParent());
+    }
   }
 
   @Override
   public void deleteAllModules(NamespaceId namespaceId) throws DatasetManagementException {
-    clientCache.getUnchecked(namespaceId).deleteModules();
+    try {
+      clientCache.getUnchecked(namespaceId).deleteModules();
+    } finally {
+      invalidateMeta(namespaceId);
+    }
   }
 
   @Override
   public void addInstance(String datasetType, DatasetId datasetInstanceId, DatasetProperties props,
                           @Nullable KerberosPrincipalId ownerPrincipal)
     throws DatasetManagementException {
-    clientCache.getUnchecked(datasetInstanceId.getParent())
-      .addInstance(datasetInstanceId.getEntityName(), datasetType, props, ownerPrincipal);
+    try {
+      clientCache.getUnchecked(datasetInstanceId.getParent())
+        .addInstance(datasetInstanceId.getEntityName(), datasetType, props, ownerPrincipal);
+    } finally {
+      invalidateMeta(datasetInstanceId);
+    }
   }
 
   @Override
   public void updateInstance(DatasetId datasetInstanceId, DatasetProperties props)
     throws DatasetManagementException {
-    clientCache.getUnchecked(datasetInstanceId.getParent())
-      .updateInstance(datasetInstanceId.getEntityName(), props);
+    try {
+      clientCache.getUnchecked(datasetInstanceId.getParent())
+        .updateInstance(datasetInstanceId.getEntityName(), props);
+    } finally {
+      invalidateMeta(datasetInstanceId);
+    }
   }
 
   @Override
@@ -192,17 +228,29 @@ public class RemoteDatasetFramework implements DatasetFramework {
 
   @Override
   public void truncateInstance(DatasetId datasetInstanceId) throws DatasetManagementException {
-    clientCache.getUnchecked(datasetInstanceId.getParent()).truncateInstance(datasetInstanceId.getEntityName());
+    try {
+      clientCache.getUnchecked(datasetInstanceId.getParent()).truncateInstance(datasetInstanceId.getEntityName());
+    } finally {
+      invalidateMeta(datasetInstanceId);
+    }
   }
 
   @Override
   public void deleteInstance(DatasetId datasetInstanceId) throws DatasetManagementException {
-    clientCache.getUnchecked(datasetInstanceId.getParent()).deleteInstance(datasetInstanceId.getEntityName());
+    try {
+      clientCache.getUnchecked(datasetInstanceId.getParent()).deleteInstance(datasetInstanceId.getEntityName());
+    } finally {
+      invalidateMeta(datasetInstanceId);
+    }
   }
 
   @Override
   public void deleteAllInstances(NamespaceId namespaceId) throws DatasetManagementException {
-    clientCache.getUnchecked(namespaceId).deleteInstances();
+    try {
+      clientCache.getUnchecked(namespaceId).deleteInstances();
+    } finally {
+      invalidateMeta(namespaceId);
+    }
   }
 
   @Override
@@ -217,8 +265,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
                                              @Nullable ClassLoader parentClassLoader,
                                              DatasetClassLoaderProvider classLoaderProvider)
     throws DatasetManagementException, IOException {
-    DatasetMeta instanceInfo = clientCache.getUnchecked(datasetInstanceId.getParent())
-      .getInstance(datasetInstanceId.getEntityName());
+    DatasetMeta instanceInfo = getInstanceMeta(datasetInstanceId);
     if (instanceInfo == null) {
       return null;
     }
@@ -235,7 +282,7 @@ public class RemoteDatasetFramework implements DatasetFramework {
                                           @Nullable Iterable<? extends EntityId> owners, AccessType accessType)
     throws DatasetManagementException, IOException {
 
-    DatasetMeta datasetMeta = clientCache.getUnchecked(id.getParent()).getInstance(id.getEntityName());
+    DatasetMeta datasetMeta = getInstanceMeta(id);
     if (datasetMeta == null) {
       return null;
     }
@@ -249,6 +296,88 @@ public class RemoteDatasetFramework implements DatasetFramework {
     // no-op. The RemoteDatasetFramework doesn't need to do anything. The lineage should be recorded before this point.
   }
 
+  /**
+   * Returns the {@link DatasetMeta} of the given dataset instance, either from the cache or from the dataset service.
+   * Non-existing dataset instances are not cached, so that they are visible right after they get created.
+   * The fetched metadata is only cached if the cache wasn't invalidated while it was being fetched, so that
+   * metadata from before a change made through this class cannot be cached after the change.
+   */
+  @Nullable
+  private DatasetMeta getInstanceMeta(DatasetId datasetInstanceId) throws DatasetManagementException {
+    if (metaCache == null) {
+      return clientCache.getUnchecked(datasetInstanceId.getParent()).getInstance(datasetInstanceId.getEntityName());
+    }
+    DatasetMeta meta = metaCache.getIfPresent(datasetInstanceId);
+    if (meta == null) {
+      // Read the generation before the fetch, so that a concurrent invalidation prevents caching the fetched meta
+      long generation = metaCacheGeneration;
+      meta = clientCache.getUnchecked(datasetInstanceId.getParent()).getInstance(datasetInstanceId.getEntityName());
+      if (meta != null) {
+        synchronized (metaCache) {
+          if (generation == metaCacheGeneration) {
+            metaCache.put(datasetInstanceId, meta);
+          }
+        }
+      }
+    }
+    return meta;
+  }
+
+  /**
+   * Returns the cached {@link DatasetMeta} of the given dataset instance, or {@code null} if it is not cached.
+   */
+  @VisibleForTesting
+  @Nullable
+  DatasetMeta getCachedInstanceMeta(DatasetId datasetInstanceId) {
+    return metaCache == null ? null : metaCache.getIfPresent(datasetInstanceId);
+  }
+
+  /**
+   * Invalidates the cached {@link DatasetMeta} of the given dataset instance. It is called after the change is made
+   * through the dataset service, so that a concurrent lookup cannot cache the metadata from before the change.
+   */
+  private void invalidateMeta(DatasetId datasetInstanceId) {
+    if (metaCache == null) {
+      return;
+    }
+    synchronized (metaCache) {
+      metaCacheGeneration++;
+      metaCache.invalidate(datasetInstanceId);
+    }
+  }
+
+  /**
+   * Invalidates the cached {@link DatasetMeta} of all dataset instances in the given namespace. It is used when
+   * dataset modules are changed, since that can change the type of any dataset instance in the namespace.
+   */
+  private void invalidateMeta(NamespaceId namespaceId) {
+    if (metaCache == null) {
+      return;
+    }
+    synchronized (metaCache) {
+      metaCacheGeneration++;
+      for (DatasetId datasetId : ImmutableList.copyOf(metaCache.asMap().keySet())) {
+        // Datasets in any namespace can use modules from the system namespace
+        if (NamespaceId.SYSTEM.equals(namespaceId) || datasetId.getParent().equals(namespaceId)) {
+          metaCache.invalidate(datasetId);
+        }
+      }
+    }
+  }
+
+  @Nullable
+  private static Cache<DatasetId, DatasetMeta> createMetaCache(CConfiguration cConf) {
+    int size = cConf.getInt(Constants.Dataset.META_CACHE_SIZE);
+    long expirationSecs = cConf.getLong(Constants.Dataset.META_CACHE_EXPIRATION_SECS);
+    if (size <= 0 || expirationSecs <= 0) {
+      return null;
+    }
+    return CacheBuilder.newBuilder()
+      .maximumSize(size)
+      .expireAfterWrite(expirationSecs, TimeUnit.SECONDS)
+      .build();
+  }
+
   private Location createDeploymentJar(Class<?> clz) throws IOException {
     File tempDir = new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR),
                             cConf.get(Constants.AppFabric.TEMP_DIR)).getAbsoluteFile();
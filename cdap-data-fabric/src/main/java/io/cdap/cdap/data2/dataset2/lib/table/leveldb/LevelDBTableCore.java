@@ -17,6 +17,7 @@
 package io.cdap.cdap.data2.dataset2.lib.table.leveldb;
 
 import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Striped;
 import io.cdap.cdap.api.common.Bytes;
 import io.cdap.cdap.api.dataset.table.Result;
 import io.cdap.cdap.api.dataset.table.Row;
@@ -34,13 +35,18 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
 import javax.annotation.Nullable;
 
 /**
@@ -64,6 +70,10 @@ public class LevelDBTableCore {
   // used for obtaining the next row/column for upper bound
   private static final byte[] ONE_ZERO = { 0x00 };
 
+  // Row locks for read-modify-write operations. They are shared by all instances of this class, since
+  // multiple instances can operate on the same table concurrently.
+  private static final Striped<Lock> ROW_LOCKS = Striped.lock(1024);
+
   private static byte[] upperBound(byte[] column) {
     return Bytes.add(column, ONE_ZERO);
   }
@@ -85,7 +95,17 @@ public class LevelDBTableCore {
   }
 
 
-  public synchronized boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
+  public boolean swap(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
+    Lock lock = ROW_LOCKS.get(getLockKey(row));
+    lock.lock();
+    try {
+      return swapLocked(row, column, oldValue, newValue);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean swapLocked(byte[] row, byte[] column, byte[] oldValue, byte[] newValue) throws IOException {
     byte[] existing = getRow(row, new byte[][] { column }, null, null, -1, null).get(column);
     // verify
     if (oldValue == null && existing != null) {
@@ -104,7 +124,17 @@ public class LevelDBTableCore {
     return true;
   }
 
-  public synchronized Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments) throws IOException {
+  public Map<byte[], Long> increment(byte[] row, Map<byte[], Long> increments) throws IOException {
+    Lock lock = ROW_LOCKS.get(getLockKey(row));
+    lock.lock();
+    try {
+      return incrementLocked(row, increments);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Map<byte[], Long> incrementLocked(byte[] row, Map<byte[], Long> increments) throws IOException {
     Map<byte[], Long> result = new TreeMap<>(Bytes.BYTES_COMPARATOR);
 
     DB db = getDB();
@@ -126,11 +156,32 @@ public class LevelDBTableCore {
   }
 
 
-  public synchronized void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) throws IOException {
+  public void increment(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) throws IOException {
     if (updates.isEmpty()) {
       return;
     }
 
+    // Striped.bulkGet returns locks in a consistent order, hence acquiring them in order is deadlock free
+    List<Integer> lockKeys = new ArrayList<>(updates.size());
+    for (byte[] row : updates.keySet()) {
+      lockKeys.add(getLockKey(row));
+    }
+    Iterable<Lock> locks = ROW_LOCKS.bulkGet(lockKeys);
+    Deque<Lock> acquired = new ArrayDeque<>();
+    try {
+      for (Lock lock : locks) {
+        lock.lock();
+        acquired.push(lock);
+      }
+      incrementLocked(updates);
+    } finally {
+      while (!acquired.isEmpty()) {
+        acquired.pop().unlock();
+      }
+    }
+  }
+
+  private void incrementLocked(NavigableMap<byte[], NavigableMap<byte[], Long>> updates) throws IOException {
     DB db = getDB();
     WriteBatch writeBatch = db.createWriteBatch();
     try (Snapshot snapshot = db.getSnapshot()) {
@@ -148,6 +199,13 @@ public class LevelDBTableCore {
     }
   }
 
+  /**
+   * Returns the key for looking up the row lock of the given row in this table.
+   */
+  private int getLockKey(byte[] row) {
+    return 31 * tableName.hashCode() + Bytes.hashCode(row);
+  }
+
   private long incrementValue(long value, @Nullable byte[] existingValue, byte[] row, byte[] col) {
     if (existingValue == null) {
       return value;
@@ -58,6 +58,7 @@ import io.cdap.cdap.proto.id.NamespacedEntityId;
 import io.cdap.cdap.spi.metadata.MetadataConstants;
 
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -192,6 +193,11 @@ public class MetadataDataset extends AbstractDataset {
   private static final String HISTORY_COLUMN = "h"; // column for metadata history
   private static final String VALUE_COLUMN = "v";  // column for metadata value
   private static final String TAGS_SEPARATOR = ",";
+  // separates the base64-encoded index value and row key in a sort cursor. It is not part of the url-safe base64
+  // alphabet, and cursors that only have an index value without this character are not encoded.
+  private static final char CURSOR_ROW_SEPARATOR = '~';
+  // maximum number of sort index rows that don't match the query to scan for one sorted search with a query
+  private static final int MAX_UNMATCHED_ROWS_PER_SEARCH = 1000;
 
   // Fuzzy key is of form <row key, key mask>. We want to compare row keys.
   private static final Comparator<ImmutablePair<byte[], byte[]>> FUZZY_KEY_COMPARATOR =
@@ -669,8 +675,12 @@ public class MetadataDataset extends AbstractDataset {
    * When using custom sorting, at most offset + limit * (numCursors + 1) results are returned.
    * When using default sorting, results are returned in whatever order is determined by the underlying storage.
    * When using custom sorting, results are returned sorted according to the field and order specified.
-   * When using default sorting, any query is allowed.
-   * When using custom sorting, the query must be '*'.
+   * When using custom sorting with a query other than '*', the sort index is scanned and only the entities that
+   * have metadata in this dataset matching any of the search terms are returned. The scan stops after a bounded
+   * number of entries that don't match. If it stops before all the results are fetched, the returned
+   * {@link SearchResults} has a continuation, which can be passed to
+   * {@link #search(SearchRequest, Predicate, SearchResults)} to continue the scan in another transaction.
+   * Cursors returned for custom sorting identify the exact index entry to resume the scan from.
    * In all cases, duplicate entries will be returned if multiple index values point to the same entry.
    * This is often the case when using a '*' query.
    *
@@ -686,7 +696,60 @@ public class MetadataDataset extends AbstractDataset {
       return searchByDefaultIndex(request);
     }
 
-    return searchByCustomIndex(request);
+    return searchByCustomIndex(request, "*".equals(request.getQuery()) ? null : getMatcher(request),
+                               MAX_UNMATCHED_ROWS_PER_SEARCH, null);
+  }
+
+  /**
+   * Searches entities with custom sorting, using the given {@link Predicate} to match the entities against the
+   * search query instead of the search terms in this dataset. This is for matching entities on metadata stored in
+   * multiple datasets, since the sort indexes only exist in the dataset of {@link MetadataScope#SYSTEM}.
+   * See {@link #search(SearchRequest)} for the contract of the search.
+   *
+   * @param request the search request, which must have a sort other than {@link SortInfo#DEFAULT}
+   * @param matcher the {@link Predicate} to test if an entity matches the search query
+   * @return a {@link SearchResults} object containing the sorted search results and cursors
+   */
+  public SearchResults search(SearchRequest request, Predicate<MetadataEntity> matcher) {
+    return search(request, matcher, MAX_UNMATCHED_ROWS_PER_SEARCH, null);
+  }
+
+  /**
+   * Continues a search with custom sorting that stopped before all the results are fetched. The returned
+   * {@link SearchResults} contains the results and cursors of the previous search, followed by the new ones,
+   * as if the search was done in one scan.
+   *
+   * @param request the search request, which must be the same as the one of the previous search
+   * @param matcher the {@link Predicate} to test if an entity matches the search query
+   * @param previous the results of the previous search, which must have a continuation
+   * @return a {@link SearchResults} object containing the sorted search results and cursors
+   */
+  public SearchResults search(SearchRequest request, Predicate<MetadataEntity> matcher, SearchResults previous) {
+    if (previous.getContinuation() == null) {
+      throw new IllegalArgumentException("The previous search results have no continuation");
+    }
+    return search(request, matcher, MAX_UNMATCHED_ROWS_PER_SEARCH, previous);
+  }
+
+  @VisibleForTesting
+  SearchResults search(SearchRequest request, Predicate<MetadataEntity> matcher, int maxUnmatchedRows,
+                       @Nullable SearchResults previous) {
+    if (SortInfo.DEFAULT.equals(request.getSortInfo())) {
+      throw new IllegalArgumentException("Search with a matcher requires custom sorting");
+    }
+    return searchByCustomIndex(request, matcher, maxUnmatchedRows, previous);
+  }
+
+  /**
+   * Returns a {@link Predicate} that tests if an entity has metadata in this dataset that matches any of the search
+   * terms of the given request. The predicate reads the indexes of the entity, hence it must be used in the same
+   * transaction as this dataset.
+   */
+  public Predicate<MetadataEntity> getMatcher(SearchRequest request) {
+    String column = request.isNamespaced() ?
+      DEFAULT_INDEX_COLUMN.getColumn() : DEFAULT_INDEX_COLUMN.getCrossNamespaceColumn();
+    List<SearchTerm> searchTerms = ImmutableList.copyOf(getSearchTerms(request, request.getQuery()));
+    return entity -> hasMatchingIndex(entity, column, searchTerms);
   }
 
   private SearchResults searchByDefaultIndex(SearchRequest request) {
@@ -694,7 +757,7 @@ public class MetadataDataset extends AbstractDataset {
     String column = request.isNamespaced() ?
       DEFAULT_INDEX_COLUMN.getColumn() : DEFAULT_INDEX_COLUMN.getCrossNamespaceColumn();
 
-    for (SearchTerm searchTerm : getSearchTerms(request)) {
+    for (SearchTerm searchTerm : getSearchTerms(request, request.getQuery())) {
       Scanner scanner;
       if (searchTerm.isPrefix()) {
         // if prefixed search get start and stop key
@@ -722,32 +785,55 @@ public class MetadataDataset extends AbstractDataset {
     return new SearchResults(results, Collections.emptyList());
   }
 
-  private SearchResults searchByCustomIndex(SearchRequest request) throws BadRequestException {
+  private SearchResults searchByCustomIndex(SearchRequest request, @Nullable Predicate<MetadataEntity> matcher,
+                                            int maxUnmatchedRows, @Nullable SearchResults previous) {
     SortInfo sortInfo = request.getSortInfo();
     int offset = request.getOffset();
     int limit = request.getLimit();
     int numCursors = request.getNumCursors();
 
-    List<MetadataEntry> results = new LinkedList<>();
+    // A continued search appends to the results and cursors of the previous search, so that the positions of the
+    // results and the cursors are the same as if the search was done in one scan
+    SearchResults.Continuation continuation = previous == null ? null : previous.getContinuation();
+    List<MetadataEntry> results = previous == null ? new LinkedList<>() : new LinkedList<>(previous.getResults());
     IndexColumn indexColumn = getIndexColumn(sortInfo.getSortBy(), sortInfo.getSortOrder());
     String column = request.isNamespaced() ? indexColumn.getColumn() : indexColumn.getCrossNamespaceColumn();
     // we want to return the first chunk of 'limit' elements after offset
     // in addition, we want to pre-fetch 'numCursors' chunks of size 'limit'.
     // Note that there's a potential for overflow so we account by limiting it to Integer.MAX_VALUE
     int fetchSize = (int) Math.min(offset + ((numCursors + 1) * (long) limit), Integer.MAX_VALUE);
-    List<String> cursors = new ArrayList<>(numCursors);
-
-    if (!"*".equals(request.getQuery())) {
-      throw new BadRequestException("Cannot search with non-default sort with any query other than '*'");
+    List<String> cursors = previous == null ? new ArrayList<>(numCursors) : new ArrayList<>(previous.getCursors());
+
+    // A cursor is the index value to resume the scan from. If there are other entries with the same index value
+    // before the entry to resume from, the cursor also contains the row key of that entry.
+    String cursor = null;
+    byte[] cursorRow = null;
+    if (!Strings.isNullOrEmpty(request.getCursor())) {
+      ImmutablePair<String, byte[]> parsed = parseCursor(request.getCursor());
+      cursor = parsed.getFirst();
+      cursorRow = parsed.getSecond();
     }
 
-    String cursor = request.getCursor();
-    for (SearchTerm searchTerm : getSearchTerms(request)) {
+    // The sort index is scanned over all the entities in the namespaces of the search. The search query
+    // is applied to each entity by the matcher. To bound the cost of a search for a query that matches few
+    // entities, the scan stops after a number of unmatched entries.
+    int unmatchedRows = 0;
+    int termIndex = -1;
+    for (SearchTerm searchTerm : getSearchTerms(request, "*")) {
+      termIndex++;
+      // a continued search skips the namespaces that the previous search completed
+      if (continuation != null && termIndex < continuation.getTermIndex()) {
+        continue;
+      }
       // start key will be the start key for the namespace, or the start key for the cursor if its defined
       // 'ns1:' for namespace 'ns1' without a cursor, 'ns1:abc' for namespace 'ns1' with cursor 'abc'
       byte[] namespaceStartKey = Bytes.toBytes(searchTerm.getTerm());
       byte[] startKey = namespaceStartKey;
-      if (!Strings.isNullOrEmpty(cursor)) {
+      byte[] startRow = cursorRow;
+      if (continuation != null && termIndex == continuation.getTermIndex()) {
+        startKey = continuation.getIndexValue();
+        startRow = continuation.getRow();
+      } else if (!Strings.isNullOrEmpty(cursor)) {
         String prefix = searchTerm.getNamespaceId() == null ?
           "" : searchTerm.getNamespaceId().getNamespace() + MetadataConstants.KEYVALUE_SEPARATOR;
         startKey = Bytes.toBytes(prefix + cursor);
@@ -761,30 +847,92 @@ public class MetadataDataset extends AbstractDataset {
       // the remainder is 1. However, this is not true, when the chunk size is 1, since in that case, the
       // remainder on division can never be 1, it is always 0.
       int mod = (limit == 1) ? 0 : 1;
+      byte[] prevValue = null;
+      // the index value of the result before the resumed entry of a continued search is unknown
+      boolean prevValueUnknown = continuation != null && termIndex == continuation.getTermIndex();
       try (Scanner scanner = indexedTable.scanByIndex(Bytes.toBytes(column), startKey, stopKey)) {
         Row next;
         while ((next = scanner.next()) != null && results.size() < fetchSize) {
+          byte[] value = next.get(column);
+          // skip the entries with the same index value that are before the cursor entry
+          if (startRow != null && Bytes.equals(value, startKey) && Bytes.compareTo(next.getRow(), startRow) < 0) {
+            continue;
+          }
+          if (matcher != null && unmatchedRows >= maxUnmatchedRows && value != null) {
+            // Stop the scan, which can be continued from the current entry
+            return new SearchResults(results, cursors,
+                                     new SearchResults.Continuation(termIndex, value, next.getRow()));
+          }
           Optional<MetadataEntry> metadataEntry =
             parseRow(next, column, request.getTypes(), request.shouldShowHidden());
-          if (!metadataEntry.isPresent()) {
+          if (!metadataEntry.isPresent()
+            || (matcher != null && !matcher.test(metadataEntry.get().getMetadataEntity()))) {
+            unmatchedRows++;
             continue;
           }
           results.add(metadataEntry.get());
 
           if (results.size() > limit + offset && (results.size() - offset) % limit == mod) {
-            String cursorVal = Bytes.toString(next.get(column));
-            // add the cursor, with the namespace removed.
-            if (cursorVal != null && request.isNamespaced()) {
-              cursorVal = cursorVal.substring(cursorVal.indexOf(MetadataConstants.KEYVALUE_SEPARATOR) + 1);
-            }
+            // add the row key if the previous result has the same index value
+            boolean addRow = prevValueUnknown || Bytes.equals(value, prevValue);
+            String cursorVal = toCursor(value, addRow ? next.getRow() : null, request.isNamespaced());
             cursors.add(cursorVal);
           }
+          prevValue = value;
+          prevValueUnknown = false;
         }
       }
     }
     return new SearchResults(results, cursors);
   }
 
+  /**
+   * Creates a cursor from the given sort index value, with the namespace removed for namespaced search.
+   * If there is a row key, or the index value contains {@link #CURSOR_ROW_SEPARATOR}, the cursor is the base64
+   * encoded index value and row key, separated by {@link #CURSOR_ROW_SEPARATOR}. Otherwise, it is the index value.
+   *
+   * @param value the sort index value
+   * @param row the row key of the entry to resume the scan from, or {@code null} if the scan resumes from the first
+   *            entry with the given index value
+   * @param namespaced whether the search is namespaced
+   */
+  @Nullable
+  private String toCursor(@Nullable byte[] value, @Nullable byte[] row, boolean namespaced) {
+    String cursorVal = value == null ? null : Bytes.toString(value);
+    if (cursorVal == null) {
+      return null;
+    }
+    if (namespaced) {
+      cursorVal = cursorVal.substring(cursorVal.indexOf(MetadataConstants.KEYVALUE_SEPARATOR) + 1);
+    }
+    if (row == null && cursorVal.indexOf(CURSOR_ROW_SEPARATOR) < 0) {
+      return cursorVal;
+    }
+    Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    return encoder.encodeToString(Bytes.toBytes(cursorVal)) + CURSOR_ROW_SEPARATOR
+      + (row == null ? "" : encoder.encodeToString(row));
+  }
+
+  /**
+   * Parses a cursor created by {@link #toCursor(byte[], byte[], boolean)}.
+   *
+   * @return a pair of the index value and the row key, which is {@code null} if the cursor has no row key
+   * @throws IllegalArgumentException if the cursor is not valid
+   */
+  private ImmutablePair<String, byte[]> parseCursor(String cursor) {
+    int idx = cursor.indexOf(CURSOR_ROW_SEPARATOR);
+    if (idx < 0) {
+      return ImmutablePair.of(cursor, null);
+    }
+    try {
+      String value = Bytes.toString(Base64.getUrlDecoder().decode(cursor.substring(0, idx)));
+      String row = cursor.substring(idx + 1);
+      return ImmutablePair.of(value, row.isEmpty() ? null : Base64.getUrlDecoder().decode(row));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid search cursor " + cursor, e);
+    }
+  }
+
   // there may not be a MetadataEntry in the row or it may for a different targetType (entityFilter),
   // so return an Optional
   private Optional<MetadataEntry> parseRow(Row rowToProcess, String indexColumn,
@@ -819,6 +967,30 @@ public class MetadataDataset extends AbstractDataset {
     return Optional.ofNullable(entry);
   }
 
+  /**
+   * Returns whether any of the default indexes of the given entity matches any of the given search terms.
+   */
+  private boolean hasMatchingIndex(MetadataEntity entity, String column, Collection<SearchTerm> searchTerms) {
+    // The prefix also covers the index rows of entities with more key-value parts, hence the entity check
+    byte[] startKey = MetadataKey.createIndexRowKeyPrefix(entity).getKey();
+    byte[] stopKey = Bytes.stopKeyForPrefix(startKey);
+    try (Scanner scanner = indexedTable.scan(startKey, stopKey)) {
+      Row next;
+      while ((next = scanner.next()) != null) {
+        String value = next.getString(column);
+        if (value == null || !entity.equals(MetadataKey.extractMetadataEntityFromKey(next.getRow()))) {
+          continue;
+        }
+        for (SearchTerm searchTerm : searchTerms) {
+          if (searchTerm.isPrefix() ? value.startsWith(searchTerm.getTerm()) : value.equals(searchTerm.getTerm())) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
   /**
    * Generate the search terms to use for the query.
    * The search query is split on whitespace into one or more raw terms. Each raw term is cleaned and formatted
@@ -826,14 +998,14 @@ public class MetadataDataset extends AbstractDataset {
    * See {@link SearchTerm#from(NamespaceId, String)} for how cleaning and formatting is done.
    *
    * @param searchRequest the request to get search terms for
+   * @param searchQuery the query to generate the terms from
    * @return formatted search query which is namespaced
    */
-  private Iterable<SearchTerm> getSearchTerms(SearchRequest searchRequest) {
+  private Iterable<SearchTerm> getSearchTerms(SearchRequest searchRequest, String searchQuery) {
     Optional<NamespaceId> namespace = searchRequest.getNamespaceId();
     Set<EntityScope> entityScopes = searchRequest.getEntityScopes();
     List<SearchTerm> searchTerms = new LinkedList<>();
     Consumer<String> termAdder = determineSearchFields(namespace, entityScopes, searchTerms);
-    String searchQuery = searchRequest.getQuery();
     for (String term : Splitter.on(SPACE_SEPARATOR_PATTERN).omitEmptyStrings().trimResults().split(searchQuery)) {
       termAdder.accept(term);
     }
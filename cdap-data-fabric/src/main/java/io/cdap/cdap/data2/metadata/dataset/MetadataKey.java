@@ -87,6 +87,14 @@ class MetadataKey {
     return builder.build();
   }
 
+  /**
+   * Creates the key prefix of all the metadata index rows of the given {@link MetadataEntity} in the format:
+   * [{@link #INDEX_ROW_PREFIX}][targetType][targetId]
+   */
+  static MDSKey createIndexRowKeyPrefix(MetadataEntity targetId) {
+    return getMDSKeyPrefix(targetId, INDEX_ROW_PREFIX).build();
+  }
+
   static MetadataEntity extractMetadataEntityFromKey(byte[] rowKey) {
     MDSKey.Splitter keySplitter = new MDSKey(rowKey).split();
 
@@ -17,6 +17,7 @@
 package io.cdap.cdap.data2.metadata.dataset;
 
 import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  * Represents a list of {@link MetadataEntry} that match a search query in the metadata index, along with a
@@ -25,11 +26,17 @@ import java.util.List;
 public class SearchResults {
   private final List<MetadataEntry> results;
   private final List<String> cursors;
+  private final Continuation continuation;
 
 
   SearchResults(List<MetadataEntry> results, List<String> cursors) {
+    this(results, cursors, null);
+  }
+
+  SearchResults(List<MetadataEntry> results, List<String> cursors, @Nullable Continuation continuation) {
     this.results = results;
     this.cursors = cursors;
+    this.continuation = continuation;
   }
 
   public List<MetadataEntry> getResults() {
@@ -39,4 +46,40 @@ public class SearchResults {
   public List<String> getCursors() {
     return cursors;
   }
+
+  /**
+   * Returns the position to continue the search from if the search stopped before all the results are fetched,
+   * or {@code null} if the search is complete.
+   */
+  @Nullable
+  public Continuation getContinuation() {
+    return continuation;
+  }
+
+  /**
+   * The position in the sort index that a search stopped at.
+   */
+  public static final class Continuation {
+    private final int termIndex;
+    private final byte[] indexValue;
+    private final byte[] row;
+
+    Continuation(int termIndex, byte[] indexValue, byte[] row) {
+      this.termIndex = termIndex;
+      this.indexValue = indexValue;
+      this.row = row;
+    }
+
+    int getTermIndex() {
+      return termIndex;
+    }
+
+    byte[] getIndexValue() {
+      return indexValue;
+    }
+
+    byte[] getRow() {
+      return row;
+    }
+  }
 }
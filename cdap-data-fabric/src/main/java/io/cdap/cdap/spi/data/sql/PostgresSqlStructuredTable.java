@@ -44,6 +44,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -51,6 +52,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import javax.annotation.Nullable;
@@ -75,15 +77,20 @@ public class PostgresSqlStructuredTable implements StructuredTable {
   @Override
   public void upsert(Collection<Field<?>> fields) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: Write fields {}", tableSchema.getTableId(), fields);
-    Set<String> fieldNames = fields.stream().map(Field::getName).collect(Collectors.toSet());
-    if (!fieldNames.containsAll(tableSchema.getPrimaryKeys())) {
-      throw new InvalidFieldException(tableSchema.getTableId(), fields,
-                                      String.format("Given fields %s do not contain all the " +
-                                                      "primary keys %s", fieldNames, tableSchema.getPrimaryKeys()));
-    }
+    validateContainsPrimaryKeys(fields);
     upsertInternal(fields);
   }
 
+  @Override
+  public void multiUpsert(Collection<? extends Collection<Field<?>>> multiFields)
+    throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Write multiple rows {}", tableSchema.getTableId(), multiFields);
+    for (Collection<Field<?>> fields : multiFields) {
+      validateContainsPrimaryKeys(fields);
+    }
+    executeBatches(multiFields, fields -> getWriteSqlQuery(fields, null), "write to");
+  }
+
   @Override
   public Optional<StructuredRow> read(Collection<Field<?>> keys) throws InvalidFieldException, IOException {
     return readRow(keys, null);
@@ -441,6 +448,16 @@ public class PostgresSqlStructuredTable implements StructuredTable {
     }
   }
 
+  @Override
+  public void multiDelete(Collection<? extends Collection<Field<?>>> multiKeys)
+    throws InvalidFieldException, IOException {
+    LOG.trace("Table {}: Delete with multiple keys {}", tableSchema.getTableId(), multiKeys);
+    for (Collection<Field<?>> keys : multiKeys) {
+      fieldValidator.validatePrimaryKeys(keys, false);
+    }
+    executeBatches(multiKeys, this::getDeleteQuery, "delete from");
+  }
+
   @Override
   public void deleteAll(Range keyRange) throws InvalidFieldException, IOException {
     LOG.trace("Table {}: DeleteAll with range {}", tableSchema.getTableId(), keyRange);
@@ -467,6 +484,15 @@ public class PostgresSqlStructuredTable implements StructuredTable {
     }
   }
 
+  private void validateContainsPrimaryKeys(Collection<Field<?>> fields) throws InvalidFieldException {
+    Set<String> fieldNames = fields.stream().map(Field::getName).collect(Collectors.toSet());
+    if (!fieldNames.containsAll(tableSchema.getPrimaryKeys())) {
+      throw new InvalidFieldException(tableSchema.getTableId(), fields,
+                                      String.format("Given fields %s do not contain all the " +
+                                                      "primary keys %s", fieldNames, tableSchema.getPrimaryKeys()));
+    }
+  }
+
   private void upsertInternal(Collection<Field<?>> fields) throws IOException {
     String sqlQuery = getWriteSqlQuery(fields, null);
     try (PreparedStatement statement = connection.prepareStatement(sqlQuery)) {
@@ -514,6 +540,45 @@ public class PostgresSqlStructuredTable implements StructuredTable {
     }
   }
 
+  /**
+   * Executes a sql statement for each of the given collection of fields using JDBC batching. Consecutive rows that
+   * generate the same sql statement are sent to the database in one batch, hence the rows are applied in order.
+   *
+   * @param multiFields the collection of fields, one per row
+   * @param queryFunction the function to generate the sql statement for a row
+   * @param operation description of the operation for error message
+   * @throws IOException if failed to execute the statements
+   */
+  private void executeBatches(Collection<? extends Collection<Field<?>>> multiFields,
+                              Function<Collection<Field<?>>, String> queryFunction,
+                              String operation) throws IOException {
+    if (multiFields.isEmpty()) {
+      return;
+    }
+    try {
+      Iterator<? extends Collection<Field<?>>> iterator = multiFields.iterator();
+      Collection<Field<?>> fields = iterator.next();
+      String sqlQuery = queryFunction.apply(fields);
+      while (fields != null) {
+        try (PreparedStatement statement = connection.prepareStatement(sqlQuery)) {
+          // Add all consecutive rows that have the same sql statement to the batch
+          String batchQuery = sqlQuery;
+          while (fields != null && sqlQuery.equals(batchQuery)) {
+            setFields(statement, fields, 1);
+            statement.addBatch();
+            fields = iterator.hasNext() ? iterator.next() : null;
+            sqlQuery = fields == null ? null : queryFunction.apply(fields);
+          }
+          LOG.trace("SQL statement: {}", statement);
+          statement.executeBatch();
+        }
+      }
+    } catch (SQLException e) {
+      throw new IOException(String.format("Failed to %s table %s with multiple rows %s",
+                                          operation, tableSchema.getTableId().getName(), multiFields), e);
+    }
+  }
+
   /**
    * Sets a list of fields' values into the given {@link PreparedStatement}.
    *
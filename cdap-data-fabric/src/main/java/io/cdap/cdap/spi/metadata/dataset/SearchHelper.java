@@ -66,6 +66,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Predicate;
 import javax.annotation.Nullable;
 
 import static io.cdap.cdap.api.metadata.MetadataScope.SYSTEM;
@@ -263,8 +264,25 @@ public class SearchHelper {
   private MetadataSearchResponse search(Set<MetadataScope> scopes, SearchRequest request) {
     List<MetadataEntry> results = new LinkedList<>();
     List<String> cursors = new LinkedList<>();
-    for (MetadataScope scope : scopes) {
-      SearchResults searchResults = execute(context -> context.getDataset(scope).search(request));
+    if (SortInfo.DEFAULT.equals(request.getSortInfo()) || "*".equals(request.getQuery())) {
+      for (MetadataScope scope : scopes) {
+        SearchResults searchResults = execute(context -> context.getDataset(scope).search(request));
+        results.addAll(searchResults.getResults());
+        cursors.addAll(searchResults.getCursors());
+      }
+    } else {
+      // The sort indexes only exist in system scope. Scan them once and match each entity against the query
+      // on the metadata of all the scopes being searched.
+      SearchResults searchResults = execute(
+        context -> context.getDataset(SYSTEM).search(request, getMatcher(context, scopes, request)));
+      // The scan stops after a bounded number of unmatched entries in each transaction. Continue it in
+      // new transactions until all the results for the pages are fetched, so that the offset is applied to
+      // the complete results.
+      while (searchResults.getContinuation() != null) {
+        SearchResults previous = searchResults;
+        searchResults = execute(
+          context -> context.getDataset(SYSTEM).search(request, getMatcher(context, scopes, request), previous));
+      }
       results.addAll(searchResults.getResults());
       cursors.addAll(searchResults.getCursors());
     }
@@ -304,6 +322,19 @@ public class SearchHelper {
       finalResults, cursors, request.shouldShowHidden(), request.getEntityScopes());
   }
 
+  /**
+   * Returns a {@link Predicate} that tests if an entity has metadata matching the search query in any of the
+   * given scopes. It must be used in the same transaction as the given context.
+   */
+  private Predicate<MetadataEntity> getMatcher(MetadataDatasetContext context, Set<MetadataScope> scopes,
+                                               SearchRequest request) {
+    Predicate<MetadataEntity> matcher = entity -> false;
+    for (MetadataScope scope : scopes) {
+      matcher = matcher.or(context.getDataset(scope).getMatcher(request));
+    }
+    return matcher;
+  }
+
   private Set<MetadataEntity> getSortedEntities(List<MetadataEntry> results, SortInfo sortInfo) {
     // if sort order is not weighted, return entities in the order received.
     // in this case, the backing storage is expected to return results in the expected order.
@@ -17,6 +17,7 @@
 package io.cdap.cdap.data2.datafabric.dataset;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.Futures;
 import com.google.inject.AbstractModule;
@@ -24,8 +25,11 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Scopes;
 import com.google.inject.Singleton;
+import io.cdap.cdap.api.dataset.DatasetDefinition;
 import io.cdap.cdap.api.dataset.DatasetManagementException;
+import io.cdap.cdap.api.dataset.DatasetProperties;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
+import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.CConfigurationUtil;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.conf.SConfiguration;
@@ -53,11 +57,15 @@ import io.cdap.cdap.data2.dataset2.AbstractDatasetFrameworkTest;
 import io.cdap.cdap.data2.dataset2.DatasetDefinitionRegistryFactory;
 import io.cdap.cdap.data2.dataset2.DatasetFramework;
 import io.cdap.cdap.data2.dataset2.DefaultDatasetDefinitionRegistryFactory;
+import io.cdap.cdap.data2.dataset2.SimpleKVTable;
+import io.cdap.cdap.data2.dataset2.SingleTypeModule;
 import io.cdap.cdap.data2.metadata.writer.NoOpMetadataServiceClient;
 import io.cdap.cdap.data2.transaction.DelegatingTransactionSystemClientService;
 import io.cdap.cdap.data2.transaction.TransactionSystemClientService;
 import io.cdap.cdap.explore.client.DiscoveryExploreClient;
 import io.cdap.cdap.explore.client.ExploreFacade;
+import io.cdap.cdap.proto.NamespaceMeta;
+import io.cdap.cdap.proto.id.DatasetId;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.security.auth.context.AuthenticationContextModules;
 import io.cdap.cdap.security.authorization.AuthorizationEnforcementModule;
@@ -95,6 +103,8 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
   private DatasetOpExecutorService opExecutorService;
   private DatasetService service;
   private RemoteDatasetFramework framework;
+  private DiscoveryServiceClient discoveryServiceClient;
+  private AuthenticationContext authenticationContext;
 
   @Before
   public void before() throws Exception {
@@ -140,9 +150,9 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
     TransactionSystemClientService txSystemClientService = new DelegatingTransactionSystemClientService(txSystemClient);
 
     DiscoveryService discoveryService = injector.getInstance(DiscoveryService.class);
-    DiscoveryServiceClient discoveryServiceClient = injector.getInstance(DiscoveryServiceClient.class);
+    discoveryServiceClient = injector.getInstance(DiscoveryServiceClient.class);
     MetricsCollectionService metricsCollectionService = injector.getInstance(MetricsCollectionService.class);
-    AuthenticationContext authenticationContext = injector.getInstance(AuthenticationContext.class);
+    authenticationContext = injector.getInstance(AuthenticationContext.class);
 
     framework = new RemoteDatasetFramework(cConf, discoveryServiceClient, registryFactory, authenticationContext);
     SystemDatasetInstantiatorFactory datasetInstantiatorFactory =
@@ -210,6 +220,91 @@ public class RemoteDatasetFrameworkTest extends AbstractDatasetFrameworkTest {
     }
   }
 
+  @Test
+  public void testMetaCacheInstanceChanges() throws Exception {
+    DatasetId table1 = NAMESPACE_ID.dataset("cachedTable1");
+    DatasetId table2 = NAMESPACE_ID.dataset("cachedTable2");
+    framework.addInstance("table", table1, DatasetProperties.EMPTY);
+    framework.addInstance("table", table2, DatasetProperties.EMPTY);
+
+    // Instantiating the dataset or the admin caches the metadata
+    Assert.assertNull(framework.getCachedInstanceMeta(table1));
+    Assert.assertNotNull(framework.getDataset(table1, DatasetDefinition.NO_ARGUMENTS, null));
+    Assert.assertNotNull(framework.getAdmin(table2, null));
+    Assert.assertNotNull(framework.getCachedInstanceMeta(table1));
+    Assert.assertNotNull(framework.getCachedInstanceMeta(table2));
+
+    // Updating an instance only invalidates that instance, and the next lookup sees the new properties
+    framework.updateInstance(table1, DatasetProperties.of(ImmutableMap.of("key", "value")));
+    Assert.assertNull(framework.getCachedInstanceMeta(table1));
+    Assert.assertNotNull(framework.getCachedInstanceMeta(table2));
+    Assert.assertNotNull(framework.getDataset(table1, DatasetDefinition.NO_ARGUMENTS, null));
+    Assert.assertEquals("value", framework.getCachedInstanceMeta(table1).getSpec().getProperty("key"));
+
+    framework.truncateInstance(table1);
+    Assert.assertNull(framework.getCachedInstanceMeta(table1));
+    Assert.assertNotNull(framework.getCachedInstanceMeta(table2));
+
+    // A deleted instance is neither cached nor returned
+    Assert.assertNotNull(framework.getDataset(table1, DatasetDefinition.NO_ARGUMENTS, null));
+    framework.deleteInstance(table1);
+    Assert.assertNull(framework.getCachedInstanceMeta(table1));
+    Assert.assertNull(framework.getDataset(table1, DatasetDefinition.NO_ARGUMENTS, null));
+    Assert.assertNull(framework.getCachedInstanceMeta(table1));
+
+    framework.deleteAllInstances(NAMESPACE_ID);
+    Assert.assertNull(framework.getCachedInstanceMeta(table2));
+  }
+
+  @Test
+  public void testMetaCacheModuleChanges() throws Exception {
+    NamespaceId otherNamespace = new NamespaceId("otherspace");
+    namespacePathLocator.get(otherNamespace).mkdirs();
+    namespaceAdmin.create(new NamespaceMeta.Builder().setName(otherNamespace).build());
+
+    DatasetId table1 = NAMESPACE_ID.dataset("cachedTable");
+    DatasetId table2 = otherNamespace.dataset("cachedTable");
+    framework.addInstance("table", table1, DatasetProperties.EMPTY);
+    framework.addInstance("table", table2, DatasetProperties.EMPTY);
+    Assert.assertNotNull(framework.getAdmin(table1, null));
+    Assert.assertNotNull(framework.getAdmin(table2, null));
+
+    // Module changes in a namespace invalidate all instances in that namespace only
+    framework.addModule(NAMESPACE_ID.datasetModule("keyValue"), new SingleTypeModule(SimpleKVTable.class));
+    Assert.assertNull(framework.getCachedInstanceMeta(table1));
+    Assert.assertNotNull(framework.getCachedInstanceMeta(table2));
+
+    Assert.assertNotNull(framework.getAdmin(table1, null));
+    framework.deleteModule(NAMESPACE_ID.datasetModule("keyValue"));
+    Assert.assertNull(framework.getCachedInstanceMeta(table1));
+    Assert.assertNotNull(framework.getCachedInstanceMeta(table2));
+
+    // Module changes in the system namespace invalidate all instances, since every namespace can use them
+    Assert.assertNotNull(framework.getAdmin(table1, null));
+    framework.addModule(NamespaceId.SYSTEM.datasetModule("keyValue"), new SingleTypeModule(SimpleKVTable.class));
+    Assert.assertNull(framework.getCachedInstanceMeta(table1));
+    Assert.assertNull(framework.getCachedInstanceMeta(table2));
+
+    framework.deleteInstance(table1);
+    framework.deleteInstance(table2);
+  }
+
+  @Test
+  public void testMetaCacheDisabled() throws Exception {
+    CConfiguration noCacheConf = CConfiguration.copy(cConf);
+    noCacheConf.setInt(Constants.Dataset.META_CACHE_SIZE, 0);
+    RemoteDatasetFramework noCacheFramework = new RemoteDatasetFramework(noCacheConf, discoveryServiceClient,
+                                                                         registryFactory, authenticationContext);
+    DatasetId table = NAMESPACE_ID.dataset("uncachedTable");
+    noCacheFramework.addInstance("table", table, DatasetProperties.EMPTY);
+    Assert.assertNotNull(noCacheFramework.getDataset(table, DatasetDefinition.NO_ARGUMENTS, null));
+    Assert.assertNull(noCacheFramework.getCachedInstanceMeta(table));
+
+    // Changes made through another framework are visible right away
+    framework.deleteInstance(table);
+    Assert.assertNull(noCacheFramework.getDataset(table, DatasetDefinition.NO_ARGUMENTS, null));
+  }
+
   @After
   public void after() {
     Futures.getUnchecked(Services.chainStop(service, opExecutorService, txManager));
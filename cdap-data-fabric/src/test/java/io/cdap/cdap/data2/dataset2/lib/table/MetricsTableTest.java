@@ -29,6 +29,7 @@ import org.junit.Test;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -188,6 +189,47 @@ public abstract class MetricsTableTest {
     Assert.assertEquals(9 * rounds, table.incrementAndGet(A, Z, 0L));
   }
 
+  @Test
+  public void testConcurrentMultiRowIncrement() throws Exception {
+    final int rounds = 500;
+    // Each thread uses its own table instance to make sure increments are atomic across instances
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      final MetricsTable table = getTable("testConcurrentMultiRowIncrement");
+      threads.add(new Thread(() -> {
+        NavigableMap<byte[], NavigableMap<byte[], Long>> updates = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+        updates.put(A, new TreeMap<>(mapOf(X, 1L)));
+        updates.put(B, new TreeMap<>(mapOf(X, 2L, Y, 1L)));
+        updates.put(C, new TreeMap<>(mapOf(Y, 3L)));
+        try {
+          for (int j = 0; j < rounds; j++) {
+            table.increment(updates);
+            table.increment(A, ImmutableMap.of(Y, 1L));
+          }
+        } finally {
+          try {
+            table.close();
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        }
+      }));
+    }
+    for (Thread t : threads) {
+      t.start();
+    }
+    for (Thread t : threads) {
+      t.join();
+    }
+
+    MetricsTable table = getTable("testConcurrentMultiRowIncrement");
+    Assert.assertEquals(4L * rounds, table.incrementAndGet(A, X, 0L));
+    Assert.assertEquals(4L * rounds, table.incrementAndGet(A, Y, 0L));
+    Assert.assertEquals(8L * rounds, table.incrementAndGet(B, X, 0L));
+    Assert.assertEquals(4L * rounds, table.incrementAndGet(B, Y, 0L));
+    Assert.assertEquals(12L * rounds, table.incrementAndGet(C, Y, 0L));
+  }
+
   class SwapThread extends Thread {
     private final MetricsTable table;
     private final byte[] row;
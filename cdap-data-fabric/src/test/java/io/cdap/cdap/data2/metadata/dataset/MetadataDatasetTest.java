@@ -1083,6 +1083,138 @@ public class MetadataDatasetTest {
     Assert.assertEquals(expected, actual);
   }
 
+  @Test
+  public void testCustomSearchWithQuery() throws Exception {
+    NamespaceId ns = new NamespaceId("ns1");
+    MetadataEntity app = ns.app("same").toMetadataEntity();
+    MetadataEntity ds = ns.dataset("same").toMetadataEntity();
+    MetadataEntity other = ns.dataset("other").toMetadataEntity();
+    String key = MetadataConstants.ENTITY_NAME_KEY;
+    txnl.execute(() -> {
+      dataset.addProperty(app, key, "same");
+      dataset.addProperty(ds, key, "same");
+      dataset.addProperty(other, key, "other");
+      dataset.addProperty(app, "tier", "gold");
+      dataset.addProperty(other, "tier", "gold");
+    });
+    MetadataEntry appEntry = new MetadataEntry(app, key, "same");
+    MetadataEntry dsEntry = new MetadataEntry(ds, key, "same");
+    MetadataEntry otherEntry = new MetadataEntry(other, key, "other");
+    SortInfo nameAsc = new SortInfo(MetadataConstants.ENTITY_NAME_KEY, SortInfo.SortOrder.ASC);
+
+    // sorted search with a query only returns the matching entities
+    SearchRequest request1 = new SearchRequest(ns, "tier:gold", ALL_TYPES, nameAsc,
+                                               0, 10, 0, null, false, EnumSet.allOf(EntityScope.class));
+    Assert.assertEquals(ImmutableList.of(otherEntry, appEntry),
+                        txnl.execute(() -> dataset.search(request1).getResults()));
+    SearchRequest request2 = new SearchRequest(ns, "unknown", ALL_TYPES, nameAsc,
+                                               0, 10, 0, null, false, EnumSet.allOf(EntityScope.class));
+    Assert.assertEquals(ImmutableList.of(), txnl.execute(() -> dataset.search(request2).getResults()));
+
+    // page through the entities one at a time. Entities with the same name are ordered by row key.
+    SearchRequest request3 = new SearchRequest(ns, "*", ALL_TYPES, nameAsc,
+                                               0, 1, 1, null, false, EnumSet.allOf(EntityScope.class));
+    SearchResults results = txnl.execute(() -> dataset.search(request3));
+    Assert.assertEquals(ImmutableList.of(otherEntry, dsEntry), results.getResults());
+    Assert.assertEquals(ImmutableList.of("same"), results.getCursors());
+
+    SearchRequest request4 = new SearchRequest(ns, "*", ALL_TYPES, nameAsc,
+                                               0, 1, 1, results.getCursors().get(0), false,
+                                               EnumSet.allOf(EntityScope.class));
+    results = txnl.execute(() -> dataset.search(request4));
+    Assert.assertEquals(ImmutableList.of(dsEntry, appEntry), results.getResults());
+    // the cursor must identify the second entity with the same name
+    Assert.assertEquals(1, results.getCursors().size());
+    Assert.assertNotEquals("same", results.getCursors().get(0));
+
+    SearchRequest request5 = new SearchRequest(ns, "*", ALL_TYPES, nameAsc,
+                                               0, 1, 1, results.getCursors().get(0), false,
+                                               EnumSet.allOf(EntityScope.class));
+    results = txnl.execute(() -> dataset.search(request5));
+    Assert.assertEquals(ImmutableList.of(appEntry), results.getResults());
+    Assert.assertEquals(ImmutableList.of(), results.getCursors());
+  }
+
+  @Test
+  public void testCustomSearchWithQueryBoundedScan() throws Exception {
+    NamespaceId ns = new NamespaceId("ns1");
+    List<MetadataEntity> entities = new ArrayList<>();
+    for (String name : ImmutableList.of("a", "b", "c", "d", "e")) {
+      entities.add(ns.dataset(name).toMetadataEntity());
+    }
+    String key = MetadataConstants.ENTITY_NAME_KEY;
+    txnl.execute(() -> {
+      for (MetadataEntity entity : entities) {
+        dataset.addProperty(entity, key, entity.getValue(MetadataEntity.DATASET));
+      }
+      dataset.addProperty(entities.get(0), "tier", "gold");
+      dataset.addProperty(entities.get(4), "tier", "gold");
+    });
+    SortInfo nameAsc = new SortInfo(MetadataConstants.ENTITY_NAME_KEY, SortInfo.SortOrder.ASC);
+
+    // the scan stops after two unmatched entities, before the page is complete. The continuation continues the scan.
+    SearchRequest request1 = new SearchRequest(ns, "tier:gold", ALL_TYPES, nameAsc,
+                                               0, 10, 0, null, false, EnumSet.allOf(EntityScope.class));
+    SearchResults results = txnl.execute(() -> dataset.search(request1, dataset.getMatcher(request1), 2, null));
+    Assert.assertEquals(ImmutableList.of(new MetadataEntry(entities.get(0), key, "a")), results.getResults());
+    Assert.assertNotNull(results.getContinuation());
+
+    SearchResults previous = results;
+    results = txnl.execute(() -> dataset.search(request1, dataset.getMatcher(request1), 2, previous));
+    Assert.assertEquals(ImmutableList.of(new MetadataEntry(entities.get(0), key, "a"),
+                                         new MetadataEntry(entities.get(4), key, "e")), results.getResults());
+    Assert.assertNull(results.getContinuation());
+    Assert.assertEquals(ImmutableList.of(), results.getCursors());
+
+    // with an offset and pages of one entity, the continued search keeps the positions of the first scan,
+    // and adds the cursor of the second page after the continuation
+    SearchRequest request2 = new SearchRequest(ns, "tier:gold", ALL_TYPES, nameAsc,
+                                               0, 1, 1, null, false, EnumSet.allOf(EntityScope.class));
+    results = txnl.execute(() -> dataset.search(request2, dataset.getMatcher(request2), 2, null));
+    Assert.assertEquals(ImmutableList.of(), results.getCursors());
+    while (results.getContinuation() != null) {
+      SearchResults prev = results;
+      results = txnl.execute(() -> dataset.search(request2, dataset.getMatcher(request2), 2, prev));
+    }
+    Assert.assertEquals(ImmutableList.of(new MetadataEntry(entities.get(0), key, "a"),
+                                         new MetadataEntry(entities.get(4), key, "e")), results.getResults());
+    Assert.assertEquals(1, results.getCursors().size());
+
+    // the cursor continues from the second page
+    SearchRequest request3 = new SearchRequest(ns, "tier:gold", ALL_TYPES, nameAsc,
+                                               0, 1, 1, results.getCursors().get(0), false,
+                                               EnumSet.allOf(EntityScope.class));
+    results = txnl.execute(() -> dataset.search(request3, dataset.getMatcher(request3), 2, null));
+    Assert.assertEquals(ImmutableList.of(new MetadataEntry(entities.get(4), key, "e")), results.getResults());
+    Assert.assertNull(results.getContinuation());
+  }
+
+  @Test
+  public void testCustomSearchCursorWithSeparator() throws Exception {
+    NamespaceId ns = new NamespaceId("ns1");
+    MetadataEntity first = ns.dataset("first").toMetadataEntity();
+    MetadataEntity second = ns.dataset("second").toMetadataEntity();
+    String key = MetadataConstants.ENTITY_NAME_KEY;
+    txnl.execute(() -> {
+      dataset.addProperty(first, key, "a~b");
+      dataset.addProperty(second, key, "a~b");
+    });
+    SortInfo nameAsc = new SortInfo(MetadataConstants.ENTITY_NAME_KEY, SortInfo.SortOrder.ASC);
+
+    // index values that contain the cursor separator are still resumed from the exact entity
+    SearchRequest request1 = new SearchRequest(ns, "*", ALL_TYPES, nameAsc,
+                                               0, 1, 1, null, false, EnumSet.allOf(EntityScope.class));
+    SearchResults results = txnl.execute(() -> dataset.search(request1));
+    Assert.assertEquals(2, results.getResults().size());
+    Assert.assertEquals(1, results.getCursors().size());
+
+    SearchRequest request2 = new SearchRequest(ns, "*", ALL_TYPES, nameAsc,
+                                               0, 1, 0, results.getCursors().get(0), false,
+                                               EnumSet.allOf(EntityScope.class));
+    List<MetadataEntry> page = txnl.execute(() -> dataset.search(request2).getResults());
+    Assert.assertEquals(ImmutableList.of(results.getResults().get(1)), page);
+  }
+
   @Test
   public void testPagination() throws Exception {
     String flowName = "name11";
@@ -22,6 +22,10 @@ import io.cdap.cdap.api.data.schema.Schema;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.text.SimpleDateFormat;
@@ -55,6 +59,48 @@ public class StructuredRecordBuilderTest {
     Assert.assertEquals(5L, (long) StructuredRecord.builder(schema).set("x", 5L).build().get("x"));
   }
 
+  @Test
+  public void testPositionalAccess() throws Exception {
+    Schema schema = Schema.recordOf("x",
+                                    Schema.Field.of("id", Schema.of(Schema.Type.INT)),
+                                    Schema.Field.of("name", Schema.nullableOf(Schema.of(Schema.Type.STRING))),
+                                    Schema.Field.of("score", Schema.of(Schema.Type.DOUBLE)));
+    int idIndex = schema.getFieldIndex("id");
+    int scoreIndex = schema.getFieldIndex("score");
+    Assert.assertEquals(0, idIndex);
+    Assert.assertEquals(2, scoreIndex);
+    Assert.assertEquals(-1, schema.getFieldIndex("missing"));
+
+    StructuredRecord record = StructuredRecord.builder(schema).set(idIndex, 1).set("score", 2.5d).build();
+    Assert.assertEquals(1, (int) record.get("id"));
+    Assert.assertEquals(2.5d, record.get(scoreIndex), 0.0001d);
+    Assert.assertNull(record.get(1));
+    Assert.assertNull(record.get("missing"));
+    Assert.assertEquals(record, StructuredRecord.builder(schema).set("id", 1).set(scoreIndex, 2.5d).build());
+
+    // Java serialization should preserve all field values
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    try (ObjectOutputStream oos = new ObjectOutputStream(bos)) {
+      oos.writeObject(record);
+    }
+    try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+      Assert.assertEquals(record, ois.readObject());
+    }
+
+    try {
+      StructuredRecord.builder(schema).set(idIndex, null);
+      Assert.fail("Expected failure when setting null to a non-nullable field");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+    try {
+      StructuredRecord.builder(schema).set("id", 1).build();
+      Assert.fail("Expected failure when a non-nullable field has no value");
+    } catch (UnexpectedFormatException e) {
+      // expected
+    }
+  }
+
   @Test
   public void testDateConversion() {
     long ts = 0L;
@@ -24,8 +24,10 @@ import com.google.common.collect.Maps;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 import io.cdap.cdap.api.dataset.lib.cube.AggregationOption;
+import io.cdap.cdap.api.metrics.Distribution;
 import io.cdap.cdap.api.metrics.MetricDeleteQuery;
 import io.cdap.cdap.api.metrics.MetricType;
+import io.cdap.cdap.api.metrics.MetricValue;
 import io.cdap.cdap.api.metrics.MetricValues;
 import io.cdap.cdap.api.metrics.Metrics;
 import io.cdap.cdap.api.metrics.MetricsContext;
@@ -783,6 +785,44 @@ public class MetricsHandlerTest extends MetricsSuiteTestBase {
         + (start + 3600), 2, 3);
   }
 
+  @Test
+  public void testDistribution() throws Exception {
+    Map<String, String> sliceBy = getServiceContext("distspace", "WordCount1", "WordCounter", "run1", "splitter");
+    long[] bucketCounts = new long[Distribution.NUM_BUCKETS];
+    bucketCounts[Distribution.getBucket(10L)] = 99L;
+    bucketCounts[Distribution.getBucket(1000L)] = 1L;
+    metricStore.add(new MetricValues(sliceBy, 1L, ImmutableList.of(
+      new MetricValue("latency", Distribution.of(bucketCounts)),
+      new MetricValue("with#hash", MetricType.COUNTER, 1L))));
+
+    // The bucket counts are hidden, but metric names that look like them are not
+    verifySearchMetricResult("/v3/metrics/search?target=metric&tag=namespace:distspace",
+                             ImmutableList.of("system.latency", "system.with#hash"));
+
+    // The metric itself is the number of values recorded
+    verifyAggregateQueryResult("/v3/metrics/query?tag=namespace:distspace&metric=system.latency&aggregate=true",
+                               100L);
+
+    MetricQueryResult queryResult = post("/v3/metrics/query?tag=namespace:distspace&metric=system.latency"
+                                           + "&aggregate=true&percentile=50&percentile=99.9", MetricQueryResult.class);
+    Assert.assertEquals(2, queryResult.getSeries().length);
+    Assert.assertEquals("system.latency.p50", queryResult.getSeries()[0].getMetricName());
+    assertInBucket(10L, queryResult.getSeries()[0].getData()[0].getValue());
+    Assert.assertEquals("system.latency.p99.9", queryResult.getSeries()[1].getMetricName());
+    assertInBucket(1000L, queryResult.getSeries()[1].getData()[0].getValue());
+
+    // No percentiles for a metric without distribution
+    queryResult = post("/v3/metrics/query?tag=namespace:distspace&metric=system.with%23hash"
+                         + "&aggregate=true&percentile=50", MetricQueryResult.class);
+    Assert.assertEquals(0, queryResult.getSeries().length);
+  }
+
+  private void assertInBucket(long expected, long actual) {
+    int bucket = Distribution.getBucket(expected);
+    Assert.assertTrue(actual >= Distribution.getLowerBound(bucket));
+    Assert.assertTrue(actual <= Distribution.getUpperBound(bucket));
+  }
+
   @Test
   public void testDetermineResolution() throws Exception {
     // if resolution is specified, no matter what the start and end time, it should be that resolution
@@ -25,6 +25,7 @@ import io.cdap.cdap.api.dataset.Dataset
 import io.cdap.cdap.api.dataset.DatasetProperties
 import io.cdap.cdap.api.dataset.DatasetSpecification
 import io.cdap.cdap.api.dataset.InstanceNotFoundException
+import io.cdap.cdap.api.dataset.table.Table
 import io.cdap.cdap.api.spark.sql.DataFrames
 import io.cdap.cdap.app.runtime.spark.SparkClassLoader
 import io.cdap.cdap.app.runtime.spark.SparkRuntimeContext
@@ -90,6 +91,12 @@ class DefaultSource extends RelationProvider
     // Should be able to load the type through the SparkClassLoader
     val sparkClassLoader = SparkClassLoader.findFromContext()
     sparkClassLoader.loadClass(datasetSpec.getType) match {
+      // Table Dataset with schema, which supports filter and projection pushdown
+      case cls if classOf[Table].isAssignableFrom(cls) && datasetSpec.getProperty(Table.PROPERTY_SCHEMA) != null =>
+        new RecordScannableRelation(sqlContext, schema, datasetId, parameters,
+                                    Some(Schema.parseJson(datasetSpec.getProperty(Table.PROPERTY_SCHEMA))),
+                                    Option(datasetSpec.getProperty(Table.PROPERTY_SCHEMA_ROW_FIELD)))
+
       // RecordScannable Dataset
       case cls if classOf[RecordScannable[_]].isAssignableFrom(cls) =>
         new RecordScannableRelation(sqlContext, schema, datasetId, parameters)
@@ -20,12 +20,19 @@ import io.cdap.cdap.api.data.batch.RecordScannable
 import io.cdap.cdap.api.data.batch.Split
 import io.cdap.cdap.api.data.batch.Splits
 import io.cdap.cdap.api.data.format.StructuredRecord
+import io.cdap.cdap.api.data.schema.Schema
 import io.cdap.cdap.api.data.schema.UnsupportedTypeException
 import io.cdap.cdap.api.dataset.Dataset
+import io.cdap.cdap.api.dataset.table.Table
+import io.cdap.cdap.api.dataset.table.{Row => TableRow}
 import io.cdap.cdap.api.spark.sql.DataFrames
 import io.cdap.cdap.app.runtime.spark.SparkClassLoader
+import io.cdap.cdap.app.runtime.spark.data.BatchReadableRDD
 import io.cdap.cdap.app.runtime.spark.data.RecordScannableRDD
+import io.cdap.cdap.internal.io.ReflectionRowRecordReader
 import io.cdap.cdap.proto.id.DatasetId
+import org.apache.spark.SparkContext
+import org.apache.spark.broadcast.Broadcast
 import org.apache.spark.rdd.RDD
 import org.apache.spark.sql.Row
 import org.apache.spark.sql.SQLContext
@@ -34,18 +41,30 @@ import org.apache.spark.sql.sources.Filter
 import org.apache.spark.sql.sources.PrunedFilteredScan
 import org.apache.spark.sql.types.StructType
 
+import java.net.URI
 import java.util
 
 import scala.collection.JavaConversions._
 import scala.reflect.ClassTag
 
 /**
+  * A [[org.apache.spark.sql.sources.BaseRelation]] for reading from a
+  * [[io.cdap.cdap.api.data.batch.RecordScannable]] dataset.
   *
+  * For [[io.cdap.cdap.api.dataset.table.Table]] datasets with a record schema, filters on the row key field
+  * are translated into a row key range to restrict the splits and the table scans, and only the required
+  * columns are decoded from the table rows. Filters are always evaluated by Spark on the rows returned.
+  *
+  * @param tableSchema the record schema of the dataset if it is a [[io.cdap.cdap.api.dataset.table.Table]]
+  * @param rowField the name of the record field that comes from the row key of the
+  *                 [[io.cdap.cdap.api.dataset.table.Table]] dataset
   */
 private[dataset] class RecordScannableRelation(override val sqlContext: SQLContext,
                                                override val schema: StructType,
                                                datasetId: DatasetId,
-                                               parameters: Map[String, String])
+                                               parameters: Map[String, String],
+                                               tableSchema: Option[Schema] = None,
+                                               rowField: Option[String] = None)
   extends BaseRelation with Serializable with PrunedFilteredScan {
 
   override def buildScan(requiredColumns: Array[String], filters: Array[Filter]): RDD[Row] = {
@@ -62,24 +81,73 @@ private[dataset] class RecordScannableRelation(override val sqlContext: SQLConte
       val inputSplits = parameters.get("input.splits")
         .map(Splits.decode(_, new util.ArrayList[Split](), sparkClassLoader))
 
-      dataset.asInstanceOf[RecordScannable[_]].getRecordType match {
-        case recordType if classOf[StructuredRecord] == recordType => {
+      (dataset, dataset.asInstanceOf[RecordScannable[_]].getRecordType) match {
+        // Table with record schema, push down filters on the row key and the projection to the table scan
+        case (table: Table, recordType) if classOf[StructuredRecord] == recordType && tableSchema.isDefined =>
+          buildTableScan(sc, table, tableSchema.get, rowSchema, filters, inputSplits, driveHttpServiceURI)
+        case (_, recordType) if classOf[StructuredRecord] == recordType => {
           val recordScannable = dataset.asInstanceOf[RecordScannable[StructuredRecord]]
           new RecordScannableRDD[StructuredRecord](sc, datasetId.getNamespace, datasetId.getDataset, parameters,
                                                    inputSplits.getOrElse(recordScannable.getSplits),
                                                    driveHttpServiceURI)
             .map(DataFrames.toRow(_, rowSchema))
         }
-        case beanType: Class[_] => {
+        case (_, beanType: Class[_]) => {
           val recordScannable = dataset.asInstanceOf[RecordScannable[_]]
           val rdd = new RecordScannableRDD(sc, datasetId.getNamespace, datasetId.getDataset, parameters,
                                  inputSplits.getOrElse(recordScannable.getSplits),
                                  driveHttpServiceURI)(ClassTag(beanType))
           sqlContext.createDataFrame(rdd, beanType).rdd
         }
-        case anyType =>
+        case (_, anyType) =>
           throw new UnsupportedTypeException(s"Dataset $datasetId has record type $anyType is not supported")
       }
     })
   }
+
+  /**
+    * Creates the RDD[Row] for a [[io.cdap.cdap.api.dataset.table.Table]] dataset with record schema,
+    * scanning only the row key range derived from the filters and decoding only the required columns.
+    */
+  private def buildTableScan(sc: SparkContext, table: Table, recordSchema: Schema, rowSchema: StructType,
+                             filters: Array[Filter], inputSplits: Option[util.List[Split]],
+                             driveHttpServiceURI: Broadcast[URI]): RDD[Row] = {
+    val keyRange = rowField
+      .flatMap(field => Option(recordSchema.getField(field)).map(f => (field, f.getSchema)))
+      .map(t => RowKeyRange.fromFilters(filters, t._1, rowKeyType(t._2)))
+      .getOrElse(RowKeyRange.ALL)
+
+    if (keyRange.isEmpty) {
+      return sc.emptyRDD[Row]
+    }
+
+    val splits = inputSplits.getOrElse(table.getSplits(-1, keyRange.start.orNull, keyRange.stop.orNull))
+    val rdd = new BatchReadableRDD[Array[Byte], TableRow](sc, table, datasetId.getNamespace, datasetId.getDataset,
+                                                          parameters, splits, driveHttpServiceURI)
+
+    // Decode only the required columns from the table rows
+    val projectedFields = rowSchema.fieldNames.flatMap(name => Option(recordSchema.getField(name)))
+    if (projectedFields.isEmpty) {
+      return rdd.map(_ => Row.empty)
+    }
+    val projectedSchema = if (projectedFields.length == rowSchema.fields.length) {
+      Schema.recordOf(recordSchema.getRecordName, projectedFields: _*)
+    } else {
+      // Some required columns are not in the table schema. Decode all columns and let the conversion handle them.
+      recordSchema
+    }
+    val projectedRowField = rowField.filter(field => projectedSchema.getField(field) != null).orNull
+
+    rdd.mapPartitions(iterator => {
+      val rowReader = new ReflectionRowRecordReader(projectedSchema, projectedRowField)
+      iterator.map(t => DataFrames.toRow(rowReader.read(t._2, recordSchema), rowSchema))
+    })
+  }
+
+  /**
+    * Returns the type of the row key field, which must be a simple or nullable simple type.
+    */
+  private def rowKeyType(fieldSchema: Schema): Schema.Type = {
+    if (fieldSchema.isNullable) fieldSchema.getNonNullable.getType else fieldSchema.getType
+  }
 }
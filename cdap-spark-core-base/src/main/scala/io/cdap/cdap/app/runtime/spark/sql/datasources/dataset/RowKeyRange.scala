@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.app.runtime.spark.sql.datasources.dataset
+
+import io.cdap.cdap.api.common.Bytes
+import io.cdap.cdap.api.data.schema.Schema
+import org.apache.spark.sql.sources.And
+import org.apache.spark.sql.sources.EqualTo
+import org.apache.spark.sql.sources.Filter
+import org.apache.spark.sql.sources.GreaterThan
+import org.apache.spark.sql.sources.GreaterThanOrEqual
+import org.apache.spark.sql.sources.In
+import org.apache.spark.sql.sources.LessThan
+import org.apache.spark.sql.sources.LessThanOrEqual
+import org.apache.spark.sql.sources.Or
+import org.apache.spark.sql.sources.StringStartsWith
+
+/**
+  * A range of row keys of a [[io.cdap.cdap.api.dataset.table.Table]], with inclusive start and exclusive stop.
+  * An absent start or stop means the range is unbounded on that side.
+  */
+private[dataset] final class RowKeyRange(val start: Option[Array[Byte]], val stop: Option[Array[Byte]]) {
+
+  /**
+    * Returns `true` if there is no row key in this range.
+    */
+  def isEmpty: Boolean = (start, stop) match {
+    case (Some(startKey), Some(stopKey)) => Bytes.compareTo(startKey, stopKey) >= 0
+    case _ => false
+  }
+
+  /**
+    * Returns the range of row keys that are in both this range and the given range.
+    */
+  def intersect(other: RowKeyRange): RowKeyRange = {
+    new RowKeyRange(RowKeyRange.bound(start, other.start, _ > 0), RowKeyRange.bound(stop, other.stop, _ < 0))
+  }
+
+  /**
+    * Returns the smallest range that covers both this range and the given range.
+    */
+  def span(other: RowKeyRange): RowKeyRange = {
+    val spanStart = for (s1 <- start; s2 <- other.start) yield if (Bytes.compareTo(s1, s2) <= 0) s1 else s2
+    val spanStop = for (s1 <- stop; s2 <- other.stop) yield if (Bytes.compareTo(s1, s2) >= 0) s1 else s2
+    new RowKeyRange(spanStart, spanStop)
+  }
+}
+
+/**
+  * Companion object for creating [[RowKeyRange]] from Spark SQL [[org.apache.spark.sql.sources.Filter]]s.
+  */
+private[dataset] object RowKeyRange {
+
+  val ALL = new RowKeyRange(None, None)
+
+  /**
+    * Creates a [[RowKeyRange]] that covers all the rows that can satisfy all of the given filters.
+    * Filters that cannot be translated to a row key range are treated as matching all rows, hence
+    * the filters still have to be evaluated on the rows scanned from the range.
+    *
+    * @param filters the filters to translate, which are combined with AND
+    * @param rowField name of the record field that comes from the row key
+    * @param rowType type of the row key field
+    */
+  def fromFilters(filters: Seq[Filter], rowField: String, rowType: Schema.Type): RowKeyRange = {
+    filters.foldLeft(ALL)((range, filter) => range.intersect(fromFilter(filter, rowField, rowType)))
+  }
+
+  private def fromFilter(filter: Filter, rowField: String, rowType: Schema.Type): RowKeyRange = {
+    // Only bytes and string are encoded into row keys that preserve the ordering of values
+    val ordered = rowType == Schema.Type.BYTES || rowType == Schema.Type.STRING
+
+    filter match {
+      case And(left, right) => fromFilter(left, rowField, rowType).intersect(fromFilter(right, rowField, rowType))
+      case Or(left, right) => fromFilter(left, rowField, rowType).span(fromFilter(right, rowField, rowType))
+      case EqualTo(`rowField`, value) => encode(value, rowType).map(point).getOrElse(ALL)
+      case In(`rowField`, values) if values.nonEmpty =>
+        values.map(encode(_, rowType).map(point).getOrElse(ALL)).reduce(_.span(_))
+      case GreaterThan(`rowField`, value) if ordered =>
+        encode(value, rowType).map(key => new RowKeyRange(Some(successor(key)), None)).getOrElse(ALL)
+      case GreaterThanOrEqual(`rowField`, value) if ordered =>
+        encode(value, rowType).map(key => new RowKeyRange(Some(key), None)).getOrElse(ALL)
+      case LessThan(`rowField`, value) if ordered =>
+        encode(value, rowType).map(key => new RowKeyRange(None, Some(key))).getOrElse(ALL)
+      case LessThanOrEqual(`rowField`, value) if ordered =>
+        encode(value, rowType).map(key => new RowKeyRange(None, Some(successor(key)))).getOrElse(ALL)
+      case StringStartsWith(`rowField`, prefix) if rowType == Schema.Type.STRING => {
+        val key = Bytes.toBytes(prefix)
+        new RowKeyRange(Some(key), Option(Bytes.stopKeyForPrefix(key)))
+      }
+      case _ => ALL
+    }
+  }
+
+  /**
+    * Encodes a filter value to row key the same way as the row key is written from a record field.
+    * Floating point values are not encoded since value equality is different from encoded bytes equality.
+    */
+  private def encode(value: Any, rowType: Schema.Type): Option[Array[Byte]] = (rowType, value) match {
+    case (Schema.Type.STRING, s: String) => Some(Bytes.toBytes(s))
+    case (Schema.Type.BYTES, b: Array[Byte]) => Some(b)
+    case (Schema.Type.INT, i: Int) => Some(Bytes.toBytes(i))
+    case (Schema.Type.LONG, l: Long) => Some(Bytes.toBytes(l))
+    case (Schema.Type.BOOLEAN, b: Boolean) => Some(Bytes.toBytes(b))
+    case _ => None
+  }
+
+  private def point(key: Array[Byte]): RowKeyRange = new RowKeyRange(Some(key), Some(successor(key)))
+
+  /**
+    * Returns the smallest row key that is larger than the given key.
+    */
+  private def successor(key: Array[Byte]): Array[Byte] = key :+ 0.toByte
+
+  /**
+    * Picks the tighter of two optional bounds, in which `tighter` tells whether the comparison result of
+    * the first bound against the second bound makes the first bound tighter.
+    */
+  private def bound(first: Option[Array[Byte]], second: Option[Array[Byte]],
+                    tighter: Int => Boolean): Option[Array[Byte]] = (first, second) match {
+    case (Some(b1), Some(b2)) => if (tighter(Bytes.compareTo(b1, b2))) first else second
+    case (None, _) => second
+    case (_, None) => first
+  }
+}
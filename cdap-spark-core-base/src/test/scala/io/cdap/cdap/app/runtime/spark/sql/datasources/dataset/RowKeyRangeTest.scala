@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.app.runtime.spark.sql.datasources.dataset
+
+import io.cdap.cdap.api.common.Bytes
+import io.cdap.cdap.api.data.schema.Schema
+import org.apache.spark.sql.sources.And
+import org.apache.spark.sql.sources.EqualTo
+import org.apache.spark.sql.sources.Filter
+import org.apache.spark.sql.sources.GreaterThan
+import org.apache.spark.sql.sources.GreaterThanOrEqual
+import org.apache.spark.sql.sources.In
+import org.apache.spark.sql.sources.IsNotNull
+import org.apache.spark.sql.sources.LessThan
+import org.apache.spark.sql.sources.LessThanOrEqual
+import org.apache.spark.sql.sources.Or
+import org.apache.spark.sql.sources.StringStartsWith
+import org.junit.Assert
+import org.junit.Test
+
+/**
+  * Unit tests for [[RowKeyRange]].
+  */
+class RowKeyRangeTest {
+
+  private val RowField = "id"
+
+  @Test
+  def testNoFilters(): Unit = {
+    assertAll(fromFilters())
+    // Filters on other fields or that cannot be translated cover all rows
+    assertAll(fromFilters(EqualTo("other", "a"), IsNotNull(RowField)))
+  }
+
+  @Test
+  def testEqualTo(): Unit = {
+    // The stop of a point range is the successor of the key, which is the key with a zero byte appended
+    assertRange(fromFilters(EqualTo(RowField, "abc")), Some("abc"), Some("abc\u0000"))
+
+    // Values are encoded the same way as the row key field
+    val range = RowKeyRange.fromFilters(Seq(EqualTo(RowField, 5)), RowField, Schema.Type.INT)
+    Assert.assertArrayEquals(Bytes.toBytes(5), range.start.get)
+    Assert.assertArrayEquals(Bytes.add(Bytes.toBytes(5), Array(0.toByte)), range.stop.get)
+
+    // Values of a different type than the row key field, or floating point values, are not translated
+    assertAll(RowKeyRange.fromFilters(Seq(EqualTo(RowField, "5")), RowField, Schema.Type.INT))
+    assertAll(RowKeyRange.fromFilters(Seq(EqualTo(RowField, 5.0d)), RowField, Schema.Type.DOUBLE))
+  }
+
+  @Test
+  def testComparisons(): Unit = {
+    assertRange(fromFilters(GreaterThan(RowField, "b")), Some("b\u0000"), None)
+    assertRange(fromFilters(GreaterThanOrEqual(RowField, "b")), Some("b"), None)
+    assertRange(fromFilters(LessThan(RowField, "m")), None, Some("m"))
+    assertRange(fromFilters(LessThanOrEqual(RowField, "m")), None, Some("m\u0000"))
+
+    // Comparisons are not translated for types of which the encoding doesn't preserve the ordering
+    assertAll(RowKeyRange.fromFilters(Seq(GreaterThan(RowField, 5)), RowField, Schema.Type.INT))
+    assertAll(RowKeyRange.fromFilters(Seq(LessThan(RowField, 5L)), RowField, Schema.Type.LONG))
+  }
+
+  @Test
+  def testAnd(): Unit = {
+    // Filters in the list and in And are intersected
+    assertRange(fromFilters(GreaterThanOrEqual(RowField, "b"), LessThan(RowField, "m")), Some("b"), Some("m"))
+    assertRange(fromFilters(And(GreaterThanOrEqual(RowField, "b"), LessThan(RowField, "m"))), Some("b"), Some("m"))
+
+    // The tighter bound on each side is used
+    assertRange(fromFilters(GreaterThan(RowField, "b"), GreaterThanOrEqual(RowField, "c"),
+                            LessThan(RowField, "m"), LessThanOrEqual(RowField, "k")),
+                Some("c"), Some("k\u0000"))
+
+    // An untranslatable side doesn't restrict the range
+    assertRange(fromFilters(And(EqualTo("other", "x"), LessThan(RowField, "m"))), None, Some("m"))
+  }
+
+  @Test
+  def testOr(): Unit = {
+    // Or spans both ranges
+    assertRange(fromFilters(Or(EqualTo(RowField, "b"), EqualTo(RowField, "k"))), Some("b"), Some("k\u0000"))
+    assertRange(fromFilters(Or(LessThan(RowField, "c"), EqualTo(RowField, "k"))), None, Some("k\u0000"))
+
+    // If one side cannot be translated, all rows can match
+    assertAll(fromFilters(Or(EqualTo(RowField, "b"), EqualTo("other", "x"))))
+  }
+
+  @Test
+  def testIn(): Unit = {
+    assertRange(fromFilters(In(RowField, Array[Any]("k", "b", "f"))), Some("b"), Some("k\u0000"))
+    assertRange(fromFilters(In(RowField, Array[Any]("b"))), Some("b"), Some("b\u0000"))
+
+    // An empty In or an In with an untranslatable value is not restricted
+    assertAll(fromFilters(In(RowField, Array[Any]())))
+    assertAll(fromFilters(In(RowField, Array[Any]("b", 1))))
+  }
+
+  @Test
+  def testStringStartsWith(): Unit = {
+    assertRange(fromFilters(StringStartsWith(RowField, "ab")), Some("ab"), Some("ac"))
+    assertRange(fromFilters(StringStartsWith(RowField, "ab"), LessThan(RowField, "abm")), Some("ab"), Some("abm"))
+
+    // The last byte of the prefix is incremented for the stop key
+    assertRange(fromFilters(StringStartsWith(RowField, "az")), Some("az"), Some("a{"))
+
+    // Not translated for non-string row key
+    assertAll(RowKeyRange.fromFilters(Seq(StringStartsWith(RowField, "ab")), RowField, Schema.Type.BYTES))
+  }
+
+  @Test
+  def testEmpty(): Unit = {
+    // Contradicting filters result in an empty range, so that the scan can be skipped
+    Assert.assertTrue(fromFilters(EqualTo(RowField, "a"), EqualTo(RowField, "b")).isEmpty)
+    Assert.assertTrue(fromFilters(GreaterThan(RowField, "m"), LessThan(RowField, "c")).isEmpty)
+    Assert.assertTrue(fromFilters(GreaterThanOrEqual(RowField, "c"), LessThan(RowField, "c")).isEmpty)
+    Assert.assertTrue(fromFilters(GreaterThan(RowField, "c"), LessThanOrEqual(RowField, "c")).isEmpty)
+    Assert.assertTrue(fromFilters(StringStartsWith(RowField, "a"), EqualTo(RowField, "b")).isEmpty)
+
+    // Ranges that still contain a row key are not empty
+    Assert.assertFalse(fromFilters(GreaterThanOrEqual(RowField, "c"), LessThanOrEqual(RowField, "c")).isEmpty)
+    Assert.assertFalse(fromFilters(GreaterThan(RowField, "c"), LessThan(RowField, "c\u0000\u0000")).isEmpty)
+    Assert.assertFalse(fromFilters(LessThan(RowField, "c")).isEmpty)
+    Assert.assertFalse(RowKeyRange.ALL.isEmpty)
+  }
+
+  private def fromFilters(filters: Filter*): RowKeyRange = {
+    RowKeyRange.fromFilters(filters, RowField, Schema.Type.STRING)
+  }
+
+  private def assertAll(range: RowKeyRange): Unit = {
+    Assert.assertTrue(range.start.isEmpty)
+    Assert.assertTrue(range.stop.isEmpty)
+  }
+
+  private def assertRange(range: RowKeyRange, start: Option[String], stop: Option[String]): Unit = {
+    Assert.assertEquals(start, range.start.map(Bytes.toString))
+    Assert.assertEquals(stop, range.stop.map(Bytes.toString))
+  }
+}
@@ -173,6 +173,51 @@ public abstract class StructuredTableTest {
     Assert.assertEquals(new HashSet<>(keys), result);
   }
 
+  @Test
+  public void testMultiUpsertDelete() throws Exception {
+    int max = 10;
+
+    // Write multiple rows in one call. Rows with different set of columns are interleaved.
+    List<Collection<Field<?>>> rows = new ArrayList<>();
+    for (int i = 0; i < max; i++) {
+      List<Field<?>> fields = new ArrayList<>(Arrays.asList(Fields.intField(KEY, i),
+                                                            Fields.longField(KEY2, (long) i),
+                                                            Fields.stringField(STRING_COL, VAL + i),
+                                                            Fields.doubleField(DOUBLE_COL, (double) i),
+                                                            Fields.floatField(FLOAT_COL, (float) i)));
+      if (i % 3 != 0) {
+        fields.add(Fields.bytesField(BYTES_COL, Bytes.toBytes("bytes-" + i)));
+      }
+      rows.add(fields);
+    }
+    // The last write of the same key should win
+    rows.add(Arrays.asList(Fields.intField(KEY, 0), Fields.longField(KEY2, 0L),
+                           Fields.stringField(STRING_COL, VAL + "updated")));
+    getTransactionRunner().run(context -> context.getTable(SIMPLE_TABLE).multiUpsert(rows));
+
+    List<Collection<Field<?>>> actual = scanSimpleStructuredRows(Range.all(), max);
+    Assert.assertEquals(max, actual.size());
+    for (int i = 0; i < max; i++) {
+      List<Field<?>> row = new ArrayList<>(actual.get(i));
+      Assert.assertEquals(Fields.intField(KEY, i), row.get(0));
+      Assert.assertEquals(Fields.stringField(STRING_COL, VAL + (i == 0 ? "updated" : i)), row.get(2));
+      Assert.assertEquals(Fields.bytesField(BYTES_COL, i % 3 == 0 ? null : Bytes.toBytes("bytes-" + i)), row.get(5));
+    }
+
+    // Delete the even rows in one call
+    List<Collection<Field<?>>> keys = new ArrayList<>();
+    for (int i = 0; i < max; i += 2) {
+      keys.add(Arrays.asList(Fields.intField(KEY, i), Fields.longField(KEY2, (long) i)));
+    }
+    getTransactionRunner().run(context -> context.getTable(SIMPLE_TABLE).multiDelete(keys));
+
+    actual = scanSimpleStructuredRows(Range.all(), max);
+    Assert.assertEquals(max / 2, actual.size());
+    for (int i = 0; i < actual.size(); i++) {
+      Assert.assertEquals(Fields.intField(KEY, i * 2 + 1), actual.get(i).iterator().next());
+    }
+  }
+
   @Test
   public void testSimpleScan() throws Exception {
     int max = 100;
@@ -0,0 +1,325 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.client;
+
+import io.cdap.cdap.messaging.MessagingService;
+import io.cdap.cdap.messaging.StoreRequest;
+import io.cdap.cdap.proto.id.TopicId;
+import org.apache.twill.common.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * An asynchronous publisher that batches non-transactional {@link StoreRequest} by topic and publishes them
+ * through a {@link MessagingService}. Callers are not blocked by the publish round trip; instead, each call to
+ * {@link #publish(StoreRequest)} returns a {@link CompletableFuture} that completes when the messages are published.
+ *
+ * Requests for the same topic are published in the order they are submitted, with at most one publish call
+ * per topic in flight. Requests that arrive while a publish call is in flight are merged into the next publish
+ * call, bounded by the maximum batch size and bytes. Publish calls for different topics run concurrently,
+ * bounded by the parallelism of this publisher.
+ *
+ * Publishing threads are released when idle, hence a publisher that is never closed doesn't hold on to threads.
+ */
+@ThreadSafe
+public final class BatchingMessagePublisher implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(BatchingMessagePublisher.class);
+
+  private final MessagingService messagingService;
+  private final int maxBatchSize;
+  private final long maxBatchBytes;
+  private final ThreadPoolExecutor executor;
+  private final ConcurrentMap<TopicId, TopicQueue> topicQueues;
+  private final ReadWriteLock closeLock;
+  private boolean closed;
+
+  /**
+   * Constructor.
+   *
+   * @param messagingService the {@link MessagingService} for publishing messages
+   * @param parallelism maximum number of concurrent publish calls
+   * @param maxBatchSize maximum number of messages to publish in one call
+   * @param maxBatchBytes maximum number of payload bytes to publish in one call
+   */
+  public BatchingMessagePublisher(MessagingService messagingService, int parallelism,
+                                  int maxBatchSize, long maxBatchBytes) {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+    }
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("Maximum batch size must be positive: " + maxBatchSize);
+    }
+    if (maxBatchBytes <= 0) {
+      throw new IllegalArgumentException("Maximum batch bytes must be positive: " + maxBatchBytes);
+    }
+    this.messagingService = messagingService;
+    this.maxBatchSize = maxBatchSize;
+    this.maxBatchBytes = maxBatchBytes;
+    this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+                                           new LinkedBlockingQueue<>(),
+                                           Threads.createDaemonThreadFactory("batching-message-publisher-%d"));
+    this.executor.allowCoreThreadTimeOut(true);
+    this.topicQueues = new ConcurrentHashMap<>();
+    this.closeLock = new ReentrantReadWriteLock();
+  }
+
+  /**
+   * Publishes the given {@link StoreRequest} asynchronously.
+   *
+   * @param request the non-transactional {@link StoreRequest} to publish
+   * @return a {@link CompletableFuture} that completes when all messages in the request are published,
+   *         or completes exceptionally with the failure cause if the publish failed
+   */
+  public CompletableFuture<Void> publish(StoreRequest request) {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    if (request.isTransactional()) {
+      future.completeExceptionally(
+        new IllegalArgumentException("Transactional publish is not supported by " + getClass().getSimpleName()));
+      return future;
+    }
+    PendingPublish pendingPublish = new PendingPublish(request, future);
+
+    // Enqueue under the read lock so that close() sees every request that was accepted
+    closeLock.readLock().lock();
+    try {
+      if (closed) {
+        future.completeExceptionally(new IOException("Publisher is already closed"));
+        return future;
+      }
+      TopicQueue topicQueue = topicQueues.computeIfAbsent(request.getTopicId(), TopicQueue::new);
+      topicQueue.enqueue(pendingPublish);
+      topicQueue.schedule();
+    } finally {
+      closeLock.readLock().unlock();
+    }
+    return future;
+  }
+
+  /**
+   * Closes this publisher. Requests that were submitted before this method is called are published before
+   * this method returns.
+   */
+  @Override
+  public void close() throws IOException {
+    closeLock.writeLock().lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    } finally {
+      closeLock.writeLock().unlock();
+    }
+
+    // No more request can be enqueued. Wait for all queued requests to be published before shutting down the
+    // executor, since the publishing tasks keep submitting themselves until their queues are drained.
+    try {
+      for (TopicQueue topicQueue : topicQueues.values()) {
+        topicQueue.awaitDrained();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for pending publish calls to complete", e);
+    }
+
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+        LOG.warn("Timeout when waiting for pending publish calls to complete");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for pending publish calls to complete", e);
+    }
+  }
+
+  /**
+   * A queue of {@link PendingPublish} for one topic.
+   */
+  private final class TopicQueue implements Runnable {
+
+    private final TopicId topicId;
+    private final Queue<PendingPublish> queue;
+    private final AtomicBoolean scheduled;
+    private volatile CompletableFuture<Void> lastFuture;
+
+    TopicQueue(TopicId topicId) {
+      this.topicId = topicId;
+      this.queue = new ConcurrentLinkedQueue<>();
+      this.scheduled = new AtomicBoolean();
+    }
+
+    synchronized void enqueue(PendingPublish pendingPublish) {
+      queue.add(pendingPublish);
+      lastFuture = pendingPublish.getFuture();
+    }
+
+    /**
+     * Waits until all requests in this queue are published. Requests are published and their futures completed
+     * in the queue order, hence it only needs to wait for the future of the last enqueued request.
+     */
+    void awaitDrained() throws InterruptedException {
+      CompletableFuture<Void> future = lastFuture;
+      if (future == null) {
+        return;
+      }
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        // Ignore, since the failure is reported to the caller through the future
+      }
+    }
+
+    /**
+     * Submits this queue to the executor for publishing if it is not already submitted.
+     */
+    void schedule() {
+      if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        executor.execute(this);
+      } catch (RejectedExecutionException e) {
+        // Shouldn't happen, since the executor is only shutdown after all queues are drained
+        scheduled.set(false);
+        failAll(new IOException("Publisher is already closed", e));
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        publishNextBatch();
+      } finally {
+        scheduled.set(false);
+        // Schedule again if more requests arrived during publishing
+        schedule();
+      }
+    }
+
+    /**
+     * Publishes the next batch of requests from the queue in one publish call.
+     */
+    private void publishNextBatch() {
+      List<PendingPublish> batch = new ArrayList<>();
+      StoreRequestBuilder builder = StoreRequestBuilder.of(topicId);
+      int batchSize = 0;
+      long batchBytes = 0L;
+
+      PendingPublish pendingPublish = queue.peek();
+      while (pendingPublish != null) {
+        // Always publish at least one request
+        if (!batch.isEmpty() && (batchSize + pendingPublish.getSize() > maxBatchSize
+          || batchBytes + pendingPublish.getBytes() > maxBatchBytes)) {
+          break;
+        }
+        // Only this task removes from the queue, hence the polled request must be the same as the peeked one
+        batch.add(queue.poll());
+        builder.addPayloads(pendingPublish.getRequest());
+        batchSize += pendingPublish.getSize();
+        batchBytes += pendingPublish.getBytes();
+        pendingPublish = queue.peek();
+      }
+
+      if (!batch.isEmpty()) {
+        publishBatch(builder.build(), batch);
+      }
+    }
+
+    private void publishBatch(StoreRequest request, List<PendingPublish> batch) {
+      try {
+        messagingService.publish(request);
+        for (PendingPublish pendingPublish : batch) {
+          pendingPublish.getFuture().complete(null);
+        }
+      } catch (Throwable t) {
+        for (PendingPublish pendingPublish : batch) {
+          pendingPublish.getFuture().completeExceptionally(t);
+        }
+      }
+    }
+
+    private void failAll(Throwable cause) {
+      PendingPublish pendingPublish = queue.poll();
+      while (pendingPublish != null) {
+        pendingPublish.getFuture().completeExceptionally(cause);
+        pendingPublish = queue.poll();
+      }
+    }
+  }
+
+  /**
+   * A {@link StoreRequest} pending to be published together with the future for the publish completion.
+   */
+  private static final class PendingPublish {
+
+    private final StoreRequest request;
+    private final CompletableFuture<Void> future;
+    private final int size;
+    private final long bytes;
+
+    PendingPublish(StoreRequest request, CompletableFuture<Void> future) {
+      this.request = request;
+      this.future = future;
+
+      int size = 0;
+      long bytes = 0L;
+      for (byte[] payload : request) {
+        size++;
+        bytes += payload.length;
+      }
+      this.size = size;
+      this.bytes = bytes;
+    }
+
+    StoreRequest getRequest() {
+      return request;
+    }
+
+    CompletableFuture<Void> getFuture() {
+      return future;
+    }
+
+    int getSize() {
+      return size;
+    }
+
+    long getBytes() {
+      return bytes;
+    }
+  }
+}
@@ -426,7 +426,16 @@ public final class ClientMessagingService implements MessagingService {
 
       // The cask common http library doesn't support read streaming, and we don't want to buffer all messages
       // in memory, hence we use the HttpURLConnection directly instead.
-      HttpURLConnection urlConn = remoteClient.openConnection(HttpMethod.POST, createTopicPath(topicId) + "/poll");
+      long pollTimeoutMillis = getPollTimeoutMillis();
+      String pollPath = createTopicPath(topicId) + "/poll";
+      if (pollTimeoutMillis > 0) {
+        pollPath += "?timeout=" + pollTimeoutMillis;
+      }
+      HttpURLConnection urlConn = remoteClient.openConnection(HttpMethod.POST, pollPath);
+      if (pollTimeoutMillis > 0 && urlConn.getReadTimeout() > 0) {
+        // Make sure the server can hold the request up to the poll timeout before the read times out
+        urlConn.setReadTimeout((int) Math.min(Integer.MAX_VALUE, urlConn.getReadTimeout() + pollTimeoutMillis));
+      }
       urlConn.setRequestProperty(HttpHeaders.CONTENT_TYPE, "avro/binary");
       if (compressPayload) {
         urlConn.setRequestProperty(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
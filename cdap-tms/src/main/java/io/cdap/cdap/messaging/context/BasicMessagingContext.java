@@ -32,13 +32,15 @@ import java.util.Collections;
 final class BasicMessagingContext implements TransactionAware {
 
   private final MessagingService messagingService;
+  private final long pollTimeoutMillis;
   private final String name;
   private Transaction transaction;
   private BasicMessagePublisher publisher;
   private BasicMessageFetcher fetcher;
 
-  BasicMessagingContext(MessagingService messagingService) {
+  BasicMessagingContext(MessagingService messagingService, long pollTimeoutMillis) {
     this.messagingService = messagingService;
+    this.pollTimeoutMillis = pollTimeoutMillis;
     this.name = "MessagingContext-" + Thread.currentThread().getName();
   }
 
@@ -62,7 +64,7 @@ final class BasicMessagingContext implements TransactionAware {
    */
   MessageFetcher getFetcher() {
     if (fetcher == null) {
-      fetcher = new BasicMessageFetcher(messagingService);
+      fetcher = new BasicMessageFetcher(messagingService, pollTimeoutMillis);
 
       // If there is an active transaction, notify the publisher as well
       if (transaction != null) {
@@ -34,9 +34,22 @@ public class MultiThreadMessagingContext extends MultiThreadTransactionAware<Bas
                                          implements MessagingContext {
 
   private final MessagingService messagingService;
+  private final long pollTimeoutMillis;
 
   public MultiThreadMessagingContext(final MessagingService messagingService) {
+    this(messagingService, 0L);
+  }
+
+  /**
+   * Creates an instance with the given poll timeout for non-transactional fetches.
+   *
+   * @param messagingService the {@link MessagingService} for publishing and fetching messages
+   * @param pollTimeoutMillis maximum time in milliseconds for a non-transactional fetch to wait for new messages
+   *                          if there is no message available; {@code 0} to return immediately
+   */
+  public MultiThreadMessagingContext(final MessagingService messagingService, long pollTimeoutMillis) {
     this.messagingService = messagingService;
+    this.pollTimeoutMillis = pollTimeoutMillis;
   }
 
   @Override
@@ -56,6 +69,6 @@ public class MultiThreadMessagingContext extends MultiThreadTransactionAware<Bas
 
   @Override
   protected BasicMessagingContext createTransactionAwareForCurrentThread() {
-    return new BasicMessagingContext(messagingService);
+    return new BasicMessagingContext(messagingService, pollTimeoutMillis);
   }
 }
@@ -31,14 +31,17 @@ import io.cdap.cdap.messaging.MessageFetcher;
 import io.cdap.cdap.messaging.MessagingService;
 import io.cdap.cdap.messaging.Schemas;
 import io.cdap.cdap.messaging.data.RawMessage;
+import io.cdap.cdap.messaging.service.TopicPublishNotifier;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
 import io.cdap.http.AbstractHttpHandler;
 import io.cdap.http.BodyProducer;
 import io.cdap.http.HttpResponder;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufInputStream;
-import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.DefaultHttpHeaders;
 import io.netty.handler.codec.http.FullHttpRequest;
@@ -59,16 +62,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
+import javax.ws.rs.DefaultValue;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
+import javax.ws.rs.QueryParam;
 
 /**
  * A netty http handler for handling message fetching REST API for the messaging system.
@@ -86,19 +93,28 @@ public final class FetchHandler extends AbstractHttpHandler {
   );
 
   private final MessagingService messagingService;
+  private final TopicPublishNotifier publishNotifier;
+  private final long maxPollTimeoutMillis;
   private int messageChunkSize;
 
   @Inject
-  FetchHandler(CConfiguration cConf, MessagingService messagingService) {
+  FetchHandler(CConfiguration cConf, MessagingService messagingService, TopicPublishNotifier publishNotifier) {
     this.messagingService = messagingService;
+    this.publishNotifier = publishNotifier;
+    this.maxPollTimeoutMillis = cConf.getLong(Constants.MessagingSystem.HTTP_SERVER_MAX_POLL_TIMEOUT_MS);
     this.messageChunkSize = cConf.getInt(Constants.MessagingSystem.HTTP_SERVER_CONSUME_CHUNK_SIZE);
   }
 
+  /**
+   * Fetches messages from a topic. If the {@code timeout} query parameter is positive and there is no message
+   * available, the response is held until new messages are published to the topic or the timeout elapsed.
+   */
   @POST
   @Path("poll")
   public void poll(FullHttpRequest request, HttpResponder responder,
                    @PathParam("namespace") String namespace,
-                   @PathParam("topic") String topic) throws Exception {
+                   @PathParam("topic") String topic,
+                   @QueryParam("timeout") @DefaultValue("0") long timeoutMillis) throws Exception {
 
     TopicId topicId = new NamespaceId(namespace).topic(topic);
 
@@ -106,13 +122,72 @@ public final class FetchHandler extends AbstractHttpHandler {
     if (!"avro/binary".equals(request.headers().get(HttpHeaderNames.CONTENT_TYPE))) {
       throw new BadRequestException("Only avro/binary content type is supported.");
     }
+    if (timeoutMillis < 0) {
+      throw new BadRequestException("Poll timeout must be >= 0.");
+    }
 
     // Decode the poll request
     Decoder decoder = DecoderFactory.get().directBinaryDecoder(new ByteBufInputStream(request.content()), null);
     DatumReader<GenericRecord> datumReader = new GenericDatumReader<>(Schemas.V1.ConsumeRequest.SCHEMA);
+    GenericRecord fetchRequest = datumReader.read(null, decoder);
+
+    if (timeoutMillis == 0 || maxPollTimeoutMillis <= 0) {
+      sendMessages(responder, fetchMessages(fetchRequest, topicId));
+      return;
+    }
+
+    // Register for the publish notification before fetching so that no publish in between would be missed.
+    // When notified, the messages are fetched and sent from the notifier thread.
+    TopicPublishNotifier.Waiter waiter = publishNotifier.await(
+      topicId, Math.min(timeoutMillis, maxPollTimeoutMillis), TimeUnit.MILLISECONDS,
+      () -> fetchAndSendMessages(responder, fetchRequest, topicId));
+
+    CloseableIterator<RawMessage> iterator;
+    try {
+      iterator = fetchMessages(fetchRequest, topicId);
+    } catch (Throwable t) {
+      if (waiter.cancel()) {
+        throw t;
+      }
+      // The waiter callback is going to send the response
+      return;
+    }
+
+    try {
+      if (!iterator.hasNext() || !waiter.cancel()) {
+        // Either wait for new messages, or the waiter callback already took over sending the response
+        iterator.close();
+        return;
+      }
+    } catch (Throwable t) {
+      iterator.close();
+      if (waiter.cancel()) {
+        throw t;
+      }
+      return;
+    }
+    sendMessages(responder, iterator);
+  }
 
-    // Fetch the messages
-    CloseableIterator<RawMessage> iterator = fetchMessages(datumReader.read(null, decoder), topicId);
+  /**
+   * Fetches messages and sends them with the given {@link HttpResponder}. Failures are sent as error responses.
+   */
+  private void fetchAndSendMessages(HttpResponder responder, GenericRecord fetchRequest, TopicId topicId) {
+    try {
+      sendMessages(responder, fetchMessages(fetchRequest, topicId));
+    } catch (TopicNotFoundException e) {
+      responder.sendString(HttpResponseStatus.NOT_FOUND, e.getMessage());
+    } catch (Throwable t) {
+      LOG.warn("Exception raised when fetching messages from topic {}", topicId, t);
+      responder.sendString(HttpResponseStatus.INTERNAL_SERVER_ERROR, t.getMessage() == null ? "" : t.getMessage());
+    }
+  }
+
+  /**
+   * Sends the messages provided by the given {@link CloseableIterator} with the given {@link HttpResponder}.
+   * The iterator will be closed when the response is completed.
+   */
+  private void sendMessages(HttpResponder responder, CloseableIterator<RawMessage> iterator) {
     try {
       responder.sendContent(HttpResponseStatus.OK, new MessagesBodyProducer(iterator, messageChunkSize),
                             new DefaultHttpHeaders().set(HttpHeaderNames.CONTENT_TYPE, "avro/binary"));
@@ -160,13 +235,22 @@ public final class FetchHandler extends AbstractHttpHandler {
    * A {@link BodyProducer} to encode and send back messages.
    * Instead of using GenericDatumWriter, we perform the array encoding manually so that we don't have to buffer
    * all messages in memory before sending out.
+   *
+   * Each chunk is a {@link CompositeByteBuf}. The avro structure and small byte fields are encoded into pooled
+   * buffers, while large payloads are wrapped as buffer components without copying.
    */
   private static class MessagesBodyProducer extends BodyProducer {
 
+    // Payloads smaller than this size are copied into the encoding buffer, since wrapping them as separate
+    // buffer components is more expensive than copying.
+    private static final int ZERO_COPY_THRESHOLD = 512;
+    private static final int SEGMENT_INITIAL_CAPACITY = 256;
+
     private final CloseableIterator<RawMessage> iterator;
     private final List<RawMessage> messages;
     private final int messageChunkSize;
-    private final ByteBuf chunk;
+    private final ByteBufAllocator allocator;
+    private final ChunkOutputStream chunkOutput;
     private final Encoder encoder;
     private final GenericRecord messageRecord;
     private final DatumWriter<GenericRecord> messageWriter;
@@ -177,8 +261,9 @@ public final class FetchHandler extends AbstractHttpHandler {
       this.iterator = iterator;
       this.messages = new ArrayList<>();
       this.messageChunkSize = messageChunkSize;
-      this.chunk = Unpooled.buffer(messageChunkSize);
-      this.encoder = EncoderFactory.get().directBinaryEncoder(new ByteBufOutputStream(chunk), null);
+      this.allocator = PooledByteBufAllocator.DEFAULT;
+      this.chunkOutput = new ChunkOutputStream();
+      this.encoder = EncoderFactory.get().directBinaryEncoder(chunkOutput, null);
 
       // These are for writing individual message (response is an array of messages)
       this.messageRecord = new GenericData.Record(Schemas.V1.ConsumeResponse.SCHEMA.getElementType());
@@ -186,7 +271,14 @@ public final class FetchHandler extends AbstractHttpHandler {
         @Override
         protected void writeBytes(Object datum, Encoder out) throws IOException {
           if (datum instanceof byte[]) {
-            out.writeBytes((byte[]) datum);
+            byte[] bytes = (byte[]) datum;
+            if (bytes.length < ZERO_COPY_THRESHOLD) {
+              out.writeBytes(bytes);
+            } else {
+              // Avro encodes bytes as (len + bytes). Only the length goes through the encoder.
+              out.writeLong(bytes.length);
+              chunkOutput.writeWrapped(bytes);
+            }
           } else {
             super.writeBytes(datum, out);
           }
@@ -201,50 +293,55 @@ public final class FetchHandler extends AbstractHttpHandler {
         return Unpooled.EMPTY_BUFFER;
       }
 
-      chunk.clear();
-
-      if (!arrayStarted) {
-        arrayStarted = true;
-        encoder.writeArrayStart();
-      }
+      chunkOutput.start();
+      try {
+        if (!arrayStarted) {
+          arrayStarted = true;
+          encoder.writeArrayStart();
+        }
 
-      // Try to buffer up to buffer size
-      int size = 0;
-      messages.clear();
-      while (iterator.hasNext() && size < messageChunkSize) {
-        RawMessage message = iterator.next();
-        messages.add(message);
-
-        // Avro encodes bytes as (len + bytes), hence adding 8 to cater for the length of the id and payload
-        // Straightly speaking it can be up to 9 bytes each (hence 18 bytes),
-        // but we don't expect id and payload of such size
-        size += message.getId().length + message.getPayload().length + 8;
-      }
+        // Try to buffer up to buffer size
+        int size = 0;
+        messages.clear();
+        while (iterator.hasNext() && size < messageChunkSize) {
+          RawMessage message = iterator.next();
+          messages.add(message);
+
+          // Avro encodes bytes as (len + bytes), hence adding 8 to cater for the length of the id and payload
+          // Straightly speaking it can be up to 9 bytes each (hence 18 bytes),
+          // but we don't expect id and payload of such size
+          size += message.getId().length + message.getPayload().length + 8;
+        }
 
-      encoder.setItemCount(messages.size());
-      for (RawMessage message : messages) {
-        encoder.startItem();
+        encoder.setItemCount(messages.size());
+        for (RawMessage message : messages) {
+          encoder.startItem();
 
-        // Write individual message (array element) with DatumWrite.
-        // This provides greater flexibility on schema evolution.
-        // The response will likely always be an array, but the element schema can evolve.
-        messageRecord.put("id", message.getId());
-        messageRecord.put("payload", message.getPayload());
-        messageWriter.write(messageRecord, encoder);
-      }
+          // Write individual message (array element) with DatumWrite.
+          // This provides greater flexibility on schema evolution.
+          // The response will likely always be an array, but the element schema can evolve.
+          messageRecord.put("id", message.getId());
+          messageRecord.put("payload", message.getPayload());
+          messageWriter.write(messageRecord, encoder);
+        }
+        messages.clear();
 
-      if (!iterator.hasNext()) {
-        arrayEnded = true;
-        encoder.writeArrayEnd();
+        if (!iterator.hasNext()) {
+          arrayEnded = true;
+          encoder.writeArrayEnd();
+        }
+      } catch (Throwable t) {
+        chunkOutput.discard();
+        throw t;
       }
 
-      return chunk.copy();
+      // The ownership of the returned buffer is transferred to the transport, which releases it after writing
+      return chunkOutput.finish();
     }
 
     @Override
     public void finished() throws Exception {
       iterator.close();
-      chunk.release();
     }
 
     @Override
@@ -263,5 +360,87 @@ public final class FetchHandler extends AbstractHttpHandler {
         LOG.trace("Exception raised when sending messages back to client", cause);
       }
     }
+
+    /**
+     * An {@link OutputStream} that writes to pooled {@link ByteBuf} segments, which are assembled into
+     * a {@link CompositeByteBuf} together with wrapped byte arrays.
+     */
+    private final class ChunkOutputStream extends OutputStream {
+
+      private CompositeByteBuf chunk;
+      private ByteBuf segment;
+
+      /**
+       * Starts a new chunk.
+       */
+      void start() {
+        chunk = allocator.compositeBuffer(Integer.MAX_VALUE);
+        segment = null;
+      }
+
+      /**
+       * Appends the given byte array to the current chunk without copying.
+       */
+      void writeWrapped(byte[] bytes) {
+        addSegment();
+        chunk.addComponent(true, Unpooled.wrappedBuffer(bytes));
+      }
+
+      /**
+       * Completes the current chunk and returns it.
+       */
+      ByteBuf finish() {
+        addSegment();
+        CompositeByteBuf result = chunk;
+        chunk = null;
+        return result;
+      }
+
+      /**
+       * Releases the current chunk.
+       */
+      void discard() {
+        if (segment != null) {
+          segment.release();
+          segment = null;
+        }
+        if (chunk != null) {
+          chunk.release();
+          chunk = null;
+        }
+      }
+
+      @Override
+      public void write(int b) {
+        getSegment().writeByte(b);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) {
+        getSegment().writeBytes(b, off, len);
+      }
+
+      private ByteBuf getSegment() {
+        if (segment == null) {
+          segment = allocator.buffer(SEGMENT_INITIAL_CAPACITY);
+        }
+        return segment;
+      }
+
+      /**
+       * Adds the current segment, if any, to the chunk.
+       */
+      private void addSegment() {
+        if (segment == null) {
+          return;
+        }
+        if (segment.isReadable()) {
+          chunk.addComponent(true, segment);
+        } else {
+          segment.release();
+        }
+        segment = null;
+      }
+    }
   }
 }
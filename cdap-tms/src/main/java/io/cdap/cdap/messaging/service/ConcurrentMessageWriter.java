@@ -31,15 +31,18 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 /**
  * Class to support writing to message/payload tables with high concurrency.
  *
- * It uses a non-blocking algorithm to batch writes from concurrent threads. The algorithm is the same as
- * the one used in ConcurrentStreamWriter.
+ * It uses a group commit algorithm to batch writes from concurrent threads. The algorithm is similar to
+ * the one used in ConcurrentStreamWriter, except that threads that are not writing park on their own request
+ * instead of spinning.
  *
  * The algorithm is like this:
  *
@@ -48,20 +51,29 @@ import javax.annotation.concurrent.ThreadSafe;
  * <pre>
  * 1. Constructs a PendingStoreRequest locally and enqueue it to a ConcurrentLinkedQueue.
  * 2. Use CAS to set an AtomicBoolean flag to true.
- * 3. If successfully set the flag to true, this thread becomes the writer and proceed to run step 4-7.
- * 4. Provides an Iterator of PendingStoreRequest, which consumes from the ConcurrentLinkedQueue mentioned in step 1.
- * 5. The message table store method will consume the Iterator until it is empty
- * 6. Set the state of each PendingStoreRequest that are written to COMPLETED (succeed/failure).
+ * 3. If successfully set the flag to true, this thread becomes the writer and proceed to run step 4-8.
+ *    Otherwise, park the thread until the PendingStoreRequest is completed, woken up by the writer or
+ *    a bounded wait time elapsed, then go to step 9.
+ * 4. Drains PendingStoreRequest from the ConcurrentLinkedQueue mentioned in step 1, bounded by the maximum
+ *    batch size in number of requests and payload bytes. Optionally lingers for more requests to arrive.
+ * 5. The message table store method will consume the Iterator of the drained requests until it is empty
+ * 6. Set the state of each PendingStoreRequest that are written to COMPLETED (succeed/failure), which also
+ *    unparks the threads waiting on them.
  * 7. Set the AtomicBoolean flag back to false.
- * 8. If the PendingStoreRequest enqueued by this thread is NOT COMPLETED, go back to step 2.
+ * 8. Wakes up the thread that owns the PendingStoreRequest at the head of the queue, if any, so that it can
+ *    become the next writer.
+ * 9. If the PendingStoreRequest enqueued by this thread is NOT COMPLETED, go back to step 2.
  * </pre>
  *
- * The spin lock between step 2 to step 8 is necessary as it guarantees events enqueued by all threads would eventually
- * get written and flushed.
+ * The loop between step 2 to step 9 is necessary as it guarantees events enqueued by all threads would eventually
+ * get written and flushed. The bounded wait in step 3 guarantees progress even if a wake up from step 8 is missed.
  */
 @ThreadSafe
 final class ConcurrentMessageWriter implements Closeable {
 
+  // Maximum time for a publishing thread to wait before re-checking whether it can become the writer
+  private static final long MAX_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
   private final StoreRequestWriter<?> messagesWriter;
   private final MetricsCollector metricsCollector;
   private final PendingStoreQueue pendingStoreQueue;
@@ -76,16 +88,33 @@ final class ConcurrentMessageWriter implements Closeable {
     this(messagesWriter, new NoopMetricsContext());
   }
 
+  /**
+   * Constructor with no limit on the batch size and no linger time. This constructor should only be used
+   * in unit-testing.
+   */
+  @VisibleForTesting
+  ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsCollector metricsCollector) {
+    this(messagesWriter, metricsCollector, Integer.MAX_VALUE, 0L, 0L);
+  }
+
   /**
    * Constructor.
    *
    * @param messagesWriter the {@link StoreRequestWriter} for persisting {@link StoreRequest}.
    * @param metricsCollector the {@link MetricsCollector} for collecting metrics emitted by this class.
+   * @param maxBatchSize maximum number of {@link StoreRequest} to be written in one batch
+   * @param maxBatchBytes maximum number of payload bytes to be written in one batch; {@code 0} for no limit
+   * @param lingerMillis maximum time in milliseconds to wait for more requests before writing a batch
    */
-  ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsCollector metricsCollector) {
+  ConcurrentMessageWriter(StoreRequestWriter<?> messagesWriter, MetricsCollector metricsCollector,
+                          int maxBatchSize, long maxBatchBytes, long lingerMillis) {
+    if (maxBatchSize <= 0) {
+      throw new IllegalArgumentException("Maximum batch size must be positive: " + maxBatchSize);
+    }
     this.messagesWriter = messagesWriter;
     this.metricsCollector = metricsCollector;
-    this.pendingStoreQueue = new PendingStoreQueue(metricsCollector);
+    this.pendingStoreQueue = new PendingStoreQueue(metricsCollector, maxBatchSize, maxBatchBytes,
+                                                   TimeUnit.MILLISECONDS.toNanos(lingerMillis));
     this.writerFlag = new AtomicBoolean();
     this.closed = new AtomicBoolean();
   }
@@ -113,7 +142,7 @@ final class ConcurrentMessageWriter implements Closeable {
 
     while (!pendingStoreRequest.isCompleted()) {
       if (!tryWrite()) {
-        Thread.yield();
+        pendingStoreRequest.awaitCompletion(MAX_WAIT_NANOS);
       }
     }
 
@@ -148,6 +177,8 @@ final class ConcurrentMessageWriter implements Closeable {
     } finally {
       writerFlag.set(false);
     }
+    // Hand over the writer role to the next pending request, if there is any
+    pendingStoreQueue.wakeupHead();
     return true;
   }
 
@@ -157,29 +188,36 @@ final class ConcurrentMessageWriter implements Closeable {
       return;
     }
     // Flush everything in the queue.
-    // When this thread can grab the writer flag, all pending write requests must be completed since the closed
-    // flag was already set to false.
-    while (!tryWrite()) {
-      Thread.yield();
+    // When this thread can grab the writer flag and the queue is empty, all pending write requests must be
+    // completed since the closed flag was already set to true.
+    while (!tryWrite() || !pendingStoreQueue.isEmpty()) {
+      LockSupport.parkNanos(this, MAX_WAIT_NANOS);
     }
     messagesWriter.close();
   }
 
   /**
-   * A resettable {@link Iterator} to provide {@link StoreRequest} to {@link StoreRequestWriter}.
-   * Except the {@link #enqueue(PendingStoreRequest)} method, all methods on this class can only be
-   * called while holding the writer flag.
+   * A queue of {@link PendingStoreRequest} to provide {@link StoreRequest} to {@link StoreRequestWriter} in batches.
+   * Except the {@link #enqueue(PendingStoreRequest)}, {@link #isEmpty()} and {@link #wakeupHead()} methods,
+   * all methods on this class can only be called while holding the writer flag.
    */
   private static final class PendingStoreQueue {
 
     private final MetricsCollector metricsCollector;
+    private final int maxBatchSize;
+    private final long maxBatchBytes;
+    private final long lingerNanos;
     private final Queue<PendingStoreRequest> writeQueue;
     private final List<PendingStoreRequest> inflightRequests;
 
-    private PendingStoreQueue(MetricsCollector metricsCollector) {
+    private PendingStoreQueue(MetricsCollector metricsCollector, int maxBatchSize,
+                              long maxBatchBytes, long lingerNanos) {
       this.metricsCollector = metricsCollector;
+      this.maxBatchSize = maxBatchSize;
+      this.maxBatchBytes = maxBatchBytes;
+      this.lingerNanos = lingerNanos;
       this.writeQueue = new ConcurrentLinkedQueue<>();
-      this.inflightRequests = new ArrayList<>(100);
+      this.inflightRequests = new ArrayList<>(Math.min(maxBatchSize, 100));
     }
 
     /**
@@ -190,32 +228,98 @@ final class ConcurrentMessageWriter implements Closeable {
     }
 
     /**
-     * Persists all {@link PendingStoreRequest} currently in the queue with the given writer.
+     * Returns {@code true} if there is no {@link PendingStoreRequest} in the queue.
+     */
+    boolean isEmpty() {
+      return writeQueue.isEmpty();
+    }
+
+    /**
+     * Wakes up the thread waiting on the {@link PendingStoreRequest} at the head of the queue.
+     */
+    void wakeupHead() {
+      PendingStoreRequest request = writeQueue.peek();
+      if (request != null) {
+        request.wakeup();
+      }
+    }
+
+    /**
+     * Persists a batch of {@link PendingStoreRequest} currently in the queue with the given writer.
      */
     void persist(StoreRequestWriter<?> writer) {
-      // Capture all current events.
+      // Capture a batch of current events.
       // The reason for capturing instead of using a live iterator is to avoid the possible case of infinite write
       // time. E.g. while generating the entry to write to the storage table, a new store request get enqueued.
       // The number of requests in the queue is bounded by the number of threads that call this method.
       // Since this method is expected to be called (indirectly) from a http handler thread, that is bounded by
       // the thread pool size used by the http service.
       inflightRequests.clear();
-      PendingStoreRequest request = writeQueue.poll();
-      while (request != null) {
-        inflightRequests.add(request);
-        request = writeQueue.poll();
+      long batchBytes = drain(0L);
+      if (lingerNanos > 0 && !isBatchFull(batchBytes)) {
+        LockSupport.parkNanos(this, lingerNanos);
+        batchBytes = drain(batchBytes);
+      }
+
+      if (inflightRequests.isEmpty()) {
+        return;
+      }
+
+      long now = System.nanoTime();
+      long maxWaitNanos = 0L;
+      for (PendingStoreRequest request : inflightRequests) {
+        maxWaitNanos = Math.max(maxWaitNanos, now - request.getEnqueueNanos());
       }
 
       metricsCollector.gauge("persist.queue.size", inflightRequests.size());
+      metricsCollector.gauge("persist.queue.wait.ms", TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+      metricsCollector.increment("persist.batch.count", 1L);
+      if (maxBatchBytes > 0) {
+        metricsCollector.gauge("persist.batch.bytes", batchBytes);
+      }
 
+      long startNanos = System.nanoTime();
       try {
         writer.write(inflightRequests.iterator());
+        metricsCollector.distribution("persist.latency.us",
+                                      TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
         completeAll(null);
       } catch (Throwable t) {
         completeAll(t);
       }
     }
 
+    /**
+     * Moves requests from the write queue to the inflight list until the queue is empty or the batch is full.
+     *
+     * @param batchBytes number of payload bytes already in the inflight list
+     * @return number of payload bytes in the inflight list after draining. It is always {@code 0} if there is
+     *         no limit on the batch bytes.
+     */
+    private long drain(long batchBytes) {
+      while (!isBatchFull(batchBytes)) {
+        PendingStoreRequest request = writeQueue.peek();
+        if (request == null) {
+          break;
+        }
+        if (maxBatchBytes > 0) {
+          long size = request.getPayloadSize();
+          // Always allow at least one request in a batch
+          if (!inflightRequests.isEmpty() && batchBytes + size > maxBatchBytes) {
+            break;
+          }
+          batchBytes += size;
+        }
+        // Only the writer removes from the queue, hence the polled request must be the same as the peeked one
+        inflightRequests.add(writeQueue.poll());
+      }
+      return batchBytes;
+    }
+
+    private boolean isBatchFull(long batchBytes) {
+      return inflightRequests.size() >= maxBatchSize || (maxBatchBytes > 0 && batchBytes >= maxBatchBytes);
+    }
+
     /**
      * Marks all inflight requests as collected through the {@link Iterator#next()} method as completed.
      * This method must be called while holding the writer flag.
@@ -29,7 +29,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
@@ -44,17 +46,58 @@ final class CoreMessageFetcher extends MessageFetcher {
   private final TopicMetadata topicMetadata;
   private final TableProvider<MessageTable> messageTableProvider;
   private final TableProvider<PayloadTable> payloadTableProvider;
+  private final TopicPublishNotifier publishNotifier;
 
   CoreMessageFetcher(TopicMetadata topicMetadata,
                      TableProvider<MessageTable> messageTableProvider,
-                     TableProvider<PayloadTable> payloadTableProvider) {
+                     TableProvider<PayloadTable> payloadTableProvider,
+                     @Nullable TopicPublishNotifier publishNotifier) {
     this.topicMetadata = topicMetadata;
     this.messageTableProvider = messageTableProvider;
     this.payloadTableProvider = payloadTableProvider;
+    this.publishNotifier = publishNotifier;
   }
 
   @Override
   public CloseableIterator<RawMessage> fetch() throws IOException {
+    long pollTimeoutMillis = getPollTimeoutMillis();
+    if (pollTimeoutMillis <= 0 || publishNotifier == null) {
+      return fetchMessages();
+    }
+
+    // Register for the publish notification before fetching so that no publish in between would be missed
+    CountDownLatch latch = new CountDownLatch(1);
+    TopicPublishNotifier.Waiter waiter = publishNotifier.await(topicMetadata.getTopicId(), pollTimeoutMillis,
+                                                               TimeUnit.MILLISECONDS, latch::countDown);
+    CloseableIterator<RawMessage> iterator = fetchMessages();
+    try {
+      if (iterator.hasNext()) {
+        waiter.cancel();
+        return iterator;
+      }
+    } catch (Throwable t) {
+      waiter.cancel();
+      closeQuietly(iterator);
+      throw t;
+    }
+    iterator.close();
+
+    // Wait for new messages. The latch is always released by the notifier when the poll timeout elapsed.
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      waiter.cancel();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for messages in topic "
+                                         + topicMetadata.getTopicId());
+    }
+    return fetchMessages();
+  }
+
+  /**
+   * Creates a {@link CloseableIterator} to fetch messages from the tables.
+   */
+  private CloseableIterator<RawMessage> fetchMessages() throws IOException {
     MessageTable messageTable = messageTableProvider.get();
     try {
       return new MessageCloseableIterator(messageTable);
@@ -86,6 +86,7 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   private final TimeProvider timeProvider;
   private final MetricsCollectionService metricsCollectionService;
   private final long txMaxLifeTimeInMillis;
+  private TopicPublishNotifier publishNotifier;
 
   @Inject
   protected CoreMessagingService(CConfiguration cConf, TableFactory tableFactory,
@@ -117,6 +118,15 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
                                                                          TxConstants.Manager.DEFAULT_TX_MAX_LIFETIME));
   }
 
+  /**
+   * Sets the {@link TopicPublishNotifier} to notify when messages are published. It is needed for fetching
+   * with poll timeout. The notifier is started and stopped together with this service.
+   */
+  @Inject(optional = true)
+  void setPublishNotifier(TopicPublishNotifier publishNotifier) {
+    this.publishNotifier = publishNotifier;
+  }
+
   @Override
   public void createTopic(TopicMetadata topicMetadata) throws TopicAlreadyExistsException, IOException {
     try (MetadataTable metadataTable = createMetadataTable()) {
@@ -169,7 +179,8 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
     final TopicMetadata metadata = getTopic(topicId);
     return new CoreMessageFetcher(metadata,
                                   () -> createMessageTable(metadata),
-                                  () -> createPayloadTable(metadata));
+                                  () -> createPayloadTable(metadata),
+                                  publishNotifier);
   }
 
   @Nullable
@@ -180,7 +191,11 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
       if (request.isTransactional()) {
         ensureValidTxLifetime(request.getTransactionWritePointer());
       }
-      return messageTableWriterCache.get(request.getTopicId()).persist(request, metadata);
+      RollbackDetail rollbackDetail = messageTableWriterCache.get(request.getTopicId()).persist(request, metadata);
+      if (publishNotifier != null) {
+        publishNotifier.published(request.getTopicId());
+      }
+      return rollbackDetail;
     } catch (ExecutionException e) {
       Throwable cause = Objects.firstNonNull(e.getCause(), e);
       Throwables.propagateIfPossible(cause, TopicNotFoundException.class, IOException.class);
@@ -219,6 +234,9 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
 
   @Override
   protected void startUp() throws Exception {
+    if (publishNotifier != null) {
+      publishNotifier.start();
+    }
     Queue<TopicId> asyncCreationTopics = new LinkedList<>();
 
     Set<TopicId> systemTopics = MessagingServiceUtils.getSystemTopics(cConf, true);
@@ -250,6 +268,9 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
 
   @Override
   protected void shutDown() throws Exception {
+    if (publishNotifier != null) {
+      publishNotifier.stop();
+    }
     messageTableWriterCache.invalidateAll();
     payloadTableWriterCache.invalidateAll();
     Closeables.closeQuietly(tableFactory);
@@ -335,6 +356,9 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
   private LoadingCache<TopicId, ConcurrentMessageWriter> createTableWriterCache(final boolean messageTable,
                                                                                 final CConfiguration cConf) {
     long expireSecs = cConf.getLong(Constants.MessagingSystem.TABLE_CACHE_EXPIRATION_SECONDS);
+    int maxBatchSize = cConf.getInt(Constants.MessagingSystem.WRITER_MAX_BATCH_SIZE);
+    long maxBatchBytes = cConf.getLong(Constants.MessagingSystem.WRITER_MAX_BATCH_BYTES);
+    long lingerMillis = cConf.getLong(Constants.MessagingSystem.WRITER_LINGER_MS);
 
     return CacheBuilder.newBuilder()
       .expireAfterAccess(expireSecs, TimeUnit.SECONDS)
@@ -363,10 +387,12 @@ public class CoreMessagingService extends AbstractIdleService implements Messagi
             Constants.Metrics.Tag.COMPONENT, Constants.Service.MESSAGING_SERVICE,
             Constants.Metrics.Tag.INSTANCE_ID, cConf.get(Constants.MessagingSystem.CONTAINER_INSTANCE_ID, "0"),
             Constants.Metrics.Tag.NAMESPACE, topicId.getNamespace(),
-            Constants.Metrics.Tag.TABLE, messageTable ? "message" : "payload"
+            Constants.Metrics.Tag.TABLE, messageTable ? "message" : "payload",
+            Constants.Metrics.Tag.TOPIC, topicId.getTopic()
           ));
 
-          return new ConcurrentMessageWriter(messagesWriter, metricsContext);
+          return new ConcurrentMessageWriter(messagesWriter, metricsContext,
+                                             maxBatchSize, maxBatchBytes, lingerMillis);
         }
       });
   }
@@ -20,17 +20,22 @@ import io.cdap.cdap.messaging.StoreRequest;
 import io.cdap.cdap.messaging.TopicMetadata;
 
 import java.util.Iterator;
+import java.util.concurrent.locks.LockSupport;
 import javax.annotation.Nullable;
 
 /**
  * A {@link StoreRequest} that represents a pending store request to the underlying storage table.
+ * The thread that creates an instance of this class is the one that waits for the completion of the request.
  */
 final class PendingStoreRequest extends StoreRequest {
 
   private final StoreRequest originalRequest;
   private final TopicMetadata metadata;
+  private final Thread waiter;
+  private final long enqueueNanos;
 
-  private boolean completed;
+  private volatile boolean completed;
+  private long payloadSize = -1L;
   private long startTimestamp;
   private long endTimestamp;
   private int startSequenceId;
@@ -42,6 +47,8 @@ final class PendingStoreRequest extends StoreRequest {
           originalRequest.getTransactionWritePointer());
     this.originalRequest = originalRequest;
     this.metadata = topicMetadata;
+    this.waiter = Thread.currentThread();
+    this.enqueueNanos = System.nanoTime();
   }
 
   TopicMetadata getTopicMetadata() {
@@ -65,8 +72,49 @@ final class PendingStoreRequest extends StoreRequest {
   }
 
   void completed(@Nullable Throwable failureCause) {
-    completed = true;
     this.failureCause = failureCause;
+    completed = true;
+    LockSupport.unpark(waiter);
+  }
+
+  /**
+   * Blocks the calling thread until this request is completed, the given timeout elapsed or
+   * {@link #wakeup()} is called. Spurious returns are possible, hence callers should always check
+   * {@link #isCompleted()} after this method returns.
+   */
+  void awaitCompletion(long timeoutNanos) {
+    if (!completed) {
+      LockSupport.parkNanos(this, timeoutNanos);
+    }
+  }
+
+  /**
+   * Wakes up the thread that is waiting in {@link #awaitCompletion(long)} without completing this request.
+   */
+  void wakeup() {
+    LockSupport.unpark(waiter);
+  }
+
+  /**
+   * Returns the time in nano seconds as returned by {@link System#nanoTime()} when this request was created.
+   */
+  long getEnqueueNanos() {
+    return enqueueNanos;
+  }
+
+  /**
+   * Returns the total number of payload bytes in this request. The size is computed by iterating
+   * over the payloads on the first call.
+   */
+  long getPayloadSize() {
+    if (payloadSize < 0) {
+      long size = 0L;
+      for (byte[] payload : originalRequest) {
+        size += payload.length;
+      }
+      payloadSize = size;
+    }
+    return payloadSize;
   }
 
   void setStartTimestamp(long startTimestamp) {
@@ -0,0 +1,255 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.service;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.proto.id.TopicId;
+import org.apache.twill.common.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Notifies interested parties when new messages are published to a topic. It is used by long polling fetch
+ * to wait for new messages without repeatedly scanning the message table.
+ *
+ * The threads for timing out and calling back waiters are only available between {@link #start()} and
+ * {@link #stop()}, which are called by the {@link CoreMessagingService} that publishes the messages. Callbacks
+ * registered while the notifier is not started are called right away.
+ */
+@Singleton
+@ThreadSafe
+public final class TopicPublishNotifier {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TopicPublishNotifier.class);
+
+  private final ConcurrentMap<TopicId, Set<Waiter>> waiters;
+  private final int callbackThreads;
+  private ScheduledExecutorService scheduler;
+  private ExecutorService callbackExecutor;
+
+  @Inject
+  public TopicPublishNotifier(CConfiguration cConf) {
+    this.waiters = new ConcurrentHashMap<>();
+    this.callbackThreads = cConf.getInt(Constants.MessagingSystem.POLL_NOTIFIER_CALLBACK_THREADS);
+  }
+
+  /**
+   * Starts the threads for timing out and calling back waiters. It is a no-op if this notifier is already started.
+   */
+  synchronized void start() {
+    if (scheduler != null) {
+      return;
+    }
+    scheduler = Executors.newSingleThreadScheduledExecutor(
+      Threads.createDaemonThreadFactory("topic-publish-notifier"));
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+      callbackThreads, callbackThreads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+      Threads.createDaemonThreadFactory("topic-publish-notifier-callback-%d"));
+    executor.allowCoreThreadTimeOut(true);
+    callbackExecutor = executor;
+  }
+
+  /**
+   * Stops the threads of this notifier. All pending waiters are called back before the threads are stopped,
+   * so that no one waits beyond the lifetime of this notifier. The notifier can be started again afterwards.
+   */
+  void stop() {
+    ScheduledExecutorService scheduler;
+    ExecutorService executor;
+    synchronized (this) {
+      if (this.scheduler == null) {
+        return;
+      }
+      scheduler = this.scheduler;
+      executor = callbackExecutor;
+      this.scheduler = null;
+      this.callbackExecutor = null;
+    }
+    scheduler.shutdownNow();
+
+    // Complete all the waiters and let the callbacks that are already submitted finish
+    for (Set<Waiter> topicWaiters : waiters.values()) {
+      for (Waiter waiter : topicWaiters) {
+        if (waiter.tryComplete()) {
+          waiter.run();
+        }
+      }
+    }
+    executor.shutdown();
+    try {
+      if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+        LOG.warn("Timeout when waiting for topic publish notifier callbacks to complete");
+        executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Registers a callback to be called when new messages are published to the given topic or when the given
+   * timeout elapsed, whichever comes first. The callback is called at most once, from a thread owned by
+   * this notifier, hence it can perform blocking operations. It won't be called if the returned {@link Waiter}
+   * is cancelled before that. If this notifier is not started, the callback is called right away
+   * from the calling thread.
+   *
+   * @param topicId the topic to watch for
+   * @param timeout the maximum time to wait
+   * @param unit the unit of the timeout
+   * @param callback the callback to call
+   * @return a {@link Waiter} for cancelling the callback
+   */
+  public Waiter await(TopicId topicId, long timeout, TimeUnit unit, Runnable callback) {
+    Waiter waiter = new Waiter(topicId, callback);
+    synchronized (this) {
+      if (scheduler != null) {
+        waiters.computeIfAbsent(topicId, k -> ConcurrentHashMap.newKeySet()).add(waiter);
+        waiter.setTimeoutFuture(scheduler.schedule(waiter::timeout, timeout, unit));
+        return waiter;
+      }
+    }
+    waiter.completed.set(true);
+    waiter.run();
+    return waiter;
+  }
+
+  /**
+   * Notifies all waiters of the given topic that new messages were published.
+   *
+   * @param topicId the topic that messages were published to
+   */
+  public void published(TopicId topicId) {
+    Set<Waiter> topicWaiters = waiters.get(topicId);
+    if (topicWaiters == null || topicWaiters.isEmpty()) {
+      return;
+    }
+    for (Waiter waiter : topicWaiters) {
+      if (waiter.tryComplete()) {
+        execute(waiter);
+      }
+    }
+  }
+
+  /**
+   * Calls back the given completed waiter from the callback executor, or from the calling thread if the
+   * notifier is being stopped.
+   */
+  private void execute(Waiter waiter) {
+    ExecutorService executor;
+    synchronized (this) {
+      executor = callbackExecutor;
+    }
+    try {
+      if (executor != null) {
+        executor.execute(waiter::run);
+        return;
+      }
+    } catch (RejectedExecutionException e) {
+      // The executor is shutting down
+    }
+    waiter.run();
+  }
+
+  private void remove(Waiter waiter) {
+    waiters.computeIfPresent(waiter.topicId, (topicId, set) -> {
+      set.remove(waiter);
+      return set.isEmpty() ? null : set;
+    });
+  }
+
+  /**
+   * Represents a registered callback in {@link TopicPublishNotifier}.
+   */
+  public final class Waiter {
+
+    private final TopicId topicId;
+    private final Runnable callback;
+    private final AtomicBoolean completed;
+    private volatile ScheduledFuture<?> timeoutFuture;
+
+    private Waiter(TopicId topicId, Runnable callback) {
+      this.topicId = topicId;
+      this.callback = callback;
+      this.completed = new AtomicBoolean();
+    }
+
+    /**
+     * Cancels this waiter.
+     *
+     * @return {@code true} if the waiter is cancelled and the callback will not be called; {@code false} if the
+     *         callback has been or will be called
+     */
+    public boolean cancel() {
+      if (!tryComplete()) {
+        return false;
+      }
+      ScheduledFuture<?> future = timeoutFuture;
+      if (future != null) {
+        future.cancel(false);
+      }
+      return true;
+    }
+
+    private void setTimeoutFuture(ScheduledFuture<?> timeoutFuture) {
+      this.timeoutFuture = timeoutFuture;
+    }
+
+    private boolean tryComplete() {
+      if (!completed.compareAndSet(false, true)) {
+        return false;
+      }
+      remove(this);
+      return true;
+    }
+
+    private void timeout() {
+      if (tryComplete()) {
+        execute(this);
+      }
+    }
+
+    private void run() {
+      ScheduledFuture<?> future = timeoutFuture;
+      if (future != null) {
+        future.cancel(false);
+      }
+      try {
+        callback.run();
+      } catch (Throwable t) {
+        LOG.warn("Exception raised when notifying waiter for topic {}", topicId, t);
+      }
+    }
+  }
+}
@@ -75,6 +75,13 @@ public abstract class AbstractMessagingPollingService<T> extends AbstractRetryab
     return topicId;
   }
 
+  /**
+   * Returns the {@link MetricsContext} for emitting metrics of this service.
+   */
+  protected final MetricsContext getMetricsContext() {
+    return metricsContext;
+  }
+
   /**
    * Returns the {@link MessageContext} that this service used for interacting with TMS.
    */
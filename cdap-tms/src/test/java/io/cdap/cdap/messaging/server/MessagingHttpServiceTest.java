@@ -18,6 +18,7 @@ package io.cdap.cdap.messaging.server;
 
 import com.google.common.base.Strings;
 import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.Service;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -35,6 +36,7 @@ import io.cdap.cdap.messaging.MessagingService;
 import io.cdap.cdap.messaging.RollbackDetail;
 import io.cdap.cdap.messaging.StoreRequest;
 import io.cdap.cdap.messaging.TopicMetadata;
+import io.cdap.cdap.messaging.client.BatchingMessagePublisher;
 import io.cdap.cdap.messaging.client.ClientMessagingService;
 import io.cdap.cdap.messaging.client.StoreRequestBuilder;
 import io.cdap.cdap.messaging.data.MessageId;
@@ -63,6 +65,11 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -84,6 +91,7 @@ public class MessagingHttpServiceTest {
 
   private final boolean compressPayload;
   private CConfiguration cConf;
+  private MessagingService messagingService;
   private MessagingHttpService httpService;
   private MessagingService client;
 
@@ -115,6 +123,11 @@ public class MessagingHttpServiceTest {
       }
     );
 
+    // The messaging service owns the notifier for long polling
+    messagingService = injector.getInstance(MessagingService.class);
+    if (messagingService instanceof Service) {
+      ((Service) messagingService).startAndWait();
+    }
     httpService = injector.getInstance(MessagingHttpService.class);
     httpService.startAndWait();
     client = new ClientMessagingService(injector.getInstance(DiscoveryServiceClient.class), compressPayload);
@@ -123,6 +136,9 @@ public class MessagingHttpServiceTest {
   @After
   public void afterTest() {
     httpService.stopAndWait();
+    if (messagingService instanceof Service) {
+      ((Service) messagingService).stopAndWait();
+    }
   }
 
   @Test
@@ -432,6 +448,136 @@ public class MessagingHttpServiceTest {
     client.deleteTopic(topicId);
   }
 
+  @Test
+  public void testBatchingPublisher() throws Exception {
+    TopicId topicId = new NamespaceId("ns1").topic("testBatchingPublisher");
+    client.createTopic(new TopicMetadata(topicId));
+
+    // Use a small batch size to have requests split across multiple publish calls
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    try (BatchingMessagePublisher publisher = new BatchingMessagePublisher(client, 2, 7, 1024 * 1024)) {
+      for (int i = 0; i < 100; i++) {
+        futures.add(publisher.publish(StoreRequestBuilder.of(topicId)
+                                        .addPayload("m" + i).addPayload("n" + i).build()));
+      }
+      for (CompletableFuture<Void> future : futures) {
+        future.get(10, TimeUnit.SECONDS);
+      }
+
+      // Transactional publish is not supported
+      try {
+        publisher.publish(StoreRequestBuilder.of(topicId).setTransaction(1L).addPayload("tx").build()).get();
+        Assert.fail("Expected IllegalArgumentException");
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof IllegalArgumentException);
+      }
+    }
+
+    // Messages should be published in the order of submission
+    List<RawMessage> messages = new ArrayList<>();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId).setLimit(1000).fetch()) {
+      Iterators.addAll(messages, iterator);
+    }
+    Assert.assertEquals(200, messages.size());
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals("m" + i, Bytes.toString(messages.get(i * 2).getPayload()));
+      Assert.assertEquals("n" + i, Bytes.toString(messages.get(i * 2 + 1).getPayload()));
+    }
+
+    client.deleteTopic(topicId);
+  }
+
+  @Test
+  public void testBatchingPublisherClose() throws Exception {
+    TopicId topicId = new NamespaceId("ns1").topic("testBatchingPublisherClose");
+    client.createTopic(new TopicMetadata(topicId));
+
+    // Close the publisher while requests are being published concurrently
+    List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<>());
+    BatchingMessagePublisher publisher = new BatchingMessagePublisher(client, 2, 5, 1024 * 1024);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      for (int i = 0; i < 4; i++) {
+        int threadId = i;
+        executor.execute(() -> {
+          for (int j = 0; j < 50; j++) {
+            futures.add(publisher.publish(StoreRequestBuilder.of(topicId).addPayload(threadId + "-" + j).build()));
+          }
+        });
+      }
+      TimeUnit.MILLISECONDS.sleep(50);
+      publisher.close();
+    } finally {
+      executor.shutdown();
+      Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    // Requests accepted before close must be published, while requests after close must be rejected
+    int published = 0;
+    for (CompletableFuture<Void> future : futures) {
+      Assert.assertTrue(future.isDone());
+      if (!future.isCompletedExceptionally()) {
+        published++;
+        continue;
+      }
+      try {
+        future.get();
+        Assert.fail("Expected failure");
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof IOException);
+        Assert.assertNull(e.getCause().getCause());
+      }
+    }
+
+    List<RawMessage> messages = new ArrayList<>();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId).setLimit(1000).fetch()) {
+      Iterators.addAll(messages, iterator);
+    }
+    Assert.assertEquals(published, messages.size());
+    client.deleteTopic(topicId);
+  }
+
+  @Test
+  public void testLongPoll() throws Exception {
+    TopicId topicId = new NamespaceId("ns1").topic("testLongPoll");
+    client.createTopic(new TopicMetadata(topicId));
+
+    // Poll on empty topic should return empty after the timeout
+    long startTime = System.currentTimeMillis();
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId)
+      .setPollTimeout(300, TimeUnit.MILLISECONDS).fetch()) {
+      Assert.assertFalse(iterator.hasNext());
+    }
+    Assert.assertTrue(System.currentTimeMillis() - startTime >= 300);
+
+    // Poll with a long timeout and publish a message while waiting. The poll should return with the message.
+    CompletableFuture<List<RawMessage>> result = CompletableFuture.supplyAsync(() -> {
+      List<RawMessage> messages = new ArrayList<>();
+      try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId)
+        .setPollTimeout(20, TimeUnit.SECONDS).fetch()) {
+        Iterators.addAll(messages, iterator);
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+      return messages;
+    });
+
+    TimeUnit.MILLISECONDS.sleep(200);
+    client.publish(StoreRequestBuilder.of(topicId).addPayload("m1").build());
+
+    List<RawMessage> messages = result.get(10, TimeUnit.SECONDS);
+    Assert.assertEquals(1, messages.size());
+    Assert.assertEquals("m1", Bytes.toString(messages.get(0).getPayload()));
+
+    // Poll when there are messages should return immediately
+    try (CloseableIterator<RawMessage> iterator = client.prepareFetch(topicId)
+      .setPollTimeout(20, TimeUnit.SECONDS).fetch()) {
+      Assert.assertEquals("m1", Bytes.toString(iterator.next().getPayload()));
+    }
+
+    client.deleteTopic(topicId);
+  }
+
   @Test
   public void testChunkConsume() throws Exception {
     // This test is to verify the message fetching body producer works correctly
@@ -37,6 +37,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -268,6 +269,56 @@ public class ConcurrentMessageWriterTest {
     }
   }
 
+  @Test
+  public void testBatchLimit() throws InterruptedException {
+    int threadCount = 10;
+    final int requestPerThread = 10;
+    final int maxBatchSize = 3;
+
+    final TopicId topicId = NamespaceId.DEFAULT.topic("t");
+    final TopicMetadata metadata = new TopicMetadata(topicId, new HashMap<String, String>(), 1);
+    TestStoreRequestWriter testWriter = new TestStoreRequestWriter(new TimeProvider.IncrementalTimeProvider(), 5L);
+
+    final List<Long> batchSizes = Collections.synchronizedList(new ArrayList<>());
+    final ConcurrentMessageWriter writer = new ConcurrentMessageWriter(testWriter, new MetricsCollector() {
+      @Override
+      public void increment(String metricName, long value) {
+        // No-op
+      }
+
+      @Override
+      public void gauge(String metricName, long value) {
+        if ("persist.queue.size".equals(metricName)) {
+          batchSizes.add(value);
+        }
+      }
+    }, maxBatchSize, 0L, 0L);
+
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    for (int i = 0; i < threadCount; i++) {
+      executor.submit(() -> {
+        try {
+          for (int j = 0; j < requestPerThread; j++) {
+            writer.persist(new TestStoreRequest(topicId, Collections.singletonList(Integer.toString(j))), metadata);
+          }
+        } catch (Exception e) {
+          LOG.error("Exception raised when persisting.", e);
+        }
+      });
+    }
+    executor.shutdown();
+    Assert.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+    // All messages should be written, with no batch bigger than the max batch size
+    Assert.assertEquals(threadCount * requestPerThread, testWriter.getMessages().get(topicId).size());
+    long total = 0L;
+    for (long size : batchSizes) {
+      Assert.assertTrue(size <= maxBatchSize);
+      total += size;
+    }
+    Assert.assertEquals(threadCount * requestPerThread, total);
+  }
+
   /**
    * A {@link StoreRequestWriter} that turns all payloads to {@link RawMessage} and stores it in a List.
    */
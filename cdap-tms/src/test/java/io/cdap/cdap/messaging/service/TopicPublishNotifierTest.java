@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.messaging.service;
+
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.proto.id.NamespaceId;
+import io.cdap.cdap.proto.id.TopicId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit-test for {@link TopicPublishNotifier}.
+ */
+public class TopicPublishNotifierTest {
+
+  private static final TopicId TOPIC_ID = NamespaceId.DEFAULT.topic("topic");
+
+  @Test
+  public void testPublishAndTimeout() throws InterruptedException {
+    TopicPublishNotifier notifier = createNotifier();
+    notifier.start();
+    try {
+      // A publish to the topic calls back the waiter
+      CountDownLatch published = new CountDownLatch(1);
+      notifier.await(TOPIC_ID, 1, TimeUnit.HOURS, published::countDown);
+      notifier.published(NamespaceId.DEFAULT.topic("other"));
+      Assert.assertFalse(published.await(200, TimeUnit.MILLISECONDS));
+      notifier.published(TOPIC_ID);
+      Assert.assertTrue(published.await(5, TimeUnit.SECONDS));
+
+      // Without publish, the waiter is called back after the timeout
+      CountDownLatch timeout = new CountDownLatch(1);
+      notifier.await(TOPIC_ID, 100, TimeUnit.MILLISECONDS, timeout::countDown);
+      Assert.assertTrue(timeout.await(5, TimeUnit.SECONDS));
+
+      // A cancelled waiter is not called back
+      CountDownLatch cancelled = new CountDownLatch(1);
+      Assert.assertTrue(notifier.await(TOPIC_ID, 100, TimeUnit.MILLISECONDS, cancelled::countDown).cancel());
+      notifier.published(TOPIC_ID);
+      Assert.assertFalse(cancelled.await(300, TimeUnit.MILLISECONDS));
+    } finally {
+      notifier.stop();
+    }
+  }
+
+  @Test
+  public void testLifecycle() throws InterruptedException {
+    TopicPublishNotifier notifier = createNotifier();
+
+    // Waiters registered before starting are called back right away
+    CountDownLatch notStarted = new CountDownLatch(1);
+    Assert.assertFalse(notifier.await(TOPIC_ID, 1, TimeUnit.HOURS, notStarted::countDown).cancel());
+    Assert.assertEquals(0L, notStarted.getCount());
+
+    // Stopping calls back all pending waiters
+    notifier.start();
+    CountDownLatch pending = new CountDownLatch(2);
+    notifier.await(TOPIC_ID, 1, TimeUnit.HOURS, pending::countDown);
+    notifier.await(NamespaceId.DEFAULT.topic("other"), 1, TimeUnit.HOURS, pending::countDown);
+    notifier.stop();
+    Assert.assertEquals(0L, pending.getCount());
+
+    // The notifier can be started again
+    notifier.start();
+    try {
+      CountDownLatch restarted = new CountDownLatch(1);
+      notifier.await(TOPIC_ID, 1, TimeUnit.HOURS, restarted::countDown);
+      notifier.published(TOPIC_ID);
+      Assert.assertTrue(restarted.await(5, TimeUnit.SECONDS));
+    } finally {
+      notifier.stop();
+    }
+  }
+
+  private TopicPublishNotifier createNotifier() {
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setInt(Constants.MessagingSystem.POLL_NOTIFIER_CALLBACK_THREADS, 2);
+    return new TopicPublishNotifier(cConf);
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.api.metrics;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of metric values with a fixed set of exponential buckets. Each power of two range is divided into
+ * {@link #SUB_BUCKETS} buckets of equal width, hence the relative error of percentiles computed from a distribution
+ * is bounded by the bucket width. Since the buckets are fixed, distributions can be merged by adding up the counts
+ * of the same buckets.
+ *
+ * A distribution only carries buckets that have non-zero counts.
+ */
+public final class Distribution {
+
+  /**
+   * Number of buckets each power of two range is divided into.
+   */
+  public static final int SUB_BUCKETS = 4;
+
+  /**
+   * Total number of buckets. Bucket {@code 0} is for values that are less than or equal to zero.
+   */
+  public static final int NUM_BUCKETS = 1 + 63 * SUB_BUCKETS;
+
+  private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+  // bucket indexes in ascending order
+  private final int[] buckets;
+  // counts of the corresponding buckets
+  private final long[] counts;
+
+  /**
+   * Creates a {@link Distribution} from the given bucket counts.
+   *
+   * @param bucketCounts array of size {@link #NUM_BUCKETS} that contains the count for each bucket
+   * @return a new {@link Distribution}
+   */
+  public static Distribution of(long[] bucketCounts) {
+    if (bucketCounts.length != NUM_BUCKETS) {
+      throw new IllegalArgumentException("Number of bucket counts must be " + NUM_BUCKETS);
+    }
+    int size = 0;
+    for (long count : bucketCounts) {
+      if (count != 0) {
+        size++;
+      }
+    }
+    int[] buckets = new int[size];
+    long[] counts = new long[size];
+    int idx = 0;
+    for (int i = 0; i < bucketCounts.length; i++) {
+      if (bucketCounts[i] != 0) {
+        buckets[idx] = i;
+        counts[idx] = bucketCounts[i];
+        idx++;
+      }
+    }
+    return new Distribution(buckets, counts);
+  }
+
+  /**
+   * Returns the bucket index for the given value.
+   */
+  public static int getBucket(long value) {
+    if (value <= 0) {
+      return 0;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    // Normalize the value such that the highest one bit is at SUB_BUCKET_BITS, then take the bits below it
+    long normalized = exponent < SUB_BUCKET_BITS ? value << (SUB_BUCKET_BITS - exponent)
+                                                 : value >>> (exponent - SUB_BUCKET_BITS);
+    return 1 + exponent * SUB_BUCKETS + (int) (normalized & (SUB_BUCKETS - 1));
+  }
+
+  /**
+   * Returns the inclusive lower bound of the values in the given bucket.
+   */
+  public static double getLowerBound(int bucket) {
+    if (bucket <= 0) {
+      return 0d;
+    }
+    int exponent = (bucket - 1) / SUB_BUCKETS;
+    int subBucket = (bucket - 1) % SUB_BUCKETS;
+    return Math.scalb((double) (SUB_BUCKETS + subBucket), exponent - SUB_BUCKET_BITS);
+  }
+
+  /**
+   * Returns the exclusive upper bound of the values in the given bucket.
+   */
+  public static double getUpperBound(int bucket) {
+    return bucket <= 0 ? 0d : getLowerBound(bucket + 1);
+  }
+
+  /**
+   * Computes the given percentile from the bucket counts. The value is linearly interpolated within the bucket
+   * that the percentile falls into.
+   *
+   * @param bucketCounts array of counts indexed by bucket
+   * @param percentile the percentile to compute, which must be in the range of {@code (0, 100]}
+   * @return the percentile value or {@code 0} if there is no value in the given counts
+   */
+  public static long getPercentile(long[] bucketCounts, double percentile) {
+    if (percentile <= 0d || percentile > 100d) {
+      throw new IllegalArgumentException("Percentile must be in the range of (0, 100]: " + percentile);
+    }
+    long total = 0L;
+    for (long count : bucketCounts) {
+      total += count;
+    }
+    if (total <= 0) {
+      return 0L;
+    }
+
+    long rank = Math.max(1L, (long) Math.ceil(percentile / 100d * total));
+    long cumulative = 0L;
+    for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+      long count = bucketCounts[bucket];
+      if (count <= 0) {
+        continue;
+      }
+      if (cumulative + count >= rank) {
+        double lower = getLowerBound(bucket);
+        double upper = getUpperBound(bucket);
+        return Math.round(lower + (upper - lower) * (rank - cumulative) / count);
+      }
+      cumulative += count;
+    }
+    // Shouldn't reach here
+    return Math.round(getUpperBound(bucketCounts.length - 1));
+  }
+
+  private Distribution(int[] buckets, long[] counts) {
+    this.buckets = buckets;
+    this.counts = counts;
+  }
+
+  /**
+   * Returns the bucket indexes that have non-zero counts, in ascending order.
+   */
+  public int[] getBuckets() {
+    return buckets;
+  }
+
+  /**
+   * Returns the counts of the buckets as returned by {@link #getBuckets()}.
+   */
+  public long[] getCounts() {
+    return counts;
+  }
+
+  /**
+   * Returns the total number of values recorded in this distribution.
+   */
+  public long getCount() {
+    long total = 0L;
+    for (long count : counts) {
+      total += count;
+    }
+    return total;
+  }
+
+  /**
+   * Returns the counts of all buckets as an array of size {@link #NUM_BUCKETS}.
+   */
+  public long[] toBucketCounts() {
+    long[] bucketCounts = new long[NUM_BUCKETS];
+    for (int i = 0; i < buckets.length; i++) {
+      bucketCounts[buckets[i]] += counts[i];
+    }
+    return bucketCounts;
+  }
+
+  @Override
+  public String toString() {
+    return "Distribution{" +
+      "buckets=" + Arrays.toString(buckets) +
+      ", counts=" + Arrays.toString(counts) +
+      '}';
+  }
+}
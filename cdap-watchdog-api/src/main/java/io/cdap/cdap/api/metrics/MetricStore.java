@@ -16,7 +16,9 @@
 
 package io.cdap.cdap.api.metrics;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -86,6 +88,21 @@ public interface MetricStore {
    */
   Collection<String> findMetricNames(MetricSearchQuery query);
 
+  /**
+   * Given a list of tags in the {@link MetricSearchQuery}, returns the buckets of a distribution metric that have
+   * counts. By default, all buckets are returned.
+   * @param query specifies where to search
+   * @param metricName name of the distribution metric
+   * @return collection of bucket indexes as defined by {@link Distribution}, in ascending order
+   */
+  default Collection<Integer> findDistributionBuckets(MetricSearchQuery query, String metricName) {
+    List<Integer> buckets = new ArrayList<>(Distribution.NUM_BUCKETS);
+    for (int bucket = 0; bucket < Distribution.NUM_BUCKETS; bucket++) {
+      buckets.add(bucket);
+    }
+    return buckets;
+  }
+
   /**
    * Get realtime metrics processor status, Returns the map of topic information to the metrics processing stats for
    * that topic
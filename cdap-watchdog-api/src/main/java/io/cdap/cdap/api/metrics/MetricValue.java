@@ -15,6 +15,8 @@
  */
 package io.cdap.cdap.api.metrics;
 
+import javax.annotation.Nullable;
+
 /**
  * Carries the "raw" emitted metric data point: metric name, type, and value
  */
@@ -23,6 +25,8 @@ public class MetricValue {
   private String name;
   private MetricType type;
   private long value;
+  // only set for the DISTRIBUTION type
+  private Distribution distribution;
 
   public MetricValue (String name, MetricType type, long value) {
     this.name = name;
@@ -30,6 +34,15 @@ public class MetricValue {
     this.value = value;
   }
 
+  /**
+   * Creates a {@link MetricValue} of {@link MetricType#DISTRIBUTION} type. The value is the number of values
+   * recorded in the given {@link Distribution}.
+   */
+  public MetricValue(String name, Distribution distribution) {
+    this(name, MetricType.DISTRIBUTION, distribution.getCount());
+    this.distribution = distribution;
+  }
+
   public String getName() {
     return name;
   }
@@ -42,12 +55,21 @@ public class MetricValue {
     return value;
   }
 
+  /**
+   * Returns the {@link Distribution} if the type is {@link MetricType#DISTRIBUTION}; otherwise return {@code null}.
+   */
+  @Nullable
+  public Distribution getDistribution() {
+    return distribution;
+  }
+
   @Override
   public String toString() {
     return "MetricValue{" +
       "name='" + name + '\'' +
       ", type=" + type +
       ", value=" + value +
+      (distribution == null ? "" : ", distribution=" + distribution) +
       '}';
   }
 }
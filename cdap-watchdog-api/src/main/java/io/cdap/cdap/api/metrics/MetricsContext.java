@@ -38,4 +38,15 @@ public interface MetricsContext extends MetricsCollector {
    * @return tags that identify the context.
    */
   Map<String, String> getTags();
+
+  /**
+   * Returns a {@link MetricsCounter} for incrementing the given metric in this context. The returned counter
+   * can be retained and used for as long as this context is used.
+   *
+   * @param metricName name of the metric
+   * @return a {@link MetricsCounter} bound to the given metric name
+   */
+  default MetricsCounter getCounter(String metricName) {
+    return value -> increment(metricName, value);
+  }
 }
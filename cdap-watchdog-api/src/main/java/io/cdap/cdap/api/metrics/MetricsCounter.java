@@ -0,0 +1,33 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.api.metrics;
+
+/**
+ * A counter metric bound to a {@link MetricsContext} and a metric name. Incrementing through a bound counter
+ * avoids resolving the metric by tags and name on every call, hence it should be preferred for metrics
+ * that are emitted very frequently, such as per record metrics.
+ */
+@FunctionalInterface
+public interface MetricsCounter {
+
+  /**
+   * Increment the metric value at the current time.
+   *
+   * @param value value to increment by
+   */
+  void increment(long value);
+}
@@ -31,6 +31,8 @@ import io.cdap.cdap.logging.clean.FileMetadataCleaner;
 import io.cdap.cdap.logging.clean.LogCleaner;
 import io.cdap.cdap.logging.meta.FileMetaDataWriter;
 import io.cdap.cdap.proto.id.NamespaceId;
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.file.CodecFactory;
 import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,6 +44,7 @@ import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  * Log Appender implementation for CDAP Log framework
@@ -59,6 +62,8 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
   private String dirPermissions;
   private String filePermissions;
   private int syncIntervalBytes;
+  private String compressionCodec;
+  private boolean tokenIndexEnabled;
   private long maxFileLifetimeMs;
   private long maxFileSizeInBytes;
   private ScheduledExecutorService scheduledExecutorService;
@@ -91,6 +96,20 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
     this.syncIntervalBytes = syncIntervalBytes;
   }
 
+  /**
+   * Sets the avro file compression codec. This is called by the logback framework.
+   */
+  public void setCompressionCodec(String compressionCodec) {
+    this.compressionCodec = compressionCodec;
+  }
+
+  /**
+   * Sets whether the tokens of the log events are indexed. This is called by the logback framework.
+   */
+  public void setTokenIndexEnabled(boolean tokenIndexEnabled) {
+    this.tokenIndexEnabled = tokenIndexEnabled;
+  }
+
   /**
    * Sets the maximum lifetime of a file. This is called by the logback framework.
    */
@@ -139,11 +158,12 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
     Preconditions.checkState(fileRetentionDurationDays > 0, "Property fileRetentionDurationDays must be > 0");
     Preconditions.checkState(logCleanupIntervalMins > 0, "Property logCleanupIntervalMins must be > 0");
     Preconditions.checkState(fileCleanupBatchSize > 0, "Property fileCleanupBatchSize must be > 0");
+    CodecFactory codecFactory = getCodecFactory(compressionCodec);
 
     if (context instanceof AppenderContext) {
       AppenderContext context = (AppenderContext) this.context;
       logFileManager = new LogFileManager(dirPermissions, filePermissions, maxFileLifetimeMs, maxFileSizeInBytes,
-                                          syncIntervalBytes,
+                                          syncIntervalBytes, codecFactory, tokenIndexEnabled,
                                           new FileMetaDataWriter(context.getTransactionRunner()),
                                           context.getLocationFactory());
       if (context.getInstanceId() == 0) {
@@ -162,6 +182,20 @@ public class CDAPLogAppender extends AppenderBase<ILoggingEvent> implements Flus
     super.start();
   }
 
+  /**
+   * Returns the {@link CodecFactory} for the given codec name. No compression is used if the name is not provided.
+   */
+  private CodecFactory getCodecFactory(@Nullable String codec) {
+    if (codec == null || codec.trim().isEmpty()) {
+      return CodecFactory.nullCodec();
+    }
+    try {
+      return CodecFactory.fromString(codec.trim());
+    } catch (AvroRuntimeException e) {
+      throw new IllegalStateException("Unsupported value for property compressionCodec: " + codec, e);
+    }
+  }
+
   @Override
   public void doAppend(ILoggingEvent eventObject) throws LogbackException {
     if (logFileManager == null) {
@@ -22,6 +22,7 @@ import com.google.common.util.concurrent.Uninterruptibles;
 import io.cdap.cdap.common.io.Locations;
 import io.cdap.cdap.common.io.Syncable;
 import io.cdap.cdap.logging.meta.FileMetaDataWriter;
+import org.apache.avro.file.CodecFactory;
 import org.apache.twill.filesystem.Location;
 import org.apache.twill.filesystem.LocationFactory;
 import org.slf4j.Logger;
@@ -49,6 +50,8 @@ final class LogFileManager implements Flushable, Syncable {
   private final String dirPermissions;
   private final String filePermissions;
   private final int syncIntervalBytes;
+  private final CodecFactory codecFactory;
+  private final boolean tokenIndexEnabled;
   private final long maxLifetimeMillis;
   private final long maxFileSizeInBytes;
   private final Map<LogPathIdentifier, LogFileOutputStream> outputStreamMap;
@@ -56,13 +59,15 @@ final class LogFileManager implements Flushable, Syncable {
   private final FileMetaDataWriter fileMetaDataWriter;
 
   LogFileManager(String dirPermissions, String filePermissions,
-                 long maxFileLifetimeMs, long maxFileSizeInBytes, int syncIntervalBytes,
-                 FileMetaDataWriter fileMetaDataWriter, LocationFactory locationFactory) {
+                 long maxFileLifetimeMs, long maxFileSizeInBytes, int syncIntervalBytes, CodecFactory codecFactory,
+                 boolean tokenIndexEnabled, FileMetaDataWriter fileMetaDataWriter, LocationFactory locationFactory) {
     this.dirPermissions = dirPermissions;
     this.filePermissions = filePermissions;
     this.maxLifetimeMillis = maxFileLifetimeMs;
     this.maxFileSizeInBytes = maxFileSizeInBytes;
     this.syncIntervalBytes = syncIntervalBytes;
+    this.codecFactory = codecFactory;
+    this.tokenIndexEnabled = tokenIndexEnabled;
     this.fileMetaDataWriter = fileMetaDataWriter;
     this.logsDirectoryLocation = locationFactory.create("logs");
     this.outputStreamMap = new HashMap<>();
@@ -92,12 +97,14 @@ final class LogFileManager implements Flushable, Syncable {
                                                  long timestamp) throws IOException {
     TimeStampLocation location = createLocation(identifier);
     LogFileOutputStream logFileOutputStream = new LogFileOutputStream(
-      location.getLocation(), filePermissions, syncIntervalBytes, location.getTimeStamp(), new Closeable() {
-      @Override
-      public void close() throws IOException {
-        outputStreamMap.remove(identifier);
-      }
-    });
+      location.getLocation(), filePermissions, syncIntervalBytes, codecFactory, tokenIndexEnabled,
+      location.getTimeStamp(),
+      new Closeable() {
+        @Override
+        public void close() throws IOException {
+          outputStreamMap.remove(identifier);
+        }
+      });
     logFileOutputStream.flush();
     LOG.info("Created Avro file at {}", location);
 
@@ -20,9 +20,12 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.google.common.io.Closeables;
 import io.cdap.cdap.common.io.ByteBuffers;
 import io.cdap.cdap.common.io.Syncable;
+import io.cdap.cdap.logging.filter.LogTokenizer;
+import io.cdap.cdap.logging.write.LogFileIndex;
 import io.cdap.cdap.logging.serialize.LoggingEvent;
 import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
 import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
 import org.apache.avro.file.DataFileWriter;
 import org.apache.avro.generic.GenericDatumWriter;
 import org.apache.avro.generic.GenericRecord;
@@ -35,9 +38,12 @@ import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
- * Represents output stream for a log file.
+ * Represents output stream for a log file. A {@link LogFileIndex} of the file, optionally including the tokens of
+ * the log events, is maintained on each flush and written next to the log file when it is closed.
  *
  * Since there is no way to check the state of the underlying file on an exception,
  * all methods of this class assume that the file state is bad on any exception and close the file.
@@ -47,18 +53,29 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
   private static final Logger LOG = LoggerFactory.getLogger(LogFileOutputStream.class);
 
   private final Location location;
+  private final String filePermissions;
   private final long createTime;
+  private final LogFileIndex index;
+  // indexable tokens of the events appended after the last sync, or null if tokens are not indexed
+  private final Set<String> blockTokens;
   private final Closeable closeable;
   private final LoggingEventSerializer serializer;
 
   private OutputStream outputStream;
   private DataFileWriter<GenericRecord> dataFileWriter;
   private long fileSize;
+  // timestamp of the first event appended after the last sync, or -1 if there is no event appended since then
+  private long firstEventTime;
 
   LogFileOutputStream(Location location, String filePermissions,
-                      int syncIntervalBytes, long createTime, Closeable closeable) throws IOException {
+                      int syncIntervalBytes, CodecFactory codecFactory, boolean tokenIndexEnabled,
+                      long createTime, Closeable closeable) throws IOException {
     this.location = location;
+    this.filePermissions = filePermissions;
     this.closeable = closeable;
+    this.index = new LogFileIndex();
+    this.blockTokens = tokenIndexEnabled ? new HashSet<>() : null;
+    this.firstEventTime = -1L;
     this.serializer = new LoggingEventSerializer();
 
     Schema schema = serializer.getAvroSchema();
@@ -66,6 +83,8 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
       this.outputStream =
         filePermissions.isEmpty() ? location.getOutputStream() : location.getOutputStream(filePermissions);
       this.dataFileWriter = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema));
+      // The codec is recorded in the file header, hence readers can decode the file transparently
+      this.dataFileWriter.setCodec(codecFactory);
       this.dataFileWriter.create(schema, outputStream);
       this.dataFileWriter.setSyncInterval(syncIntervalBytes);
       this.createTime = createTime;
@@ -82,6 +101,16 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
   }
 
   void append(ILoggingEvent event) throws IOException {
+    if (firstEventTime < 0) {
+      firstEventTime = event.getTimeStamp();
+    }
+    if (blockTokens != null) {
+      for (String token : LogTokenizer.getTokens(event)) {
+        if (LogTokenizer.isIndexable(token)) {
+          blockTokens.add(token);
+        }
+      }
+    }
     // If the event is already a LoggingEvent, we don't need to re-encode.
     if (event instanceof LoggingEvent) {
       ByteBuffer encoded = ((LoggingEvent) event).getEncoded();
@@ -114,7 +143,16 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
 
   @Override
   public void flush() throws IOException {
-    fileSize = dataFileWriter.sync();
+    long syncPosition = dataFileWriter.sync();
+    // The previous file size is the sync position where events appended since the last flush start
+    if (firstEventTime >= 0 && syncPosition > fileSize) {
+      index.add(firstEventTime, fileSize, blockTokens);
+    }
+    firstEventTime = -1L;
+    if (blockTokens != null) {
+      blockTokens.clear();
+    }
+    fileSize = syncPosition;
   }
 
   @Override
@@ -131,9 +169,29 @@ class LogFileOutputStream implements Closeable, Flushable, Syncable {
   public void close() throws IOException {
     LOG.trace("Closing file {}", location);
     try {
-      dataFileWriter.close();
+      try {
+        // Flush to have the events appended since the last flush indexed
+        flush();
+      } finally {
+        dataFileWriter.close();
+      }
+      writeIndex();
     } finally {
       closeable.close();
     }
   }
+
+  /**
+   * Writes the {@link LogFileIndex} of the closed file. Failure is not fatal since readers fallback to scanning.
+   */
+  private void writeIndex() {
+    if (index.size() == 0) {
+      return;
+    }
+    try {
+      index.write(location, filePermissions);
+    } catch (IOException e) {
+      LOG.warn("Failed to write log file index for {}. Reading of the log file will not be indexed.", location, e);
+    }
+  }
 }
@@ -121,10 +121,12 @@ public class FileMetadataCleaner {
       TransactionRunners.run(transactionRunner, context -> {
         StructuredTable table = context.getTable(StoreDefinition.LogFileMetaStore.LOG_FILE_META);
 
+        List<List<Field<?>>> keys = new ArrayList<>(toDeleteRows.size());
         for (DeletedEntry entry : toDeleteRows) {
-          table.delete(getKeyFields(entry));
-          deletedEntries.add(entry);
+          keys.add(getKeyFields(entry));
         }
+        table.multiDelete(keys);
+        deletedEntries.addAll(toDeleteRows);
         LOG.info("Deleted {} metadata entries.", deletedEntries.size());
       }, IOException.class);
     } catch (IOException e) {
@@ -20,7 +20,9 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents an And Filter where all sub expressions are and-ed together.
@@ -42,6 +44,16 @@ public class AndFilter implements Filter {
     return true;
   }
 
+  @Override
+  public Set<String> getRequiredTokens() {
+    // A matching event must contain the tokens required by any of the expressions
+    Set<String> tokens = new HashSet<>();
+    for (Filter expression : expressions) {
+      tokens.addAll(expression.getRequiredTokens());
+    }
+    return tokens;
+  }
+
   @Override
   public String toString() {
     return Objects.toStringHelper(this)
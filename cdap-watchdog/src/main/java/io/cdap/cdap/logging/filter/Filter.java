@@ -18,12 +18,23 @@ package io.cdap.cdap.logging.filter;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
 
+import java.util.Collections;
+import java.util.Set;
+
 /**
  * Represents a generic filter to filter ILoggingEvent objects.
  */
 public interface Filter {
   boolean match(ILoggingEvent event);
 
+  /**
+   * Returns the set of indexable tokens, as defined by {@link LogTokenizer}, that every event matched by this filter
+   * must contain. It is used to skip blocks of log files that cannot contain any matching event.
+   */
+  default Set<String> getRequiredTokens() {
+    return Collections.emptySet();
+  }
+
   Filter EMPTY_FILTER = new EmptyFilter();
 
   /**
@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.filter;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * Splits the text of log events into tokens for text search. A token is a maximal sequence of letters and digits,
+ * converted to lower case. The same tokenization is used for matching log events with {@link TextExpression}
+ * and for building the token index of log files.
+ */
+public final class LogTokenizer {
+
+  private static final int MIN_INDEX_TOKEN_LENGTH = 2;
+  private static final int MAX_INDEX_TOKEN_LENGTH = 64;
+
+  /**
+   * Returns all the tokens of the formatted message and the throwable (including causes) of the given event.
+   */
+  public static Set<String> getTokens(ILoggingEvent event) {
+    Set<String> tokens = new HashSet<>();
+    tokenize(event.getFormattedMessage(), tokens);
+    IThrowableProxy throwable = event.getThrowableProxy();
+    while (throwable != null) {
+      tokenize(throwable.getClassName(), tokens);
+      tokenize(throwable.getMessage(), tokens);
+      throwable = throwable.getCause();
+    }
+    return tokens;
+  }
+
+  /**
+   * Returns all the tokens in the given text.
+   */
+  public static Set<String> tokenize(@Nullable String text) {
+    Set<String> tokens = new HashSet<>();
+    tokenize(text, tokens);
+    return tokens;
+  }
+
+  /**
+   * Returns whether the given token is stored in the token index of log files. Pure numeric tokens and tokens
+   * that are too short or too long are not indexed, to keep the index small. Matching on those tokens always
+   * requires scanning the log events.
+   */
+  public static boolean isIndexable(String token) {
+    if (token.length() < MIN_INDEX_TOKEN_LENGTH || token.length() > MAX_INDEX_TOKEN_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < token.length(); i++) {
+      if (!Character.isDigit(token.charAt(i))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void tokenize(@Nullable String text, Collection<String> tokens) {
+    if (text == null) {
+      return;
+    }
+    int start = -1;
+    for (int i = 0; i < text.length(); i++) {
+      if (Character.isLetterOrDigit(text.charAt(i))) {
+        if (start < 0) {
+          start = i;
+        }
+      } else if (start >= 0) {
+        tokens.add(text.substring(start, i).toLowerCase());
+        start = -1;
+      }
+    }
+    if (start >= 0) {
+      tokens.add(text.substring(start).toLowerCase());
+    }
+  }
+
+  private LogTokenizer() {
+    // no-op
+  }
+}
@@ -20,7 +20,10 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableList;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents an Or filter where all sub expressions are or-ed together.
@@ -42,6 +45,20 @@ public class OrFilter implements Filter {
     return false;
   }
 
+  @Override
+  public Set<String> getRequiredTokens() {
+    // A matching event must contain the tokens required by all of the expressions
+    Set<String> tokens = null;
+    for (Filter expression : expressions) {
+      if (tokens == null) {
+        tokens = new HashSet<>(expression.getRequiredTokens());
+      } else {
+        tokens.retainAll(expression.getRequiredTokens());
+      }
+    }
+    return tokens == null ? Collections.emptySet() : tokens;
+  }
+
   @Override
   public String toString() {
     return Objects.toStringHelper(this)
@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.filter;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.Set;
+
+/**
+ * Represents an expression that matches log events containing all the tokens of a text, in the formatted message
+ * or the throwable of the event. Tokens are matched case insensitively as defined by {@link LogTokenizer}.
+ */
+public class TextExpression implements Filter {
+  private final String text;
+  private final Set<String> tokens;
+  private final Set<String> indexableTokens;
+
+  public TextExpression(String text) {
+    this.text = text;
+    this.tokens = ImmutableSet.copyOf(LogTokenizer.tokenize(text));
+    ImmutableSet.Builder<String> indexable = ImmutableSet.builder();
+    for (String token : tokens) {
+      if (LogTokenizer.isIndexable(token)) {
+        indexable.add(token);
+      }
+    }
+    this.indexableTokens = indexable.build();
+  }
+
+  @Override
+  public boolean match(ILoggingEvent event) {
+    return tokens.isEmpty() || LogTokenizer.getTokens(event).containsAll(tokens);
+  }
+
+  @Override
+  public Set<String> getRequiredTokens() {
+    return indexableTokens;
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+      .add("text", text)
+      .toString();
+  }
+}
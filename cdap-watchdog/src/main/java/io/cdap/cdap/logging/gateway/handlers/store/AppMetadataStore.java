@@ -16,12 +16,13 @@
 
 package io.cdap.cdap.logging.gateway.handlers.store;
 
-import com.google.gson.Gson;
 import io.cdap.cdap.common.app.RunIds;
 import io.cdap.cdap.internal.app.store.RunRecordDetail;
+import io.cdap.cdap.internal.app.store.RunRecordDetailCodec;
 import io.cdap.cdap.proto.ProgramType;
 import io.cdap.cdap.proto.id.ApplicationId;
 import io.cdap.cdap.proto.id.ProgramId;
+import io.cdap.cdap.proto.id.ProgramRunId;
 import io.cdap.cdap.spi.data.StructuredRow;
 import io.cdap.cdap.spi.data.StructuredTable;
 import io.cdap.cdap.spi.data.table.field.Field;
@@ -41,7 +42,6 @@ import javax.annotation.Nullable;
  */
 public class AppMetadataStore {
 
-  private static final Gson GSON = new Gson();
   private static final String TYPE_RUN_RECORD_ACTIVE = "runRecordActive";
   private static final String TYPE_RUN_RECORD_COMPLETED = "runRecordCompleted";
 
@@ -83,14 +83,10 @@ public class AppMetadataStore {
   }
 
   private static RunRecordDetail deserializeRunRecordMeta(StructuredRow row) {
-    RunRecordDetail existing =
-      GSON.fromJson(row.getString(StoreDefinition.AppMetadataStore.RUN_RECORD_DATA), RunRecordDetail.class);
-    RunRecordDetail newMeta =
-      RunRecordDetail.builder(existing)
-        .setProgramRunId(
-          getProgramIdFromRunRecordsPrimaryKeys(new ArrayList(row.getPrimaryKeys())).run(existing.getPid()))
-        .build();
-    return newMeta;
+    ProgramRunId programRunId = getProgramIdFromRunRecordsPrimaryKeys(new ArrayList<>(row.getPrimaryKeys()))
+      .run(row.getString(StoreDefinition.AppMetadataStore.RUN_FIELD));
+    return RunRecordDetailCodec.decode(programRunId,
+                                       row.getString(StoreDefinition.AppMetadataStore.RUN_RECORD_DATA));
   }
 
   private static ProgramId getProgramIdFromRunRecordsPrimaryKeys(List<Field<?>> primaryKeys) {
@@ -16,40 +16,76 @@
 
 package io.cdap.cdap.logging.read;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import io.cdap.cdap.api.dataset.lib.AbstractCloseableIterator;
 import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.common.conf.CConfiguration;
+import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.common.logging.LoggingContext;
 import io.cdap.cdap.logging.context.LoggingContextHelper;
 import io.cdap.cdap.logging.filter.AndFilter;
 import io.cdap.cdap.logging.filter.Filter;
 import io.cdap.cdap.logging.meta.FileMetaDataReader;
 import io.cdap.cdap.logging.write.LogLocation;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
 
 /**
- * Reads log events from a file.
+ * Reads log events from a file. When reading across multiple files, the next few files are opened
+ * and read ahead in a shared thread pool, so that the latency of opening files is not paid sequentially.
  */
+@Singleton
 public class FileLogReader implements LogReader {
   private static final Logger LOG = LoggerFactory.getLogger(FileLogReader.class);
 
   private final FileMetaDataReader fileMetadataReader;
+  private final int prefetchFiles;
+  private final ListeningExecutorService prefetchExecutor;
 
   @Inject
-  public FileLogReader(FileMetaDataReader fileMetadataReader) {
+  public FileLogReader(CConfiguration cConf, FileMetaDataReader fileMetadataReader) {
     this.fileMetadataReader = fileMetadataReader;
+    this.prefetchFiles = cConf.getInt(Constants.LogQuery.READ_PREFETCH_FILES);
+    int threads = cConf.getInt(Constants.LogQuery.READ_THREADS);
+    Preconditions.checkArgument(prefetchFiles >= 0, "Config '%s' must not be negative",
+                                Constants.LogQuery.READ_PREFETCH_FILES);
+    Preconditions.checkArgument(threads > 0, "Config '%s' must be positive", Constants.LogQuery.READ_THREADS);
+
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                                                         new LinkedBlockingQueue<Runnable>(),
+                                                         Threads.createDaemonThreadFactory("log-file-reader-%d"));
+    executor.allowCoreThreadTimeOut(true);
+    this.prefetchExecutor = MoreExecutors.listeningDecorator(executor);
   }
 
   @Override
@@ -161,6 +197,15 @@ public class FileLogReader implements LogReader {
 
       final Iterator<LogLocation> filesIter = sortedFilesInRange.iterator();
 
+      if (prefetchFiles > 0 && sortedFilesInRange.size() > 1) {
+        Iterator<Callable<CloseableIterator<LogEvent>>> openers =
+          Iterators.<LogLocation, Callable<CloseableIterator<LogEvent>>>transform(filesIter, file -> () -> {
+            LOG.trace("Reading file {}", file);
+            return file.readLog(logFilter, fromTimeMs, toTimeMs, Integer.MAX_VALUE);
+          });
+        return concat(new PrefetchIterator<>(openers, prefetchExecutor, prefetchFiles));
+      }
+
       CloseableIterator<CloseableIterator<LogEvent>> closeableIterator =
         new CloseableIterator<CloseableIterator<LogEvent>>() {
           private CloseableIterator<LogEvent> curr = null;
@@ -201,6 +246,100 @@ public class FileLogReader implements LogReader {
     }
   }
 
+  /**
+   * A {@link CloseableIterator} of iterators, in the same order as the given openers. Each opener is called in the
+   * given executor, for the iterator being returned and up to the given number of iterators after it, so that
+   * opening the next iterators overlaps with consuming the current one.
+   *
+   * @param <T> type of elements in the opened iterators
+   */
+  @VisibleForTesting
+  static final class PrefetchIterator<T> implements CloseableIterator<CloseableIterator<T>> {
+
+    private final Iterator<? extends Callable<? extends CloseableIterator<T>>> openers;
+    private final ListeningExecutorService executor;
+    private final int prefetch;
+    private final Deque<ListenableFuture<? extends CloseableIterator<T>>> pending;
+    private CloseableIterator<T> curr;
+    private volatile boolean closed;
+
+    PrefetchIterator(Iterator<? extends Callable<? extends CloseableIterator<T>>> openers,
+                     ListeningExecutorService executor, int prefetch) {
+      this.openers = openers;
+      this.executor = executor;
+      this.prefetch = prefetch;
+      this.pending = new ArrayDeque<>();
+      prefetch();
+    }
+
+    @Override
+    public boolean hasNext() {
+      return !pending.isEmpty() || openers.hasNext();
+    }
+
+    @Override
+    public CloseableIterator<T> next() {
+      if (curr != null) {
+        curr.close();
+        curr = null;
+      }
+      prefetch();
+      ListenableFuture<? extends CloseableIterator<T>> future = pending.poll();
+      if (future == null) {
+        throw new NoSuchElementException();
+      }
+      try {
+        curr = Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+        throw Throwables.propagate(e.getCause());
+      }
+      // Keep opening ahead while the current iterator is being consumed
+      prefetch();
+      return curr;
+    }
+
+    @Override
+    public void close() {
+      if (curr != null) {
+        curr.close();
+        curr = null;
+      }
+      // Close the prefetched iterators, including the ones that are still being opened.
+      // Futures are not cancelled, since the iterator opened by a running task would then never be closed.
+      closed = true;
+      ListenableFuture<? extends CloseableIterator<T>> future = pending.poll();
+      while (future != null) {
+        Futures.addCallback(future, new FutureCallback<CloseableIterator<T>>() {
+          @Override
+          public void onSuccess(@Nullable CloseableIterator<T> iterator) {
+            if (iterator != null) {
+              iterator.close();
+            }
+          }
+
+          @Override
+          public void onFailure(Throwable t) {
+            // no-op
+          }
+        });
+        future = pending.poll();
+      }
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Remove not supported");
+    }
+
+    private void prefetch() {
+      while (pending.size() <= prefetch && openers.hasNext()) {
+        Callable<? extends CloseableIterator<T>> opener = openers.next();
+        // Skip opening if this iterator got closed before the task starts
+        pending.add(executor.submit(() -> closed ? null : opener.call()));
+      }
+    }
+  }
+
   /**
    * See {@link com.google.common.collect.Iterators#concat(Iterator)}. The difference is that the input types and return
    * type are CloseableIterator, which closes the inputs that it has opened.
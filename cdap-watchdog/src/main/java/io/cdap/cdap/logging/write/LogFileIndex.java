@@ -0,0 +1,360 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.write;
+
+import io.cdap.cdap.common.io.Locations;
+import io.cdap.cdap.logging.filter.LogTokenizer;
+import org.apache.twill.filesystem.Location;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+
+/**
+ * A sparse time index of an Avro log file. Each entry maps the timestamp of the first log event written after an
+ * Avro sync point to the position of that sync point. The index is stored as a sidecar file next to the log file
+ * when the log file is closed, so that readers can seek close to a given time without scanning the file.
+ *
+ * Optionally, the index also contains an inverted token index, which maps each indexable token
+ * (see {@link LogTokenizer}) to the entries whose log events contain the token. An entry covers the log events
+ * from its sync position up to the sync position of the next entry, or to the end of the file for the last entry.
+ */
+public final class LogFileIndex {
+
+  private static final String INDEX_FILE_SUFFIX = ".idx";
+  private static final int VERSION = 2;
+  // Maximum number of token postings in one index. Token index is dropped if the limit is exceeded.
+  private static final int MAX_TOKEN_POSTINGS = 1 << 20;
+
+  private long[] timestamps;
+  private long[] positions;
+  private int size;
+  // Map from token to the entries containing it, or null if the token index is not available
+  private Map<String, Postings> tokenPostings;
+  private int totalPostings;
+
+  public LogFileIndex() {
+    this(new long[16], new long[16], 0, new HashMap<>());
+  }
+
+  private LogFileIndex(long[] timestamps, long[] positions, int size, @Nullable Map<String, Postings> tokenPostings) {
+    this.timestamps = timestamps;
+    this.positions = positions;
+    this.size = size;
+    this.tokenPostings = tokenPostings;
+  }
+
+  /**
+   * Returns the {@link Location} of the index file for the given log file location.
+   */
+  public static Location getIndexLocation(Location logLocation) throws IOException {
+    Location parent = Locations.getParent(logLocation);
+    if (parent == null) {
+      throw new IOException("Log file location " + logLocation + " has no parent");
+    }
+    return parent.append(logLocation.getName() + INDEX_FILE_SUFFIX);
+  }
+
+  /**
+   * Reads the index of the given log file.
+   *
+   * @param logLocation location of the log file
+   * @return the {@link LogFileIndex} or {@code null} if the log file has no index
+   * @throws IOException if failed to read the index file
+   */
+  @Nullable
+  public static LogFileIndex read(Location logLocation) throws IOException {
+    Location indexLocation = getIndexLocation(logLocation);
+    if (!indexLocation.exists()) {
+      return null;
+    }
+    try (InputStream is = indexLocation.getInputStream()) {
+      return read(is);
+    }
+  }
+
+  /**
+   * Reads an index from the given {@link InputStream}.
+   */
+  static LogFileIndex read(InputStream is) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(is));
+    int version = input.readInt();
+    if (version < 1 || version > VERSION) {
+      throw new IOException("Unsupported log file index version " + version);
+    }
+    int size = input.readInt();
+    long[] timestamps = new long[size];
+    long[] positions = new long[size];
+    for (int i = 0; i < size; i++) {
+      timestamps[i] = input.readLong();
+      positions[i] = input.readLong();
+    }
+
+    // Version 1 has no token index. A negative token count means the token index is not available.
+    int tokenCount = version < 2 ? -1 : input.readInt();
+    Map<String, Postings> tokenPostings = tokenCount < 0 ? null : new HashMap<>(tokenCount * 4 / 3 + 1);
+    for (int i = 0; i < tokenCount; i++) {
+      String token = input.readUTF();
+      int count = input.readInt();
+      Postings postings = new Postings(count);
+      for (int j = 0; j < count; j++) {
+        postings.add(input.readInt());
+      }
+      tokenPostings.put(token, postings);
+    }
+    return new LogFileIndex(timestamps, positions, size, tokenPostings);
+  }
+
+  /**
+   * Adds an entry to the index without tokens. Once an entry is added without tokens,
+   * the token index is no longer available.
+   *
+   * @param timestamp the timestamp of the first log event after the sync point
+   * @param position the position of the sync point
+   */
+  public void add(long timestamp, long position) {
+    add(timestamp, position, null);
+  }
+
+  /**
+   * Adds an entry to the index. Entries must be added in increasing order of sync position.
+   *
+   * @param timestamp the timestamp of the first log event after the sync point
+   * @param position the position of the sync point
+   * @param tokens the tokens of all the log events covered by the entry or {@code null} if not available
+   */
+  public void add(long timestamp, long position, @Nullable Collection<String> tokens) {
+    if (size > 0 && position <= positions[size - 1]) {
+      throw new IllegalArgumentException("Position " + position + " is not larger than the last indexed position "
+                                           + positions[size - 1]);
+    }
+    if (size == timestamps.length) {
+      timestamps = Arrays.copyOf(timestamps, size * 2);
+      positions = Arrays.copyOf(positions, size * 2);
+    }
+    timestamps[size] = timestamp;
+    positions[size] = position;
+    addTokens(size, tokens);
+    size++;
+  }
+
+  /**
+   * Returns the number of entries in this index.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the position of the sync point to start reading from in order to find all log events with timestamp
+   * greater than or equal to the given time.
+   *
+   * @param timeMs the time to look for
+   * @return the sync position or {@code -1} if reading should start from the beginning of the file
+   */
+  public long getStartPosition(long timeMs) {
+    // Find the last entry with timestamp smaller than the given time.
+    // Events in blocks before that entry have timestamps not larger than the timestamp of that entry.
+    int idx = lowerBound(timeMs) - 1;
+    // Step back one more entry to tolerate small out of order timestamps, similar to the scanning based seek.
+    idx--;
+    return idx < 0 ? -1 : positions[idx];
+  }
+
+  /**
+   * Returns the position of the sync point where all log events after it have timestamps greater than the given time.
+   *
+   * @param timeMs the time to look for
+   * @return the sync position or {@code -1} if there is no such position in the index
+   */
+  public long getEndPosition(long timeMs) {
+    if (timeMs == Long.MAX_VALUE) {
+      return -1;
+    }
+    // Find the first entry with timestamp larger than the given time, then step forward one more entry
+    // to tolerate small out of order timestamps.
+    int idx = lowerBound(timeMs + 1) + 1;
+    return idx >= size ? -1 : positions[idx];
+  }
+
+  /**
+   * Returns the sync position of the given entry.
+   */
+  public long getPosition(int entry) {
+    if (entry < 0 || entry >= size) {
+      throw new IndexOutOfBoundsException("Entry " + entry + " is out of range of index with size " + size);
+    }
+    return positions[entry];
+  }
+
+  /**
+   * Returns the entry that covers the given file position.
+   *
+   * @param position a position in the log file
+   * @return the last entry with sync position smaller than or equal to the given position,
+   *         or {@code -1} if the position is before the first entry
+   */
+  public int getEntry(long position) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (positions[mid] <= position) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low - 1;
+  }
+
+  /**
+   * Returns the entries that can contain log events with all the given tokens.
+   *
+   * @param tokens the set of tokens
+   * @return a {@link BitSet} with the candidate entries set, or {@code null} if all entries are candidates,
+   *         either because the token index is not available or there is no indexable token given
+   */
+  @Nullable
+  public BitSet getCandidateEntries(Set<String> tokens) {
+    if (tokenPostings == null) {
+      return null;
+    }
+    BitSet candidates = null;
+    for (String token : tokens) {
+      if (!LogTokenizer.isIndexable(token)) {
+        continue;
+      }
+      BitSet entries = new BitSet(size);
+      Postings postings = tokenPostings.get(token);
+      if (postings != null) {
+        for (int i = 0; i < postings.size; i++) {
+          entries.set(postings.entries[i]);
+        }
+      }
+      if (candidates == null) {
+        candidates = entries;
+      } else {
+        candidates.and(entries);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Writes this index to the index file of the given log file.
+   */
+  public void write(Location logLocation, String filePermissions) throws IOException {
+    Location indexLocation = getIndexLocation(logLocation);
+    try (OutputStream os = filePermissions.isEmpty()
+      ? indexLocation.getOutputStream() : indexLocation.getOutputStream(filePermissions)) {
+      write(os);
+    }
+  }
+
+  /**
+   * Writes this index to the given {@link OutputStream}.
+   */
+  void write(OutputStream os) throws IOException {
+    DataOutputStream output = new DataOutputStream(new BufferedOutputStream(os));
+    output.writeInt(VERSION);
+    output.writeInt(size);
+    for (int i = 0; i < size; i++) {
+      output.writeLong(timestamps[i]);
+      output.writeLong(positions[i]);
+    }
+    if (tokenPostings == null) {
+      output.writeInt(-1);
+    } else {
+      output.writeInt(tokenPostings.size());
+      for (Map.Entry<String, Postings> entry : tokenPostings.entrySet()) {
+        output.writeUTF(entry.getKey());
+        Postings postings = entry.getValue();
+        output.writeInt(postings.size);
+        for (int i = 0; i < postings.size; i++) {
+          output.writeInt(postings.entries[i]);
+        }
+      }
+    }
+    output.flush();
+  }
+
+  private void addTokens(int entry, @Nullable Collection<String> tokens) {
+    if (tokenPostings == null) {
+      return;
+    }
+    if (tokens == null || totalPostings + tokens.size() > MAX_TOKEN_POSTINGS) {
+      // Token index is no longer complete, hence drop it
+      tokenPostings = null;
+      return;
+    }
+    for (String token : tokens) {
+      if (LogTokenizer.isIndexable(token)) {
+        tokenPostings.computeIfAbsent(token, k -> new Postings(4)).add(entry);
+        totalPostings++;
+      }
+    }
+  }
+
+  /**
+   * Returns the index of the first entry that has timestamp greater than or equal to the given time,
+   * or the size of this index if there is no such entry.
+   */
+  private int lowerBound(long timeMs) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (timestamps[mid] < timeMs) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * A growable list of entries in increasing order.
+   */
+  private static final class Postings {
+    private int[] entries;
+    private int size;
+
+    Postings(int capacity) {
+      this.entries = new int[Math.max(1, capacity)];
+    }
+
+    void add(int entry) {
+      if (size == entries.length) {
+        entries = Arrays.copyOf(entries, size * 2);
+      }
+      entries[size++] = entry;
+    }
+  }
+}
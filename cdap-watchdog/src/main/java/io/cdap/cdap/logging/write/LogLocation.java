@@ -44,12 +44,15 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.Callable;
+import javax.annotation.Nullable;
 
 /**
  * LogLocation representing a log file and methods to read the file's contents.
@@ -167,10 +170,17 @@ public class LogLocation {
           skipLen = DEFAULT_SKIP_LEN;
         }
 
-        // For open file, endPosition sync marker is unknown so start from file length and read up to the actual EOF
-        dataFileReader.sync(length);
-        long finalSync = dataFileReader.previousSync();
-        List<LogEvent> logSegment = readToEndSyncPosition(dataFileReader, logFilter, fromTimeMs, -1);
+        // If the file is indexed, start from the sync position after which all events are later than fromTimeMs.
+        // Otherwise, for open file, endPosition sync marker is unknown so start from file length and
+        // read up to the actual EOF
+        LogFileIndex index = readIndex();
+        long finalSync = index == null ? -1 : index.getEndPosition(fromTimeMs);
+        List<LogEvent> logSegment = Collections.emptyList();
+        if (finalSync < 0) {
+          dataFileReader.sync(length);
+          finalSync = dataFileReader.previousSync();
+          logSegment = readToEndSyncPosition(dataFileReader, logFilter, fromTimeMs, -1);
+        }
 
         if (!logSegment.isEmpty()) {
           logSegments.addFirst(logSegment);
@@ -259,6 +269,11 @@ public class LogLocation {
     private final long maxEvents;
 
     private DataFileReader<GenericRecord> dataFileReader;
+    private LogFileIndex index;
+    // Index entries that can contain events matching the filter, or null if all events need to be scanned
+    private BitSet candidateEntries;
+    // Start position of the last block that was found in the candidate entries
+    private long candidateBlockStart = -1;
 
     private ILoggingEvent loggingEvent;
     private GenericRecord datum;
@@ -276,13 +291,24 @@ public class LogLocation {
 
       try {
         dataFileReader = createReader();
+
+        // Seek directly to the sync position close to fromTimeMs if the file is indexed
+        index = readIndex();
+        candidateEntries = index == null ? null : index.getCandidateEntries(logFilter.getRequiredTokens());
+        long startPosition = index == null ? -1 : index.getStartPosition(fromTimeMs);
+        if (startPosition > 0) {
+          LOG.trace("Seeking to indexed pos {} for time {}", startPosition, fromTimeMs);
+          dataFileReader.seek(startPosition);
+        }
+
         if (dataFileReader.hasNext()) {
           datum = dataFileReader.next();
           loggingEvent = new LoggingEvent(datum);
           loggingEvent.prepareForDeferredProcessing();
 
-          long prevPrevSyncPos = 0;
-          long prevSyncPos = 0;
+          // A negative sync position means rewinding to the indexed start position
+          long prevPrevSyncPos = startPosition > 0 ? -1 : 0;
+          long prevSyncPos = prevPrevSyncPos;
           // Seek to time fromTimeMs
           while (loggingEvent.getTimeStamp() < fromTimeMs && dataFileReader.hasNext()) {
             // Seek to the next sync point
@@ -298,7 +324,11 @@ public class LogLocation {
           }
 
           // We're now likely past the record with fromTimeMs, rewind to the previous sync point
-          dataFileReader.sync(prevPrevSyncPos);
+          if (prevPrevSyncPos < 0) {
+            dataFileReader.seek(startPosition);
+          } else {
+            dataFileReader.sync(prevPrevSyncPos);
+          }
           LOG.trace("Final sync pos {}", prevPrevSyncPos);
         }
 
@@ -315,7 +345,7 @@ public class LogLocation {
     private void computeNext() {
       try {
         // read events from file
-        while (next == null && dataFileReader.hasNext()) {
+        while (next == null && hasNextCandidate()) {
           loggingEvent = new LoggingEvent(dataFileReader.next(datum));
           loggingEvent.prepareForDeferredProcessing();
 
@@ -338,6 +368,36 @@ public class LogLocation {
       }
     }
 
+    /**
+     * Returns whether there are more events to read. Blocks that cannot contain events matching the filter
+     * according to the token index of the file are skipped.
+     */
+    private boolean hasNextCandidate() throws IOException {
+      while (dataFileReader.hasNext()) {
+        if (candidateEntries == null) {
+          return true;
+        }
+        // The previous sync is the start of the block that the next event is read from
+        long blockStart = dataFileReader.previousSync();
+        if (blockStart == candidateBlockStart) {
+          return true;
+        }
+        int entry = index.getEntry(blockStart);
+        if (entry < 0 || candidateEntries.get(entry)) {
+          candidateBlockStart = blockStart;
+          return true;
+        }
+        int nextEntry = candidateEntries.nextSetBit(entry + 1);
+        if (nextEntry < 0) {
+          return false;
+        }
+        LOG.trace("Skipping from pos {} to indexed pos {} of entry {}",
+                  blockStart, index.getPosition(nextEntry), nextEntry);
+        dataFileReader.seek(index.getPosition(nextEntry));
+      }
+      return false;
+    }
+
     @Override
     public void close() {
       try {
@@ -371,6 +431,25 @@ public class LogLocation {
     }
   }
 
+  /**
+   * Reads the {@link LogFileIndex} of this log file.
+   *
+   * @return the index or {@code null} if the file is not indexed or the index cannot be read
+   */
+  @Nullable
+  private LogFileIndex readIndex() {
+    // Only files written by the current log framework can have index
+    if (!VERSION_1.equals(frameworkVersion)) {
+      return null;
+    }
+    try {
+      return LogFileIndex.read(location);
+    } catch (IOException e) {
+      READ_FAILURE_LOG.warn("Failed to read log file index of {}. Log file will be scanned.", location, e);
+      return null;
+    }
+  }
+
   private DataFileReader<GenericRecord> createReader() throws IOException {
     boolean shouldImpersonate = this.getFrameworkVersion().equals(VERSION_0);
     return new DataFileReader<>(new LocationSeekableInput(location, namespaceId, impersonator, shouldImpersonate),
@@ -18,6 +18,8 @@ package io.cdap.cdap.metrics.collect;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
@@ -29,6 +31,7 @@ import io.cdap.cdap.api.metrics.MetricValue;
 import io.cdap.cdap.api.metrics.MetricValues;
 import io.cdap.cdap.api.metrics.MetricsCollectionService;
 import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.MetricsCounter;
 import io.cdap.cdap.common.conf.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -70,11 +73,32 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
       // and since runOneIteration() emits all the metrics for the scheduled duration (every 1 second)
       // there wont be any loss of emitter entries.
       .expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+      // Invalidates the emitters cache so that the emitters are marked as removed
+      .removalListener(new RemovalListener<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>() {
+        @Override
+        public void onRemoval(RemovalNotification<Map<String, String>,
+                                                  LoadingCache<String, AggregatedMetricsEmitter>> notification) {
+          LoadingCache<String, AggregatedMetricsEmitter> cache = notification.getValue();
+          if (cache != null) {
+            cache.invalidateAll();
+          }
+        }
+      })
       .build(new CacheLoader<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>>() {
         @Override
         public LoadingCache<String, AggregatedMetricsEmitter> load(Map<String, String> tags) throws Exception {
-          return CacheBuilder.newBuilder().expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES).
-            build(new CacheLoader<String, AggregatedMetricsEmitter>() {
+          return CacheBuilder.newBuilder().expireAfterAccess(CACHE_EXPIRE_MINUTES, TimeUnit.MINUTES)
+            // Marks the emitter as removed so that bound counters holding it will resolve a new one
+            .removalListener(new RemovalListener<String, AggregatedMetricsEmitter>() {
+              @Override
+              public void onRemoval(RemovalNotification<String, AggregatedMetricsEmitter> notification) {
+                AggregatedMetricsEmitter emitter = notification.getValue();
+                if (emitter != null) {
+                  emitter.remove();
+                }
+              }
+            })
+            .build(new CacheLoader<String, AggregatedMetricsEmitter>() {
               @Override
               public AggregatedMetricsEmitter load(String metricName) throws Exception {
                 return new AggregatedMetricsEmitter(metricName);
@@ -181,7 +205,8 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
       protected MetricValues computeNext() {
         while (iterator.hasNext()) {
           Map.Entry<Map<String, String>, LoadingCache<String, AggregatedMetricsEmitter>> entry = iterator.next();
-          Map<String, AggregatedMetricsEmitter> metricEmitters = entry.getValue().asMap();
+          LoadingCache<String, AggregatedMetricsEmitter> emitterCache = entry.getValue();
+          Map<String, AggregatedMetricsEmitter> metricEmitters = emitterCache.asMap();
           // +1 because we add extra metric about how many metric values did we emit in this context (see below)
           List<MetricValue> metricValues = Lists.newArrayListWithCapacity(metricEmitters.size() + 1);
           for (Map.Entry<String, AggregatedMetricsEmitter> emitterEntry : metricEmitters.entrySet()) {
@@ -191,12 +216,16 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
               continue;
             }
             metricValues.add(metricValue);
+            // Increments through MetricsCounter don't touch the cache, hence reset the access time for
+            // emitters that have values to make sure they won't expire while they are still in use.
+            emitterCache.getIfPresent(emitterEntry.getKey());
           }
 
           if (metricValues.isEmpty()) {
             // skip if there are no metric values to send
             continue;
           }
+          emitters.getIfPresent(entry.getKey());
 
           // number of emitted metrics
           metricValues.add(new MetricValue("metrics.emitted.count", MetricType.COUNTER, metricValues.size() + 1));
@@ -228,7 +257,7 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
 
     @Override
     public void increment(String metricName, long value) {
-      emitters.getUnchecked(tags).getUnchecked(metricName).increment(value);
+      incrementEmitter(tags, metricName, emitters.getUnchecked(tags).getUnchecked(metricName), value);
     }
 
     @Override
@@ -236,6 +265,16 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
       emitters.getUnchecked(tags).getUnchecked(metricName).gauge(value);
     }
 
+    @Override
+    public void distribution(String metricName, long value) {
+      emitters.getUnchecked(tags).getUnchecked(metricName).distribution(value);
+    }
+
+    @Override
+    public MetricsCounter getCounter(String metricName) {
+      return new BoundCounter(tags, metricName);
+    }
+
     @Override
     public MetricsContext childContext(String tagName, String tagValue) {
       ImmutableMap<String, String> allTags = ImmutableMap.<String, String>builder()
@@ -260,4 +299,46 @@ public abstract class AggregatedMetricsCollectionService extends AbstractExecuti
       return collectors.getUnchecked(allTags);
     }
   }
+
+  /**
+   * A {@link MetricsCounter} that holds on to the {@link AggregatedMetricsEmitter} of a metric such that increments
+   * don't need to go through the emitters cache.
+   */
+  private final class BoundCounter implements MetricsCounter {
+
+    private final Map<String, String> tags;
+    private final String metricName;
+    private volatile AggregatedMetricsEmitter emitter;
+
+    private BoundCounter(Map<String, String> tags, String metricName) {
+      this.tags = tags;
+      this.metricName = metricName;
+      this.emitter = emitters.getUnchecked(tags).getUnchecked(metricName);
+    }
+
+    @Override
+    public void increment(long value) {
+      AggregatedMetricsEmitter emitter = this.emitter;
+      if (!emitter.increment(value)) {
+        this.emitter = incrementEmitter(tags, metricName, emitter, value);
+      }
+    }
+  }
+
+  /**
+   * Increments the given emitter by the given value. If the emitter was expired from the cache and removed,
+   * resolves a new emitter and records the value, together with the value pending in the removed emitter, in it.
+   *
+   * @return the emitter that the value is recorded in
+   */
+  private AggregatedMetricsEmitter incrementEmitter(Map<String, String> tags, String metricName,
+                                                    AggregatedMetricsEmitter emitter, long value) {
+    long pending = value;
+    AggregatedMetricsEmitter current = emitter;
+    while (!current.increment(pending)) {
+      pending += current.takeRemovedValue();
+      current = emitters.getUnchecked(tags).getUnchecked(metricName);
+    }
+    return current;
+  }
 }
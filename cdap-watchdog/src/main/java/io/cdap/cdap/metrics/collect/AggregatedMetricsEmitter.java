@@ -15,6 +15,7 @@
  */
 package io.cdap.cdap.metrics.collect;
 
+import io.cdap.cdap.api.metrics.Distribution;
 import io.cdap.cdap.api.metrics.MetricType;
 import io.cdap.cdap.api.metrics.MetricValue;
 import org.slf4j.Logger;
@@ -22,6 +23,9 @@ import org.slf4j.LoggerFactory;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nullable;
 
 /**
  * {@link MetricsEmitter} that aggregates  values for a metric
@@ -29,12 +33,20 @@ import java.util.concurrent.atomic.AtomicLong;
  */
 final class AggregatedMetricsEmitter implements MetricsEmitter {
   private static final Logger LOG = LoggerFactory.getLogger(AggregatedMetricsEmitter.class);
+  // counter value of an emitter that is removed, which no longer accepts increments
+  private static final long REMOVED = Long.MIN_VALUE;
 
   private final String name;
-  // metric value
-  private final AtomicLong value;
+  // counter value
+  private final AtomicLong counter;
+  // counter value that was pending when this emitter was removed
+  private final AtomicLong removedValue;
+  // gauge value
+  private final AtomicLong gauge;
   // specifies if the metric type is gauge or counter
   private final AtomicBoolean gaugeUsed;
+  // bucket counts of the distribution, only created when distribution is used
+  private final AtomicReference<AtomicLongArray> distribution;
 
   AggregatedMetricsEmitter(String name) {
     if (name == null || name.isEmpty()) {
@@ -42,25 +54,120 @@ final class AggregatedMetricsEmitter implements MetricsEmitter {
     }
 
     this.name = name;
-    this.value = new AtomicLong();
+    this.counter = new AtomicLong();
+    this.removedValue = new AtomicLong();
+    this.gauge = new AtomicLong();
     this.gaugeUsed = new AtomicBoolean(false);
+    this.distribution = new AtomicReference<>();
   }
 
-  void increment(long value) {
-    this.value.addAndGet(value);
+  /**
+   * Increments the counter by the given value.
+   *
+   * @return {@code true} if the value is recorded, or {@code false} if this emitter is removed,
+   *         in which case the value must be recorded in a new emitter
+   */
+  boolean increment(long value) {
+    while (true) {
+      long current = counter.get();
+      if (current == REMOVED) {
+        return false;
+      }
+      if (counter.compareAndSet(current, current + value)) {
+        return true;
+      }
+    }
   }
 
+  void distribution(long value) {
+    AtomicLongArray bucketCounts = distribution.get();
+    if (bucketCounts == null) {
+      distribution.compareAndSet(null, new AtomicLongArray(Distribution.NUM_BUCKETS));
+      bucketCounts = distribution.get();
+    }
+    bucketCounts.incrementAndGet(Distribution.getBucket(value));
+  }
 
   @Override
   public MetricValue emit() {
-    // todo CDAP-2195 - potential race condition , reseting value and type has to be done together
-    long value = this.value.getAndSet(0);
-    MetricType type = gaugeUsed.getAndSet(false) ? MetricType.GAUGE : MetricType.COUNTER;
-    return new MetricValue(name, type, value);
+    MetricValue distributionValue = emitDistribution();
+    if (distributionValue != null) {
+      return distributionValue;
+    }
+
+    // Synchronized with gauge() so that the counter and the type are reset together.
+    // Increments don't need the lock since the counter is read and reset atomically.
+    synchronized (this) {
+      long value = getAndResetCounter();
+      if (gaugeUsed.getAndSet(false)) {
+        // increments after the gauge was set are added on top of the gauge value
+        return new MetricValue(name, MetricType.GAUGE, gauge.get() + value);
+      }
+      return new MetricValue(name, MetricType.COUNTER, value);
+    }
+  }
+
+  public synchronized void gauge(long value) {
+    // reset the counter so that earlier increments are overridden by the gauge value
+    getAndResetCounter();
+    gauge.set(value);
+    gaugeUsed.set(true);
+  }
+
+  /**
+   * Returns the counter value and resets it to zero atomically, such that no concurrent increment is lost.
+   */
+  private long getAndResetCounter() {
+    while (true) {
+      long current = counter.get();
+      if (current == REMOVED) {
+        return 0L;
+      }
+      if (counter.compareAndSet(current, 0L)) {
+        return current;
+      }
+    }
+  }
+
+  /**
+   * Returns a {@link MetricValue} of the distribution type if there are values recorded through
+   * {@link #distribution(long)} since the last emit, otherwise returns {@code null}.
+   */
+  @Nullable
+  private MetricValue emitDistribution() {
+    AtomicLongArray bucketCounts = distribution.get();
+    if (bucketCounts == null) {
+      return null;
+    }
+    long[] counts = new long[bucketCounts.length()];
+    boolean hasValue = false;
+    for (int i = 0; i < counts.length; i++) {
+      // Avoid the write if the bucket is empty, which is true for most of the buckets
+      if (bucketCounts.get(i) != 0) {
+        counts[i] = bucketCounts.getAndSet(i, 0L);
+        hasValue = hasValue || counts[i] != 0;
+      }
+    }
+    return hasValue ? new MetricValue(name, Distribution.of(counts)) : null;
+  }
+
+  /**
+   * Marks this emitter as removed. Increments after this method is called are rejected by
+   * {@link #increment(long)}. The counter value pending at the time of removal can be taken through
+   * {@link #takeRemovedValue()}.
+   */
+  void remove() {
+    long value = counter.getAndSet(REMOVED);
+    if (value != REMOVED) {
+      removedValue.addAndGet(value);
+    }
   }
 
-  public void gauge(long value) {
-    this.value.set(value);
-    this.gaugeUsed.set(true);
+  /**
+   * Returns the counter value that was pending when this emitter was removed, and resets it to zero,
+   * such that the value is only taken once.
+   */
+  long takeRemovedValue() {
+    return removedValue.getAndSet(0L);
   }
 }
@@ -18,6 +18,8 @@ package io.cdap.cdap.metrics.collect;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Uninterruptibles;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import io.cdap.cdap.api.messaging.TopicNotFoundException;
@@ -31,6 +33,8 @@ import io.cdap.cdap.common.io.Encoder;
 import io.cdap.cdap.common.service.RetryStrategies;
 import io.cdap.cdap.common.service.RetryStrategy;
 import io.cdap.cdap.messaging.MessagingService;
+import io.cdap.cdap.messaging.StoreRequest;
+import io.cdap.cdap.messaging.client.BatchingMessagePublisher;
 import io.cdap.cdap.messaging.client.StoreRequestBuilder;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
@@ -45,6 +49,8 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -56,6 +62,7 @@ public class MessagingMetricsCollectionService extends AggregatedMetricsCollecti
   private static final Joiner.MapJoiner MAP_JOINER = Joiner.on(',').withKeyValueSeparator("=");
 
   private final MessagingService messagingService;
+  private final BatchingMessagePublisher batchingPublisher;
   private final DatumWriter<MetricValues> recordWriter;
   private final ByteArrayOutputStream encoderOutputStream;
   private final Encoder encoder;
@@ -72,6 +79,9 @@ public class MessagingMetricsCollectionService extends AggregatedMetricsCollecti
 
     Preconditions.checkArgument(totalTopicNum > 0, "Constants.Metrics.MESSAGING_TOPIC_NUM must be a positive integer");
     this.messagingService = messagingService;
+    // Publish to all topics concurrently. Each topic only has one request in flight, hence no size bound is needed.
+    this.batchingPublisher = new BatchingMessagePublisher(messagingService, totalTopicNum,
+                                                          Integer.MAX_VALUE, Long.MAX_VALUE);
     this.recordWriter = recordWriter;
 
     // Parent guarantees the publish method would not get called concurrently, hence safe to reuse the same instances.
@@ -91,7 +101,8 @@ public class MessagingMetricsCollectionService extends AggregatedMetricsCollecti
     while (metrics.hasNext()) {
       encoderOutputStream.reset();
       MetricValues metricValues = metrics.next();
-      // Encode MetricValues into bytes
+      // Encode MetricValues into bytes, prefixed by the message version
+      encoderOutputStream.write(MetricsMessageFormat.CURRENT_VERSION);
       recordWriter.encode(metricValues, encoder);
       TopicPayload topicPayload = topicPayloads.get(Math.abs(metricValues.getTags().hashCode() % size));
       // Calculate the topic number with the hashcode of MetricValues' tags and store the encoded payload in the
@@ -102,9 +113,38 @@ public class MessagingMetricsCollectionService extends AggregatedMetricsCollecti
     publishMetric(topicPayloads.values());
   }
 
+  @Override
+  protected void shutDown() throws Exception {
+    try {
+      super.shutDown();
+    } finally {
+      batchingPublisher.close();
+    }
+  }
+
   private void publishMetric(Iterable<TopicPayload> topicPayloads) throws IOException {
+    // Start publishing to all topics before waiting for the results, so that the publish round trips overlap
+    Map<TopicPayload, Future<Void>> futures = new LinkedHashMap<>();
     for (TopicPayload topicPayload : topicPayloads) {
-      topicPayload.publish(messagingService);
+      if (!topicPayload.isEmpty()) {
+        futures.put(topicPayload, batchingPublisher.publish(topicPayload.toStoreRequest()));
+      }
+    }
+    // Wait for all topics even if some failed, since the payloads of the completed ones must be reset
+    IOException failure = null;
+    for (Map.Entry<TopicPayload, Future<Void>> entry : futures.entrySet()) {
+      try {
+        entry.getKey().publish(entry.getValue());
+      } catch (IOException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
     }
   }
 
@@ -137,11 +177,26 @@ public class MessagingMetricsCollectionService extends AggregatedMetricsCollecti
       payloads.add(payload);
     }
 
-    void publish(MessagingService messagingService) throws IOException {
+    boolean isEmpty() {
+      return payloads.isEmpty();
+    }
+
+    StoreRequest toStoreRequest() {
+      return StoreRequestBuilder.of(topicId).addPayloads(payloads).build();
+    }
+
+    /**
+     * Waits for the given publish of the payloads to complete, and retries the publish synchronously if it failed
+     * with a retryable failure.
+     *
+     * @param future the {@link Future} of the first publish attempt
+     */
+    void publish(Future<Void> future) throws IOException {
       if (payloads.isEmpty()) {
         return;
       }
 
+      Future<Void> pendingPublish = future;
       int failureCount = 0;
       long startTime = -1L;
       boolean done = false;
@@ -151,7 +206,13 @@ public class MessagingMetricsCollectionService extends AggregatedMetricsCollecti
           // Clear the thread interrupt flag when doing the actual publish.
           // Otherwise publish might get interrupted during shutdown, which has the thread interrupted
           interrupted = Thread.interrupted();
-          messagingService.publish(StoreRequestBuilder.of(topicId).addPayloads(payloads).build());
+          if (pendingPublish == null) {
+            messagingService.publish(toStoreRequest());
+          } else {
+            Future<Void> publishFuture = pendingPublish;
+            pendingPublish = null;
+            awaitPublish(publishFuture);
+          }
           reset();
           done = true;
         } catch (TopicNotFoundException | ServiceUnavailableException e) {
@@ -192,6 +253,16 @@ public class MessagingMetricsCollectionService extends AggregatedMetricsCollecti
       }
     }
 
+    private void awaitPublish(Future<Void> future) throws TopicNotFoundException, IOException {
+      try {
+        Uninterruptibles.getUninterruptibly(future);
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        Throwables.propagateIfPossible(cause, TopicNotFoundException.class, IOException.class);
+        throw Throwables.propagate(cause);
+      }
+    }
+
     private void reset() {
       // clear payloads and reset stats
       payloads.clear();
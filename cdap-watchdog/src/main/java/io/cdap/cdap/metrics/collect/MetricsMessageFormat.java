@@ -0,0 +1,126 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metrics.collect;
+
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.metrics.MetricValue;
+import io.cdap.cdap.api.metrics.MetricValues;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Defines the format of the {@link MetricValues} messages published to TMS.
+ *
+ * Messages don't carry the schema they are written with, hence the schema of the payload is identified by a version.
+ * Messages written before the version was introduced start with the union index of the first field of the
+ * {@link MetricValues} record, which is always zero since the metrics collection is never {@code null}. Messages of
+ * later versions start with a non-zero version byte, followed by the {@link MetricValues} encoded with the schema of
+ * that version.
+ */
+public final class MetricsMessageFormat {
+
+  /**
+   * Version of messages without a version byte, which are encoded with the schema that has no distribution.
+   */
+  public static final int VERSION_0 = 0;
+
+  /**
+   * Version of messages that are encoded with the schema that carries {@link MetricValue#getDistribution()}.
+   */
+  public static final int VERSION_1 = 1;
+
+  /**
+   * The version of messages being published.
+   */
+  public static final int CURRENT_VERSION = VERSION_1;
+
+  private static final String DISTRIBUTION_FIELD = "distribution";
+
+  private MetricsMessageFormat() {
+    // no-op
+  }
+
+  /**
+   * Returns the version of the given message payload.
+   *
+   * @throws IOException if the payload is empty or has an unsupported version
+   */
+  public static int getVersion(byte[] payload) throws IOException {
+    if (payload.length == 0) {
+      throw new IOException("Empty metrics message payload");
+    }
+    int version = payload[0];
+    if (version < VERSION_0 || version > CURRENT_VERSION) {
+      throw new IOException("Unsupported metrics message version " + version);
+    }
+    return version;
+  }
+
+  /**
+   * Returns the offset in a message payload of the given version where the encoded {@link MetricValues} starts.
+   */
+  public static int getOffset(int version) {
+    return version == VERSION_0 ? 0 : 1;
+  }
+
+  /**
+   * Returns the schema that messages of the given version are encoded with.
+   *
+   * @param schema the schema of the {@link MetricValues} class
+   * @param version the message version
+   */
+  public static Schema getSchema(Schema schema, int version) {
+    return version == VERSION_0 ? removeField(schema, MetricValue.class.getName(), DISTRIBUTION_FIELD) : schema;
+  }
+
+  /**
+   * Returns a copy of the given schema without the given field in records of the given name.
+   */
+  private static Schema removeField(Schema schema, String recordName, String fieldName) {
+    switch (schema.getType()) {
+      case RECORD:
+        if (schema.getFields() == null) {
+          // A reference to a record that is defined elsewhere in the schema
+          return schema;
+        }
+        List<Schema.Field> fields = new ArrayList<>();
+        for (Schema.Field field : schema.getFields()) {
+          if (!recordName.equals(schema.getRecordName()) || !fieldName.equals(field.getName())) {
+            fields.add(Schema.Field.of(field.getName(), removeField(field.getSchema(), recordName, fieldName)));
+          }
+        }
+        return Schema.recordOf(schema.getRecordName(), fields);
+      case ARRAY:
+        return Schema.arrayOf(removeField(schema.getComponentSchema(), recordName, fieldName));
+      case MAP:
+        Map.Entry<Schema, Schema> mapSchema = schema.getMapSchema();
+        return Schema.mapOf(removeField(mapSchema.getKey(), recordName, fieldName),
+                            removeField(mapSchema.getValue(), recordName, fieldName));
+      case UNION:
+        List<Schema> schemas = new ArrayList<>();
+        for (Schema unionSchema : schema.getUnionSchemas()) {
+          schemas.add(removeField(unionSchema, recordName, fieldName));
+        }
+        return Schema.unionOf(schemas);
+      default:
+        return schema;
+    }
+  }
+}
@@ -43,6 +43,7 @@ import io.cdap.cdap.internal.io.SchemaGenerator;
 import io.cdap.cdap.messaging.MessageFetcher;
 import io.cdap.cdap.messaging.MessagingService;
 import io.cdap.cdap.messaging.data.RawMessage;
+import io.cdap.cdap.metrics.collect.MetricsMessageFormat;
 import io.cdap.cdap.metrics.store.MetricDatasetFactory;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.proto.id.TopicId;
@@ -81,7 +82,8 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
   private final List<TopicId> metricsTopics;
   private final MessagingService messagingService;
   private final DatumReader<MetricValues> metricReader;
-  private final Schema metricSchema;
+  // schemas of the metrics messages, indexed by the message version
+  private final List<Schema> metricSchemas;
   private final MetricsWriter metricsWriter;
   private final Map<String, String> metricsContextMap;
   private final int fetcherLimit;
@@ -137,8 +139,12 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
       .collect(Collectors.toList());
     this.messagingService = messagingService;
     try {
-      this.metricSchema = schemaGenerator.generate(MetricValues.class);
+      Schema metricSchema = schemaGenerator.generate(MetricValues.class);
       this.metricReader = readerFactory.create(TypeToken.of(MetricValues.class), metricSchema);
+      this.metricSchemas = new ArrayList<>();
+      for (int version = MetricsMessageFormat.VERSION_0; version <= MetricsMessageFormat.CURRENT_VERSION; version++) {
+        metricSchemas.add(MetricsMessageFormat.getSchema(metricSchema, version));
+      }
     } catch (UnsupportedTypeException e) {
       // This should never happen
       throw Throwables.propagate(e);
@@ -376,8 +382,10 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
           while (iterator.hasNext() && isRunning()) {
             RawMessage input = iterator.next();
             try {
-              payloadInput.reset(input.getPayload());
-              MetricValues metricValues = metricReader.read(decoder, metricSchema);
+              byte[] payload = input.getPayload();
+              int version = MetricsMessageFormat.getVersion(payload);
+              payloadInput.reset(payload, MetricsMessageFormat.getOffset(version));
+              MetricValues metricValues = metricReader.read(decoder, metricSchemas.get(version));
               if (!metricsFromAllTopics.offer(metricValues)) {
                 break;
               }
@@ -467,9 +475,9 @@ public class MessagingMetricsProcessorService extends AbstractExecutionThreadSer
       super(Bytes.EMPTY_BYTE_ARRAY);
     }
 
-    void reset(byte[] buf) {
+    void reset(byte[] buf, int offset) {
       this.buf = buf;
-      this.pos = 0;
+      this.pos = offset;
       this.count = buf.length;
       this.mark = 0;
     }
@@ -31,6 +31,7 @@ import io.cdap.cdap.api.dataset.lib.cube.AggregationOption;
 import io.cdap.cdap.api.dataset.lib.cube.Interpolator;
 import io.cdap.cdap.api.dataset.lib.cube.Interpolators;
 import io.cdap.cdap.api.dataset.lib.cube.TimeValue;
+import io.cdap.cdap.api.metrics.Distribution;
 import io.cdap.cdap.api.metrics.MetricDataQuery;
 import io.cdap.cdap.api.metrics.MetricSearchQuery;
 import io.cdap.cdap.api.metrics.MetricStore;
@@ -38,7 +39,9 @@ import io.cdap.cdap.api.metrics.MetricTimeSeries;
 import io.cdap.cdap.api.metrics.TagValue;
 import io.cdap.cdap.common.conf.CConfiguration;
 import io.cdap.cdap.common.conf.Constants;
+import io.cdap.cdap.common.utils.ImmutablePair;
 import io.cdap.cdap.common.utils.TimeMathParser;
+import io.cdap.cdap.metrics.store.DefaultMetricStore;
 import io.cdap.cdap.proto.MetricQueryRequest;
 import io.cdap.cdap.proto.MetricQueryResult;
 import io.cdap.cdap.proto.MetricTagValue;
@@ -49,6 +52,8 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
@@ -72,6 +77,7 @@ public class MetricsQueryHelper {
   private static final String PARAM_MAX_INTERPOLATE_GAP = "maxInterpolateGap";
   private static final String PARAM_AGGREGATE = "aggregate";
   private static final String PARAM_AUTO_RESOLUTION = "auto";
+  private static final String PARAM_PERCENTILE = "percentile";
   private static final String ANY_TAG_VALUE = "*";
 
   private final MetricStore metricStore;
@@ -146,7 +152,7 @@ public class MetricsQueryHelper {
     Map<String, MetricQueryResult> queryFinalResponse = Maps.newHashMap();
     for (Map.Entry<String, QueryRequestFormat> query : queries.entrySet()) {
       MetricQueryRequest queryRequest = getQueryRequestFromFormat(query.getValue());
-      queryFinalResponse.put(query.getKey(), executeQuery(queryRequest));
+      queryFinalResponse.put(query.getKey(), executeQuery(queryRequest, query.getValue().getPercentiles()));
     }
     return queryFinalResponse;
   }
@@ -155,7 +161,7 @@ public class MetricsQueryHelper {
                                            Map<String, List<String>> queryTimeParams) throws Exception {
     MetricQueryRequest queryRequest = new MetricQueryRequest(parseTagValuesAsMap(tags), metrics, groupByTags);
     setTimeRangeInQueryRequest(queryRequest, queryTimeParams);
-    return executeQuery(queryRequest);
+    return executeQuery(queryRequest, parsePercentiles(queryTimeParams.get(PARAM_PERCENTILE)));
   }
 
   @VisibleForTesting
@@ -349,7 +355,23 @@ public class MetricsQueryHelper {
     return null;
   }
 
-  private MetricQueryResult executeQuery(MetricQueryRequest queryRequest) throws Exception {
+  private List<Double> parsePercentiles(@Nullable List<String> percentiles) {
+    if (percentiles == null) {
+      return Collections.emptyList();
+    }
+    List<Double> result = Lists.newArrayList();
+    for (String percentile : percentiles) {
+      try {
+        result.add(Double.parseDouble(percentile));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid percentile " + percentile, e);
+      }
+    }
+    return result;
+  }
+
+  private MetricQueryResult executeQuery(MetricQueryRequest queryRequest,
+                                         List<Double> percentiles) throws Exception {
     if (queryRequest.getMetrics().size() == 0) {
       throw new IllegalArgumentException("Missing metrics parameter in the query");
     }
@@ -362,12 +384,38 @@ public class MetricsQueryHelper {
 
     Map<String, String> tagsSliceBy = humanToTagNames(transformTagMap(queryRequest.getTags()));
 
-    MetricDataQuery query = new MetricDataQuery(timeRange.getStart(), timeRange.getEnd(),
-                                                timeRange.getResolutionInSeconds(),
-                                                timeRange.getCount(), toMetrics(queryRequest.getMetrics()),
-                                                tagsSliceBy, transformGroupByTags(queryRequest.getGroupBy()),
-                                                aggregation, timeRange.getInterpolate());
-    Collection<MetricTimeSeries> queryResult = metricStore.query(query);
+    Collection<MetricTimeSeries> queryResult;
+    if (percentiles.isEmpty()) {
+      MetricDataQuery query = new MetricDataQuery(timeRange.getStart(), timeRange.getEnd(),
+                                                  timeRange.getResolutionInSeconds(),
+                                                  timeRange.getCount(), toMetrics(queryRequest.getMetrics()),
+                                                  tagsSliceBy, transformGroupByTags(queryRequest.getGroupBy()),
+                                                  aggregation, timeRange.getInterpolate());
+      queryResult = metricStore.query(query);
+    } else {
+      for (double percentile : percentiles) {
+        if (percentile <= 0d || percentile > 100d) {
+          throw new IllegalArgumentException("Percentile must be in the range of (0, 100]: " + percentile);
+        }
+      }
+      // Query the bucket counts of the distribution metrics. Interpolation is not applied to bucket counts since
+      // it doesn't preserve the shape of the distribution.
+      Map<String, ImmutablePair<String, Integer>> buckets = toBucketMetrics(queryRequest.getMetrics(), tagsSliceBy);
+      if (buckets.isEmpty()) {
+        queryResult = Collections.emptyList();
+      } else {
+        Map<String, AggregationFunction> bucketMetrics = Maps.newHashMap();
+        for (String bucketMetric : buckets.keySet()) {
+          bucketMetrics.put(bucketMetric, AggregationFunction.SUM);
+        }
+        MetricDataQuery query = new MetricDataQuery(timeRange.getStart(), timeRange.getEnd(),
+                                                    timeRange.getResolutionInSeconds(),
+                                                    timeRange.getCount(), bucketMetrics,
+                                                    tagsSliceBy, transformGroupByTags(queryRequest.getGroupBy()),
+                                                    aggregation, null);
+        queryResult = toPercentiles(metricStore.query(query), buckets, percentiles);
+      }
+    }
 
     long endTime = timeRange.getEnd();
     if (timeRange.getResolutionInSeconds() == Integer.MAX_VALUE && endTime == 0) {
@@ -429,6 +477,68 @@ public class MetricsQueryHelper {
     return result;
   }
 
+  /**
+   * Returns a map from the measure name of each distribution bucket that has counts for the given tags to the
+   * metric name and bucket index. Only those buckets are queried, rather than every bucket of the distribution.
+   */
+  private Map<String, ImmutablePair<String, Integer>> toBucketMetrics(List<String> metrics,
+                                                                      Map<String, String> tags) {
+    List<TagValue> tagValues = Lists.newArrayList();
+    for (Map.Entry<String, String> tag : tags.entrySet()) {
+      tagValues.add(new TagValue(tag.getKey(), tag.getValue()));
+    }
+    // search the entire time range, same as searching for metric names
+    MetricSearchQuery searchQuery = new MetricSearchQuery(0, Integer.MAX_VALUE, -1, tagValues);
+
+    Map<String, ImmutablePair<String, Integer>> result = Maps.newHashMap();
+    for (String metric : metrics) {
+      for (int bucket : metricStore.findDistributionBuckets(searchQuery, metric)) {
+        result.put(DefaultMetricStore.getBucketMeasureName(metric, bucket), ImmutablePair.of(metric, bucket));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Computes percentiles from the time series of distribution bucket counts. For each distribution metric and
+   * tag values, a time series named {@code <metric>.p<percentile>} is returned for each of the given percentiles.
+   */
+  private Collection<MetricTimeSeries> toPercentiles(Collection<MetricTimeSeries> bucketSeries,
+                                                     Map<String, ImmutablePair<String, Integer>> buckets,
+                                                     List<Double> percentiles) {
+    // Merge the bucket counts of the same metric and tag values for each timestamp
+    Map<ImmutablePair<String, Map<String, String>>, SortedMap<Long, long[]>> distributions = Maps.newLinkedHashMap();
+    for (MetricTimeSeries series : bucketSeries) {
+      ImmutablePair<String, Integer> bucket = buckets.get(series.getMetricName());
+      if (bucket == null) {
+        continue;
+      }
+      SortedMap<Long, long[]> bucketCounts = distributions.computeIfAbsent(
+        ImmutablePair.of(bucket.getFirst(), series.getTagValues()), k -> new TreeMap<>());
+      for (TimeValue timeValue : series.getTimeValues()) {
+        long[] counts = bucketCounts.computeIfAbsent(timeValue.getTimestamp(),
+                                                     ts -> new long[Distribution.NUM_BUCKETS]);
+        counts[bucket.getSecond()] += timeValue.getValue();
+      }
+    }
+
+    List<MetricTimeSeries> result = Lists.newArrayList();
+    for (Map.Entry<ImmutablePair<String, Map<String, String>>, SortedMap<Long, long[]>> entry
+      : distributions.entrySet()) {
+      for (double percentile : percentiles) {
+        List<TimeValue> timeValues = Lists.newArrayList();
+        for (Map.Entry<Long, long[]> bucketCounts : entry.getValue().entrySet()) {
+          timeValues.add(new TimeValue(bucketCounts.getKey(),
+                                       Distribution.getPercentile(bucketCounts.getValue(), percentile)));
+        }
+        String name = entry.getKey().getFirst() + ".p"
+          + (percentile == Math.rint(percentile) ? Long.toString((long) percentile) : Double.toString(percentile));
+        result.add(new MetricTimeSeries(name, entry.getKey().getSecond(), timeValues));
+      }
+    }
+    return result;
+  }
+
   private MetricQueryResult decorate(Collection<MetricTimeSeries> series, long startTs, long endTs,
                                      int resolution) {
     MetricQueryResult.TimeSeries[] serieses = new MetricQueryResult.TimeSeries[series.size()];
@@ -467,6 +577,7 @@ public class MetricsQueryHelper {
     private List<String> metrics;
     private List<String> groupBy;
     private Map<String, String> timeRange;
+    private List<Double> percentiles;
 
     public Map<String, String> getTags() {
       tags = tags == null ? Collections.emptyMap() : tags;
@@ -483,6 +594,15 @@ public class MetricsQueryHelper {
       return groupBy;
     }
 
+    /**
+     * Percentiles to compute for distribution metrics. If non-empty, all metrics in the query
+     * are treated as distribution metrics and the percentiles of them are returned.
+     */
+    public List<Double> getPercentiles() {
+      percentiles = percentiles == null ? Collections.emptyList() : percentiles;
+      return percentiles;
+    }
+
     /**
      * time range has aggregate=true or {start, end, count, resolution, interpolate} parameters,
      * since start, end can be represented as 'now ('+' or '-')' and not just absolute timestamp,
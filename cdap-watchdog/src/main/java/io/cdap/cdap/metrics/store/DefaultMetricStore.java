@@ -33,6 +33,7 @@ import io.cdap.cdap.api.dataset.lib.cube.DimensionValue;
 import io.cdap.cdap.api.dataset.lib.cube.MeasureType;
 import io.cdap.cdap.api.dataset.lib.cube.Measurement;
 import io.cdap.cdap.api.dataset.lib.cube.TimeSeries;
+import io.cdap.cdap.api.metrics.Distribution;
 import io.cdap.cdap.api.metrics.MetricDataQuery;
 import io.cdap.cdap.api.metrics.MetricDeleteQuery;
 import io.cdap.cdap.api.metrics.MetricSearchQuery;
@@ -65,6 +66,8 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 
@@ -75,6 +78,9 @@ public class DefaultMetricStore implements MetricStore {
   public static final Map<String, Aggregation> AGGREGATIONS;
 
   private static final int TOTALS_RESOLUTION = Integer.MAX_VALUE;
+  // prefix of the measure names of distribution bucket counts. It is not a metric scope, hence the names
+  // never collide with the measure names of metrics, which are always prefixed with the scope.
+  private static final String BUCKET_PREFIX = "distribution.";
   private static final String BY_NAMESPACE = "namespace";
   private static final String BY_APP = "app";
   private static final String BY_MAPREDUCE = "mapreduce";
@@ -254,8 +260,20 @@ public class DefaultMetricStore implements MetricStore {
       // todo improve this logic?
       for (MetricValue metric : metricValue.getMetrics()) {
         String measureName = (scope == null ? "system." : scope + ".") + metric.getName();
-        MeasureType type = metric.getType() == MetricType.COUNTER ? MeasureType.COUNTER : MeasureType.GAUGE;
+        MeasureType type = metric.getType() == MetricType.GAUGE ? MeasureType.GAUGE : MeasureType.COUNTER;
         metrics.add(new Measurement(measureName, type, metric.getValue()));
+
+        // For distribution, the count of each bucket is stored as a separate counter, so that they can be
+        // aggregated across time and dimensions the same way as other counters
+        Distribution distribution = metric.getDistribution();
+        if (metric.getType() == MetricType.DISTRIBUTION && distribution != null) {
+          int[] buckets = distribution.getBuckets();
+          long[] counts = distribution.getCounts();
+          for (int i = 0; i < buckets.length; i++) {
+            metrics.add(new Measurement(getBucketMeasureName(measureName, buckets[i]),
+                                        MeasureType.COUNTER, counts[i]));
+          }
+        }
       }
 
       CubeFact fact = new CubeFact(metricValue.getTimestamp())
@@ -339,7 +357,47 @@ public class DefaultMetricStore implements MetricStore {
 
   @Override
   public Collection<String> findMetricNames(MetricSearchQuery query) {
-    return cube.get().findMeasureNames(buildCubeSearchQuery(query));
+    Collection<String> measureNames = cube.get().findMeasureNames(buildCubeSearchQuery(query));
+    // Hide the distribution bucket counts, which are queried through the distribution metric name
+    List<String> result = new ArrayList<>(measureNames.size());
+    for (String measureName : measureNames) {
+      if (measureName == null || !measureName.startsWith(BUCKET_PREFIX)) {
+        result.add(measureName);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Collection<Integer> findDistributionBuckets(MetricSearchQuery query, String metricName) {
+    String prefix = getBucketMeasureName(metricName, "");
+    Set<Integer> buckets = new TreeSet<>();
+    for (String measureName : cube.get().findMeasureNames(buildCubeSearchQuery(query))) {
+      if (measureName == null || !measureName.startsWith(prefix)) {
+        continue;
+      }
+      try {
+        buckets.add(Integer.parseInt(measureName.substring(prefix.length())));
+      } catch (NumberFormatException e) {
+        // A bucket of a different metric whose name starts with the given metric name, such as "a.b" for "a"
+      }
+    }
+    return buckets;
+  }
+
+  /**
+   * Returns the measure name for storing the count of the given bucket of a distribution metric.
+   *
+   * @param metricName the name of the distribution metric, including the scope prefix
+   * @param bucket the bucket index as defined by {@link Distribution}
+   * @return the measure name of the bucket
+   */
+  public static String getBucketMeasureName(String metricName, int bucket) {
+    return getBucketMeasureName(metricName, Integer.toString(bucket));
+  }
+
+  private static String getBucketMeasureName(String metricName, String bucket) {
+    return BUCKET_PREFIX + metricName + "." + bucket;
   }
 
   /**
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.read;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.common.utils.Tasks;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for the prefetching of log files in {@link FileLogReader}.
+ */
+public class FileLogReaderTest {
+
+  private static ListeningExecutorService executor;
+
+  @BeforeClass
+  public static void init() {
+    executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(4));
+  }
+
+  @AfterClass
+  public static void finish() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void testPrefetchOrdering() {
+    // Earlier iterators take longer to open, so that they complete after the ones prefetched after them
+    List<TrackingIterator> iterators = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      iterators.add(new TrackingIterator(ImmutableList.of(i * 10, i * 10 + 1), (5 - i) * 50L));
+    }
+
+    List<Integer> result = new ArrayList<>();
+    try (CloseableIterator<Integer> iterator =
+           FileLogReader.concat(new FileLogReader.PrefetchIterator<>(iterators.iterator(), executor, 2))) {
+      while (iterator.hasNext()) {
+        result.add(iterator.next());
+      }
+    }
+
+    Assert.assertEquals(ImmutableList.of(0, 1, 10, 11, 20, 21, 30, 31, 40, 41), result);
+    for (TrackingIterator iterator : iterators) {
+      Assert.assertEquals(1, iterator.opened.get());
+      Assert.assertEquals(1, iterator.closed.get());
+    }
+  }
+
+  @Test
+  public void testPrefetchEarlyClose() throws Exception {
+    List<TrackingIterator> iterators = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      iterators.add(new TrackingIterator(ImmutableList.of(i), 20L));
+    }
+
+    CloseableIterator<Integer> iterator =
+      FileLogReader.concat(new FileLogReader.PrefetchIterator<>(iterators.iterator(), executor, 3));
+    Assert.assertEquals(0, (int) iterator.next());
+    iterator.close();
+
+    // Closing the concatenated iterator closes the current and all remaining iterators
+    for (TrackingIterator tracking : iterators) {
+      Assert.assertEquals(1, tracking.opened.get());
+      Assert.assertEquals(1, tracking.closed.get());
+    }
+
+    // Closing the prefetch iterator directly closes the iterators that are still being opened once they are opened
+    iterators.clear();
+    for (int i = 0; i < 10; i++) {
+      iterators.add(new TrackingIterator(ImmutableList.of(i), 200L));
+    }
+    CloseableIterator<CloseableIterator<Integer>> prefetchIterator =
+      new FileLogReader.PrefetchIterator<>(iterators.iterator(), executor, 3);
+    Assert.assertEquals(0, (int) prefetchIterator.next().next());
+    prefetchIterator.close();
+
+    for (TrackingIterator tracking : iterators) {
+      Tasks.waitFor(true, () -> tracking.opened.get() == tracking.closed.get(),
+                    5, TimeUnit.SECONDS, 10, TimeUnit.MILLISECONDS);
+    }
+    // The first one and the prefetched ones after it were opened, but not the ones further ahead
+    Assert.assertEquals(1, iterators.get(0).closed.get());
+    Assert.assertEquals(0, iterators.get(iterators.size() - 1).opened.get());
+  }
+
+  /**
+   * A {@link Callable} that opens an iterator over the given values after a delay, and tracks how many times
+   * it was opened and closed.
+   */
+  private static final class TrackingIterator implements Callable<CloseableIterator<Integer>> {
+
+    private final List<Integer> values;
+    private final long openDelayMillis;
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+
+    TrackingIterator(List<Integer> values, long openDelayMillis) {
+      this.values = values;
+      this.openDelayMillis = openDelayMillis;
+    }
+
+    @Override
+    public CloseableIterator<Integer> call() throws Exception {
+      TimeUnit.MILLISECONDS.sleep(openDelayMillis);
+      opened.incrementAndGet();
+      Iterator<Integer> iterator = values.iterator();
+      return new CloseableIterator<Integer>() {
+        @Override
+        public boolean hasNext() {
+          return iterator.hasNext();
+        }
+
+        @Override
+        public Integer next() {
+          if (!iterator.hasNext()) {
+            throw new NoSuchElementException();
+          }
+          return iterator.next();
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+          closed.incrementAndGet();
+        }
+      };
+    }
+  }
+}
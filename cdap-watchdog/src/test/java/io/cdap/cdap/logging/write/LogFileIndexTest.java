@@ -0,0 +1,255 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.logging.write;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import com.google.common.collect.ImmutableSet;
+import io.cdap.cdap.api.dataset.lib.CloseableIterator;
+import io.cdap.cdap.logging.filter.Filter;
+import io.cdap.cdap.logging.filter.FilterParser;
+import io.cdap.cdap.logging.filter.LogTokenizer;
+import io.cdap.cdap.logging.read.LogEvent;
+import io.cdap.cdap.logging.serialize.LoggingEventSerializer;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.apache.twill.filesystem.Location;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests for {@link LogFileIndex}.
+ */
+public class LogFileIndexTest {
+
+  @ClassRule
+  public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
+  @Test
+  public void testIndexLookup() throws Exception {
+    LogFileIndex index = new LogFileIndex();
+    for (int i = 0; i < 100; i++) {
+      index.add(i * 10L, 1000L + i * 100L);
+    }
+
+    // Encode and decode the index
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    index.write(bos);
+    index = LogFileIndex.read(new ByteArrayInputStream(bos.toByteArray()));
+    Assert.assertEquals(100, index.size());
+
+    // Before the first entry, start from the beginning
+    Assert.assertEquals(-1L, index.getStartPosition(0L));
+    Assert.assertEquals(-1L, index.getStartPosition(10L));
+    // Start position is two entries before the first entry that is not smaller than the time
+    Assert.assertEquals(1000L, index.getStartPosition(11L));
+    Assert.assertEquals(1000L + 48 * 100L, index.getStartPosition(500L));
+    Assert.assertEquals(1000L + 48 * 100L, index.getStartPosition(495L));
+    Assert.assertEquals(1000L + 98 * 100L, index.getStartPosition(Long.MAX_VALUE));
+
+    // End position is one entry after the first entry that is larger than the time
+    Assert.assertEquals(1000L + 2 * 100L, index.getEndPosition(0L));
+    Assert.assertEquals(1000L + 52 * 100L, index.getEndPosition(500L));
+    Assert.assertEquals(1000L + 52 * 100L, index.getEndPosition(505L));
+    Assert.assertEquals(-1L, index.getEndPosition(985L));
+    Assert.assertEquals(-1L, index.getEndPosition(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void testTokenIndex() throws Exception {
+    LogFileIndex index = new LogFileIndex();
+    index.add(0L, 0L, LogTokenizer.tokenize("Starting program run"));
+    index.add(10L, 100L, LogTokenizer.tokenize("java.lang.NullPointerException: Missing value 42"));
+    index.add(20L, 200L, LogTokenizer.tokenize("Program run completed with NullPointerException"));
+
+    // Encode and decode the index
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    index.write(bos);
+    index = LogFileIndex.read(new ByteArrayInputStream(bos.toByteArray()));
+
+    Assert.assertEquals(1, index.getEntry(150L));
+    Assert.assertEquals(-1, index.getEntry(-1L));
+    Assert.assertEquals(200L, index.getPosition(2));
+
+    Assert.assertEquals(bitSet(1, 2), index.getCandidateEntries(ImmutableSet.of("nullpointerexception")));
+    Assert.assertEquals(bitSet(2), index.getCandidateEntries(ImmutableSet.of("nullpointerexception", "run")));
+    Assert.assertEquals(bitSet(), index.getCandidateEntries(ImmutableSet.of("unknown")));
+    // Non-indexable tokens are ignored
+    Assert.assertEquals(bitSet(1), index.getCandidateEntries(ImmutableSet.of("missing", "42")));
+    Assert.assertNull(index.getCandidateEntries(ImmutableSet.of("42")));
+
+    // Adding an entry without tokens disables the token index
+    index = new LogFileIndex();
+    index.add(0L, 0L, LogTokenizer.tokenize("Starting program run"));
+    index.add(10L, 100L);
+    bos = new ByteArrayOutputStream();
+    index.write(bos);
+    index = LogFileIndex.read(new ByteArrayInputStream(bos.toByteArray()));
+    Assert.assertEquals(2, index.size());
+    Assert.assertNull(index.getCandidateEntries(ImmutableSet.of("program")));
+  }
+
+  @Test
+  public void testTokenIndexedRead() throws Exception {
+    Location location = new LocalLocationFactory(TEMP_FOLDER.newFolder()).create("log.avro");
+    LoggingEventSerializer serializer = new LoggingEventSerializer();
+    LogFileIndex index = new LogFileIndex();
+
+    // Write 100 blocks of 10 events each. Only the events in every tenth block contain the "failure" token.
+    try (OutputStream os = location.getOutputStream();
+         DataFileWriter<GenericRecord> writer =
+           new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(serializer.getAvroSchema()))) {
+      writer.create(serializer.getAvroSchema(), os);
+      long position = writer.sync();
+      for (int block = 0; block < 100; block++) {
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+          LoggingEvent event = createEvent(block * 10 + i, (block % 10 == 5 ? "Failure " : "Message ") + block);
+          tokens.addAll(LogTokenizer.getTokens(event));
+          writer.append(serializer.toGenericRecord(event));
+        }
+        index.add(block * 10, position, tokens);
+        position = writer.sync();
+      }
+    }
+
+    LogLocation logLocation = new LogLocation(LogLocation.VERSION_1, 0L, 0L, location, "default", null);
+    Filter filter = FilterParser.parse("text=failure");
+    List<Long> expected = new ArrayList<>();
+    for (int block = 5; block < 100; block += 10) {
+      for (long i = 0; i < 10; i++) {
+        expected.add(block * 10 + i);
+      }
+    }
+
+    // Read without index, then with index. Both should return the same events.
+    Assert.assertEquals(expected, readTimestamps(logLocation, filter, 0L, 1000L));
+    index.write(location, "");
+    Assert.assertEquals(expected, readTimestamps(logLocation, filter, 0L, 1000L));
+    Assert.assertEquals(expected.subList(30, 60), readTimestamps(logLocation, filter, 300L, 600L));
+    Assert.assertEquals(Arrays.asList(555L, 556L), readTimestamps(logLocation, filter, 555L, 557L));
+    Assert.assertEquals(Collections.emptyList(),
+                        readTimestamps(logLocation, FilterParser.parse("text=unknown"), 0L, 1000L));
+  }
+
+  @Test
+  public void testIndexedRead() throws Exception {
+    testIndexedRead(CodecFactory.nullCodec());
+  }
+
+  @Test
+  public void testCompressedIndexedRead() throws Exception {
+    testIndexedRead(CodecFactory.deflateCodec(6));
+  }
+
+  private void testIndexedRead(CodecFactory codecFactory) throws Exception {
+    Location location = new LocalLocationFactory(TEMP_FOLDER.newFolder()).create("log.avro");
+    LoggingEventSerializer serializer = new LoggingEventSerializer();
+    LogFileIndex index = new LogFileIndex();
+
+    // Write 100 blocks of 10 events each, with event timestamps 0 to 999
+    try (OutputStream os = location.getOutputStream();
+         DataFileWriter<GenericRecord> writer =
+           new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(serializer.getAvroSchema()))) {
+      writer.setCodec(codecFactory);
+      writer.create(serializer.getAvroSchema(), os);
+      long position = writer.sync();
+      for (int block = 0; block < 100; block++) {
+        for (int i = 0; i < 10; i++) {
+          writer.append(serializer.toGenericRecord(createEvent(block * 10 + i)));
+        }
+        index.add(block * 10, position);
+        position = writer.sync();
+      }
+    }
+
+    LogLocation logLocation = new LogLocation(LogLocation.VERSION_1, 0L, 0L, location, "default", null);
+    List<Long> expected = new ArrayList<>();
+    for (long i = 555; i < 600; i++) {
+      expected.add(i);
+    }
+
+    // Read without index, then with index. Both should return the same events.
+    Assert.assertEquals(expected, readTimestamps(logLocation, 555L, 600L));
+    Assert.assertEquals(expected.subList(expected.size() - 20, expected.size()),
+                        getTimestamps(logLocation.readLogPrev(Filter.EMPTY_FILTER, 599L, 20)));
+
+    index.write(location, "");
+    Assert.assertEquals(expected, readTimestamps(logLocation, 555L, 600L));
+    Assert.assertEquals(expected.subList(expected.size() - 20, expected.size()),
+                        getTimestamps(logLocation.readLogPrev(Filter.EMPTY_FILTER, 599L, 20)));
+  }
+
+  private List<Long> readTimestamps(LogLocation logLocation, long fromTimeMs, long toTimeMs) {
+    return readTimestamps(logLocation, Filter.EMPTY_FILTER, fromTimeMs, toTimeMs);
+  }
+
+  private List<Long> readTimestamps(LogLocation logLocation, Filter filter, long fromTimeMs, long toTimeMs) {
+    List<Long> timestamps = new ArrayList<>();
+    try (CloseableIterator<LogEvent> iterator = logLocation.readLog(filter, fromTimeMs, toTimeMs,
+                                                                    Integer.MAX_VALUE)) {
+      while (iterator.hasNext()) {
+        timestamps.add(iterator.next().getLoggingEvent().getTimeStamp());
+      }
+    }
+    return timestamps;
+  }
+
+  private List<Long> getTimestamps(Collection<LogEvent> events) {
+    List<Long> timestamps = new ArrayList<>();
+    for (LogEvent event : events) {
+      timestamps.add(event.getLoggingEvent().getTimeStamp());
+    }
+    return timestamps;
+  }
+
+  private BitSet bitSet(int... bits) {
+    BitSet bitSet = new BitSet();
+    for (int bit : bits) {
+      bitSet.set(bit);
+    }
+    return bitSet;
+  }
+
+  private LoggingEvent createEvent(long timestamp) {
+    return createEvent(timestamp, "Message " + timestamp);
+  }
+
+  private LoggingEvent createEvent(long timestamp, String message) {
+    LoggingEvent event = new LoggingEvent(getClass().getName(),
+                                          (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(getClass()),
+                                          Level.INFO, message, null, null);
+    event.setTimeStamp(timestamp);
+    return event;
+  }
+}
@@ -17,22 +17,31 @@ package io.cdap.cdap.metrics.collect;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterators;
+import io.cdap.cdap.api.metrics.Distribution;
+import io.cdap.cdap.api.metrics.MetricType;
 import io.cdap.cdap.api.metrics.MetricValue;
 import io.cdap.cdap.api.metrics.MetricValues;
 import io.cdap.cdap.api.metrics.MetricsContext;
+import io.cdap.cdap.api.metrics.MetricsCounter;
 import io.cdap.cdap.common.conf.Constants;
 import io.cdap.cdap.test.SlowTests;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Testing the basic properties of the {@link AggregatedMetricsCollectionService}.
@@ -139,6 +148,146 @@ public class AggregatedMetricsCollectionServiceTest {
     }
   }
 
+  @Test
+  public void testBoundCounter() throws Exception {
+    final BlockingQueue<MetricValues> published = new LinkedBlockingQueue<>();
+
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService(100L) {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+    };
+
+    service.startAndWait();
+    try {
+      MetricsContext context = service.getContext(ImmutableMap.of(Constants.Metrics.Tag.NAMESPACE, NAMESPACE));
+      MetricsCounter counter = context.getCounter(METRIC);
+
+      // Increments from multiple threads through the bound counter, mixed with increments through the context
+      int threadCount = 4;
+      int rounds = 10000;
+      ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+          futures.add(executor.submit(() -> {
+            for (int j = 0; j < rounds; j++) {
+              counter.increment(1L);
+            }
+            context.increment(METRIC, 1L);
+          }));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+
+      verifyCounterMetricsValue(published,
+                                ImmutableMap.of(1, ImmutableMap.of(METRIC, (long) threadCount * (rounds + 1))));
+    } finally {
+      service.stopAndWait();
+    }
+  }
+
+  @Test
+  public void testEmitterRemove() throws Exception {
+    AggregatedMetricsEmitter emitter = new AggregatedMetricsEmitter(METRIC);
+
+    // Increments from multiple threads while emitting and removing the emitter concurrently.
+    // Every increment must either be emitted, or rejected, or taken after the removal.
+    int threadCount = 4;
+    int rounds = 100000;
+    AtomicLong rejected = new AtomicLong();
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    long emitted = 0L;
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threadCount; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < rounds; j++) {
+            if (!emitter.increment(1L)) {
+              rejected.incrementAndGet();
+            }
+          }
+        }));
+      }
+      for (int i = 0; i < 100; i++) {
+        emitted += emitter.emit().getValue();
+      }
+      emitter.remove();
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Assert.assertFalse(emitter.increment(1L));
+    Assert.assertEquals(0L, emitter.emit().getValue());
+    long removed = emitter.takeRemovedValue();
+    Assert.assertEquals(0L, emitter.takeRemovedValue());
+    Assert.assertEquals((long) threadCount * rounds, emitted + removed + rejected.get());
+  }
+
+  @Test
+  public void testDistribution() throws Exception {
+    final BlockingQueue<MetricValues> published = new LinkedBlockingQueue<>();
+
+    AggregatedMetricsCollectionService service = new AggregatedMetricsCollectionService(100L) {
+      @Override
+      protected void publish(Iterator<MetricValues> metrics) {
+        Iterators.addAll(published, metrics);
+      }
+    };
+
+    service.startAndWait();
+    try {
+      MetricsContext context = service.getContext(EMPTY_TAGS);
+      for (int i = 1; i <= 1000; i++) {
+        context.distribution(METRIC, i);
+      }
+
+      MetricValue metricValue = null;
+      long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while (metricValue == null && timeout > System.currentTimeMillis()) {
+        MetricValues metricValues = published.poll(100, TimeUnit.MILLISECONDS);
+        if (metricValues == null) {
+          continue;
+        }
+        for (MetricValue value : metricValues.getMetrics()) {
+          if (value.getName().equals(METRIC)) {
+            metricValue = value;
+          }
+        }
+      }
+
+      Assert.assertNotNull(metricValue);
+      Assert.assertEquals(MetricType.DISTRIBUTION, metricValue.getType());
+      Assert.assertEquals(1000L, metricValue.getValue());
+
+      Distribution distribution = metricValue.getDistribution();
+      Assert.assertNotNull(distribution);
+      Assert.assertEquals(1000L, distribution.getCount());
+
+      // Percentiles are accurate within the bucket width
+      long[] bucketCounts = distribution.toBucketCounts();
+      for (double percentile : new double[] { 50d, 90d, 99d, 100d }) {
+        double expected = percentile * 10;
+        long actual = Distribution.getPercentile(bucketCounts, percentile);
+        Assert.assertTrue("Percentile " + percentile + " is " + actual,
+                          Math.abs(actual - expected) <= expected / Distribution.SUB_BUCKETS);
+      }
+
+      // No more publishing since the distribution is reset after emit
+      Assert.assertNull(published.poll(1, TimeUnit.SECONDS));
+    } finally {
+      service.stopAndWait();
+    }
+  }
+
   private void verifyCounterMetricsValue(BlockingQueue<MetricValues> published,
                                          Map<Integer, Map<String, Long>> expected) throws InterruptedException {
     Map<Integer, Map<String, Long>> received = new HashMap<>();
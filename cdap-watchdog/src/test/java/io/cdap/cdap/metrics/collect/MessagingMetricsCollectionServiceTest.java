@@ -87,9 +87,11 @@ public class MessagingMetricsCollectionServiceTest extends MetricsTestBase {
     TopicId topicId = NamespaceId.SYSTEM.topic(TOPIC_PREFIX + i);
       try (CloseableIterator<RawMessage> iterator = messagingService.prepareFetch(topicId).fetch()) {
         while (iterator.hasNext()) {
-          RawMessage message = iterator.next();
+          byte[] payload = iterator.next().getPayload();
+          Assert.assertEquals(MetricsMessageFormat.CURRENT_VERSION, MetricsMessageFormat.getVersion(payload));
+          int offset = MetricsMessageFormat.getOffset(MetricsMessageFormat.CURRENT_VERSION);
           MetricValues metricsRecord = (MetricValues) recordReader.read(
-            new BinaryDecoder(new ByteArrayInputStream(message.getPayload())), schema);
+            new BinaryDecoder(new ByteArrayInputStream(payload, offset, payload.length - offset)), schema);
           StringBuilder flattenContext = new StringBuilder();
           // for verifying expected results, sorting tags
           Map<String, String> tags = Maps.newTreeMap();
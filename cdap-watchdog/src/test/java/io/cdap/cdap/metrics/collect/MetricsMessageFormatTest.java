@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2020 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package io.cdap.cdap.metrics.collect;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.reflect.TypeToken;
+import io.cdap.cdap.api.data.schema.Schema;
+import io.cdap.cdap.api.metrics.Distribution;
+import io.cdap.cdap.api.metrics.MetricType;
+import io.cdap.cdap.api.metrics.MetricValue;
+import io.cdap.cdap.api.metrics.MetricValues;
+import io.cdap.cdap.common.io.BinaryDecoder;
+import io.cdap.cdap.common.io.BinaryEncoder;
+import io.cdap.cdap.internal.io.ReflectionDatumReader;
+import io.cdap.cdap.internal.io.ReflectionDatumWriter;
+import io.cdap.cdap.internal.io.ReflectionSchemaGenerator;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for {@link MetricsMessageFormat}.
+ */
+public class MetricsMessageFormatTest {
+
+  private static Schema schema;
+  private static ReflectionDatumReader<MetricValues> reader;
+
+  @BeforeClass
+  public static void init() throws Exception {
+    schema = new ReflectionSchemaGenerator().generate(MetricValues.class);
+    reader = new ReflectionDatumReader<>(schema, TypeToken.of(MetricValues.class));
+  }
+
+  @Test
+  public void testCurrentVersion() throws IOException {
+    long[] bucketCounts = new long[Distribution.NUM_BUCKETS];
+    bucketCounts[Distribution.getBucket(10L)] = 3L;
+    bucketCounts[Distribution.getBucket(1000L)] = 1L;
+    MetricValues metricValues = new MetricValues(
+      ImmutableMap.of("ns", "default"), 1234L,
+      ImmutableList.of(new MetricValue("counter", MetricType.COUNTER, 5L),
+                       new MetricValue("latency", Distribution.of(bucketCounts))));
+
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    os.write(MetricsMessageFormat.CURRENT_VERSION);
+    new ReflectionDatumWriter<MetricValues>(schema).encode(metricValues, new BinaryEncoder(os));
+
+    MetricValues decoded = decode(os.toByteArray());
+    Assert.assertEquals(metricValues.getTags(), decoded.getTags());
+    Assert.assertEquals(metricValues.getTimestamp(), decoded.getTimestamp());
+
+    List<MetricValue> metrics = new ArrayList<>(decoded.getMetrics());
+    Assert.assertEquals(2, metrics.size());
+    Assert.assertEquals(MetricType.COUNTER, metrics.get(0).getType());
+    Assert.assertEquals(5L, metrics.get(0).getValue());
+    Assert.assertNull(metrics.get(0).getDistribution());
+
+    Assert.assertEquals(MetricType.DISTRIBUTION, metrics.get(1).getType());
+    Assert.assertEquals(4L, metrics.get(1).getValue());
+    Assert.assertArrayEquals(bucketCounts, metrics.get(1).getDistribution().toBucketCounts());
+  }
+
+  @Test
+  public void testVersion0() throws IOException {
+    // Messages published before the version was introduced have no version byte and no distribution field
+    Schema version0Schema = MetricsMessageFormat.getSchema(schema, MetricsMessageFormat.VERSION_0);
+    Assert.assertNotEquals(schema, version0Schema);
+
+    MetricValues metricValues = new MetricValues(ImmutableMap.of("ns", "default"), 1234L,
+                                                 ImmutableList.of(new MetricValue("counter", MetricType.COUNTER, 5L),
+                                                                  new MetricValue("gauge", MetricType.GAUGE, 7L)));
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    new ReflectionDatumWriter<MetricValues>(version0Schema).encode(metricValues, new BinaryEncoder(os));
+    byte[] payload = os.toByteArray();
+    Assert.assertEquals(MetricsMessageFormat.VERSION_0, MetricsMessageFormat.getVersion(payload));
+
+    MetricValues decoded = decode(payload);
+    Assert.assertEquals(metricValues.getTags(), decoded.getTags());
+    Assert.assertEquals(metricValues.getTimestamp(), decoded.getTimestamp());
+    List<MetricValue> metrics = new ArrayList<>(decoded.getMetrics());
+    Assert.assertEquals(2, metrics.size());
+    Assert.assertEquals("counter", metrics.get(0).getName());
+    Assert.assertEquals(MetricType.COUNTER, metrics.get(0).getType());
+    Assert.assertEquals(5L, metrics.get(0).getValue());
+    Assert.assertEquals("gauge", metrics.get(1).getName());
+    Assert.assertEquals(MetricType.GAUGE, metrics.get(1).getType());
+    Assert.assertEquals(7L, metrics.get(1).getValue());
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnsupportedVersion() throws IOException {
+    MetricsMessageFormat.getVersion(new byte[] { (byte) (MetricsMessageFormat.CURRENT_VERSION + 1), 0 });
+  }
+
+  private MetricValues decode(byte[] payload) throws IOException {
+    int version = MetricsMessageFormat.getVersion(payload);
+    int offset = MetricsMessageFormat.getOffset(version);
+    return reader.read(new BinaryDecoder(new ByteArrayInputStream(payload, offset, payload.length - offset)),
+                       MetricsMessageFormat.getSchema(schema, version));
+  }
+}
@@ -38,6 +38,7 @@ import io.cdap.cdap.data2.metadata.writer.NoOpMetadataServiceClient;
 import io.cdap.cdap.explore.guice.ExploreClientModule;
 import io.cdap.cdap.messaging.client.StoreRequestBuilder;
 import io.cdap.cdap.metrics.MetricsTestBase;
+import io.cdap.cdap.metrics.collect.MetricsMessageFormat;
 import io.cdap.cdap.metrics.guice.MetricsStoreModule;
 import io.cdap.cdap.proto.id.NamespaceId;
 import io.cdap.cdap.security.auth.context.AuthenticationContextModules;
@@ -122,6 +123,7 @@ abstract class MetricsProcessorServiceTestBase extends MetricsTestBase {
       }
     }
 
+    encoderOutputStream.write(MetricsMessageFormat.CURRENT_VERSION);
     recordWriter.encode(metric, encoder);
     return metric;
   }